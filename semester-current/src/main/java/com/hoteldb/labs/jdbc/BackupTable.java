@@ -0,0 +1,114 @@
+package com.hoteldb.labs.jdbc;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Описание таблицы, копируемой в резервную БД. Первый столбец — первичный ключ {@code id}.
+ *
+ * @param name              имя таблицы
+ * @param columns           копируемые столбцы (без служебного updated_at)
+ * @param columnDefinitions определения столбцов для CREATE TABLE в резервной БД
+ */
+record BackupTable(String name, List<String> columns, String columnDefinitions) {
+
+    static final String ID = "id";
+    static final String STAGING_SUFFIX = "_staging";
+
+    /**
+     * Счётчик оптимистической блокировки: копируется вместе со строкой, чтобы после переключения
+     * на резервную БД или восстановления из неё JDBC DAO и JPA продолжали сверять версии
+     */
+    static final String VERSION = "version";
+    static final String VERSION_DEFINITION = VERSION + " BIGINT NOT NULL DEFAULT 0";
+
+    static final BackupTable ROOMS = new BackupTable("rooms",
+            List.of("id", "room_number", "room_type", "price_per_night", "is_available", VERSION, "created_at"),
+            "id INT PRIMARY KEY, " +
+                    "room_number VARCHAR(10) NOT NULL, " +
+                    "room_type VARCHAR(50) NOT NULL, " +
+                    "price_per_night DECIMAL(10, 2) NOT NULL, " +
+                    "is_available BOOLEAN, " +
+                    VERSION_DEFINITION + ", " +
+                    "created_at TIMESTAMP");
+
+    static final BackupTable CLIENTS = new BackupTable("clients",
+            List.of("id", "first_name", "last_name", "email", "phone", "room_id",
+                    "check_in_date", "check_out_date", VERSION, "created_at"),
+            "id INT PRIMARY KEY, " +
+                    "first_name VARCHAR(100) NOT NULL, " +
+                    "last_name VARCHAR(100) NOT NULL, " +
+                    "email VARCHAR(255), " +
+                    "phone VARCHAR(20), " +
+                    "room_id INT, " +
+                    "check_in_date DATE, " +
+                    "check_out_date DATE, " +
+                    VERSION_DEFINITION + ", " +
+                    "created_at TIMESTAMP");
+
+    /**
+     * Пользователи веб-приложения; в резервную СУБД не копируются, сохраняются только в файловом снимке
+     * ({@link SnapshotBackupTarget})
+     */
+    static final BackupTable USERS = new BackupTable("users",
+            List.of("id", "username", "password", "role", "created_at"),
+            "id INT PRIMARY KEY, " +
+                    "username VARCHAR(100) NOT NULL, " +
+                    "password VARCHAR(255) NOT NULL, " +
+                    "role VARCHAR(16) NOT NULL, " +
+                    "created_at TIMESTAMP");
+
+    /**
+     * Порядок внешних ключей: clients.room_id ссылается на rooms
+     */
+    static final List<BackupTable> ALL = List.of(ROOMS, CLIENTS);
+
+    BackupTable {
+        columns = List.copyOf(columns);
+        if (columns.isEmpty() || !ID.equals(columns.get(0))) {
+            throw new IllegalArgumentException("Первым столбцом таблицы " + name + " должен быть " + ID);
+        }
+    }
+
+    /**
+     * CREATE TABLE IF NOT EXISTS для резервной БД
+     */
+    String backupDdl() {
+        return "CREATE TABLE IF NOT EXISTS " + name + " (" + columnDefinitions + ")";
+    }
+
+    /**
+     * Промежуточная таблица той же структуры: полная копия заполняется в ней частями
+     * и переносится в основную таблицу одной транзакцией
+     */
+    BackupTable staging() {
+        return new BackupTable(name + STAGING_SUFFIX, columns, columnDefinitions);
+    }
+
+    String selectList() {
+        return String.join(", ", columns);
+    }
+
+    String select() {
+        return "SELECT " + selectList() + " FROM " + name;
+    }
+
+    String insertSql() {
+        return "INSERT INTO " + name + " (" + selectList() + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+    }
+
+    /**
+     * UPDATE всех столбцов, кроме id; id — последний параметр
+     */
+    String updateSql() {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(name).append(" SET ");
+        for (int i = 1; i < columns.size(); i++) {
+            if (i > 1) {
+                sql.append(", ");
+            }
+            sql.append(columns.get(i)).append(" = ?");
+        }
+        return sql.append(" WHERE ").append(ID).append(" = ?").toString();
+    }
+}
@@ -0,0 +1,19 @@
+package com.hoteldb.labs.jdbc;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Куда сохраняется резервная копия основной БД: другая СУБД ({@link DatabaseBackupService})
+ * или файл-снимок ({@link SnapshotBackupTarget}).
+ */
+public interface BackupTarget {
+
+    /**
+     * Полная резервная копия основной БД
+     *
+     * @return число сохранённых строк по таблицам
+     */
+    Map<String, Long> backup() throws SQLException, IOException;
+}
@@ -0,0 +1,307 @@
+package com.hoteldb.labs.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Проверка резервной копии: совпадают ли таблицы основной и резервной БД, без их копирования.
+ * <p>
+ * Таблица делится на диапазоны id шириной {@code db.backup.checksumRangeSize}. Для каждого диапазона
+ * считается сводка: число строк и сумма/XOR 64-битных хешей строк — от порядка строк она не зависит.
+ * Обе стороны всех таблиц читаются параллельно одним потоковым проходом; построчно (id → хеш)
+ * перечитываются только диапазоны, сводки которых не совпали.
+ * <p>
+ * Хеш считается на клиенте по приведённым к общему виду значениям, а не функциями СУБД:
+ * основная и резервная БД — разные СУБД, и MD5/CRC в SQL по-разному форматировали бы числа и даты.
+ */
+public class BackupVerifier {
+    private static final Logger logger = LoggerFactory.getLogger(BackupVerifier.class);
+
+    private static final byte NULL_MARKER = 0;
+    private static final byte VALUE_MARKER = 1;
+    private static final byte SEPARATOR = 0x1F;
+
+    /**
+     * Расхождения одной таблицы
+     *
+     * @param rangesChecked    сколько диапазонов id сравнивалось
+     * @param rangesMismatched сколько из них не совпало
+     * @param missingInBackup  id, которых нет в резервной БД
+     * @param extraInBackup    id, которых нет в основной БД
+     * @param changed          id, значения которых различаются
+     */
+    public record TableDiff(String table, int rangesChecked, int rangesMismatched,
+                            List<Long> missingInBackup, List<Long> extraInBackup, List<Long> changed) {
+        public TableDiff {
+            missingInBackup = List.copyOf(missingInBackup);
+            extraInBackup = List.copyOf(extraInBackup);
+            changed = List.copyOf(changed);
+        }
+
+        public boolean matches() {
+            return missingInBackup.isEmpty() && extraInBackup.isEmpty() && changed.isEmpty();
+        }
+    }
+
+    /**
+     * Итог проверки
+     *
+     * @param rowsRead строк прочитано с обеих сторон (включая перечитанные диапазоны)
+     */
+    public record VerificationReport(List<TableDiff> tables, long rowsRead, long elapsedMillis) {
+        public VerificationReport {
+            tables = List.copyOf(tables);
+        }
+
+        public boolean matches() {
+            return tables.stream().allMatch(TableDiff::matches);
+        }
+
+        public TableDiff table(String name) {
+            return tables.stream().filter(t -> t.table().equals(name)).findFirst().orElse(null);
+        }
+    }
+
+    /**
+     * Сводка диапазона; у совпадающих диапазонов совпадают все три поля
+     */
+    record RangeDigest(long rows, long hashSum, long hashXor) {
+        static final RangeDigest EMPTY = new RangeDigest(0, 0, 0);
+
+        RangeDigest add(long hash) {
+            return new RangeDigest(rows + 1, hashSum + hash, hashXor ^ hash);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+
+    private record Scan(Map<Long, RangeDigest> ranges, long rows) { }
+
+    private final DatabaseConnection databaseConnection;
+
+    public BackupVerifier(DatabaseConnection databaseConnection) {
+        if (databaseConnection == null) {
+            throw new IllegalArgumentException("databaseConnection cannot be null");
+        }
+        this.databaseConnection = databaseConnection;
+    }
+
+    /**
+     * Сравнить все таблицы резервной копии с основной БД
+     */
+    public VerificationReport verify() throws SQLException {
+        return verify(BackupTable.ALL);
+    }
+
+    VerificationReport verify(List<BackupTable> tables) throws SQLException {
+        if (!databaseConnection.isBackupConfigured()) {
+            throw new IllegalStateException("Backup DB is not configured");
+        }
+        long started = System.nanoTime();
+        DatabaseBackupService.Config config = databaseConnection.readBackupConfig();
+        int rangeSize = config.checksumRangeSize();
+
+        // каждая таблица — две независимые задачи (основная и резервная БД)
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(tables.size(), config.parallelTables()) * 2),
+                DatabaseBackupService.daemonThreads("backup-verify"));
+        Map<BackupTable, Future<Scan>> primaryScans = new HashMap<>();
+        Map<BackupTable, Future<Scan>> backupScans = new HashMap<>();
+        try {
+            for (BackupTable table : tables) {
+                primaryScans.put(table, executor.submit(() -> scan(databaseConnection::openPrimaryConnection, table, rangeSize)));
+                backupScans.put(table, executor.submit(() -> scan(databaseConnection::openBackupConnection, table, rangeSize)));
+            }
+            List<Future<?>> all = new ArrayList<>(primaryScans.values());
+            all.addAll(backupScans.values());
+            DatabaseBackupService.awaitAll(all);
+
+            List<TableDiff> diffs = new ArrayList<>();
+            long rowsRead = 0;
+            for (BackupTable table : tables) {
+                Scan primary = primaryScans.get(table).get();
+                Scan backup = backupScans.get(table).get();
+                rowsRead += primary.rows() + backup.rows();
+                long[] drilledRows = new long[1];
+                diffs.add(compare(table, primary.ranges(), backup.ranges(), rangeSize, drilledRows));
+                rowsRead += drilledRows[0];
+            }
+            VerificationReport report = new VerificationReport(diffs, rowsRead,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            logger.info("Проверка резервной копии: {}, прочитано {} строк за {} мс",
+                    report.matches() ? "совпадает" : "есть расхождения", report.rowsRead(), report.elapsedMillis());
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Проверка резервной копии прервана", e);
+        } catch (ExecutionException e) {
+            throw new SQLException("Ошибка проверки резервной копии: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            DatabaseBackupService.shutdown(executor);
+        }
+    }
+
+    private TableDiff compare(BackupTable table, Map<Long, RangeDigest> primaryRanges,
+                              Map<Long, RangeDigest> backupRanges, int rangeSize, long[] drilledRows)
+            throws SQLException {
+        Set<Long> ranges = new TreeSet<>(primaryRanges.keySet());
+        ranges.addAll(backupRanges.keySet());
+        List<Long> mismatched = ranges.stream()
+                .filter(r -> !primaryRanges.getOrDefault(r, RangeDigest.EMPTY).equals(backupRanges.getOrDefault(r, RangeDigest.EMPTY)))
+                .toList();
+
+        List<Long> missing = new ArrayList<>();
+        List<Long> extra = new ArrayList<>();
+        List<Long> changed = new ArrayList<>();
+        if (!mismatched.isEmpty()) {
+            try (Connection primary = databaseConnection.openPrimaryConnection();
+                 Connection backup = databaseConnection.openBackupConnection()) {
+                for (long range : mismatched) {
+                    long fromId = range * rangeSize;
+                    long toId = fromId + rangeSize;
+                    Map<Long, Long> primaryRows = rowHashes(primary, table, fromId, toId);
+                    Map<Long, Long> backupRows = rowHashes(backup, table, fromId, toId);
+                    drilledRows[0] += primaryRows.size() + backupRows.size();
+                    primaryRows.forEach((id, hash) -> {
+                        Long backupHash = backupRows.get(id);
+                        if (backupHash == null) {
+                            missing.add(id);
+                        } else if (!backupHash.equals(hash)) {
+                            changed.add(id);
+                        }
+                    });
+                    backupRows.keySet().stream().filter(id -> !primaryRows.containsKey(id)).forEach(extra::add);
+                }
+            }
+        }
+        TableDiff diff = new TableDiff(table.name(), ranges.size(), mismatched.size(), missing, extra, changed);
+        if (!diff.matches()) {
+            logger.warn("Таблица {}: не совпало {} из {} диапазонов; нет в резервной БД: {}, лишние: {}, изменены: {}",
+                    table.name(), diff.rangesMismatched(), diff.rangesChecked(),
+                    diff.missingInBackup(), diff.extraInBackup(), diff.changed());
+        }
+        return diff;
+    }
+
+    private Scan scan(ConnectionSource source, BackupTable table, int rangeSize) throws SQLException {
+        Map<Long, RangeDigest> ranges = new HashMap<>();
+        long rows = 0;
+        try (Connection conn = source.open();
+             PreparedStatement stmt = conn.prepareStatement(table.select(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            boolean restoreAutoCommit = SqlDialect.of(conn).prepareForStreaming(conn, stmt, databaseConnection.getStreamFetchSize());
+            try (ResultSet rs = stmt.executeQuery()) {
+                int columnCount = table.columns().size();
+                while (rs.next()) {
+                    long id = rs.getLong(1);
+                    long hash = rowHash(rs, columnCount);
+                    ranges.merge(Math.floorDiv(id, rangeSize), RangeDigest.EMPTY.add(hash),
+                            (a, b) -> new RangeDigest(a.rows() + b.rows(), a.hashSum() + b.hashSum(), a.hashXor() ^ b.hashXor()));
+                    rows++;
+                }
+            } finally {
+                if (restoreAutoCommit) {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+            }
+        }
+        return new Scan(ranges, rows);
+    }
+
+    private static Map<Long, Long> rowHashes(Connection conn, BackupTable table, long fromId, long toId) throws SQLException {
+        Map<Long, Long> hashes = new TreeMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(table.select() + " WHERE id >= ? AND id < ?")) {
+            stmt.setLong(1, fromId);
+            stmt.setLong(2, toId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    hashes.put(rs.getLong(1), rowHash(rs, table.columns().size()));
+                }
+            }
+        }
+        return hashes;
+    }
+
+    // ---------------------------------------------------------------- hash
+
+    /**
+     * 64-битный хеш строки: CRC32C в младших 32 битах, CRC32 — в старших
+     */
+    static long rowHash(ResultSet rs, int columnCount) throws SQLException {
+        Object[] values = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            values[i] = rs.getObject(i + 1);
+        }
+        return rowHash(values);
+    }
+
+    static long rowHash(Object[] values) {
+        CRC32C low = new CRC32C();
+        CRC32 high = new CRC32();
+        for (Object value : values) {
+            byte[] bytes = value == null ? new byte[]{NULL_MARKER} : canonical(value);
+            low.update(bytes);
+            high.update(bytes);
+            low.update(SEPARATOR);
+            high.update(SEPARATOR);
+        }
+        return (high.getValue() << 32) | low.getValue();
+    }
+
+    /**
+     * Значение в виде, не зависящем от СУБД и драйвера: BOOLEAN и TINYINT(1) дают 1/0,
+     * у DECIMAL не учитываются незначащие нули, даты — в формате ISO
+     */
+    static byte[] canonical(Object value) {
+        String text;
+        if (value instanceof Boolean b) {
+            text = b ? "1" : "0";
+        } else if (value instanceof BigDecimal d) {
+            text = d.stripTrailingZeros().toPlainString();
+        } else if (value instanceof Double || value instanceof Float) {
+            text = BigDecimal.valueOf(((Number) value).doubleValue()).stripTrailingZeros().toPlainString();
+        } else if (value instanceof Number) {
+            text = value.toString();
+        } else if (value instanceof Timestamp t) {
+            text = t.toLocalDateTime().toString();
+        } else if (value instanceof java.sql.Date d) {
+            text = d.toLocalDate().toString();
+        } else if (value instanceof byte[] bytes) {
+            text = HexFormat.of().formatHex(bytes);
+        } else {
+            text = value.toString();
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        byte[] marked = new byte[utf8.length + 1];
+        marked[0] = VALUE_MARKER;
+        System.arraycopy(utf8, 0, marked, 1, utf8.length);
+        return marked;
+    }
+}
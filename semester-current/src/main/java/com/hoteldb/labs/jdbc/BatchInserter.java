@@ -0,0 +1,157 @@
+package com.hoteldb.labs.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Массовая вставка строк для DAO.
+ * <p>
+ * Строки делятся на пачки по {@code chunkSize}, каждая пачка вставляется в своей транзакции
+ * либо через {@code addBatch/executeBatch}, либо одним многострочным
+ * {@code INSERT ... VALUES (...),(...)}. Сгенерированные ID проставляются объектам в порядке вставки.
+ * Если пачка не вставилась, она откатывается, а уже закоммиченные пачки остаются в БД.
+ */
+final class BatchInserter<T> {
+    private static final Logger logger = LoggerFactory.getLogger(BatchInserter.class);
+
+    /**
+     * Ограничение числа параметров в одном запросе (MySQL, PostgreSQL — 65535)
+     */
+    static final int MAX_PARAMETERS = 65_535;
+
+    @FunctionalInterface
+    interface ParameterBinder<T> {
+        /**
+         * Установить параметры строки, начиная с индекса {@code firstIndex}
+         */
+        void bind(PreparedStatement stmt, int firstIndex, T item) throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface IdSetter<T> {
+        void setId(T item, int id);
+    }
+
+    private final DatabaseConnection dbConnection;
+    private final String table;
+    private final List<String> columns;
+    private final ParameterBinder<T> binder;
+    private final IdSetter<T> idSetter;
+
+    BatchInserter(DatabaseConnection dbConnection, String table, List<String> columns,
+                  ParameterBinder<T> binder, IdSetter<T> idSetter) {
+        this.dbConnection = dbConnection;
+        this.table = table;
+        this.columns = List.copyOf(columns);
+        this.binder = binder;
+        this.idSetter = idSetter;
+    }
+
+    /**
+     * Вставить все строки. Возвращает число вставленных строк.
+     */
+    int insertAll(Collection<? extends T> items, int chunkSize, boolean multiRow) throws SQLException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Размер пачки должен быть >= 1: " + chunkSize);
+        }
+        if (items.isEmpty()) {
+            return 0;
+        }
+        int effectiveChunk = multiRow ? Math.min(chunkSize, MAX_PARAMETERS / columns.size()) : chunkSize;
+        List<T> chunk = new ArrayList<>(Math.min(effectiveChunk, items.size()));
+        int inserted = 0;
+        try (Connection conn = dbConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (T item : items) {
+                    chunk.add(item);
+                    if (chunk.size() == effectiveChunk) {
+                        inserted += insertChunk(conn, chunk, multiRow);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    inserted += insertChunk(conn, chunk, multiRow);
+                }
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        return inserted;
+    }
+
+    private int insertChunk(Connection conn, List<T> chunk, boolean multiRow) throws SQLException {
+        String sql = multiRow ? multiRowSql(chunk.size()) : multiRowSql(1);
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            if (multiRow) {
+                int index = 1;
+                for (T item : chunk) {
+                    binder.bind(stmt, index, item);
+                    index += columns.size();
+                }
+                stmt.executeUpdate();
+            } else {
+                for (T item : chunk) {
+                    binder.bind(stmt, 1, item);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            List<Integer> ids = readGeneratedKeys(stmt, chunk.size());
+            conn.commit();
+            for (int i = 0; i < chunk.size(); i++) {
+                idSetter.setId(chunk.get(i), ids.get(i));
+            }
+            logger.debug("В таблицу {} вставлена пачка из {} строк", table, chunk.size());
+            return chunk.size();
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            throw e;
+        }
+    }
+
+    private List<Integer> readGeneratedKeys(PreparedStatement stmt, int expected) throws SQLException {
+        List<Integer> ids = new ArrayList<>(expected);
+        try (ResultSet keys = stmt.getGeneratedKeys()) {
+            while (keys.next()) {
+                ids.add(keys.getInt(1));
+            }
+        }
+        if (ids.size() != expected) {
+            throw new SQLException("Не удалось получить ID вставленных строк таблицы " + table
+                    + ": ожидалось " + expected + ", получено " + ids.size());
+        }
+        return ids;
+    }
+
+    String multiRowSql(int rows) {
+        String placeholders = "(" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        StringBuilder sql = new StringBuilder(64 + rows * (placeholders.length() + 2))
+                .append("INSERT INTO ").append(table)
+                .append(" (").append(String.join(", ", columns)).append(") VALUES ")
+                .append(placeholders);
+        for (int i = 1; i < rows; i++) {
+            sql.append(", ").append(placeholders);
+        }
+        return sql.toString();
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            logger.warn("Ошибка при откате пачки: {}", e.getMessage());
+        }
+    }
+}
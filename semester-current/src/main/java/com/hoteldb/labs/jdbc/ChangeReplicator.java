@@ -0,0 +1,520 @@
+package com.hoteldb.labs.jdbc;
+
+import com.hoteldb.labs.jdbc.DatabaseBackupService.Watermark;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Репликация изменений основной БД в резервную почти в реальном времени.
+ * <p>
+ * Триггеры основной БД (см. sql/init.sql) пишут в журнал {@code change_log} строку на каждое изменение
+ * rooms/clients: таблицу, id строки и операцию. Репликатор читает журнал пачками по возрастанию id
+ * и приводит затронутые строки резервной БД к текущему состоянию основной: строка есть — upsert,
+ * строки нет — удаление. Повторное применение той же пачки ничего не меняет, поэтому позиция журнала
+ * (в backup_metadata) фиксируется в одной транзакции с изменениями, а сбой между ними безопасен.
+ * <p>
+ * Записи журнала от параллельных транзакций могут стать видимыми не по порядку id. Пропуск в
+ * нумерации считается временным, пока следующая за ним запись моложе {@code gapWaitMs}: пачка
+ * обрывается перед пропуском, чтобы не перешагнуть ещё не зафиксированное изменение. {@code changed_at} —
+ * время триггера, а не коммита, поэтому транзакция длиннее {@code gapWaitMs} всё равно окажется позади
+ * позиции: перешагнутые id запоминаются в резервной БД ({@code change_log_gaps}), перечитываются каждым
+ * проходом и применяются, когда появятся. Пропуск, не заполнившийся за {@code gapRetentionMs}
+ * (откат транзакции тоже оставляет пропуск), забывается с предупреждением: если это всё же была
+ * долгая транзакция, резервную БД нужно сверить ({@link BackupVerifier}) или скопировать заново.
+ */
+public class ChangeReplicator implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeReplicator.class);
+
+    static final String CHANGE_LOG_TABLE = "change_log";
+    static final String GAPS_TABLE = "change_log_gaps";
+
+    /**
+     * Настройки (ключи {@code db.replication.*})
+     *
+     * @param batchSize    записей журнала за один проход
+     * @param intervalMs   пауза между проходами фоновой репликации
+     * @param gapWaitMs      сколько ждать заполнения пропуска в нумерации журнала, прежде чем перешагнуть его
+     * @param gapRetentionMs сколько перечитывать перешагнутый пропуск, прежде чем забыть его
+     * @param purgeApplied   удалять применённые записи журнала из основной БД
+     */
+    public record Config(int batchSize, long intervalMs, long gapWaitMs, long gapRetentionMs, boolean purgeApplied) {
+        public Config {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("db.replication.batchSize must be >= 1");
+            }
+            if (intervalMs < 1) {
+                throw new IllegalArgumentException("db.replication.intervalMs must be >= 1");
+            }
+            if (gapWaitMs < 0) {
+                throw new IllegalArgumentException("db.replication.gapWaitMs must be >= 0");
+            }
+            if (gapRetentionMs < 0) {
+                throw new IllegalArgumentException("db.replication.gapRetentionMs must be >= 0");
+            }
+        }
+    }
+
+    /**
+     * Состояние репликации
+     *
+     * @param lastAppliedId  id последней применённой записи журнала
+     * @param pendingChanges записей журнала ещё не применено
+     * @param lagMillis      возраст самой старой неприменённой записи (0 — отставания нет)
+     * @param appliedTotal   записей применено этим репликатором
+     * @param openGaps       перешагнутых пропусков журнала ещё ждут своих записей
+     * @param expiredGaps    пропусков забыто этим репликатором без записи (см. предупреждения в логе)
+     */
+    public record ReplicationStatus(long lastAppliedId, long pendingChanges, long lagMillis, long appliedTotal,
+                                    long openGaps, long expiredGaps) { }
+
+    record Change(long id, String table, long rowId, Timestamp changedAt) { }
+
+    /**
+     * Пачка журнала после позиции
+     *
+     * @param skipped перешагнутые пропуски в нумерации внутри пачки
+     * @param readAt  время основной БД на момент чтения; null — пачка пуста
+     */
+    record Batch(List<Change> changes, List<Long> skipped, Timestamp readAt) { }
+
+    private final DatabaseConnection databaseConnection;
+    private final DatabaseBackupService backupService;
+    private final Config config;
+    private final AtomicLong appliedTotal = new AtomicLong();
+    private final AtomicLong expiredGaps = new AtomicLong();
+
+    private volatile boolean schemaReady;
+    private ScheduledExecutorService scheduler;
+
+    public ChangeReplicator(DatabaseConnection databaseConnection) {
+        this(databaseConnection, databaseConnection == null ? null : databaseConnection.readReplicationConfig());
+    }
+
+    public ChangeReplicator(DatabaseConnection databaseConnection, Config config) {
+        if (databaseConnection == null) {
+            throw new IllegalArgumentException("databaseConnection cannot be null");
+        }
+        this.databaseConnection = databaseConnection;
+        this.backupService = new DatabaseBackupService(databaseConnection);
+        this.config = config;
+    }
+
+    /**
+     * Применить следующую пачку журнала и записи, появившиеся в перешагнутых пропусках
+     *
+     * @return сколько записей журнала применено (0 — новых изменений нет)
+     */
+    public int replicateOnce() throws SQLException {
+        if (!databaseConnection.isBackupConfigured()) {
+            throw new IllegalStateException("Backup DB is not configured");
+        }
+        try (Connection primary = databaseConnection.openPrimaryConnection();
+             Connection backup = databaseConnection.openBackupConnection()) {
+            if (!schemaReady) {
+                DatabaseBackupService.inTransaction(backup, () -> {
+                    backupService.ensureSchemaExists(backup);
+                    ensureGapTable(backup);
+                    return null;
+                });
+                schemaReady = true;
+            }
+            long position = lastAppliedId(backup);
+            Batch batch = readChanges(primary, position);
+            List<Change> changes = batch.changes();
+            Map<Long, Timestamp> gaps = readGaps(backup);
+            List<Change> filled = readLogEntries(primary, gaps.keySet());
+            Timestamp now = batch.readAt() != null || gaps.isEmpty() ? batch.readAt() : primaryNow(primary);
+            List<Long> expired = expiredGaps(gaps, filled, now);
+            if (changes.isEmpty() && filled.isEmpty() && expired.isEmpty()) {
+                return 0;
+            }
+
+            Map<String, Set<Long>> rowsByTable = new HashMap<>();
+            for (Change change : changes) {
+                rowsByTable.computeIfAbsent(change.table(), t -> new TreeSet<>()).add(change.rowId());
+            }
+            for (Change change : filled) {
+                rowsByTable.computeIfAbsent(change.table(), t -> new TreeSet<>()).add(change.rowId());
+            }
+            List<Long> closed = new ArrayList<>(expired);
+            filled.forEach(change -> closed.add(change.id()));
+            Change last = changes.isEmpty() ? null : changes.get(changes.size() - 1);
+            DatabaseBackupService.inTransaction(backup, () -> {
+                apply(primary, backup, rowsByTable);
+                if (last != null) {
+                    backupService.writeWatermark(backup, CHANGE_LOG_TABLE, new Watermark(last.id(), last.changedAt()));
+                }
+                recordGaps(backup, batch.skipped(), now);
+                forgetGaps(backup, closed);
+                return null;
+            });
+            expiredGaps.addAndGet(expired.size());
+
+            if (config.purgeApplied()) {
+                Set<Long> open = new TreeSet<>(gaps.keySet());
+                open.removeAll(closed);
+                open.addAll(batch.skipped());
+                purge(primary, last == null ? 0 : last.id(), open, filled);
+            }
+            int applied = changes.size() + filled.size();
+            appliedTotal.addAndGet(applied);
+            if (!filled.isEmpty()) {
+                logger.info("Репликация: применено {} записей журнала из перешагнутых пропусков", filled.size());
+            }
+            logger.debug("Репликация: применено {} записей журнала, позиция {}", applied, last == null ? position : last.id());
+            return applied;
+        }
+    }
+
+    /**
+     * Применять журнал, пока в нём есть полные пачки
+     *
+     * @return сколько записей применено
+     */
+    public long drain() throws SQLException {
+        long applied = 0;
+        int batch;
+        do {
+            batch = replicateOnce();
+            applied += batch;
+        } while (batch >= config.batchSize());
+        return applied;
+    }
+
+    public ReplicationStatus status() throws SQLException {
+        try (Connection primary = databaseConnection.openPrimaryConnection();
+             Connection backup = databaseConnection.openBackupConnection()) {
+            long position = tableExists(backup, DatabaseBackupService.METADATA_TABLE) ? lastAppliedId(backup) : 0;
+            long openGaps = tableExists(backup, GAPS_TABLE) ? readGaps(backup).size() : 0;
+            try (PreparedStatement stmt = primary.prepareStatement(
+                    "SELECT COUNT(*), MIN(changed_at), CURRENT_TIMESTAMP FROM " + CHANGE_LOG_TABLE + " WHERE id > ?")) {
+                stmt.setLong(1, position);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    long pending = rs.getLong(1);
+                    Timestamp oldest = rs.getTimestamp(2);
+                    long lag = oldest == null ? 0 : Math.max(0, rs.getTimestamp(3).getTime() - oldest.getTime());
+                    return new ReplicationStatus(position, pending, lag, appliedTotal.get(), openGaps, expiredGaps.get());
+                }
+            }
+        }
+    }
+
+    /**
+     * Запустить фоновую репликацию с паузой {@link Config#intervalMs()} между проходами
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-change-replicator");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::drainSafely, 0, config.intervalMs(), TimeUnit.MILLISECONDS);
+        logger.info("Репликация изменений запущена, интервал {} мс", config.intervalMs());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (SQLException | RuntimeException e) {
+            logger.error("Ошибка репликации изменений: {}", e.getMessage(), e);
+        }
+    }
+
+    private long lastAppliedId(Connection backup) throws SQLException {
+        Watermark position = backupService.readWatermark(backup, CHANGE_LOG_TABLE);
+        return position == null ? 0 : position.lastId();
+    }
+
+    /**
+     * Следующая пачка журнала после {@code position}, обрезанная перед свежим пропуском в нумерации
+     */
+    Batch readChanges(Connection primary, long position) throws SQLException {
+        List<Change> changes = new ArrayList<>();
+        try (PreparedStatement stmt = primary.prepareStatement(
+                "SELECT id, table_name, row_id, changed_at FROM " + CHANGE_LOG_TABLE + " WHERE id > ? ORDER BY id")) {
+            stmt.setMaxRows(config.batchSize());
+            stmt.setLong(1, position);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    changes.add(new Change(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getTimestamp(4)));
+                }
+            }
+        }
+        if (changes.isEmpty()) {
+            return new Batch(changes, List.of(), null);
+        }
+        Timestamp now = primaryNow(primary);
+
+        List<Long> skipped = new ArrayList<>();
+        long expected = position + 1;
+        for (int i = 0; i < changes.size(); i++) {
+            Change change = changes.get(i);
+            // первая запись после пустой позиции может начинаться с любого id: журнал мог быть очищен
+            boolean gap = change.id() != expected && !(position == 0 && i == 0);
+            if (gap && now.getTime() - change.changedAt().getTime() < config.gapWaitMs()) {
+                logger.debug("Пропуск в журнале изменений перед id {}, ждём до {} мс", change.id(), config.gapWaitMs());
+                return new Batch(new ArrayList<>(changes.subList(0, i)), skipped, now);
+            }
+            if (gap) {
+                for (long id = expected; id < change.id(); id++) {
+                    skipped.add(id);
+                }
+            }
+            expected = change.id() + 1;
+        }
+        return new Batch(changes, skipped, now);
+    }
+
+    private static Timestamp primaryNow(Connection primary) throws SQLException {
+        try (Statement stmt = primary.createStatement(); ResultSet rs = stmt.executeQuery("SELECT CURRENT_TIMESTAMP")) {
+            rs.next();
+            return rs.getTimestamp(1);
+        }
+    }
+
+    // ----------------------------------------------------------------- GAPS
+
+    private static void ensureGapTable(Connection backup) throws SQLException {
+        try (Statement stmt = backup.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + GAPS_TABLE + " (" +
+                    "id BIGINT PRIMARY KEY, " +
+                    "skipped_at TIMESTAMP NOT NULL" +
+                    ")");
+        }
+    }
+
+    /**
+     * Перешагнутые id журнала и время (основной БД), когда их перешагнули
+     */
+    private static Map<Long, Timestamp> readGaps(Connection backup) throws SQLException {
+        Map<Long, Timestamp> gaps = new TreeMap<>();
+        try (Statement stmt = backup.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, skipped_at FROM " + GAPS_TABLE)) {
+            while (rs.next()) {
+                gaps.put(rs.getLong(1), rs.getTimestamp(2));
+            }
+        }
+        return gaps;
+    }
+
+    /**
+     * Записи журнала с данными id — те, что уже стали видимы
+     */
+    private static List<Change> readLogEntries(Connection primary, Collection<Long> ids) throws SQLException {
+        List<Change> entries = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return entries;
+        }
+        try (PreparedStatement stmt = primary.prepareStatement(
+                "SELECT id, table_name, row_id, changed_at FROM " + CHANGE_LOG_TABLE + " WHERE id IN " + inList(ids.size()))) {
+            bindIds(stmt, ids);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(new Change(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getTimestamp(4)));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private List<Long> expiredGaps(Map<Long, Timestamp> gaps, List<Change> filled, Timestamp now) {
+        if (gaps.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> filledIds = new TreeSet<>();
+        filled.forEach(change -> filledIds.add(change.id()));
+        List<Long> expired = new ArrayList<>();
+        gaps.forEach((id, skippedAt) -> {
+            if (!filledIds.contains(id) && now.getTime() - skippedAt.getTime() >= config.gapRetentionMs()) {
+                expired.add(id);
+            }
+        });
+        if (!expired.isEmpty()) {
+            logger.warn("Пропуски в журнале изменений не заполнились за {} мс, id {}: если это транзакции длиннее, "
+                    + "их изменения не попали в резервную БД — нужна сверка (verify) или полная копия",
+                    config.gapRetentionMs(), expired);
+        }
+        return expired;
+    }
+
+    private void recordGaps(Connection backup, List<Long> ids, Timestamp skippedAt) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement insert = backup.prepareStatement(
+                "INSERT INTO " + GAPS_TABLE + " (id, skipped_at) VALUES (?, ?)")) {
+            for (Long id : ids) {
+                insert.setLong(1, id);
+                insert.setTimestamp(2, skippedAt);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        logger.info("Перешагнуты пропуски в журнале изменений старше {} мс, id {}: будут перечитываться {} мс",
+                config.gapWaitMs(), ids, config.gapRetentionMs());
+    }
+
+    private static void forgetGaps(Connection backup, List<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement delete = backup.prepareStatement("DELETE FROM " + GAPS_TABLE + " WHERE id = ?")) {
+            for (Long id : ids) {
+                delete.setLong(1, id);
+                delete.addBatch();
+            }
+            delete.executeBatch();
+        }
+    }
+
+    /**
+     * Удалить применённые записи журнала; записи открытых пропусков ещё не видны и должны дожить до применения
+     */
+    private static void purge(Connection primary, long upTo, Set<Long> open, List<Change> filled) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("DELETE FROM " + CHANGE_LOG_TABLE + " WHERE ");
+        if (upTo > 0) {
+            sql.append("(id <= ?");
+            ids.add(upTo);
+            if (!open.isEmpty()) {
+                sql.append(" AND id NOT IN ").append(inList(open.size()));
+                ids.addAll(open);
+            }
+            sql.append(")");
+        }
+        if (!filled.isEmpty()) {
+            sql.append(upTo > 0 ? " OR " : "").append("id IN ").append(inList(filled.size()));
+            filled.forEach(change -> ids.add(change.id()));
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = primary.prepareStatement(sql.toString())) {
+            bindIds(stmt, ids);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        String name = meta.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+        try (ResultSet rs = meta.getTables(conn.getCatalog(), null, name, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Ссылки ON DELETE SET NULL: MySQL не вызывает триггеры для каскадных действий внешних ключей,
+     * поэтому обнуление clients.room_id при удалении номера в журнал не попадает и повторяется здесь
+     * (в резервной таблице clients внешнего ключа нет)
+     */
+    private static final Map<BackupTable, String> ON_DELETE_SET_NULL = Map.of(
+            BackupTable.ROOMS, "UPDATE " + BackupTable.CLIENTS.name() + " SET room_id = NULL WHERE room_id = ?");
+
+    private void apply(Connection primary, Connection backup, Map<String, Set<Long>> rowsByTable) throws SQLException {
+        for (String table : rowsByTable.keySet()) {
+            if (BackupTable.ALL.stream().noneMatch(t -> t.name().equals(table))) {
+                logger.warn("Журнал изменений содержит неизвестную таблицу {} — записи пропущены", table);
+            }
+        }
+        DatabaseBackupService.Config copyConfig = databaseConnection.readBackupConfig();
+        Map<BackupTable, List<Long>> deleted = new HashMap<>();
+        // родительские таблицы — первыми при вставке и последними при удалении
+        for (BackupTable table : BackupTable.ALL) {
+            Set<Long> ids = rowsByTable.get(table.name());
+            if (ids == null) {
+                continue;
+            }
+            Set<Long> present = existingIds(primary, table, inList(ids.size()), ids);
+            if (!present.isEmpty()) {
+                backupService.upsertRows(primary, backup, table,
+                        table.select() + " WHERE id IN " + inList(present.size()) + " ORDER BY id",
+                        stmt -> bindIds(stmt, present), copyConfig);
+            }
+            deleted.put(table, ids.stream().filter(id -> !present.contains(id)).toList());
+        }
+        for (int i = BackupTable.ALL.size() - 1; i >= 0; i--) {
+            BackupTable table = BackupTable.ALL.get(i);
+            List<Long> ids = deleted.getOrDefault(table, List.of());
+            if (ids.isEmpty()) {
+                continue;
+            }
+            String detach = ON_DELETE_SET_NULL.get(table);
+            if (detach != null) {
+                try (PreparedStatement update = backup.prepareStatement(detach)) {
+                    for (Long id : ids) {
+                        update.setLong(1, id);
+                        update.addBatch();
+                    }
+                    update.executeBatch();
+                }
+            }
+            try (PreparedStatement delete = backup.prepareStatement("DELETE FROM " + table.name() + " WHERE id = ?")) {
+                for (Long id : ids) {
+                    delete.setLong(1, id);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+            }
+        }
+    }
+
+    private static Set<Long> existingIds(Connection conn, BackupTable table, String inList, Collection<Long> ids)
+            throws SQLException {
+        Set<Long> present = new TreeSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM " + table.name() + " WHERE id IN " + inList)) {
+            bindIds(stmt, ids);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    present.add(rs.getLong(1));
+                }
+            }
+        }
+        return present;
+    }
+
+    private static String inList(int size) {
+        return "(" + String.join(", ", Collections.nCopies(size, "?")) + ")";
+    }
+
+    private static void bindIds(PreparedStatement stmt, Collection<Long> ids) throws SQLException {
+        int index = 1;
+        for (Long id : ids) {
+            stmt.setLong(index++, id);
+        }
+    }
+}
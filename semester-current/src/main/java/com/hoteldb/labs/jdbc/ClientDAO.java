@@ -1,22 +1,53 @@
 package com.hoteldb.labs.jdbc;
 
 import com.hoteldb.labs.model.Client;
+import com.hoteldb.labs.occupancy.OccupancyView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * DAO для работы с клиентами в базе данных
  */
 public class ClientDAO {
     private static final Logger logger = LoggerFactory.getLogger(ClientDAO.class);
+    private static final List<String> INSERT_COLUMNS = List.of(
+            "first_name", "last_name", "email", "phone", "room_id", "check_in_date", "check_out_date");
+
+    private static final int COL_ID = 0;
+    private static final int COL_FIRST_NAME = 1;
+    private static final int COL_LAST_NAME = 2;
+    private static final int COL_EMAIL = 3;
+    private static final int COL_PHONE = 4;
+    private static final int COL_ROOM_ID = 5;
+    private static final int COL_CHECK_IN_DATE = 6;
+    private static final int COL_CHECK_OUT_DATE = 7;
+    private static final int COL_CREATED_AT = 8;
+    private static final int COL_VERSION = 9;
+    private static final RowMapping<Client> ROWS = new RowMapping<>("clients", ClientDAO::mapResultSetToClient,
+            "id", "first_name", "last_name", "email", "phone", "room_id", "check_in_date", "check_out_date", "created_at",
+            "version");
+
     private final DatabaseConnection dbConnection;
+    private final BatchInserter<Client> batchInserter;
 
     public ClientDAO() {
-        this.dbConnection = DatabaseConnection.getInstance();
+        this(DatabaseConnection.getInstance());
+    }
+
+    ClientDAO(DatabaseConnection dbConnection) {
+        this.dbConnection = dbConnection;
+        this.batchInserter = new BatchInserter<>(dbConnection, "clients", INSERT_COLUMNS,
+                ClientDAO::bindInsertParameters, ClientDAO::inserted);
         logger.debug("Создан экземпляр ClientDAO");
     }
 
@@ -30,7 +61,7 @@ public class ClientDAO {
         }
         
         logger.info("Создание нового клиента: {} {}", client.getFirstName(), client.getLastName());
-        String sql = "INSERT INTO clients (first_name, last_name, email, phone, room_id, check_in_date, check_out_date) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String sql = batchInserter.multiRowSql(1);
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
@@ -40,25 +71,7 @@ public class ClientDAO {
                     client.getFirstName(), client.getLastName(), client.getEmail(), 
                     client.getPhone(), client.getRoomId());
             
-            stmt.setString(1, client.getFirstName());
-            stmt.setString(2, client.getLastName());
-            stmt.setString(3, client.getEmail());
-            stmt.setString(4, client.getPhone());
-            if (client.getRoomId() != null) {
-                stmt.setInt(5, client.getRoomId());
-            } else {
-                stmt.setNull(5, Types.INTEGER);
-            }
-            if (client.getCheckInDate() != null) {
-                stmt.setDate(6, Date.valueOf(client.getCheckInDate()));
-            } else {
-                stmt.setNull(6, Types.DATE);
-            }
-            if (client.getCheckOutDate() != null) {
-                stmt.setDate(7, Date.valueOf(client.getCheckOutDate()));
-            } else {
-                stmt.setNull(7, Types.DATE);
-            }
+            bindInsertParameters(stmt, 1, client);
 
             int affectedRows = stmt.executeUpdate();
             if (affectedRows == 0) {
@@ -70,7 +83,7 @@ public class ClientDAO {
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     int generatedId = generatedKeys.getInt(1);
-                    client.setId(generatedId);
+                    inserted(client, generatedId);
                     logger.info("Клиент успешно создан с ID: {}", generatedId);
                 } else {
                     logger.error("Не удалось получить сгенерированный ID клиента");
@@ -82,9 +95,46 @@ public class ClientDAO {
                     client.getFirstName(), client.getLastName(), e.getMessage(), e);
             throw e;
         }
+        published(List.of(client));
         return client;
     }
 
+    /**
+     * Добавить клиентов пачками (размер пачки — db.batch.size, режим — db.batch.multiRowInsert)
+     */
+    public List<Client> createAll(Collection<Client> clients) throws SQLException {
+        return createAll(clients, dbConnection.getBatchSize());
+    }
+
+    /**
+     * Добавить клиентов пачками по {@code chunkSize}: одна пачка — одна транзакция,
+     * ID проставляются клиентам в порядке коллекции
+     */
+    public List<Client> createAll(Collection<Client> clients, int chunkSize) throws SQLException {
+        if (clients == null) {
+            logger.error("Попытка создать клиентов с null коллекцией");
+            throw new IllegalArgumentException("Коллекция клиентов не может быть null");
+        }
+        if (clients.stream().anyMatch(Objects::isNull)) {
+            logger.error("Попытка создать клиентов: коллекция содержит null");
+            throw new IllegalArgumentException("Клиент не может быть null");
+        }
+
+        boolean multiRow = dbConnection.isMultiRowInsertEnabled();
+        logger.info("Массовое создание клиентов: {} шт., пачка {}, multi-row={}", clients.size(), chunkSize, multiRow);
+        try {
+            int inserted = batchInserter.insertAll(clients, chunkSize, multiRow);
+            logger.info("Создано клиентов: {}", inserted);
+        } catch (SQLException e) {
+            logger.error("Ошибка при массовом создании клиентов: {}", e.getMessage(), e);
+            // часть пачек уже зафиксирована — какая именно, проще узнать из БД
+            OccupancyView.ifInstalled(OccupancyView::reload);
+            throw e;
+        }
+        published(clients);
+        return new ArrayList<>(clients);
+    }
+
     /**
      * Найти клиента по ID
      */
@@ -95,7 +145,7 @@ public class ClientDAO {
         }
         
         logger.debug("Поиск клиента по ID: {}", id);
-        String sql = "SELECT * FROM clients WHERE id = ?";
+        String sql = ROWS.select() + " WHERE id = ?";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -104,7 +154,7 @@ public class ClientDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Client client = mapResultSetToClient(rs);
+                    Client client = mapResultSetToClient(rs, ROWS.plan(sql, rs));
                     logger.info("Клиент найден: ID={}, {} {}", id, client.getFirstName(), client.getLastName());
                     return client;
                 } else {
@@ -123,17 +173,15 @@ public class ClientDAO {
      */
     public List<Client> findAll() throws SQLException {
         logger.debug("Получение списка всех клиентов");
-        List<Client> clients = new ArrayList<>();
-        String sql = "SELECT * FROM clients";
+        List<Client> clients;
+        String sql = ROWS.select();
         
         try (Connection conn = dbConnection.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             logger.debug("Выполнение SQL: {}", sql);
             
-            while (rs.next()) {
-                clients.add(mapResultSetToClient(rs));
-            }
+            clients = ROWS.readAll(sql, rs);
             logger.info("Найдено клиентов: {}", clients.size());
         } catch (SQLException e) {
             logger.error("Ошибка при получении списка клиентов: {}", e.getMessage(), e);
@@ -143,7 +191,114 @@ public class ClientDAO {
     }
 
     /**
-     * Обновить информацию о клиенте
+     * Страница клиентов по возрастанию ID (keyset-пагинация): {@code afterId} — ID последнего клиента
+     * предыдущей страницы, null — первая страница
+     */
+    public List<Client> findPage(Integer afterId, int limit) throws SQLException {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Размер страницы должен быть >= 1: " + limit);
+        }
+        logger.debug("Получение страницы клиентов: afterId={}, limit={}", afterId, limit);
+        if (afterId == null) {
+            return query(ROWS.select() + " ORDER BY id LIMIT ?", stmt -> stmt.setInt(1, limit));
+        }
+        return query(ROWS.select() + " WHERE id > ? ORDER BY id LIMIT ?", stmt -> {
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+        });
+    }
+
+    /**
+     * Клиенты, заселённые в номер
+     */
+    public List<Client> findClientsByRoomId(Integer roomId) throws SQLException {
+        if (roomId == null) {
+            logger.error("Попытка найти клиентов по null ID номера");
+            throw new IllegalArgumentException("ID номера не может быть null");
+        }
+        logger.debug("Поиск клиентов номера {}", roomId);
+        List<Client> clients = query(ROWS.select() + " WHERE room_id = ? ORDER BY id",
+                stmt -> stmt.setInt(1, roomId));
+        logger.info("В номере {} найдено клиентов: {}", roomId, clients.size());
+        return clients;
+    }
+
+    /**
+     * Клиенты, чьё проживание пересекается с периодом [from, to):
+     * заезд раньше {@code to} и выезд позже {@code from}
+     */
+    public List<Client> findClientsByStayOverlapping(LocalDate from, LocalDate to) throws SQLException {
+        if (from == null || to == null) {
+            logger.error("Попытка найти клиентов по периоду с null датой");
+            throw new IllegalArgumentException("Даты периода не могут быть null");
+        }
+        if (!from.isBefore(to)) {
+            logger.error("Некорректный период: {} - {}", from, to);
+            throw new IllegalArgumentException("Начало периода должно быть раньше конца: " + from + " - " + to);
+        }
+        logger.debug("Поиск клиентов с проживанием в период {} - {}", from, to);
+        List<Client> clients = query(
+                ROWS.select() + " WHERE check_in_date < ? AND check_out_date > ? ORDER BY id", stmt -> {
+                    stmt.setDate(1, Date.valueOf(to));
+                    stmt.setDate(2, Date.valueOf(from));
+                });
+        logger.info("Клиентов с проживанием в период {} - {}: {}", from, to, clients.size());
+        return clients;
+    }
+
+    private List<Client> query(String sql, StatementBinder binder) throws SQLException {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            logger.debug("Выполнение SQL: {}", sql);
+            binder.bind(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return ROWS.readAll(sql, rs);
+            }
+        } catch (SQLException e) {
+            logger.error("Ошибка при поиске клиентов: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Потоковое чтение всех клиентов: строки читаются курсором по мере потребления,
+     * поэтому память не зависит от размера таблицы.
+     * Поток нужно закрыть (try-with-resources) — вместе с ним закрываются запрос и соединение.
+     * Ошибки чтения во время обхода приходят как {@link UncheckedSQLException}.
+     */
+    public Stream<Client> stream() throws SQLException {
+        logger.debug("Потоковое чтение всех клиентов");
+        try {
+            return ResultSetStreams.stream(dbConnection, ROWS.select(), ROWS);
+        } catch (SQLException e) {
+            logger.error("Ошибка при открытии курсора клиентов: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Обработать все клиентов по одному, не загружая таблицу в память
+     */
+    public void forEach(Consumer<? super Client> action) throws SQLException {
+        if (action == null) {
+            throw new IllegalArgumentException("Обработчик не может быть null");
+        }
+        try (Stream<Client> clients = stream()) {
+            clients.forEach(action);
+        } catch (UncheckedSQLException e) {
+            logger.error("Ошибка при потоковом чтении клиентов: {}", e.getMessage(), e);
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Обновить информацию о клиенте.
+     * <p>
+     * Если у клиента есть версия (он прочитан из БД), строка обновляется только при совпадении версии,
+     * иначе — {@link SQLException}: клиента изменили после чтения, в том числе через JPA ({@code ClientEntity}).
+     * В той же транзакции увеличивается версия номера проживания, поэтому параллельная бронь этого номера
+     * через {@code BookingService} будет повторена и увидит изменение. Пересечение проживаний здесь не
+     * проверяется — заселение с проверкой выполняет {@code BookingService}.
      */
     public Client update(Client client) throws SQLException {
         if (client == null) {
@@ -156,14 +311,47 @@ public class ClientDAO {
         }
         
         logger.info("Обновление клиента с ID: {}", client.getId());
-        String sql = "UPDATE clients SET first_name = ?, last_name = ?, email = ?, phone = ?, room_id = ?, check_in_date = ?, check_out_date = ? WHERE id = ?";
+        String sql = "UPDATE clients SET first_name = ?, last_name = ?, email = ?, phone = ?, room_id = ?, check_in_date = ?, check_out_date = ?, version = version + 1 WHERE id = ?"
+                + (client.getVersion() != null ? " AND version = ?" : "");
         
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = dbConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                int affectedRows = updateClientRow(conn, sql, client);
+                if (affectedRows == 0) {
+                    throw notUpdated(conn, client);
+                }
+                long version = client.getVersion() != null ? client.getVersion() + 1 : currentVersion(conn, client.getId());
+                if (client.getRoomId() != null) {
+                    try (PreparedStatement stmt = conn.prepareStatement("UPDATE rooms SET version = version + 1 WHERE id = ?")) {
+                        stmt.setInt(1, client.getRoomId());
+                        stmt.executeUpdate();
+                    }
+                }
+                conn.commit();
+                client.setVersion(version);
+                logger.info("Клиент с ID {} успешно обновлен. Затронуто строк: {}", client.getId(), affectedRows);
+            } catch (SQLException e) {
+                rollbackQuietly(conn, e);
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            logger.error("Ошибка при обновлении клиента с ID {}: {}", client.getId(), e.getMessage(), e);
+            throw e;
+        }
+        published(List.of(client));
+        return client;
+    }
+
+    private static int updateClientRow(Connection conn, String sql, Client client) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             logger.debug("Выполнение SQL: {}", sql);
-            logger.debug("Параметры: id={}, firstName={}, lastName={}, email={}", 
-                    client.getId(), client.getFirstName(), client.getLastName(), client.getEmail());
-            
+            logger.debug("Параметры: id={}, firstName={}, lastName={}, email={}, version={}",
+                    client.getId(), client.getFirstName(), client.getLastName(), client.getEmail(), client.getVersion());
+
             stmt.setString(1, client.getFirstName());
             stmt.setString(2, client.getLastName());
             stmt.setString(3, client.getEmail());
@@ -184,18 +372,57 @@ public class ClientDAO {
                 stmt.setNull(7, Types.DATE);
             }
             stmt.setInt(8, client.getId());
+            if (client.getVersion() != null) {
+                stmt.setLong(9, client.getVersion());
+            }
+            return stmt.executeUpdate();
+        }
+    }
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                logger.error("Не удалось обновить клиента с ID {}: клиент не найден", client.getId());
-                throw new SQLException("Не удалось обновить клиента: клиент с ID " + client.getId() + " не найден");
+    /**
+     * Причина, по которой UPDATE не затронул строк: клиента нет или его версия уже другая
+     */
+    private static SQLException notUpdated(Connection conn, Client client) throws SQLException {
+        if (client.getVersion() != null) {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT version FROM clients WHERE id = ?")) {
+                stmt.setInt(1, client.getId());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        long actual = rs.getLong(1);
+                        logger.warn("Клиент с ID {} изменён после чтения: версия {} вместо {}",
+                                client.getId(), actual, client.getVersion());
+                        return new SQLException("Не удалось обновить клиента с ID " + client.getId()
+                                + ": он изменён другой транзакцией (версия " + actual
+                                + ", ожидалась " + client.getVersion() + ")");
+                    }
+                }
             }
-            logger.info("Клиент с ID {} успешно обновлен. Затронуто строк: {}", client.getId(), affectedRows);
+        }
+        logger.error("Не удалось обновить клиента с ID {}: клиент не найден", client.getId());
+        return new SQLException("Не удалось обновить клиента: клиент с ID " + client.getId() + " не найден");
+    }
+
+    /**
+     * Версия клиента; строка уже заблокирована UPDATE этой транзакции
+     */
+    private static long currentVersion(Connection conn, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT version FROM clients WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Не удалось прочитать версию клиента с ID " + id);
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn, SQLException cause) {
+        try {
+            conn.rollback();
         } catch (SQLException e) {
-            logger.error("Ошибка при обновлении клиента с ID {}: {}", client.getId(), e.getMessage(), e);
-            throw e;
+            cause.addSuppressed(e);
         }
-        return client;
     }
 
     /**
@@ -220,6 +447,7 @@ public class ClientDAO {
             
             if (deleted) {
                 logger.info("Клиент с ID {} успешно удален. Затронуто строк: {}", id, affectedRows);
+                OccupancyView.ifInstalled(view -> view.clientDeleted(id));
             } else {
                 logger.warn("Клиент с ID {} не найден для удаления", id);
             }
@@ -232,39 +460,63 @@ public class ClientDAO {
     }
 
     /**
-     * Преобразовать ResultSet в объект Client
+     * Новая строка получает версию по умолчанию (DEFAULT 0)
      */
-    private Client mapResultSetToClient(ResultSet rs) throws SQLException {
-        try {
-            Client client = new Client();
-            client.setId(rs.getInt("id"));
-            client.setFirstName(rs.getString("first_name"));
-            client.setLastName(rs.getString("last_name"));
-            client.setEmail(rs.getString("email"));
-            client.setPhone(rs.getString("phone"));
-            int roomId = rs.getInt("room_id");
-            if (!rs.wasNull()) {
-                client.setRoomId(roomId);
-            }
-            Date checkInDate = rs.getDate("check_in_date");
-            if (checkInDate != null) {
-                client.setCheckInDate(checkInDate.toLocalDate());
-            }
-            Date checkOutDate = rs.getDate("check_out_date");
-            if (checkOutDate != null) {
-                client.setCheckOutDate(checkOutDate.toLocalDate());
-            }
-            Timestamp createdAt = rs.getTimestamp("created_at");
-            if (createdAt != null) {
-                client.setCreatedAt(createdAt.toLocalDateTime());
-            }
-            logger.trace("Преобразование ResultSet в Client: ID={}, {} {}", 
-                    client.getId(), client.getFirstName(), client.getLastName());
-            return client;
-        } catch (SQLException e) {
-            logger.error("Ошибка при преобразовании ResultSet в Client: {}", e.getMessage(), e);
-            throw e;
+    private static void inserted(Client client, int id) {
+        client.setId(id);
+        client.setVersion(0L);
+    }
+
+    /**
+     * Передать зафиксированное состояние клиентов представлению занятости одним изменением
+     */
+    private static void published(Collection<Client> clients) {
+        OccupancyView.ifInstalled(view -> view.apply(changes -> clients.forEach(client -> changes.clientSaved(
+                client.getId(), client.getVersion(), client.getRoomId(), client.getFirstName(), client.getLastName(),
+                client.getCheckInDate(), client.getCheckOutDate()))));
+    }
+
+    private static void bindInsertParameters(PreparedStatement stmt, int first, Client client) throws SQLException {
+        stmt.setString(first, client.getFirstName());
+        stmt.setString(first + 1, client.getLastName());
+        stmt.setString(first + 2, client.getEmail());
+        stmt.setString(first + 3, client.getPhone());
+        if (client.getRoomId() != null) {
+            stmt.setInt(first + 4, client.getRoomId());
+        } else {
+            stmt.setNull(first + 4, Types.INTEGER);
         }
+        if (client.getCheckInDate() != null) {
+            stmt.setDate(first + 5, Date.valueOf(client.getCheckInDate()));
+        } else {
+            stmt.setNull(first + 5, Types.DATE);
+        }
+        if (client.getCheckOutDate() != null) {
+            stmt.setDate(first + 6, Date.valueOf(client.getCheckOutDate()));
+        } else {
+            stmt.setNull(first + 6, Types.DATE);
+        }
+    }
+
+    /**
+     * Преобразовать текущую строку ResultSet в объект Client по индексам столбцов
+     */
+    private static Client mapResultSetToClient(ResultSet rs, int[] c) throws SQLException {
+        Client client = new Client();
+        client.setId(rs.getInt(c[COL_ID]));
+        client.setFirstName(rs.getString(c[COL_FIRST_NAME]));
+        client.setLastName(rs.getString(c[COL_LAST_NAME]));
+        client.setEmail(rs.getString(c[COL_EMAIL]));
+        client.setPhone(rs.getString(c[COL_PHONE]));
+        int roomId = rs.getInt(c[COL_ROOM_ID]);
+        if (!rs.wasNull()) {
+            client.setRoomId(roomId);
+        }
+        client.setCheckInDate(rs.getObject(c[COL_CHECK_IN_DATE], LocalDate.class));
+        client.setCheckOutDate(rs.getObject(c[COL_CHECK_OUT_DATE], LocalDate.class));
+        client.setCreatedAt(rs.getObject(c[COL_CREATED_AT], LocalDateTime.class));
+        client.setVersion(rs.getLong(c[COL_VERSION]));
+        return client;
     }
 }
 
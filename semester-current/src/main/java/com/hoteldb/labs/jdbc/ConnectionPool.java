@@ -0,0 +1,470 @@
+package com.hoteldb.labs.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.sql.Wrapper;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ограниченный пул JDBC-соединений.
+ * <p>
+ * Выдаёт не физические соединения, а обёртки: {@code close()} у обёртки возвращает
+ * соединение в пул, поэтому DAO могут и дальше закрывать соединение в try-with-resources.
+ * Очередь ожидания справедливая (fair {@link Semaphore}), при исчерпании пула вызывающий
+ * ждёт не дольше {@code borrowTimeoutMs}. Фоновая задача вытесняет простаивающие и
+ * «состарившиеся» соединения и добирает пул до {@code minSize}.
+ * При {@code statementCacheSize > 0} у каждого физического соединения свой {@link StatementCache}.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    /**
+     * Источник физических соединений.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    /**
+     * Настройки пула (ключи {@code db.pool.*} в database.properties).
+     */
+    public record Config(int minSize,
+                         int maxSize,
+                         long borrowTimeoutMs,
+                         long idleTimeoutMs,
+                         long maxLifetimeMs,
+                         int validationTimeoutSec,
+                         long evictionIntervalMs,
+                         int statementCacheSize) {
+        public Config {
+            if (minSize < 0) {
+                throw new IllegalArgumentException("db.pool.minSize must be >= 0");
+            }
+            if (maxSize < 1 || maxSize < minSize) {
+                throw new IllegalArgumentException("db.pool.maxSize must be >= 1 and >= db.pool.minSize");
+            }
+            if (statementCacheSize < 0) {
+                throw new IllegalArgumentException("db.pool.statementCacheSize must be >= 0");
+            }
+        }
+
+        /**
+         * Пул без кэша подготовленных запросов
+         */
+        public Config(int minSize, int maxSize, long borrowTimeoutMs, long idleTimeoutMs,
+                      long maxLifetimeMs, int validationTimeoutSec, long evictionIntervalMs) {
+            this(minSize, maxSize, borrowTimeoutMs, idleTimeoutMs, maxLifetimeMs,
+                    validationTimeoutSec, evictionIntervalMs, 0);
+        }
+    }
+
+    /**
+     * Все соединения пула заняты дольше {@code borrowTimeoutMs}. Это не ошибка подключения к БД.
+     */
+    public static class PoolExhaustedException extends SQLTransientConnectionException {
+        public PoolExhaustedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Снимок состояния пула.
+     */
+    public record Stats(int total, int idle, int active, int waiting) { }
+
+    /**
+     * Счётчики кэша подготовленных запросов по всем соединениям пула
+     */
+    public record StatementCacheStats(long hits, long misses, long evictions) { }
+
+    private final String name;
+    private final Config config;
+    private final ConnectionFactory factory;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> all = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final ScheduledExecutorService housekeeper;
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    public ConnectionPool(String name, Config config, ConnectionFactory factory) {
+        this.name = name;
+        this.config = config;
+        this.factory = factory;
+        this.permits = new Semaphore(config.maxSize(), true);
+        if (config.evictionIntervalMs() > 0) {
+            this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "db-pool-" + name + "-housekeeper");
+                t.setDaemon(true);
+                return t;
+            });
+            this.housekeeper.scheduleWithFixedDelay(this::runHousekeeping,
+                    config.evictionIntervalMs(), config.evictionIntervalMs(), TimeUnit.MILLISECONDS);
+        } else {
+            this.housekeeper = null;
+        }
+        logger.info("Пул соединений {} создан: min={}, max={}, borrowTimeout={} мс",
+                name, config.minSize(), config.maxSize(), config.borrowTimeoutMs());
+    }
+
+    /**
+     * Взять соединение из пула. Ждёт свободного слота не дольше {@code borrowTimeoutMs}.
+     */
+    public Connection borrow() throws SQLException {
+        ensureOpen();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(config.borrowTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание соединения из пула " + name + " прервано", e);
+        }
+        if (!acquired) {
+            throw new PoolExhaustedException("Не удалось получить соединение из пула " + name
+                    + " за " + config.borrowTimeoutMs() + " мс (все " + config.maxSize() + " заняты)");
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = create();
+            }
+            pooled.borrowed = true;
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public Stats getStats() {
+        int idleCount = idle.size();
+        int total = all.size();
+        return new Stats(total, idleCount, total - idleCount, permits.getQueueLength());
+    }
+
+    public StatementCacheStats getStatementCacheStats() {
+        return new StatementCacheStats(statementCounters.hits.get(),
+                statementCounters.misses.get(), statementCounters.evictions.get());
+    }
+
+    /**
+     * Закрыть пул и все физические соединения, включая выданные.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (housekeeper != null) {
+            housekeeper.shutdownNow();
+        }
+        idle.clear();
+        for (PooledConnection pooled : all) {
+            closePhysical(pooled);
+        }
+        logger.info("Пул соединений {} закрыт", name);
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        // LIFO: самое «тёплое» соединение первым, хвост очереди успевает простоять и вытесниться
+        while ((pooled = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (isExpired(pooled, now)) {
+                logger.debug("Пул {}: соединение превысило maxLifetime, закрываем", name);
+                closePhysical(pooled);
+                continue;
+            }
+            if (!isValid(pooled)) {
+                logger.warn("Пул {}: соединение не прошло проверку при выдаче, закрываем", name);
+                closePhysical(pooled);
+                continue;
+            }
+            return pooled;
+        }
+        return null;
+    }
+
+    private PooledConnection create() throws SQLException {
+        if (all.size() >= config.maxSize()) {
+            // соединение могли вернуть, пока мы ждали слот: не превышаем maxSize
+            PooledConnection returned = takeIdle();
+            if (returned != null) {
+                return returned;
+            }
+        }
+        Connection physical = factory.open();
+        PooledConnection pooled = new PooledConnection(physical, System.currentTimeMillis());
+        all.add(pooled);
+        logger.debug("Пул {}: открыто новое физическое соединение (всего {})", name, all.size());
+        return pooled;
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(config.validationTimeoutSec());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return config.maxLifetimeMs() > 0 && now - pooled.createdAt >= config.maxLifetimeMs();
+    }
+
+    void release(PooledConnection pooled) {
+        pooled.borrowed = false;
+        if (pooled.statements != null) {
+            pooled.statements.releaseAll();
+        }
+        try {
+            if (closed.get() || pooled.physical.isClosed() || isExpired(pooled, System.currentTimeMillis())) {
+                closePhysical(pooled);
+                return;
+            }
+            resetState(pooled);
+            pooled.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            logger.warn("Пул {}: не удалось вернуть соединение, закрываем: {}", name, e.getMessage());
+            closePhysical(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void resetState(PooledConnection pooled) throws SQLException {
+        Connection physical = pooled.physical;
+        if (!physical.getAutoCommit()) {
+            physical.rollback();
+            physical.setAutoCommit(true);
+        }
+        if (physical.isReadOnly()) {
+            physical.setReadOnly(false);
+        }
+        physical.clearWarnings();
+    }
+
+    void runHousekeeping() {
+        if (closed.get()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            boolean idleTooLong = config.idleTimeoutMs() > 0
+                    && now - pooled.lastReturnedAt >= config.idleTimeoutMs()
+                    && all.size() > config.minSize();
+            if ((idleTooLong || isExpired(pooled, now)) && idle.remove(pooled)) {
+                logger.debug("Пул {}: вытеснение простаивающего соединения", name);
+                closePhysical(pooled);
+            }
+        }
+        fillToMinimum();
+    }
+
+    private void fillToMinimum() {
+        while (!closed.get() && all.size() < config.minSize() && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = create();
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                logger.warn("Пул {}: не удалось открыть соединение для minSize: {}", name, e.getMessage());
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private void closePhysical(PooledConnection pooled) {
+        all.remove(pooled);
+        if (pooled.statements != null) {
+            pooled.statements.closeAll();
+        }
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.debug("Пул {}: ошибка при закрытии физического соединения: {}", name, e.getMessage());
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed.get()) {
+            throw new SQLException("Пул соединений " + name + " закрыт");
+        }
+    }
+
+    /**
+     * Кэшируются только {@code prepareStatement(sql)} и {@code prepareStatement(sql, autoGeneratedKeys)}
+     */
+    private static boolean isCacheablePrepare(Method method) {
+        if (!method.getName().equals("prepareStatement")) {
+            return false;
+        }
+        Class<?>[] types = method.getParameterTypes();
+        return types.length == 1 || (types.length == 2 && types[1] == int.class);
+    }
+
+    /**
+     * Физическое соединение, принадлежащее пулу.
+     */
+    final class PooledConnection {
+        final Connection physical;
+        final long createdAt;
+        final StatementCache statements;
+        volatile long lastReturnedAt;
+        volatile boolean borrowed;
+
+        PooledConnection(Connection physical, long createdAt) {
+            this.physical = physical;
+            this.createdAt = createdAt;
+            this.lastReturnedAt = createdAt;
+            this.statements = config.statementCacheSize() > 0
+                    ? new StatementCache(physical, config.statementCacheSize(), statementCounters)
+                    : null;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LogicalConnectionHandler(this));
+        }
+    }
+
+    /**
+     * Логическое соединение: {@code close()} возвращает физическое соединение в пул,
+     * после этого любые вызовы (кроме {@code isClosed()/close()}) запрещены.
+     */
+    private final class LogicalConnectionHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean logicallyClosed = new AtomicBoolean(false);
+
+        LogicalConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (logicallyClosed.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed.get() || pooled.physical.isClosed();
+                case "unwrap":
+                    return unwrapProxy(proxy, pooled.physical, args);
+                case "isWrapperFor":
+                    return isWrapperFor(proxy, pooled.physical, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + name + "]@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    break;
+            }
+            if (logicallyClosed.get()) {
+                throw new SQLException("Соединение уже возвращено в пул " + name);
+            }
+            if (pooled.statements != null && isCacheablePrepare(method)) {
+                int autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                return pooled.statements.prepare((Connection) proxy, (String) args[0], autoGeneratedKeys);
+            }
+            Object result;
+            try {
+                result = method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement || result instanceof DatabaseMetaData) {
+                return ownedBy((Connection) proxy, (Wrapper) result, method.getReturnType());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * {@code unwrap} у обёрток пула: интерфейсы драйвера (например, {@code MysqlConnection}) раскрывает
+     * сам физический объект, а в собственный класс физического объекта обёртка не раскрывается — его
+     * {@code close()} закрыл бы соединение в обход учёта пула
+     */
+    static Object unwrapProxy(Object proxy, Wrapper target, Object[] args) throws SQLException {
+        Class<?> type = (Class<?>) args[0];
+        if (type.isInstance(proxy)) {
+            return proxy;
+        }
+        if (hiddenBehindProxy(type, target)) {
+            throw new SQLException("Объект пула не раскрывается в " + type.getName());
+        }
+        return target.unwrap(type);
+    }
+
+    static boolean isWrapperFor(Object proxy, Wrapper target, Object[] args) throws SQLException {
+        Class<?> type = (Class<?>) args[0];
+        return type.isInstance(proxy) || (!hiddenBehindProxy(type, target) && target.isWrapperFor(type));
+    }
+
+    private static boolean hiddenBehindProxy(Class<?> type, Object target) {
+        return !type.isInterface() && type.isInstance(target);
+    }
+
+    /**
+     * Запрос или метаданные физического соединения, у которых {@code getConnection()} возвращает
+     * логическое соединение, как у запросов из {@link StatementCache}
+     */
+    private static Object ownedBy(Connection owner, Wrapper target, Class<?> type) {
+        return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getConnection":
+                            return owner;
+                        case "unwrap":
+                            return unwrapProxy(proxy, target, args);
+                        case "isWrapperFor":
+                            return isWrapperFor(proxy, target, args);
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -4,17 +4,156 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Резервная копия БД: копирование данных из основной БД в резервную (другая СУБД).
  * Реализация сделана на JDBC, чтобы работать одинаково для MySQL/PostgreSQL и т.д.
+ * <p>
+ * Режимы:
+ * <ul>
+ *     <li>{@link BackupMode#FULL} — резервные таблицы очищаются и копируются целиком;</li>
+ *     <li>{@link BackupMode#INCREMENTAL} — копируются только строки, изменившиеся после прошлого запуска
+ *     (high-water mark по id и updated_at в таблице backup_metadata), удаления находятся сравнением
+ *     контрольных сумм диапазонов id.</li>
+ * </ul>
+ * Полная копия идёт конвейером ({@link TableCopyPipeline}) в промежуточные таблицы {@code <таблица>_staging},
+ * таблицы копируются параллельно. Каждая таблица переносится частями по диапазонам id; часть фиксируется
+ * вместе с отметкой в backup_checkpoint, поэтому прерванный запуск можно продолжить
+ * ({@link #backupPrimaryToBackup(boolean)}). После сверки промежуточные таблицы переносятся в основные
+ * одной транзакцией — читатели резервной БД не видят наполовину заполненную копию.
  */
-public class DatabaseBackupService {
+public class DatabaseBackupService implements BackupTarget {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseBackupService.class);
 
+    static final String METADATA_TABLE = "backup_metadata";
+    static final String CHECKPOINT_TABLE = "backup_checkpoint";
+    private static final String UPDATED_AT = "updated_at";
+    private static final long SHUTDOWN_TIMEOUT_SEC = 30;
+
     private final DatabaseConnection databaseConnection;
 
-    public record BackupReport(int roomsCopied, int clientsCopied) { }
+    public enum BackupMode { FULL, INCREMENTAL }
+
+    /**
+     * Настройки копирования (ключи {@code db.backup.*})
+     *
+     * @param batchSize         строк в одном executeBatch
+     * @param chunkSize         строк в одной части полной копии (часть — одна транзакция и одна отметка в backup_checkpoint)
+     * @param queueCapacity     сколько прочитанных пачек может ждать записи
+     * @param parallelTables    сколько таблиц копируется одновременно
+     * @param checksumRangeSize ширина диапазона id при сверке контрольных сумм (режим INCREMENTAL)
+     */
+    public record Config(int batchSize,
+                         int chunkSize,
+                         int queueCapacity,
+                         int parallelTables,
+                         int checksumRangeSize) {
+        public Config {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("db.backup.batchSize must be >= 1");
+            }
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("db.backup.chunkSize must be >= 1");
+            }
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("db.backup.queueCapacity must be >= 1");
+            }
+            if (parallelTables < 1) {
+                throw new IllegalArgumentException("db.backup.parallelTables must be >= 1");
+            }
+            if (checksumRangeSize < 1) {
+                throw new IllegalArgumentException("db.backup.checksumRangeSize must be >= 1");
+            }
+        }
+    }
+
+    /**
+     * Изменения одной таблицы в резервной БД
+     */
+    public record TableChanges(int inserted, int updated, int deleted) {
+        public static final TableChanges NONE = new TableChanges(0, 0, 0);
+
+        public int copied() {
+            return inserted + updated;
+        }
+    }
+
+    /**
+     * Метрики запуска.
+     *
+     * @param elapsedMillis  общее время
+     * @param rows           строк записано в резервную БД
+     * @param estimatedBytes примерный объём перенесённых данных
+     * @param phaseMillis    время по фазам в порядке завершения: {@code schema}, {@code <таблица>},
+     *                       {@code <таблица>.read}/{@code .write}/{@code .reconcile} и {@code swap} (FULL),
+     *                       {@code <таблица>.upsert}/{@code .reconcile} (INCREMENTAL)
+     */
+    public record Metrics(long elapsedMillis, long rows, long estimatedBytes, Map<String, Long> phaseMillis) {
+        public static final Metrics NONE = new Metrics(0, 0, 0, Map.of());
+
+        public Metrics {
+            phaseMillis = Collections.unmodifiableMap(new LinkedHashMap<>(phaseMillis));
+        }
+
+        public double rowsPerSecond() {
+            return elapsedMillis > 0 ? rows * 1000.0 / elapsedMillis : 0;
+        }
+    }
+
+    public record BackupReport(BackupMode mode, TableChanges rooms, TableChanges clients, Metrics metrics) {
+
+        public BackupReport(int roomsCopied, int clientsCopied) {
+            this(BackupMode.FULL, new TableChanges(roomsCopied, 0, 0), new TableChanges(clientsCopied, 0, 0), Metrics.NONE);
+        }
+
+        public int roomsCopied() {
+            return rooms.copied();
+        }
+
+        public int clientsCopied() {
+            return clients.copied();
+        }
+    }
+
+    /**
+     * Отметка последнего скопированного состояния таблицы
+     */
+    record Watermark(long lastId, Timestamp lastUpdatedAt) { }
+
+    /**
+     * Прогресс полной копии таблицы в промежуточную.
+     *
+     * @param lastId     id последней скопированной строки
+     * @param rowsCopied строк скопировано
+     * @param watermark  отметка основной БД на момент начала копии (станет отметкой в backup_metadata)
+     * @param done       все части скопированы
+     */
+    record Checkpoint(long lastId, long rowsCopied, Watermark watermark, boolean done) { }
+
+    @FunctionalInterface
+    interface SqlWork<T> {
+        T run() throws SQLException;
+    }
 
     public DatabaseBackupService(DatabaseConnection databaseConnection) {
         if (databaseConnection == null) {
@@ -24,150 +163,742 @@ public class DatabaseBackupService {
     }
 
     public BackupReport backupPrimaryToBackup() throws SQLException {
+        return backupPrimaryToBackup(BackupMode.FULL);
+    }
+
+    @Override
+    public Map<String, Long> backup() throws SQLException {
+        BackupReport report = backupPrimaryToBackup();
+        Map<String, Long> rows = new LinkedHashMap<>();
+        rows.put(BackupTable.ROOMS.name(), (long) report.roomsCopied());
+        rows.put(BackupTable.CLIENTS.name(), (long) report.clientsCopied());
+        return rows;
+    }
+
+    public BackupReport backupPrimaryToBackup(BackupMode mode) throws SQLException {
+        return backupPrimaryToBackup(mode, false);
+    }
+
+    /**
+     * Полная копия.
+     *
+     * @param resume продолжить прерванный запуск с последней зафиксированной части
+     *               (false — начать заново, отброшив промежуточные данные)
+     */
+    public BackupReport backupPrimaryToBackup(boolean resume) throws SQLException {
+        return backupPrimaryToBackup(BackupMode.FULL, resume);
+    }
+
+    private BackupReport backupPrimaryToBackup(BackupMode mode, boolean resume) throws SQLException {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode cannot be null");
+        }
         if (!databaseConnection.isBackupConfigured()) {
             throw new IllegalStateException("Backup DB is not configured");
         }
 
-        try (Connection primary = databaseConnection.openPrimaryConnection();
-             Connection backup = databaseConnection.openBackupConnection()) {
-            backup.setAutoCommit(false);
+        Config config = databaseConnection.readBackupConfig();
+        MetricsRecorder metrics = new MetricsRecorder();
+        Map<String, TableChanges> changes = mode == BackupMode.FULL
+                ? fullCopy(config, resume, metrics)
+                : incrementalCopy(config, metrics);
+
+        BackupReport report = new BackupReport(mode,
+                changes.get(BackupTable.ROOMS.name()), changes.get(BackupTable.CLIENTS.name()), metrics.finish());
+        logger.info("Backup ({}) completed успешно. rooms={}, clients={}, {} мс, {} строк/с, ~{} байт, фазы: {}",
+                mode, report.rooms(), report.clients(), report.metrics().elapsedMillis(),
+                Math.round(report.metrics().rowsPerSecond()), report.metrics().estimatedBytes(),
+                report.metrics().phaseMillis());
+        return report;
+    }
+
+    /**
+     * Выполнить работу в транзакции резервной БД; при ошибке — откат
+     */
+    static <T> T inTransaction(Connection backup, SqlWork<T> work) throws SQLException {
+        backup.setAutoCommit(false);
+        try {
+            T result = work.run();
+            backup.commit();
+            return result;
+        } catch (SQLException e) {
             try {
-                ensureSchemaExists(backup);
-                clearBackupTables(backup);
-
-                int roomsCopied = copyRooms(primary, backup);
-                int clientsCopied = copyClients(primary, backup);
-
-                backup.commit();
-                logger.info("Backup completed успешно. rooms={}, clients={}", roomsCopied, clientsCopied);
-                return new BackupReport(roomsCopied, clientsCopied);
-            } catch (SQLException e) {
-                try {
-                    backup.rollback();
-                } catch (SQLException rollbackException) {
-                    e.addSuppressed(rollbackException);
-                }
-                throw e;
-            } finally {
-                try {
-                    backup.setAutoCommit(true);
-                } catch (SQLException ignored) {
-                    // ignore
+                backup.rollback();
+            } catch (SQLException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            throw e;
+        } finally {
+            try {
+                backup.setAutoCommit(true);
+            } catch (SQLException ignored) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Резервные таблицы, созданные до появления столбца version, дополняются им:
+     * CREATE TABLE IF NOT EXISTS существующую таблицу не меняет
+     */
+    private static void addVersionIfMissing(Statement stmt, BackupTable table) throws SQLException {
+        if (!table.columns().contains(BackupTable.VERSION)) {
+            return;
+        }
+        try (ResultSet rs = stmt.executeQuery("SELECT * FROM " + table.name() + " WHERE 1 = 0")) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (BackupTable.VERSION.equalsIgnoreCase(metaData.getColumnName(i))) {
+                    return;
                 }
             }
         }
+        logger.info("Добавление столбца {} в резервную таблицу {}", BackupTable.VERSION, table.name());
+        stmt.executeUpdate("ALTER TABLE " + table.name() + " ADD COLUMN " + BackupTable.VERSION_DEFINITION);
     }
 
-    private void ensureSchemaExists(Connection backup) throws SQLException {
+    void ensureSchemaExists(Connection backup) throws SQLException {
         try (Statement stmt = backup.createStatement()) {
+            for (BackupTable table : BackupTable.ALL) {
+                stmt.executeUpdate(table.backupDdl());
+                stmt.executeUpdate(table.staging().backupDdl());
+                addVersionIfMissing(stmt, table);
+                addVersionIfMissing(stmt, table.staging());
+            }
             stmt.executeUpdate(
-                    "CREATE TABLE IF NOT EXISTS rooms (" +
-                            "id INT PRIMARY KEY, " +
-                            "room_number VARCHAR(10) NOT NULL, " +
-                            "room_type VARCHAR(50) NOT NULL, " +
-                            "price_per_night DECIMAL(10, 2) NOT NULL, " +
-                            "is_available BOOLEAN, " +
-                            "created_at TIMESTAMP" +
+                    "CREATE TABLE IF NOT EXISTS " + METADATA_TABLE + " (" +
+                            "table_name VARCHAR(64) PRIMARY KEY, " +
+                            "last_id BIGINT NOT NULL, " +
+                            "last_updated_at TIMESTAMP, " +
+                            "last_backup_at TIMESTAMP NOT NULL" +
                             ")"
             );
-
             stmt.executeUpdate(
-                    "CREATE TABLE IF NOT EXISTS clients (" +
-                            "id INT PRIMARY KEY, " +
-                            "first_name VARCHAR(100) NOT NULL, " +
-                            "last_name VARCHAR(100) NOT NULL, " +
-                            "email VARCHAR(255), " +
-                            "phone VARCHAR(20), " +
-                            "room_id INT, " +
-                            "check_in_date DATE, " +
-                            "check_out_date DATE, " +
-                            "created_at TIMESTAMP" +
+                    "CREATE TABLE IF NOT EXISTS " + CHECKPOINT_TABLE + " (" +
+                            "table_name VARCHAR(64) PRIMARY KEY, " +
+                            "last_id BIGINT NOT NULL, " +
+                            "rows_copied BIGINT NOT NULL, " +
+                            "watermark_id BIGINT NOT NULL, " +
+                            "watermark_updated_at TIMESTAMP, " +
+                            "done BOOLEAN NOT NULL, " +
+                            "updated_at TIMESTAMP NOT NULL" +
                             ")"
             );
         }
     }
 
-    private void clearBackupTables(Connection backup) throws SQLException {
+    // ----------------------------------------------------------------- FULL
+
+    private Map<String, TableChanges> fullCopy(Config config, boolean resume,
+                                               MetricsRecorder metrics) throws SQLException {
+        long started = System.nanoTime();
+        List<List<BackupTable>> levels;
+        try (Connection backup = databaseConnection.openBackupConnection()) {
+            inTransaction(backup, () -> {
+                ensureSchemaExists(backup);
+                return null;
+            });
+            levels = dependencyLevels(backup);
+        }
+        metrics.phaseSince("schema", started);
+        logger.debug("Порядок переноса таблиц: {}", levels);
+
+        // у промежуточных таблиц нет внешних ключей, поэтому порядок важен только при переносе
+        ExecutorService workers = Executors.newFixedThreadPool(config.parallelTables(), daemonThreads("db-backup-copy"));
+        ExecutorService readers = Executors.newCachedThreadPool(daemonThreads("db-backup-read"));
+        TableCopyPipeline pipeline = new TableCopyPipeline(config, databaseConnection.getStreamFetchSize(), readers);
+        try {
+            List<Future<?>> futures = new ArrayList<>(BackupTable.ALL.size());
+            for (BackupTable table : BackupTable.ALL) {
+                futures.add(workers.submit(() -> {
+                    copyToStaging(table, config, resume, pipeline, metrics);
+                    return null;
+                }));
+            }
+            awaitAll(futures);
+        } finally {
+            shutdown(workers);
+            shutdown(readers);
+        }
+
+        started = System.nanoTime();
+        Map<String, TableChanges> changes;
+        try (Connection backup = databaseConnection.openBackupConnection()) {
+            changes = inTransaction(backup, () -> swapStaging(backup, levels));
+        }
+        metrics.phaseSince("swap", started);
+        return changes;
+    }
+
+    /**
+     * Скопировать таблицу в промежуточную частями по {@code chunkSize} строк в порядке id.
+     * Часть фиксируется вместе с отметкой в backup_checkpoint. В конце промежуточная таблица сверяется
+     * с основной по контрольным суммам диапазонов: строки, удалённые в основной БД после копирования
+     * их части, убираются, пропущенные — докопируются. Изменения уже скопированных строк подхватит
+     * следующая инкрементальная копия (отметка берётся на момент начала).
+     */
+    private void copyToStaging(BackupTable table, Config config, boolean resume,
+                               TableCopyPipeline pipeline, MetricsRecorder metrics) throws SQLException {
+        long started = System.nanoTime();
+        BackupTable staging = table.staging();
+        String chunkSql = table.select() + " WHERE id > ? ORDER BY id";
+        try (Connection primary = databaseConnection.openPrimaryConnection();
+             Connection backup = databaseConnection.openBackupConnection()) {
+            Checkpoint checkpoint = resume ? readCheckpoint(backup, table) : null;
+            if (checkpoint == null) {
+                Checkpoint initial = new Checkpoint(Long.MIN_VALUE, 0, readPrimaryWatermark(primary, table), false);
+                checkpoint = inTransaction(backup, () -> {
+                    try (Statement stmt = backup.createStatement()) {
+                        stmt.executeUpdate("DELETE FROM " + staging.name());
+                    }
+                    writeCheckpoint(backup, table, initial);
+                    return initial;
+                });
+            } else {
+                logger.info("Таблица {}: продолжение копирования после id {} (уже скопировано {} строк)",
+                        table.name(), checkpoint.lastId(), checkpoint.rowsCopied());
+            }
+
+            while (!checkpoint.done()) {
+                Checkpoint previous = checkpoint;
+                checkpoint = inTransaction(backup, () -> {
+                    TableCopyPipeline.Result result = pipeline.copy(primary, chunkSql, stmt -> {
+                        stmt.setLong(1, previous.lastId());
+                        stmt.setMaxRows(config.chunkSize());
+                    }, backup, staging);
+                    metrics.add(result.rows(), result.bytes());
+                    metrics.phase(table.name() + ".read", result.readMillis());
+                    metrics.phase(table.name() + ".write", result.writeMillis());
+                    Checkpoint next = new Checkpoint(
+                            result.rows() > 0 ? result.lastId() : previous.lastId(),
+                            previous.rowsCopied() + result.rows(),
+                            previous.watermark(),
+                            result.rows() < config.chunkSize());
+                    writeCheckpoint(backup, table, next);
+                    return next;
+                });
+                logger.debug("Таблица {}: часть скопирована, последний id {}, всего {} строк",
+                        table.name(), checkpoint.lastId(), checkpoint.rowsCopied());
+            }
+
+            long reconcileStarted = System.nanoTime();
+            int[] reconciled = inTransaction(backup, () ->
+                    reconcile(primary, backup, SqlDialect.of(backup), table, staging, config, metrics));
+            metrics.phaseSince(table.name() + ".reconcile", reconcileStarted);
+            logger.info("Таблица {}: скопировано {} строк, при сверке добавлено {}, удалено {}",
+                    table.name(), checkpoint.rowsCopied(), reconciled[0], reconciled[1]);
+        }
+        metrics.phaseSince(table.name(), started);
+    }
+
+    /**
+     * Перенести промежуточные таблицы в основные одной транзакцией: читатели резервной БД видят либо
+     * прошлую копию, либо новую целиком. Очистка идёт от ссылающихся таблиц к родительским, вставка — обратно.
+     * Перенос выполняется внутри резервной БД ({@code INSERT ... SELECT}), без передачи данных по сети.
+     */
+    private Map<String, TableChanges> swapStaging(Connection backup, List<List<BackupTable>> levels) throws SQLException {
+        List<BackupTable> ordered = levels.stream().flatMap(List::stream).toList();
+        Map<String, Checkpoint> checkpoints = new HashMap<>();
+        for (BackupTable table : ordered) {
+            Checkpoint checkpoint = readCheckpoint(backup, table);
+            if (checkpoint == null || !checkpoint.done()) {
+                throw new SQLException("Таблица " + table.name() + " скопирована не полностью, перенос невозможен");
+            }
+            checkpoints.put(table.name(), checkpoint);
+        }
+
+        Map<String, TableChanges> changes = new TreeMap<>();
         try (Statement stmt = backup.createStatement()) {
-            stmt.executeUpdate("DELETE FROM clients");
-            stmt.executeUpdate("DELETE FROM rooms");
+            for (int i = ordered.size() - 1; i >= 0; i--) {
+                stmt.executeUpdate("DELETE FROM " + ordered.get(i).name());
+            }
+            for (BackupTable table : ordered) {
+                int copied = stmt.executeUpdate("INSERT INTO " + table.name() + " (" + table.selectList() + ") "
+                        + "SELECT " + table.selectList() + " FROM " + table.staging().name());
+                changes.put(table.name(), new TableChanges(copied, 0, 0));
+            }
+            for (BackupTable table : ordered) {
+                stmt.executeUpdate("DELETE FROM " + table.staging().name());
+                writeWatermark(backup, table, checkpoints.get(table.name()).watermark());
+                deleteCheckpoint(backup, table);
+            }
         }
+        return changes;
     }
 
-    private int copyRooms(Connection primary, Connection backup) throws SQLException {
-        String selectSql = "SELECT id, room_number, room_type, price_per_night, is_available, created_at FROM rooms";
-        String insertSql = "INSERT INTO rooms (id, room_number, room_type, price_per_night, is_available, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    /**
+     * Разбить таблицы на уровни по внешним ключам резервной БД: таблицы одного уровня друг от друга
+     * не зависят и копируются параллельно, уровень начинается после завершения предыдущего.
+     */
+    List<List<BackupTable>> dependencyLevels(Connection backup) throws SQLException {
+        DatabaseMetaData metaData = backup.getMetaData();
+        Map<String, Integer> levelByTable = new HashMap<>();
+        List<List<BackupTable>> levels = new ArrayList<>();
+        // BackupTable.ALL уже упорядочен так, что родительские таблицы идут раньше
+        for (BackupTable table : BackupTable.ALL) {
+            int level = 0;
+            for (String parent : parentTables(metaData, table.name())) {
+                Integer parentLevel = levelByTable.get(parent);
+                if (parentLevel != null) {
+                    level = Math.max(level, parentLevel + 1);
+                }
+            }
+            levelByTable.put(table.name(), level);
+            while (levels.size() <= level) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(level).add(table);
+        }
+        return levels;
+    }
 
-        int copied = 0;
-        try (Statement select = primary.createStatement();
-             ResultSet rs = select.executeQuery(selectSql);
-             PreparedStatement insert = backup.prepareStatement(insertSql)) {
-            while (rs.next()) {
-                insert.setInt(1, rs.getInt("id"));
-                insert.setString(2, rs.getString("room_number"));
-                insert.setString(3, rs.getString("room_type"));
-                insert.setBigDecimal(4, rs.getBigDecimal("price_per_night"));
-                insert.setBoolean(5, rs.getBoolean("is_available"));
-                Timestamp createdAt = rs.getTimestamp("created_at");
-                if (createdAt != null) {
-                    insert.setTimestamp(6, createdAt);
+    private static Set<String> parentTables(DatabaseMetaData metaData, String table) throws SQLException {
+        // регистр имён в метаданных зависит от СУБД: H2 хранит в верхнем, PostgreSQL — в нижнем
+        Set<String> names = new LinkedHashSet<>(List.of(table,
+                table.toUpperCase(Locale.ROOT), table.toLowerCase(Locale.ROOT)));
+        Set<String> parents = new HashSet<>();
+        for (String name : names) {
+            try (ResultSet rs = metaData.getImportedKeys(null, null, name)) {
+                while (rs.next()) {
+                    parents.add(rs.getString("PKTABLE_NAME").toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return parents;
+    }
+
+    static void awaitAll(List<Future<?>> futures) throws SQLException {
+        SQLException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                if (failure == null) {
+                    future.get();
                 } else {
-                    insert.setNull(6, Types.TIMESTAMP);
+                    future.cancel(true);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new SQLException("Резервное копирование прервано", e);
+            } catch (ExecutionException e) {
+                failure = asSqlException(e.getCause());
+            } catch (CancellationException e) {
+                failure = new SQLException("Копирование таблицы отменено", e);
+            }
+        }
+        if (failure != null) {
+            futures.forEach(f -> f.cancel(true));
+            throw failure;
+        }
+    }
+
+    private static SQLException asSqlException(Throwable cause) {
+        if (cause instanceof SQLException e) {
+            return e;
+        }
+        if (cause instanceof RuntimeException e) {
+            throw e;
+        }
+        if (cause instanceof Error e) {
+            throw e;
+        }
+        return new SQLException("Ошибка копирования таблицы: " + cause.getMessage(), cause);
+    }
+
+    static void shutdown(ExecutorService executor) {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                logger.warn("Потоки резервного копирования не завершились за {} с", SHUTDOWN_TIMEOUT_SEC);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // ---------------------------------------------------------- INCREMENTAL
+
+    /**
+     * Инкрементальная копия выполняется одной транзакцией: изменений обычно немного,
+     * а согласованность отметок разных таблиц важнее параллельности.
+     */
+    private Map<String, TableChanges> incrementalCopy(Config config, MetricsRecorder metrics) throws SQLException {
+        try (Connection primary = databaseConnection.openPrimaryConnection();
+             Connection backup = databaseConnection.openBackupConnection()) {
+            return inTransaction(backup, () -> {
+                long started = System.nanoTime();
+                ensureSchemaExists(backup);
+                metrics.phaseSince("schema", started);
+
+                SqlDialect backupDialect = SqlDialect.of(backup);
+                Map<String, TableChanges> changes = new TreeMap<>();
+                for (BackupTable table : BackupTable.ALL) {
+                    long tableStarted = System.nanoTime();
+                    changes.put(table.name(), incrementalCopy(primary, backup, backupDialect, table, config, metrics));
+                    metrics.phaseSince(table.name(), tableStarted);
                 }
+                return changes;
+            });
+        }
+    }
+
+    private TableChanges incrementalCopy(Connection primary, Connection backup, SqlDialect backupDialect,
+                                         BackupTable table, Config config, MetricsRecorder metrics) throws SQLException {
+        Watermark previous = readWatermark(backup, table);
+        Watermark next = readPrimaryWatermark(primary, table);
 
-                copied += insert.executeUpdate();
+        StringBuilder sql = new StringBuilder(table.select());
+        List<Object> params = new ArrayList<>();
+        if (previous != null) {
+            sql.append(" WHERE id > ?");
+            params.add(previous.lastId());
+            if (previous.lastUpdatedAt() != null && next.lastUpdatedAt() != null) {
+                // >=: строки, изменённые в ту же единицу времени, что и отметка, копируются повторно (upsert идемпотентен)
+                sql.append(" OR ").append(UPDATED_AT).append(" >= ?");
+                params.add(previous.lastUpdatedAt());
             }
         }
-        return copied;
+        sql.append(" ORDER BY id");
+        logger.debug("Инкрементальная копия {}: отметка {}, SQL: {}", table.name(), previous, sql);
+
+        long started = System.nanoTime();
+        int[] counts = upsertRows(primary, backup, backupDialect, table, sql.toString(), stmt -> {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+        }, config, metrics);
+        metrics.phaseSince(table.name() + ".upsert", started);
+
+        started = System.nanoTime();
+        int[] reconciled = reconcile(primary, backup, backupDialect, table, table, config, metrics);
+        metrics.phaseSince(table.name() + ".reconcile", started);
+        writeWatermark(backup, table, next);
+
+        TableChanges result = new TableChanges(counts[0] + reconciled[0], counts[1], reconciled[1]);
+        logger.info("Таблица {}: вставлено {}, обновлено {}, удалено {}",
+                table.name(), result.inserted(), result.updated(), result.deleted());
+        return result;
     }
 
-    private int copyClients(Connection primary, Connection backup) throws SQLException {
-        String selectSql = "SELECT id, first_name, last_name, email, phone, room_id, check_in_date, check_out_date, created_at FROM clients";
-        String insertSql = "INSERT INTO clients (id, first_name, last_name, email, phone, room_id, check_in_date, check_out_date, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    /**
+     * Перенести строки запроса в таблицу {@code target} резервной БД через upsert (без сбора метрик).
+     * Транзакцию фиксирует вызывающий.
+     *
+     * @return {вставлено, обновлено}
+     */
+    int[] upsertRows(Connection primary, Connection backup, BackupTable target, String selectSql,
+                     StatementBinder binder, Config config) throws SQLException {
+        return upsertRows(primary, backup, SqlDialect.of(backup), target, selectSql, binder, config, new MetricsRecorder());
+    }
 
-        int copied = 0;
-        try (Statement select = primary.createStatement();
-             ResultSet rs = select.executeQuery(selectSql);
-             PreparedStatement insert = backup.prepareStatement(insertSql)) {
-            while (rs.next()) {
-                insert.setInt(1, rs.getInt("id"));
-                insert.setString(2, rs.getString("first_name"));
-                insert.setString(3, rs.getString("last_name"));
-                insert.setString(4, rs.getString("email"));
-                insert.setString(5, rs.getString("phone"));
-
-                int roomId = rs.getInt("room_id");
-                if (!rs.wasNull()) {
-                    insert.setInt(6, roomId);
-                } else {
-                    insert.setNull(6, Types.INTEGER);
+    /**
+     * Перенести строки запроса в таблицу {@code target} резервной БД через upsert.
+     *
+     * @return {вставлено, обновлено}
+     */
+    private int[] upsertRows(Connection primary, Connection backup, SqlDialect backupDialect, BackupTable target,
+                             String selectSql, StatementBinder binder,
+                             Config config, MetricsRecorder metrics) throws SQLException {
+        int batchSize = config.batchSize();
+        String upsertSql = backupDialect.upsertSql(target.name(), BackupTable.ID, target.columns());
+        int inserted = 0;
+        int updated = 0;
+        try (PreparedStatement select = primary.prepareStatement(selectSql)) {
+            binder.bind(select);
+            try (ResultSet rs = select.executeQuery()) {
+                int[] types = TableCopyPipeline.columnTypes(rs);
+                List<Object[]> batch = new ArrayList<>(batchSize);
+                while (rs.next()) {
+                    Object[] row = TableCopyPipeline.readRow(rs, types.length);
+                    metrics.add(1, TableCopyPipeline.estimateBytes(row));
+                    batch.add(row);
+                    if (batch.size() == batchSize) {
+                        int existing = writeBatch(backup, target, upsertSql, types, batch);
+                        updated += existing;
+                        inserted += batch.size() - existing;
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    int existing = writeBatch(backup, target, upsertSql, types, batch);
+                    updated += existing;
+                    inserted += batch.size() - existing;
                 }
+            }
+        }
+        return new int[]{inserted, updated};
+    }
 
-                Date checkIn = rs.getDate("check_in_date");
-                if (checkIn != null) {
-                    insert.setDate(7, checkIn);
+    /**
+     * Записать пачку строк; возвращает, сколько из них уже было в резервной БД
+     */
+    private int writeBatch(Connection backup, BackupTable table, String upsertSql,
+                           int[] types, List<Object[]> rows) throws SQLException {
+        Set<Long> existing = existingIds(backup, table, rows);
+        if (upsertSql != null) {
+            try (PreparedStatement upsert = backup.prepareStatement(upsertSql)) {
+                for (Object[] row : rows) {
+                    TableCopyPipeline.bindValues(upsert, row, types);
+                    upsert.addBatch();
+                }
+                upsert.executeBatch();
+            }
+            return existing.size();
+        }
+        try (PreparedStatement update = backup.prepareStatement(table.updateSql());
+             PreparedStatement insert = backup.prepareStatement(table.insertSql())) {
+            for (Object[] row : rows) {
+                if (existing.contains(((Number) row[0]).longValue())) {
+                    // UPDATE: сначала столбцы без id, id — последний параметр
+                    Object[] values = new Object[row.length - 1];
+                    int[] valueTypes = new int[types.length - 1];
+                    System.arraycopy(row, 1, values, 0, values.length);
+                    System.arraycopy(types, 1, valueTypes, 0, valueTypes.length);
+                    TableCopyPipeline.bindValues(update, values, valueTypes);
+                    update.setObject(row.length, row[0]);
+                    update.addBatch();
                 } else {
-                    insert.setNull(7, Types.DATE);
+                    TableCopyPipeline.bindValues(insert, row, types);
+                    insert.addBatch();
                 }
+            }
+            update.executeBatch();
+            insert.executeBatch();
+        }
+        return existing.size();
+    }
 
-                Date checkOut = rs.getDate("check_out_date");
-                if (checkOut != null) {
-                    insert.setDate(8, checkOut);
-                } else {
-                    insert.setNull(8, Types.DATE);
+    private Set<Long> existingIds(Connection backup, BackupTable table, List<Object[]> rows) throws SQLException {
+        String sql = "SELECT id FROM " + table.name() + " WHERE id IN ("
+                + String.join(", ", Collections.nCopies(rows.size(), "?")) + ")";
+        Set<Long> ids = new HashSet<>();
+        try (PreparedStatement stmt = backup.prepareStatement(sql)) {
+            for (int i = 0; i < rows.size(); i++) {
+                stmt.setObject(i + 1, rows.get(i)[0]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
                 }
+            }
+        }
+        return ids;
+    }
 
-                Timestamp createdAt = rs.getTimestamp("created_at");
-                if (createdAt != null) {
-                    insert.setTimestamp(9, createdAt);
-                } else {
-                    insert.setNull(9, Types.TIMESTAMP);
+    /**
+     * Сверка таблицы основной БД с таблицей {@code target} резервной по диапазонам id: в каждом диапазоне
+     * сравниваются COUNT(*) и SUM(id) на обеих сторонах, построчно просматриваются только несовпавшие
+     * диапазоны. Лишние строки резервной БД удаляются, недостающие — копируются.
+     *
+     * @return {вставлено, удалено}
+     */
+    private int[] reconcile(Connection primary, Connection backup, SqlDialect backupDialect, BackupTable table,
+                            BackupTable target, Config config, MetricsRecorder metrics) throws SQLException {
+        int rangeSize = config.checksumRangeSize();
+        Map<Long, List<Long>> primaryRanges = rangeChecksums(primary, table, rangeSize);
+        Map<Long, List<Long>> backupRanges = rangeChecksums(backup, target, rangeSize);
+
+        Set<Long> ranges = new TreeSet<>(primaryRanges.keySet());
+        ranges.addAll(backupRanges.keySet());
+        int inserted = 0;
+        int deleted = 0;
+        for (long range : ranges) {
+            if (primaryRanges.getOrDefault(range, List.of()).equals(backupRanges.getOrDefault(range, List.of()))) {
+                continue;
+            }
+            long fromId = range * rangeSize;
+            long toId = fromId + rangeSize;
+            Set<Long> primaryIds = idsInRange(primary, table, fromId, toId);
+            Set<Long> backupIds = idsInRange(backup, target, fromId, toId);
+
+            List<Long> extra = backupIds.stream().filter(id -> !primaryIds.contains(id)).toList();
+            if (!extra.isEmpty()) {
+                try (PreparedStatement delete = backup.prepareStatement("DELETE FROM " + target.name() + " WHERE id = ?")) {
+                    for (Long id : extra) {
+                        delete.setLong(1, id);
+                        delete.addBatch();
+                    }
+                    delete.executeBatch();
                 }
+                deleted += extra.size();
+            }
+            if (primaryIds.stream().anyMatch(id -> !backupIds.contains(id))) {
+                int[] counts = upsertRows(primary, backup, backupDialect, target,
+                        table.select() + " WHERE id >= ? AND id < ? ORDER BY id", stmt -> {
+                            stmt.setLong(1, fromId);
+                            stmt.setLong(2, toId);
+                        }, config, metrics);
+                inserted += counts[0];
+            }
+            logger.debug("Диапазон id [{}, {}) таблицы {} не совпал: удалено {}", fromId, toId, target.name(), extra.size());
+        }
+        return new int[]{inserted, deleted};
+    }
 
-                copied += insert.executeUpdate();
+    private Map<Long, List<Long>> rangeChecksums(Connection conn, BackupTable table, int rangeSize) throws SQLException {
+        String bucket = "FLOOR(id / " + rangeSize + ")";
+        String sql = "SELECT " + bucket + " AS range_no, COUNT(*), SUM(id) FROM " + table.name() + " GROUP BY " + bucket;
+        Map<Long, List<Long>> ranges = new TreeMap<>();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                ranges.put(rs.getLong(1), List.of(rs.getLong(2), rs.getLong(3)));
+            }
+        }
+        return ranges;
+    }
+
+    private Set<Long> idsInRange(Connection conn, BackupTable table, long fromId, long toId) throws SQLException {
+        Set<Long> ids = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT id FROM " + table.name() + " WHERE id >= ? AND id < ?")) {
+            stmt.setLong(1, fromId);
+            stmt.setLong(2, toId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // ------------------------------------------------------------ metadata
+
+    Watermark readWatermark(Connection backup, BackupTable table) throws SQLException {
+        return readWatermark(backup, table.name());
+    }
+
+    /**
+     * @param key имя таблицы или другого источника изменений (например, журнала {@link ChangeReplicator})
+     */
+    Watermark readWatermark(Connection backup, String key) throws SQLException {
+        try (PreparedStatement stmt = backup.prepareStatement(
+                "SELECT last_id, last_updated_at FROM " + METADATA_TABLE + " WHERE table_name = ?")) {
+            stmt.setString(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? new Watermark(rs.getLong(1), rs.getTimestamp(2)) : null;
             }
         }
-        return copied;
     }
-}
 
+    private Watermark readPrimaryWatermark(Connection primary, BackupTable table) throws SQLException {
+        boolean hasUpdatedAt = hasColumn(primary, table.name(), UPDATED_AT);
+        if (!hasUpdatedAt) {
+            logger.warn("В таблице {} основной БД нет столбца {}: инкрементальная копия перенесёт только новые id, "
+                    + "изменения существующих строк будут пропущены. Примените sql/migrate-updated-at.sql",
+                    table.name(), UPDATED_AT);
+        }
+        String sql = "SELECT MAX(id)" + (hasUpdatedAt ? ", MAX(" + UPDATED_AT + ")" : "") + " FROM " + table.name();
+        try (Statement stmt = primary.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return new Watermark(rs.getLong(1), hasUpdatedAt ? rs.getTimestamp(2) : null);
+        }
+    }
+
+    private void writeWatermark(Connection backup, BackupTable table, Watermark watermark) throws SQLException {
+        writeWatermark(backup, table.name(), watermark);
+    }
+
+    void writeWatermark(Connection backup, String key, Watermark watermark) throws SQLException {
+        try (PreparedStatement delete = backup.prepareStatement(
+                "DELETE FROM " + METADATA_TABLE + " WHERE table_name = ?");
+             PreparedStatement insert = backup.prepareStatement(
+                     "INSERT INTO " + METADATA_TABLE + " (table_name, last_id, last_updated_at, last_backup_at) "
+                             + "VALUES (?, ?, ?, CURRENT_TIMESTAMP)")) {
+            delete.setString(1, key);
+            delete.executeUpdate();
+            insert.setString(1, key);
+            insert.setLong(2, watermark.lastId());
+            insert.setTimestamp(3, watermark.lastUpdatedAt());
+            insert.executeUpdate();
+        }
+    }
+
+    Checkpoint readCheckpoint(Connection backup, BackupTable table) throws SQLException {
+        try (PreparedStatement stmt = backup.prepareStatement(
+                "SELECT last_id, rows_copied, watermark_id, watermark_updated_at, done FROM " + CHECKPOINT_TABLE
+                        + " WHERE table_name = ?")) {
+            stmt.setString(1, table.name());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new Checkpoint(rs.getLong(1), rs.getLong(2),
+                        new Watermark(rs.getLong(3), rs.getTimestamp(4)), rs.getBoolean(5));
+            }
+        }
+    }
+
+    private void writeCheckpoint(Connection backup, BackupTable table, Checkpoint checkpoint) throws SQLException {
+        deleteCheckpoint(backup, table);
+        try (PreparedStatement insert = backup.prepareStatement(
+                "INSERT INTO " + CHECKPOINT_TABLE + " (table_name, last_id, rows_copied, watermark_id, "
+                        + "watermark_updated_at, done, updated_at) VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)")) {
+            insert.setString(1, table.name());
+            insert.setLong(2, checkpoint.lastId());
+            insert.setLong(3, checkpoint.rowsCopied());
+            insert.setLong(4, checkpoint.watermark().lastId());
+            insert.setTimestamp(5, checkpoint.watermark().lastUpdatedAt());
+            insert.setBoolean(6, checkpoint.done());
+            insert.executeUpdate();
+        }
+    }
+
+    private void deleteCheckpoint(Connection backup, BackupTable table) throws SQLException {
+        try (PreparedStatement delete = backup.prepareStatement(
+                "DELETE FROM " + CHECKPOINT_TABLE + " WHERE table_name = ?")) {
+            delete.setString(1, table.name());
+            delete.executeUpdate();
+        }
+    }
+
+    private static boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (column.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // ------------------------------------------------------------- metrics
+
+    /**
+     * Сбор метрик из нескольких потоков копирования
+     */
+    private static final class MetricsRecorder {
+        private final long started = System.nanoTime();
+        private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+        private long rows;
+        private long bytes;
+
+        synchronized void add(long rows, long bytes) {
+            this.rows += rows;
+            this.bytes += bytes;
+        }
+
+        void phaseSince(String name, long startedNanos) {
+            phase(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos));
+        }
+
+        synchronized void phase(String name, long millis) {
+            phaseMillis.merge(name, millis, Long::sum);
+        }
+
+        synchronized Metrics finish() {
+            return new Metrics(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), rows, bytes, phaseMillis);
+        }
+    }
+}
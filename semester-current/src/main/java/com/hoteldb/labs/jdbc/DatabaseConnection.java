@@ -9,11 +9,17 @@ import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Класс для подключения к базе данных через JDBC
- * Реализует паттерн Singleton
+ * Реализует паттерн Singleton. При db.pool.enabled=true соединения выдаются
+ * из ограниченных пулов {@link ConnectionPool} (свой пул у основной и резервной БД),
+ * при db.failover.probeIntervalMs &gt; 0 маршрутом управляет {@link FailoverController}.
  */
 public class DatabaseConnection {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseConnection.class);
@@ -31,14 +37,54 @@ public class DatabaseConnection {
     private static final String KEY_BACKUP_USERNAME = "db.backup.username";
     private static final String KEY_BACKUP_PASSWORD = "db.backup.password";
 
+    private static final String KEY_POOL_ENABLED = "db.pool.enabled";
+    private static final String KEY_POOL_MIN_SIZE = "db.pool.minSize";
+    private static final String KEY_POOL_MAX_SIZE = "db.pool.maxSize";
+    private static final String KEY_POOL_BORROW_TIMEOUT_MS = "db.pool.borrowTimeoutMs";
+    private static final String KEY_POOL_IDLE_TIMEOUT_MS = "db.pool.idleTimeoutMs";
+    private static final String KEY_POOL_MAX_LIFETIME_MS = "db.pool.maxLifetimeMs";
+    private static final String KEY_POOL_VALIDATION_TIMEOUT_SEC = "db.pool.validationTimeoutSec";
+    private static final String KEY_POOL_EVICTION_INTERVAL_MS = "db.pool.evictionIntervalMs";
+    private static final String KEY_POOL_STATEMENT_CACHE_SIZE = "db.pool.statementCacheSize";
+
+    private static final String KEY_BATCH_SIZE = "db.batch.size";
+    private static final String KEY_BATCH_MULTI_ROW_INSERT = "db.batch.multiRowInsert";
+    private static final String KEY_STREAM_FETCH_SIZE = "db.stream.fetchSize";
+    private static final String KEY_BACKUP_BATCH_SIZE = "db.backup.batchSize";
+    private static final String KEY_BACKUP_CHUNK_SIZE = "db.backup.chunkSize";
+    private static final String KEY_BACKUP_QUEUE_CAPACITY = "db.backup.queueCapacity";
+    private static final String KEY_BACKUP_PARALLEL_TABLES = "db.backup.parallelTables";
+    private static final String KEY_BACKUP_CHECKSUM_RANGE_SIZE = "db.backup.checksumRangeSize";
+
+    private static final String KEY_SNAPSHOT_DIR = "db.snapshot.dir";
+    private static final String KEY_SNAPSHOT_BLOCK_ROWS = "db.snapshot.blockRows";
+    private static final String KEY_SNAPSHOT_BUFFER_SIZE = "db.snapshot.bufferSize";
+    private static final String KEY_SNAPSHOT_COMPRESSION_LEVEL = "db.snapshot.compressionLevel";
+
+    private static final String KEY_REPLICATION_BATCH_SIZE = "db.replication.batchSize";
+    private static final String KEY_REPLICATION_INTERVAL_MS = "db.replication.intervalMs";
+    private static final String KEY_REPLICATION_GAP_WAIT_MS = "db.replication.gapWaitMs";
+    private static final String KEY_REPLICATION_GAP_RETENTION_MS = "db.replication.gapRetentionMs";
+    private static final String KEY_REPLICATION_PURGE_APPLIED = "db.replication.purgeApplied";
+
+    private static final String KEY_FAILOVER_PROBE_INTERVAL_MS = "db.failover.probeIntervalMs";
+    private static final String KEY_FAILOVER_FAILURE_THRESHOLD = "db.failover.failureThreshold";
+    private static final String KEY_FAILOVER_OPEN_DURATION_MS = "db.failover.openDurationMs";
+    private static final String KEY_FAILOVER_HALF_OPEN_SUCCESSES = "db.failover.halfOpenSuccesses";
+    private static final String KEY_FAILOVER_VALIDATION_QUERY = "db.failover.validationQuery";
+    private static final String KEY_FAILOVER_VALIDATION_TIMEOUT_SEC = "db.failover.validationTimeoutSec";
+
     private static DatabaseConnection instance;
     private Connection connection;
+    private final ConcurrentMap<DatabaseRole, ConnectionPool> pools = new ConcurrentHashMap<>();
+    private final ConcurrentMap<DatabaseRole, Connection> probeConnections = new ConcurrentHashMap<>();
+    private volatile FailoverController failoverController;
     private final Properties properties;
     private final ResourceProvider resourceProvider;
     private final String propertiesFileName;
-    private DatabaseRole activeRole = DatabaseRole.PRIMARY;
+    private volatile DatabaseRole activeRole = DatabaseRole.PRIMARY;
 
-    enum DatabaseRole { PRIMARY, BACKUP }
+    public enum DatabaseRole { PRIMARY, BACKUP }
 
     @FunctionalInterface
     interface ResourceProvider {
@@ -79,8 +125,20 @@ public class DatabaseConnection {
         instance = null;
     }
 
+    /**
+     * Роль БД, на которую сейчас направляются запросы
+     */
     public DatabaseRole getActiveRole() {
-        return activeRole;
+        FailoverController controller = failoverController;
+        return controller != null ? controller.getActiveRole() : activeRole;
+    }
+
+    /**
+     * Статистика переключений (null, если фоновая проверка не включена)
+     */
+    public FailoverController.Stats getFailoverStats() {
+        FailoverController controller = failoverController;
+        return controller != null ? controller.getStats() : null;
     }
 
     public boolean isBackupConfigured() {
@@ -88,37 +146,237 @@ public class DatabaseConnection {
     }
 
     /**
-     * Получить соединение с базой данных
+     * Включён ли пул соединений (db.pool.enabled)
+     */
+    public boolean isPoolEnabled() {
+        return getBooleanProperty(KEY_POOL_ENABLED, false);
+    }
+
+    /**
+     * Размер пачки для массовой вставки (db.batch.size): одна пачка — одна транзакция
+     */
+    public int getBatchSize() {
+        int size = getIntProperty(KEY_BATCH_SIZE, 1000);
+        if (size < 1) {
+            throw new IllegalArgumentException("Свойство " + KEY_BATCH_SIZE + " должно быть >= 1: " + size);
+        }
+        return size;
+    }
+
+    /**
+     * Вставлять пачку одним INSERT ... VALUES (...),(...) вместо JDBC batch (db.batch.multiRowInsert)
+     */
+    public boolean isMultiRowInsertEnabled() {
+        return getBooleanProperty(KEY_BATCH_MULTI_ROW_INSERT, false);
+    }
+
+    /**
+     * Сколько строк драйвер получает за один сетевой вызов при потоковом чтении (db.stream.fetchSize).
+     * Для MySQL не используется — там строки идут по одной.
+     */
+    public int getStreamFetchSize() {
+        int size = getIntProperty(KEY_STREAM_FETCH_SIZE, 500);
+        if (size < 1) {
+            throw new IllegalArgumentException("Свойство " + KEY_STREAM_FETCH_SIZE + " должно быть >= 1: " + size);
+        }
+        return size;
+    }
+
+    /**
+     * Включена ли фоновая проверка БД с автоматическим переключением (db.failover.probeIntervalMs > 0)
+     */
+    public boolean isFailoverProbingEnabled() {
+        return isBackupConfigured() && getLongProperty(KEY_FAILOVER_PROBE_INTERVAL_MS, 0L) > 0;
+    }
+
+    /**
+     * Получить соединение с базой данных.
+     * В режиме пула каждый вызов получает своё соединение, {@code close()} возвращает его в пул;
+     * иначе используется одно общее соединение.
+     * Если включена фоновая проверка, соединение берётся сразу с активной БД без попытки
+     * подключиться к упавшей основной.
+     */
+    public Connection getConnection() throws SQLException {
+        DatabaseRole preferred = getOrStartFailoverController() != null ? getActiveRole() : DatabaseRole.PRIMARY;
+        if (isPoolEnabled()) {
+            return openWithFailover(preferred, role -> getOrCreatePool(role).borrow());
+        }
+        return getSharedConnection(preferred);
+    }
+
+    /**
+     * Состояние пула соединений основной БД (null, если пул не используется или ещё не создан)
+     */
+    public ConnectionPool.Stats getPoolStats() {
+        return getPoolStats(DatabaseRole.PRIMARY);
+    }
+
+    public ConnectionPool.Stats getPoolStats(DatabaseRole role) {
+        ConnectionPool current = pools.get(role);
+        return current != null ? current.getStats() : null;
+    }
+
+    /**
+     * Счётчики кэша подготовленных запросов пула основной БД (null, если пул не создан)
+     */
+    public ConnectionPool.StatementCacheStats getStatementCacheStats() {
+        return getStatementCacheStats(DatabaseRole.PRIMARY);
+    }
+
+    public ConnectionPool.StatementCacheStats getStatementCacheStats(DatabaseRole role) {
+        ConnectionPool current = pools.get(role);
+        return current != null ? current.getStatementCacheStats() : null;
+    }
+
+    private ConnectionPool getOrCreatePool(DatabaseRole role) {
+        ConnectionPool current = pools.get(role);
+        if (current != null) {
+            return current;
+        }
+        return pools.computeIfAbsent(role, r -> new ConnectionPool(
+                r.name().toLowerCase(Locale.ROOT), readPoolConfig(), () -> openConnection(r)));
+    }
+
+    ConnectionPool.Config readPoolConfig() {
+        return new ConnectionPool.Config(
+                getIntProperty(KEY_POOL_MIN_SIZE, 0),
+                getIntProperty(KEY_POOL_MAX_SIZE, 10),
+                getLongProperty(KEY_POOL_BORROW_TIMEOUT_MS, 5_000L),
+                getLongProperty(KEY_POOL_IDLE_TIMEOUT_MS, 600_000L),
+                getLongProperty(KEY_POOL_MAX_LIFETIME_MS, 1_800_000L),
+                getIntProperty(KEY_POOL_VALIDATION_TIMEOUT_SEC, 2),
+                getLongProperty(KEY_POOL_EVICTION_INTERVAL_MS, 30_000L),
+                getIntProperty(KEY_POOL_STATEMENT_CACHE_SIZE, 0));
+    }
+
+    FailoverController.Config readFailoverConfig() {
+        return new FailoverController.Config(
+                getLongProperty(KEY_FAILOVER_PROBE_INTERVAL_MS, 0L),
+                getIntProperty(KEY_FAILOVER_FAILURE_THRESHOLD, 2),
+                getLongProperty(KEY_FAILOVER_OPEN_DURATION_MS, 30_000L),
+                getIntProperty(KEY_FAILOVER_HALF_OPEN_SUCCESSES, 3));
+    }
+
+    DatabaseBackupService.Config readBackupConfig() {
+        return new DatabaseBackupService.Config(
+                getIntProperty(KEY_BACKUP_BATCH_SIZE, 1000),
+                getIntProperty(KEY_BACKUP_CHUNK_SIZE, 50_000),
+                getIntProperty(KEY_BACKUP_QUEUE_CAPACITY, 4),
+                getIntProperty(KEY_BACKUP_PARALLEL_TABLES, 2),
+                getIntProperty(KEY_BACKUP_CHECKSUM_RANGE_SIZE, 1000));
+    }
+
+    SnapshotBackupTarget.Config readSnapshotConfig() {
+        return new SnapshotBackupTarget.Config(
+                Path.of(properties.getProperty(KEY_SNAPSHOT_DIR, "backups").trim()),
+                getIntProperty(KEY_SNAPSHOT_BLOCK_ROWS, 8192),
+                getIntProperty(KEY_SNAPSHOT_BUFFER_SIZE, 4 << 20),
+                getIntProperty(KEY_SNAPSHOT_COMPRESSION_LEVEL, 1));
+    }
+
+    ChangeReplicator.Config readReplicationConfig() {
+        return new ChangeReplicator.Config(
+                getIntProperty(KEY_REPLICATION_BATCH_SIZE, 500),
+                getLongProperty(KEY_REPLICATION_INTERVAL_MS, 1000L),
+                getLongProperty(KEY_REPLICATION_GAP_WAIT_MS, 5000L),
+                getLongProperty(KEY_REPLICATION_GAP_RETENTION_MS, 600_000L),
+                getBooleanProperty(KEY_REPLICATION_PURGE_APPLIED, true));
+    }
+
+    private FailoverController getOrStartFailoverController() {
+        FailoverController current = failoverController;
+        if (current != null || !isFailoverProbingEnabled()) {
+            return current;
+        }
+        synchronized (this) {
+            if (failoverController == null) {
+                FailoverController created = new FailoverController(readFailoverConfig(), this::probe);
+                created.start();
+                failoverController = created;
+            }
+            return failoverController;
+        }
+    }
+
+    /**
+     * Дешёвая проверка БД для фонового проба: отдельное соединение на роль + validation query.
      */
-    public synchronized Connection getConnection() throws SQLException {
+    boolean probe(DatabaseRole role) {
+        if (role == DatabaseRole.BACKUP && !isBackupConfigured()) {
+            return false;
+        }
+        Connection probeConnection = probeConnections.get(role);
+        try {
+            if (probeConnection == null || probeConnection.isClosed()) {
+                probeConnection = openConnection(role);
+                probeConnections.put(role, probeConnection);
+            }
+            try (Statement stmt = probeConnection.createStatement()) {
+                stmt.setQueryTimeout(getIntProperty(KEY_FAILOVER_VALIDATION_TIMEOUT_SEC, 2));
+                stmt.execute(properties.getProperty(KEY_FAILOVER_VALIDATION_QUERY, "SELECT 1"));
+            }
+            return true;
+        } catch (SQLException e) {
+            logger.debug("Проверка {} БД не прошла: {}", role, e.getMessage());
+            probeConnections.remove(role);
+            closeQuietly(probeConnection);
+            return false;
+        }
+    }
+
+    private synchronized Connection getSharedConnection(DatabaseRole preferred) throws SQLException {
         if (connection == null || connection.isClosed()) {
             logger.debug("Создание нового соединения с базой данных");
-            try {
-                connection = openConnection(DatabaseRole.PRIMARY);
-                activeRole = DatabaseRole.PRIMARY;
-                logger.info("Соединение с ОСНОВНОЙ базой данных успешно установлено: {}", getPrimaryUrl());
-            } catch (SQLException primaryException) {
-                logger.error("Ошибка подключения к ОСНОВНОЙ БД: {}", primaryException.getMessage(), primaryException);
-                if (!isBackupConfigured()) {
-                    throw new SQLException("Ошибка подключения к основной БД, а резервная БД не настроена", primaryException);
-                }
-                try {
-                    connection = openConnection(DatabaseRole.BACKUP);
-                    activeRole = DatabaseRole.BACKUP;
-                    logger.warn("Переключение на РЕЗЕРВНУЮ БД выполнено успешно: {}", getBackupUrl());
-                } catch (SQLException backupException) {
-                    logger.error("Ошибка подключения к РЕЗЕРВНОЙ БД: {}", backupException.getMessage(), backupException);
-                    SQLException combined = new SQLException("Не удалось подключиться ни к основной, ни к резервной БД", primaryException);
-                    combined.addSuppressed(backupException);
-                    throw combined;
-                }
-            }
+            connection = openWithFailover(preferred, this::openConnection);
         } else {
             logger.debug("Использование существующего соединения с базой данных");
         }
         return connection;
     }
 
+    @FunctionalInterface
+    private interface RoleConnectionSource {
+        Connection open(DatabaseRole role) throws SQLException;
+    }
+
+    /**
+     * Получить соединение: сначала с предпочтительной БД (обычно основной), при ошибке — с другой.
+     * Исчерпание пула ошибкой подключения не считается и не приводит к переключению.
+     */
+    private Connection openWithFailover(DatabaseRole preferred, RoleConnectionSource source) throws SQLException {
+        DatabaseRole fallback = preferred == DatabaseRole.PRIMARY ? DatabaseRole.BACKUP : DatabaseRole.PRIMARY;
+        try {
+            Connection opened = source.open(preferred);
+            activeRole = preferred;
+            logger.debug("Соединение с {} БД получено", preferred);
+            return opened;
+        } catch (ConnectionPool.PoolExhaustedException e) {
+            throw e;
+        } catch (SQLException preferredException) {
+            logger.error("Ошибка подключения к {} БД: {}", preferred, preferredException.getMessage(), preferredException);
+            FailoverController controller = failoverController;
+            if (controller != null) {
+                controller.reportFailure(preferred);
+            }
+            if (!isBackupConfigured()) {
+                throw new SQLException("Ошибка подключения к " + (preferred == DatabaseRole.PRIMARY ? "основной" : "резервной")
+                        + " БД, а резервная БД не настроена", preferredException);
+            }
+            try {
+                Connection opened = source.open(fallback);
+                activeRole = fallback;
+                logger.warn("Переключение на {} БД выполнено успешно: {}", fallback,
+                        fallback == DatabaseRole.BACKUP ? getBackupUrl() : getPrimaryUrl());
+                return opened;
+            } catch (SQLException fallbackException) {
+                logger.error("Ошибка подключения к {} БД: {}", fallback, fallbackException.getMessage(), fallbackException);
+                SQLException combined = new SQLException("Не удалось подключиться ни к основной, ни к резервной БД", preferredException);
+                combined.addSuppressed(fallbackException);
+                throw combined;
+            }
+        }
+    }
+
     public Connection openPrimaryConnection() throws SQLException {
         return openConnection(DatabaseRole.PRIMARY);
     }
@@ -131,9 +389,17 @@ public class DatabaseConnection {
     }
 
     /**
-     * Закрыть соединение с базой данных
+     * Закрыть соединение с базой данных (в режиме пула — закрыть пул целиком)
      */
     public synchronized void closeConnection() throws SQLException {
+        if (failoverController != null) {
+            failoverController.close();
+            failoverController = null;
+        }
+        probeConnections.values().forEach(DatabaseConnection::closeQuietly);
+        probeConnections.clear();
+        pools.values().forEach(ConnectionPool::close);
+        pools.clear();
         if (connection != null && !connection.isClosed()) {
             logger.debug("Закрытие соединения с базой данных");
             try {
@@ -153,8 +419,7 @@ public class DatabaseConnection {
      */
     public boolean testConnection() {
         logger.info("Проверка подключения к базе данных");
-        try {
-            Connection conn = getConnection();
+        try (Connection conn = getConnection()) {
             boolean isConnected = conn != null && !conn.isClosed();
             if (isConnected) {
                 logger.info("Подключение к базе данных успешно проверено");
@@ -235,6 +500,35 @@ public class DatabaseConnection {
         return password != null ? password : getPrimaryPassword();
     }
 
+    int getIntProperty(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное целое значение свойства " + key + ": " + value, e);
+        }
+    }
+
+    long getLongProperty(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное целое значение свойства " + key + ": " + value, e);
+        }
+    }
+
+    boolean getBooleanProperty(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return isBlank(value) ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
     private static String resolvePropertiesFileName() {
         String override = System.getProperty(SYS_PROP_PROPERTIES_FILE);
         if (isNotBlank(override)) {
@@ -287,6 +581,17 @@ public class DatabaseConnection {
         }
     }
 
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+            // ignore
+        }
+    }
+
     private static boolean isBlank(String value) {
         return value == null || value.trim().isEmpty();
     }
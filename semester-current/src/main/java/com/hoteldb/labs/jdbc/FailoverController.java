@@ -0,0 +1,261 @@
+package com.hoteldb.labs.jdbc;
+
+import com.hoteldb.labs.jdbc.DatabaseConnection.DatabaseRole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Контроллер переключения основная/резервная БД.
+ * <p>
+ * Фоновый проб периодически проверяет обе БД дешёвым запросом. Маршрут (активная роль)
+ * хранится в {@link AtomicReference} и читается вызывающими без блокировок — проверки
+ * выполняются только в потоке проба. Возврат на основную БД управляется автоматом
+ * circuit breaker: CLOSED → (отказы) → OPEN → (выдержка) → HALF_OPEN → (N успешных проб) → CLOSED.
+ */
+public class FailoverController implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FailoverController.class);
+
+    public enum BreakerState { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Проверка доступности БД указанной роли
+     */
+    @FunctionalInterface
+    public interface HealthProbe {
+        boolean isHealthy(DatabaseRole role);
+    }
+
+    /**
+     * Настройки (ключи {@code db.failover.*})
+     */
+    public record Config(long probeIntervalMs,
+                         int failureThreshold,
+                         long openDurationMs,
+                         int halfOpenSuccesses) {
+        public Config {
+            if (failureThreshold < 1) {
+                throw new IllegalArgumentException("db.failover.failureThreshold must be >= 1");
+            }
+            if (halfOpenSuccesses < 1) {
+                throw new IllegalArgumentException("db.failover.halfOpenSuccesses must be >= 1");
+            }
+        }
+    }
+
+    /**
+     * Статистика переключений
+     */
+    public record Stats(DatabaseRole activeRole,
+                        BreakerState breakerState,
+                        long switchesToBackup,
+                        long switchesToPrimary,
+                        long timeInPrimaryMs,
+                        long timeInBackupMs,
+                        boolean primaryHealthy,
+                        boolean backupHealthy) { }
+
+    private final Config config;
+    private final HealthProbe probe;
+    private final LongSupplier clock;
+    private final AtomicReference<DatabaseRole> activeRole = new AtomicReference<>(DatabaseRole.PRIMARY);
+    private final AtomicLong switchesToBackup = new AtomicLong();
+    private final AtomicLong switchesToPrimary = new AtomicLong();
+
+    private volatile BreakerState state = BreakerState.CLOSED;
+    private volatile boolean primaryHealthy = true;
+    private volatile boolean backupHealthy = true;
+    private int consecutiveFailures;
+    private int consecutiveSuccesses;
+    private long openedAt;
+
+    private long roleSince;
+    private long timeInPrimaryMs;
+    private long timeInBackupMs;
+
+    private ScheduledExecutorService prober;
+
+    public FailoverController(Config config, HealthProbe probe) {
+        this(config, probe, System::currentTimeMillis);
+    }
+
+    FailoverController(Config config, HealthProbe probe, LongSupplier clock) {
+        this.config = config;
+        this.probe = probe;
+        this.clock = clock;
+        this.roleSince = clock.getAsLong();
+    }
+
+    /**
+     * Запустить фоновый проб (если интервал > 0)
+     */
+    public synchronized void start() {
+        if (prober != null || config.probeIntervalMs() <= 0) {
+            return;
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-failover-prober");
+            t.setDaemon(true);
+            return t;
+        });
+        prober.scheduleWithFixedDelay(this::runProbeSafely,
+                config.probeIntervalMs(), config.probeIntervalMs(), TimeUnit.MILLISECONDS);
+        logger.info("Фоновая проверка БД запущена, интервал {} мс", config.probeIntervalMs());
+    }
+
+    /**
+     * Текущий маршрут. Не блокирует.
+     */
+    public DatabaseRole getActiveRole() {
+        return activeRole.get();
+    }
+
+    public BreakerState getBreakerState() {
+        return state;
+    }
+
+    /**
+     * Вызывающий не смог получить соединение с БД роли {@code role}: основная сразу
+     * считается недоступной, чтобы следующие запросы не ждали таймаут подключения.
+     */
+    public synchronized void reportFailure(DatabaseRole role) {
+        if (role != DatabaseRole.PRIMARY) {
+            backupHealthy = false;
+            return;
+        }
+        primaryHealthy = false;
+        if (state == BreakerState.CLOSED) {
+            logger.warn("Ошибка подключения к ОСНОВНОЙ БД при выдаче соединения — переключение на РЕЗЕРВНУЮ");
+            trip();
+        } else if (state == BreakerState.HALF_OPEN) {
+            reopen();
+        }
+    }
+
+    /**
+     * Одна итерация проверки: пробы выполняются вне блокировки, затем атомарно применяется результат.
+     */
+    void runProbe() {
+        boolean primaryOk = probe.isHealthy(DatabaseRole.PRIMARY);
+        boolean backupOk = probe.isHealthy(DatabaseRole.BACKUP);
+        applyProbeResult(primaryOk, backupOk);
+    }
+
+    synchronized void applyProbeResult(boolean primaryOk, boolean backupOk) {
+        primaryHealthy = primaryOk;
+        backupHealthy = backupOk;
+
+        switch (state) {
+            case CLOSED -> {
+                if (primaryOk) {
+                    consecutiveFailures = 0;
+                } else if (++consecutiveFailures >= config.failureThreshold()) {
+                    logger.warn("ОСНОВНАЯ БД не отвечает ({} проверок подряд)", consecutiveFailures);
+                    trip();
+                }
+            }
+            case OPEN -> {
+                if (clock.getAsLong() - openedAt >= config.openDurationMs()) {
+                    state = BreakerState.HALF_OPEN;
+                    consecutiveSuccesses = 0;
+                    logger.info("Circuit breaker: HALF_OPEN, пробуем основную БД");
+                    applyHalfOpen(primaryOk);
+                }
+            }
+            case HALF_OPEN -> applyHalfOpen(primaryOk);
+        }
+
+        if (state != BreakerState.CLOSED && activeRole.get() == DatabaseRole.PRIMARY && backupOk) {
+            // основная упала раньше, чем поднялась резервная
+            switchTo(DatabaseRole.BACKUP);
+        }
+    }
+
+    private void applyHalfOpen(boolean primaryOk) {
+        if (!primaryOk) {
+            reopen();
+            return;
+        }
+        if (++consecutiveSuccesses >= config.halfOpenSuccesses()) {
+            state = BreakerState.CLOSED;
+            consecutiveFailures = 0;
+            logger.info("Circuit breaker: CLOSED, возврат на ОСНОВНУЮ БД");
+            switchTo(DatabaseRole.PRIMARY);
+        }
+    }
+
+    private void trip() {
+        state = BreakerState.OPEN;
+        openedAt = clock.getAsLong();
+        consecutiveSuccesses = 0;
+        if (backupHealthy) {
+            switchTo(DatabaseRole.BACKUP);
+        } else {
+            logger.error("РЕЗЕРВНАЯ БД тоже недоступна, маршрут не меняется");
+        }
+    }
+
+    private void reopen() {
+        state = BreakerState.OPEN;
+        openedAt = clock.getAsLong();
+        consecutiveSuccesses = 0;
+        logger.warn("Circuit breaker: пробная проверка основной БД не прошла, снова OPEN");
+    }
+
+    private void switchTo(DatabaseRole role) {
+        DatabaseRole previous = activeRole.getAndSet(role);
+        if (previous == role) {
+            return;
+        }
+        long now = clock.getAsLong();
+        accumulate(previous, now - roleSince);
+        roleSince = now;
+        if (role == DatabaseRole.BACKUP) {
+            switchesToBackup.incrementAndGet();
+            logger.warn("Маршрут переключён на РЕЗЕРВНУЮ БД");
+        } else {
+            switchesToPrimary.incrementAndGet();
+            logger.info("Маршрут возвращён на ОСНОВНУЮ БД");
+        }
+    }
+
+    private void accumulate(DatabaseRole role, long millis) {
+        if (role == DatabaseRole.PRIMARY) {
+            timeInPrimaryMs += millis;
+        } else {
+            timeInBackupMs += millis;
+        }
+    }
+
+    public synchronized Stats getStats() {
+        long current = clock.getAsLong() - roleSince;
+        DatabaseRole role = activeRole.get();
+        return new Stats(role, state,
+                switchesToBackup.get(), switchesToPrimary.get(),
+                timeInPrimaryMs + (role == DatabaseRole.PRIMARY ? current : 0),
+                timeInBackupMs + (role == DatabaseRole.BACKUP ? current : 0),
+                primaryHealthy, backupHealthy);
+    }
+
+    private void runProbeSafely() {
+        try {
+            runProbe();
+        } catch (RuntimeException e) {
+            logger.error("Ошибка фоновой проверки БД: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+    }
+}
@@ -3,8 +3,16 @@ package com.hoteldb.labs.jdbc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+
 /**
  * Демонстрация резервной копии (primary -> backup) в другую СУБД.
+ * Аргумент {@code incremental} — копировать только изменения с прошлого запуска,
+ * {@code resume} — продолжить прерванную полную копию,
+ * {@code snapshot} — записать сжатый снимок в файл (db.snapshot.*),
+ * {@code restore [файл]} — восстановить основную БД из снимка (по умолчанию — самого нового),
+ * {@code verify} — сравнить резервную БД с основной по контрольным суммам, ничего не копируя,
+ * {@code replicate} — применить накопившиеся изменения из журнала change_log.
  */
 public class Lab1BackupMain {
     private static final Logger logger = LoggerFactory.getLogger(Lab1BackupMain.class);
@@ -14,6 +22,11 @@ public class Lab1BackupMain {
 
         try {
             DatabaseConnection db = DatabaseConnection.getInstance();
+            String arg = args.length > 0 ? args[0] : "";
+            if ("snapshot".equalsIgnoreCase(arg) || "restore".equalsIgnoreCase(arg)) {
+                runSnapshot(new SnapshotBackupTarget(db), arg, args);
+                return;
+            }
             DatabaseBackupService backupService = new DatabaseBackupService(db);
 
             if (!db.isBackupConfigured()) {
@@ -22,12 +35,54 @@ public class Lab1BackupMain {
                 return;
             }
 
-            DatabaseBackupService.BackupReport report = backupService.backupPrimaryToBackup();
-            System.out.println("Backup completed: rooms=" + report.roomsCopied() + ", clients=" + report.clientsCopied());
+            if ("replicate".equalsIgnoreCase(arg)) {
+                try (ChangeReplicator replicator = new ChangeReplicator(db)) {
+                    long applied = replicator.drain();
+                    ChangeReplicator.ReplicationStatus status = replicator.status();
+                    System.out.println("Replicated " + applied + " changes, position=" + status.lastAppliedId()
+                            + ", pending=" + status.pendingChanges() + ", lag=" + status.lagMillis() + " ms"
+                            + ", open gaps=" + status.openGaps() + ", expired gaps=" + status.expiredGaps());
+                }
+                return;
+            }
+            if ("verify".equalsIgnoreCase(arg)) {
+                BackupVerifier.VerificationReport verification = new BackupVerifier(db).verify();
+                for (BackupVerifier.TableDiff diff : verification.tables()) {
+                    System.out.println(diff.table() + ": " + (diff.matches() ? "OK" : "MISMATCH")
+                            + " (ranges " + diff.rangesMismatched() + "/" + diff.rangesChecked()
+                            + ", missing=" + diff.missingInBackup() + ", extra=" + diff.extraInBackup()
+                            + ", changed=" + diff.changed() + ")");
+                }
+                System.out.println("Verify: " + verification.rowsRead() + " rows read in " + verification.elapsedMillis() + " ms");
+                return;
+            }
+            DatabaseBackupService.BackupReport report = "incremental".equalsIgnoreCase(arg)
+                    ? backupService.backupPrimaryToBackup(DatabaseBackupService.BackupMode.INCREMENTAL)
+                    : backupService.backupPrimaryToBackup("resume".equalsIgnoreCase(arg));
+            System.out.println("Backup completed (" + report.mode() + "): rooms=" + report.rooms() + ", clients=" + report.clients());
+            System.out.printf("Time: %d ms, %.0f rows/s, ~%d bytes, phases: %s%n",
+                    report.metrics().elapsedMillis(), report.metrics().rowsPerSecond(),
+                    report.metrics().estimatedBytes(), report.metrics().phaseMillis());
         } catch (Exception e) {
             logger.error("Ошибка резервного копирования: {}", e.getMessage(), e);
             System.err.println("Ошибка резервного копирования: " + e.getMessage());
         }
     }
+
+    private static void runSnapshot(SnapshotBackupTarget target, String arg, String[] args) throws Exception {
+        if ("snapshot".equalsIgnoreCase(arg)) {
+            SnapshotBackupTarget.Snapshot snapshot = target.snapshot();
+            System.out.println("Snapshot written: " + snapshot.file() + " " + snapshot.rows());
+            System.out.printf("Time: %d ms, %d bytes (raw %d, ratio %.1fx)%n", snapshot.elapsedMillis(),
+                    snapshot.fileBytes(), snapshot.rawBytes(), snapshot.compressionRatio());
+            return;
+        }
+        Path file = args.length > 1 ? Path.of(args[1]) : target.latestSnapshot().orElse(null);
+        if (file == null) {
+            System.err.println("Снимок не найден. Сначала выполни: snapshot");
+            return;
+        }
+        System.out.println("Restored from " + file + ": " + target.restore(file));
+    }
 }
 
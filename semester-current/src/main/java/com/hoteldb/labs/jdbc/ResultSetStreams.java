@@ -0,0 +1,105 @@
+package com.hoteldb.labs.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Потоковое чтение результата запроса через forward-only read-only курсор.
+ * Соединение, запрос и ResultSet закрываются при закрытии {@link Stream}.
+ */
+final class ResultSetStreams {
+    private static final Logger logger = LoggerFactory.getLogger(ResultSetStreams.class);
+
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private ResultSetStreams() {
+    }
+
+    static <T> Stream<T> stream(DatabaseConnection dbConnection, String sql, RowMapping<T> mapping) throws SQLException {
+        Connection conn = dbConnection.getConnection();
+        Statement stmt = null;
+        ResultSet rs = null;
+        boolean restoreAutoCommit = false;
+        RowMapper<T> mapper;
+        try {
+            stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            SqlDialect dialect = SqlDialect.of(conn);
+            restoreAutoCommit = dialect.prepareForStreaming(conn, stmt, dbConnection.getStreamFetchSize());
+            logger.debug("Потоковое чтение ({}): {}", dialect, sql);
+            rs = stmt.executeQuery(sql);
+            mapper = mapping.rowMapper(sql, rs);
+        } catch (SQLException | RuntimeException e) {
+            close(conn, stmt, rs, restoreAutoCommit);
+            throw e;
+        }
+
+        Cursor<T> cursor = new Cursor<>(rs, mapper);
+        Connection openConn = conn;
+        Statement openStmt = stmt;
+        ResultSet openRs = rs;
+        boolean restore = restoreAutoCommit;
+        return StreamSupport.stream(cursor, false)
+                .onClose(() -> close(openConn, openStmt, openRs, restore));
+    }
+
+    private static void close(Connection conn, Statement stmt, ResultSet rs, boolean restoreAutoCommit) {
+        try {
+            if (rs != null) {
+                rs.close();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+            if (restoreAutoCommit) {
+                // курсор только читал данные — транзакцию можно просто откатить
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.warn("Ошибка при закрытии курсора: {}", e.getMessage());
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                logger.warn("Ошибка при закрытии соединения курсора: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static final class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+
+        Cursor(ResultSet rs, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                if (!rs.next()) {
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
+            }
+        }
+    }
+}
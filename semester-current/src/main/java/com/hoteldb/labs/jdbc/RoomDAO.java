@@ -1,22 +1,48 @@
 package com.hoteldb.labs.jdbc;
 
 import com.hoteldb.labs.model.Room;
+import com.hoteldb.labs.occupancy.OccupancyView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * DAO для работы с номерами в базе данных
  */
 public class RoomDAO {
     private static final Logger logger = LoggerFactory.getLogger(RoomDAO.class);
+    private static final List<String> INSERT_COLUMNS = List.of(
+            "room_number", "room_type", "price_per_night", "is_available");
+
+    private static final int COL_ID = 0;
+    private static final int COL_ROOM_NUMBER = 1;
+    private static final int COL_ROOM_TYPE = 2;
+    private static final int COL_PRICE_PER_NIGHT = 3;
+    private static final int COL_IS_AVAILABLE = 4;
+    private static final int COL_CREATED_AT = 5;
+    private static final int COL_VERSION = 6;
+    private static final RowMapping<Room> ROWS = new RowMapping<>("rooms", RoomDAO::mapResultSetToRoom,
+            "id", "room_number", "room_type", "price_per_night", "is_available", "created_at", "version");
+
     private final DatabaseConnection dbConnection;
+    private final BatchInserter<Room> batchInserter;
 
     public RoomDAO() {
-        this.dbConnection = DatabaseConnection.getInstance();
+        this(DatabaseConnection.getInstance());
+    }
+
+    RoomDAO(DatabaseConnection dbConnection) {
+        this.dbConnection = dbConnection;
+        this.batchInserter = new BatchInserter<>(dbConnection, "rooms", INSERT_COLUMNS,
+                RoomDAO::bindInsertParameters, RoomDAO::inserted);
         logger.debug("Создан экземпляр RoomDAO");
     }
 
@@ -30,7 +56,7 @@ public class RoomDAO {
         }
         
         logger.info("Создание нового номера: {}", room.getRoomNumber());
-        String sql = "INSERT INTO rooms (room_number, room_type, price_per_night, is_available) VALUES (?, ?, ?, ?)";
+        String sql = batchInserter.multiRowSql(1);
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
@@ -39,10 +65,7 @@ public class RoomDAO {
             logger.debug("Параметры: roomNumber={}, roomType={}, pricePerNight={}, isAvailable={}", 
                     room.getRoomNumber(), room.getRoomType(), room.getPricePerNight(), room.getIsAvailable());
             
-            stmt.setString(1, room.getRoomNumber());
-            stmt.setString(2, room.getRoomType());
-            stmt.setBigDecimal(3, room.getPricePerNight());
-            stmt.setBoolean(4, room.getIsAvailable());
+            bindInsertParameters(stmt, 1, room);
 
             int affectedRows = stmt.executeUpdate();
             if (affectedRows == 0) {
@@ -54,7 +77,7 @@ public class RoomDAO {
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     int generatedId = generatedKeys.getInt(1);
-                    room.setId(generatedId);
+                    inserted(room, generatedId);
                     logger.info("Номер успешно создан с ID: {} (номер: {})", generatedId, room.getRoomNumber());
                 } else {
                     logger.error("Не удалось получить сгенерированный ID номера");
@@ -65,9 +88,46 @@ public class RoomDAO {
             logger.error("Ошибка при создании номера {}: {}", room.getRoomNumber(), e.getMessage(), e);
             throw e;
         }
+        published(List.of(room));
         return room;
     }
 
+    /**
+     * Добавить номера пачками (размер пачки — db.batch.size, режим — db.batch.multiRowInsert)
+     */
+    public List<Room> createAll(Collection<Room> rooms) throws SQLException {
+        return createAll(rooms, dbConnection.getBatchSize());
+    }
+
+    /**
+     * Добавить номера пачками по {@code chunkSize}: одна пачка — одна транзакция,
+     * ID проставляются номерам в порядке коллекции
+     */
+    public List<Room> createAll(Collection<Room> rooms, int chunkSize) throws SQLException {
+        if (rooms == null) {
+            logger.error("Попытка создать номера с null коллекцией");
+            throw new IllegalArgumentException("Коллекция номеров не может быть null");
+        }
+        if (rooms.stream().anyMatch(Objects::isNull)) {
+            logger.error("Попытка создать номера: коллекция содержит null");
+            throw new IllegalArgumentException("Номер не может быть null");
+        }
+
+        boolean multiRow = dbConnection.isMultiRowInsertEnabled();
+        logger.info("Массовое создание номеров: {} шт., пачка {}, multi-row={}", rooms.size(), chunkSize, multiRow);
+        try {
+            int inserted = batchInserter.insertAll(rooms, chunkSize, multiRow);
+            logger.info("Создано номеров: {}", inserted);
+        } catch (SQLException e) {
+            logger.error("Ошибка при массовом создании номеров: {}", e.getMessage(), e);
+            // часть пачек уже зафиксирована — какая именно, проще узнать из БД
+            OccupancyView.ifInstalled(OccupancyView::reload);
+            throw e;
+        }
+        published(rooms);
+        return new ArrayList<>(rooms);
+    }
+
     /**
      * Найти номер по ID
      */
@@ -78,7 +138,7 @@ public class RoomDAO {
         }
         
         logger.debug("Поиск номера по ID: {}", id);
-        String sql = "SELECT * FROM rooms WHERE id = ?";
+        String sql = ROWS.select() + " WHERE id = ?";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -87,7 +147,7 @@ public class RoomDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Room room = mapResultSetToRoom(rs);
+                    Room room = mapResultSetToRoom(rs, ROWS.plan(sql, rs));
                     logger.info("Номер найден: ID={}, номер={}", id, room.getRoomNumber());
                     return room;
                 } else {
@@ -106,17 +166,15 @@ public class RoomDAO {
      */
     public List<Room> findAll() throws SQLException {
         logger.debug("Получение списка всех номеров");
-        List<Room> rooms = new ArrayList<>();
-        String sql = "SELECT * FROM rooms";
+        List<Room> rooms;
+        String sql = ROWS.select();
         
         try (Connection conn = dbConnection.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             logger.debug("Выполнение SQL: {}", sql);
             
-            while (rs.next()) {
-                rooms.add(mapResultSetToRoom(rs));
-            }
+            rooms = ROWS.readAll(sql, rs);
             logger.info("Найдено номеров: {}", rooms.size());
         } catch (SQLException e) {
             logger.error("Ошибка при получении списка номеров: {}", e.getMessage(), e);
@@ -126,7 +184,113 @@ public class RoomDAO {
     }
 
     /**
-     * Обновить информацию о номере
+     * Страница номеров по возрастанию ID (keyset-пагинация): {@code afterId} — ID последнего номера
+     * предыдущей страницы, null — первая страница. В отличие от OFFSET, время ответа не зависит от глубины страницы.
+     */
+    public List<Room> findPage(Integer afterId, int limit) throws SQLException {
+        return findRooms(RoomFilter.any(), afterId, limit);
+    }
+
+    /**
+     * Страница номеров, подходящих под фильтр; отбор выполняется в БД
+     */
+    public List<Room> findRooms(RoomFilter filter, Integer afterId, int limit) throws SQLException {
+        if (filter == null) {
+            logger.error("Попытка найти номера с null фильтром");
+            throw new IllegalArgumentException("Фильтр номеров не может быть null");
+        }
+        requirePositiveLimit(limit);
+
+        StringBuilder sql = new StringBuilder(ROWS.select()).append(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (filter.roomType() != null) {
+            sql.append(" AND room_type = ?");
+            params.add(filter.roomType());
+        }
+        if (filter.available() != null) {
+            sql.append(" AND is_available = ?");
+            params.add(filter.available());
+        }
+        if (filter.minPrice() != null) {
+            sql.append(" AND price_per_night >= ?");
+            params.add(filter.minPrice());
+        }
+        if (filter.maxPrice() != null) {
+            sql.append(" AND price_per_night <= ?");
+            params.add(filter.maxPrice());
+        }
+        if (afterId != null) {
+            sql.append(" AND id > ?");
+            params.add(afterId);
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        params.add(limit);
+
+        logger.debug("Поиск номеров: фильтр={}, afterId={}, limit={}", filter, afterId, limit);
+        List<Room> rooms = query(sql.toString(), stmt -> {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+        });
+        logger.info("Найдено номеров на странице: {}", rooms.size());
+        return rooms;
+    }
+
+    private List<Room> query(String sql, StatementBinder binder) throws SQLException {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            logger.debug("Выполнение SQL: {}", sql);
+            binder.bind(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return ROWS.readAll(sql, rs);
+            }
+        } catch (SQLException e) {
+            logger.error("Ошибка при поиске номеров: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    private static void requirePositiveLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Размер страницы должен быть >= 1: " + limit);
+        }
+    }
+
+    /**
+     * Потоковое чтение всех номеров: строки читаются курсором по мере потребления,
+     * поэтому память не зависит от размера таблицы.
+     * Поток нужно закрыть (try-with-resources) — вместе с ним закрываются запрос и соединение.
+     * Ошибки чтения во время обхода приходят как {@link UncheckedSQLException}.
+     */
+    public Stream<Room> stream() throws SQLException {
+        logger.debug("Потоковое чтение всех номеров");
+        try {
+            return ResultSetStreams.stream(dbConnection, ROWS.select(), ROWS);
+        } catch (SQLException e) {
+            logger.error("Ошибка при открытии курсора номеров: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Обработать все номеров по одному, не загружая таблицу в память
+     */
+    public void forEach(Consumer<? super Room> action) throws SQLException {
+        if (action == null) {
+            throw new IllegalArgumentException("Обработчик не может быть null");
+        }
+        try (Stream<Room> rooms = stream()) {
+            rooms.forEach(action);
+        } catch (UncheckedSQLException e) {
+            logger.error("Ошибка при потоковом чтении номеров: {}", e.getMessage(), e);
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Обновить информацию о номере. Столбец version увеличивается, как и при записи через JPA
+     * ({@code RoomEntity}), поэтому параллельное бронирование этого номера будет повторено.
+     * Новая версия читается в той же транзакции и проставляется номеру.
      */
     public Room update(Room room) throws SQLException {
         if (room == null) {
@@ -139,34 +303,69 @@ public class RoomDAO {
         }
         
         logger.info("Обновление номера с ID: {} (номер: {})", room.getId(), room.getRoomNumber());
-        String sql = "UPDATE rooms SET room_number = ?, room_type = ?, price_per_night = ?, is_available = ? WHERE id = ?";
+        String sql = "UPDATE rooms SET room_number = ?, room_type = ?, price_per_night = ?, is_available = ?, version = version + 1 WHERE id = ?";
         
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            logger.debug("Выполнение SQL: {}", sql);
-            logger.debug("Параметры: id={}, roomNumber={}, roomType={}, pricePerNight={}, isAvailable={}", 
-                    room.getId(), room.getRoomNumber(), room.getRoomType(), 
-                    room.getPricePerNight(), room.getIsAvailable());
-            
-            stmt.setString(1, room.getRoomNumber());
-            stmt.setString(2, room.getRoomType());
-            stmt.setBigDecimal(3, room.getPricePerNight());
-            stmt.setBoolean(4, room.getIsAvailable());
-            stmt.setInt(5, room.getId());
+        try (Connection conn = dbConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                logger.debug("Выполнение SQL: {}", sql);
+                logger.debug("Параметры: id={}, roomNumber={}, roomType={}, pricePerNight={}, isAvailable={}", 
+                        room.getId(), room.getRoomNumber(), room.getRoomType(), 
+                        room.getPricePerNight(), room.getIsAvailable());
+                
+                stmt.setString(1, room.getRoomNumber());
+                stmt.setString(2, room.getRoomType());
+                stmt.setBigDecimal(3, room.getPricePerNight());
+                stmt.setBoolean(4, room.getIsAvailable());
+                stmt.setInt(5, room.getId());
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                logger.error("Не удалось обновить номер с ID {}: номер не найден", room.getId());
-                throw new SQLException("Не удалось обновить номер: номер с ID " + room.getId() + " не найден");
+                int affectedRows = stmt.executeUpdate();
+                if (affectedRows == 0) {
+                    logger.error("Не удалось обновить номер с ID {}: номер не найден", room.getId());
+                    throw new SQLException("Не удалось обновить номер: номер с ID " + room.getId() + " не найден");
+                }
+                long version = currentVersion(conn, room.getId());
+                conn.commit();
+                room.setVersion(version);
+                logger.info("Номер с ID {} успешно обновлен. Затронуто строк: {}", room.getId(), affectedRows);
+            } catch (SQLException e) {
+                rollbackQuietly(conn, e);
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
             }
-            logger.info("Номер с ID {} успешно обновлен. Затронуто строк: {}", room.getId(), affectedRows);
         } catch (SQLException e) {
             logger.error("Ошибка при обновлении номера с ID {}: {}", room.getId(), e.getMessage(), e);
             throw e;
         }
+        published(List.of(room));
         return room;
     }
 
+    /**
+     * Версия номера; строка уже заблокирована UPDATE этой транзакции
+     */
+    private static long currentVersion(Connection conn, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT version FROM rooms WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Не удалось прочитать версию номера с ID " + id);
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn, SQLException cause) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
     /**
      * Удалить номер по ID
      */
@@ -189,6 +388,7 @@ public class RoomDAO {
             
             if (deleted) {
                 logger.info("Номер с ID {} успешно удален. Затронуто строк: {}", id, affectedRows);
+                OccupancyView.ifInstalled(view -> view.roomDeleted(id));
             } else {
                 logger.warn("Номер с ID {} не найден для удаления", id);
             }
@@ -201,26 +401,41 @@ public class RoomDAO {
     }
 
     /**
-     * Преобразовать ResultSet в объект Room
+     * Новая строка получает версию по умолчанию (DEFAULT 0)
      */
-    private Room mapResultSetToRoom(ResultSet rs) throws SQLException {
-        try {
-            Room room = new Room();
-            room.setId(rs.getInt("id"));
-            room.setRoomNumber(rs.getString("room_number"));
-            room.setRoomType(rs.getString("room_type"));
-            room.setPricePerNight(rs.getBigDecimal("price_per_night"));
-            room.setIsAvailable(rs.getBoolean("is_available"));
-            Timestamp createdAt = rs.getTimestamp("created_at");
-            if (createdAt != null) {
-                room.setCreatedAt(createdAt.toLocalDateTime());
-            }
-            logger.trace("Преобразование ResultSet в Room: ID={}, номер={}", room.getId(), room.getRoomNumber());
-            return room;
-        } catch (SQLException e) {
-            logger.error("Ошибка при преобразовании ResultSet в Room: {}", e.getMessage(), e);
-            throw e;
-        }
+    private static void inserted(Room room, int id) {
+        room.setId(id);
+        room.setVersion(0L);
+    }
+
+    /**
+     * Передать зафиксированное состояние номеров представлению занятости одним изменением
+     */
+    private static void published(Collection<Room> rooms) {
+        OccupancyView.ifInstalled(view -> view.apply(changes -> rooms.forEach(room -> changes.roomSaved(room.getId(),
+                room.getVersion(), room.getRoomNumber(), room.getRoomType(), room.getPricePerNight(), room.getIsAvailable()))));
+    }
+
+    private static void bindInsertParameters(PreparedStatement stmt, int first, Room room) throws SQLException {
+        stmt.setString(first, room.getRoomNumber());
+        stmt.setString(first + 1, room.getRoomType());
+        stmt.setBigDecimal(first + 2, room.getPricePerNight());
+        stmt.setBoolean(first + 3, room.getIsAvailable());
+    }
+
+    /**
+     * Преобразовать текущую строку ResultSet в объект Room по индексам столбцов
+     */
+    private static Room mapResultSetToRoom(ResultSet rs, int[] c) throws SQLException {
+        Room room = new Room();
+        room.setId(rs.getInt(c[COL_ID]));
+        room.setRoomNumber(rs.getString(c[COL_ROOM_NUMBER]));
+        room.setRoomType(rs.getString(c[COL_ROOM_TYPE]));
+        room.setPricePerNight(rs.getBigDecimal(c[COL_PRICE_PER_NIGHT]));
+        room.setIsAvailable(rs.getBoolean(c[COL_IS_AVAILABLE]));
+        room.setCreatedAt(rs.getObject(c[COL_CREATED_AT], LocalDateTime.class));
+        room.setVersion(rs.getLong(c[COL_VERSION]));
+        return room;
     }
 }
 
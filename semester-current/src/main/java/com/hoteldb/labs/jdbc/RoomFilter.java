@@ -0,0 +1,40 @@
+package com.hoteldb.labs.jdbc;
+
+import java.math.BigDecimal;
+
+/**
+ * Условия отбора номеров для {@link RoomDAO#findRooms(RoomFilter, Integer, int)}.
+ * Поле со значением null не участвует в отборе.
+ *
+ * @param roomType  тип номера (точное совпадение)
+ * @param minPrice  минимальная цена за ночь (включительно)
+ * @param maxPrice  максимальная цена за ночь (включительно)
+ * @param available доступность номера
+ */
+public record RoomFilter(String roomType, BigDecimal minPrice, BigDecimal maxPrice, Boolean available) {
+
+    public RoomFilter {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("Минимальная цена больше максимальной: " + minPrice + " > " + maxPrice);
+        }
+    }
+
+    /**
+     * Фильтр без условий
+     */
+    public static RoomFilter any() {
+        return new RoomFilter(null, null, null, null);
+    }
+
+    public RoomFilter withRoomType(String type) {
+        return new RoomFilter(type, minPrice, maxPrice, available);
+    }
+
+    public RoomFilter withPriceBetween(BigDecimal min, BigDecimal max) {
+        return new RoomFilter(roomType, min, max, available);
+    }
+
+    public RoomFilter withAvailable(Boolean isAvailable) {
+        return new RoomFilter(roomType, minPrice, maxPrice, isAvailable);
+    }
+}
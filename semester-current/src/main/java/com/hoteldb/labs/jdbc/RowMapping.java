@@ -0,0 +1,96 @@
+package com.hoteldb.labs.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Отображение строк таблицы в объекты по индексам столбцов.
+ * <p>
+ * Индексы столбцов определяются по {@link ResultSetMetaData} один раз для каждого текста SQL
+ * и кэшируются, поэтому на каждой строке нет поиска столбца по имени.
+ * Запросы строятся с явным списком столбцов вместо {@code SELECT *}.
+ */
+final class RowMapping<T> {
+
+    /**
+     * Отображение текущей строки; {@code columns[i]} — индекс i-го столбца из списка {@link RowMapping}
+     */
+    @FunctionalInterface
+    interface IndexedMapper<T> {
+        T map(ResultSet rs, int[] columns) throws SQLException;
+    }
+
+    private final String table;
+    private final String[] columns;
+    private final IndexedMapper<T> mapper;
+    private final String selectList;
+    private final ConcurrentMap<String, int[]> plans = new ConcurrentHashMap<>();
+
+    RowMapping(String table, IndexedMapper<T> mapper, String... columns) {
+        this.table = table;
+        this.columns = columns.clone();
+        this.mapper = mapper;
+        this.selectList = String.join(", ", columns);
+    }
+
+    /**
+     * {@code SELECT <столбцы> FROM <таблица>}
+     */
+    String select() {
+        return "SELECT " + selectList + " FROM " + table;
+    }
+
+    /**
+     * Отображение строк результата запроса {@code sql}
+     */
+    ResultSetStreams.RowMapper<T> rowMapper(String sql, ResultSet rs) throws SQLException {
+        int[] plan = plan(sql, rs);
+        return row -> mapper.map(row, plan);
+    }
+
+    List<T> readAll(String sql, ResultSet rs) throws SQLException {
+        int[] plan = plan(sql, rs);
+        List<T> rows = new ArrayList<>();
+        while (rs.next()) {
+            rows.add(mapper.map(rs, plan));
+        }
+        return rows;
+    }
+
+    int[] plan(String sql, ResultSet rs) throws SQLException {
+        int[] plan = plans.get(sql);
+        if (plan == null) {
+            plan = resolve(rs.getMetaData());
+            plans.putIfAbsent(sql, plan);
+        }
+        return plan;
+    }
+
+    int cachedPlans() {
+        return plans.size();
+    }
+
+    private int[] resolve(ResultSetMetaData metaData) throws SQLException {
+        Map<String, Integer> byLabel = new HashMap<>();
+        for (int i = metaData.getColumnCount(); i >= 1; i--) {
+            byLabel.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        int[] plan = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Integer index = byLabel.get(columns[i]);
+            if (index == null) {
+                throw new SQLException("Столбец " + columns[i] + " не найден в результате запроса к " + table);
+            }
+            plan[i] = index;
+        }
+        return plan;
+    }
+}
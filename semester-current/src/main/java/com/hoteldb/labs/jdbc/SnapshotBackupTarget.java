@@ -0,0 +1,668 @@
+package com.hoteldb.labs.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Резервная копия в файл: колоночный снимок таблиц users, rooms и clients со сжатием по блокам.
+ * <p>
+ * Формат (числа big-endian, строки — длина short + UTF-8):
+ * <pre>
+ * файл   := MAGIC(8) version(int) createdAt(long, мс) tableCount(int) table*
+ * table  := name columnCount(int) (columnName type(byte))* block* 0(int)
+ * block  := rowCount(int) rawLength(int) compressedLength(int) crc32c(int) deflate(payload)
+ * payload:= column*,  column := битовая маска NULL + значения не-NULL строк подряд
+ * </pre>
+ * Блок — до {@code blockRows} строк; значения одного столбца лежат рядом и сжимаются лучше построчных.
+ * Контрольная сумма считается по несжатым данным и проверяется при восстановлении.
+ * Запись идёт через {@link FileChannel} и большой direct-буфер, восстановление читает файл через
+ * отображение в память и вставляет строки пачками по блоку. Снимок пишется во временный файл и
+ * переименовывается по окончании; в имени — время создания, поэтому можно хранить несколько копий.
+ */
+public class SnapshotBackupTarget implements BackupTarget {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotBackupTarget.class);
+
+    static final byte[] MAGIC = "HDBSNAP1".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final String FILE_PREFIX = "hotel_db-";
+    static final String FILE_SUFFIX = ".snap";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final long MAP_WINDOW_BYTES = 64L << 20;
+
+    /**
+     * Таблицы снимка в порядке внешних ключей (родительские раньше)
+     */
+    static final List<BackupTable> TABLES = List.of(BackupTable.USERS, BackupTable.ROOMS, BackupTable.CLIENTS);
+
+    /**
+     * Настройки (ключи {@code db.snapshot.*})
+     *
+     * @param directory        каталог снимков
+     * @param blockRows        строк в блоке
+     * @param bufferSize       размер direct-буфера записи, байт
+     * @param compressionLevel уровень deflate (1 — быстрее, 9 — меньше)
+     */
+    public record Config(Path directory, int blockRows, int bufferSize, int compressionLevel) {
+        public Config {
+            if (directory == null) {
+                throw new IllegalArgumentException("db.snapshot.dir must be set");
+            }
+            if (blockRows < 1) {
+                throw new IllegalArgumentException("db.snapshot.blockRows must be >= 1");
+            }
+            if (bufferSize < 4096) {
+                throw new IllegalArgumentException("db.snapshot.bufferSize must be >= 4096");
+            }
+            if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("db.snapshot.compressionLevel must be between 0 and 9");
+            }
+        }
+    }
+
+    /**
+     * Итог записи снимка
+     *
+     * @param rawBytes  объём данных до сжатия
+     * @param fileBytes размер файла
+     */
+    public record Snapshot(Path file, Map<String, Long> rows, long rawBytes, long fileBytes, long elapsedMillis) {
+        public Snapshot {
+            rows = Collections.unmodifiableMap(new LinkedHashMap<>(rows));
+        }
+
+        public double compressionRatio() {
+            return fileBytes > 0 ? (double) rawBytes / fileBytes : 0;
+        }
+    }
+
+    /**
+     * Способ хранения значений столбца
+     */
+    enum ColumnType {
+        INT(Types.INTEGER, Integer.class),
+        LONG(Types.BIGINT, Long.class),
+        DECIMAL(Types.DECIMAL, BigDecimal.class),
+        BOOLEAN(Types.BOOLEAN, Boolean.class),
+        DATE(Types.DATE, LocalDate.class),
+        TIMESTAMP(Types.TIMESTAMP, LocalDateTime.class),
+        STRING(Types.VARCHAR, String.class);
+
+        final int sqlType;
+        final Class<?> javaType;
+
+        ColumnType(int sqlType, Class<?> javaType) {
+            this.sqlType = sqlType;
+            this.javaType = javaType;
+        }
+
+        static ColumnType of(int sqlType, String column) throws SQLException {
+            return switch (sqlType) {
+                case Types.TINYINT, Types.SMALLINT, Types.INTEGER -> INT;
+                case Types.BIGINT -> LONG;
+                case Types.DECIMAL, Types.NUMERIC -> DECIMAL;
+                case Types.BOOLEAN, Types.BIT -> BOOLEAN;
+                case Types.DATE -> DATE;
+                case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE -> TIMESTAMP;
+                case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR, Types.NCHAR, Types.NVARCHAR,
+                     Types.LONGNVARCHAR, Types.CLOB -> STRING;
+                default -> throw new SQLException("Тип столбца " + column + " (" + sqlType + ") не поддерживается снимком");
+            };
+        }
+    }
+
+    private final DatabaseConnection databaseConnection;
+    private final Config config;
+
+    public SnapshotBackupTarget(DatabaseConnection databaseConnection) {
+        this(databaseConnection, databaseConnection == null ? null : databaseConnection.readSnapshotConfig());
+    }
+
+    public SnapshotBackupTarget(DatabaseConnection databaseConnection, Config config) {
+        if (databaseConnection == null) {
+            throw new IllegalArgumentException("databaseConnection cannot be null");
+        }
+        this.databaseConnection = databaseConnection;
+        this.config = config;
+    }
+
+    @Override
+    public Map<String, Long> backup() throws SQLException, IOException {
+        return snapshot().rows();
+    }
+
+    /**
+     * Записать снимок основной БД в новый файл каталога {@link Config#directory()}
+     */
+    public Snapshot snapshot() throws SQLException, IOException {
+        Files.createDirectories(config.directory());
+        Path file = config.directory().resolve(FILE_PREFIX + FILE_TIME.format(LocalDateTime.now()) + FILE_SUFFIX);
+        Path temp = config.directory().resolve(file.getFileName() + ".tmp");
+        long started = System.nanoTime();
+        Map<String, Long> rows = new LinkedHashMap<>();
+        long rawBytes = 0;
+
+        try (Connection conn = databaseConnection.openPrimaryConnection();
+             FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // все таблицы читаются в одной транзакции — снимок согласован
+            conn.setAutoCommit(false);
+            if (conn.getMetaData().supportsTransactionIsolationLevel(Connection.TRANSACTION_REPEATABLE_READ)) {
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            }
+            ChannelWriter out = new ChannelWriter(channel, config.bufferSize());
+            out.put(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(System.currentTimeMillis());
+            out.putInt(TABLES.size());
+            Deflater deflater = new Deflater(config.compressionLevel());
+            try {
+                for (BackupTable table : TABLES) {
+                    long[] written = writeTable(conn, table, out, deflater);
+                    rows.put(table.name(), written[0]);
+                    rawBytes += written[1];
+                }
+            } finally {
+                deflater.end();
+            }
+            out.flush();
+            channel.force(true);
+            conn.rollback();
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+
+        Snapshot snapshot = new Snapshot(file, rows, rawBytes, Files.size(file),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        logger.info("Снимок {} записан: {}, {} байт (сжатие {}x), {} мс", file, snapshot.rows(),
+                snapshot.fileBytes(), String.format("%.1f", snapshot.compressionRatio()), snapshot.elapsedMillis());
+        return snapshot;
+    }
+
+    /**
+     * @return {строк, байт до сжатия}
+     */
+    private long[] writeTable(Connection conn, BackupTable table, ChannelWriter out, Deflater deflater)
+            throws SQLException, IOException {
+        try (Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            SqlDialect.of(conn).prepareForStreaming(conn, stmt, databaseConnection.getStreamFetchSize());
+            try (ResultSet rs = stmt.executeQuery(table.select() + " ORDER BY id")) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                ColumnType[] types = new ColumnType[metaData.getColumnCount()];
+                out.putString(table.name());
+                out.putInt(types.length);
+                for (int i = 0; i < types.length; i++) {
+                    types[i] = ColumnType.of(metaData.getColumnType(i + 1), table.columns().get(i));
+                    out.putString(table.columns().get(i));
+                    out.put((byte) types[i].ordinal());
+                }
+
+                Object[][] block = new Object[types.length][config.blockRows()];
+                long rows = 0;
+                long rawBytes = 0;
+                int inBlock = 0;
+                while (rs.next()) {
+                    for (int i = 0; i < types.length; i++) {
+                        block[i][inBlock] = rs.getObject(i + 1, types[i].javaType);
+                    }
+                    if (++inBlock == config.blockRows()) {
+                        rawBytes += writeBlock(out, deflater, types, block, inBlock);
+                        rows += inBlock;
+                        inBlock = 0;
+                    }
+                }
+                if (inBlock > 0) {
+                    rawBytes += writeBlock(out, deflater, types, block, inBlock);
+                    rows += inBlock;
+                }
+                out.putInt(0);
+                logger.debug("Снимок таблицы {}: {} строк", table.name(), rows);
+                return new long[]{rows, rawBytes};
+            }
+        }
+    }
+
+    private static int writeBlock(ChannelWriter out, Deflater deflater, ColumnType[] types,
+                                  Object[][] block, int rows) throws IOException {
+        byte[] raw = encodeBlock(types, block, rows);
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+        byte[] chunk = new byte[64 * 1024];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(chunk);
+            compressed.write(chunk, 0, n);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(raw);
+
+        out.putInt(rows);
+        out.putInt(raw.length);
+        out.putInt(compressed.size());
+        out.putInt((int) crc.getValue());
+        out.put(compressed.toByteArray());
+        return raw.length;
+    }
+
+    static byte[] encodeBlock(ColumnType[] types, Object[][] block, int rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows * types.length * 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int c = 0; c < types.length; c++) {
+            byte[] nulls = new byte[(rows + 7) / 8];
+            for (int r = 0; r < rows; r++) {
+                if (block[c][r] == null) {
+                    nulls[r >> 3] |= (byte) (1 << (r & 7));
+                }
+            }
+            out.write(nulls);
+            for (int r = 0; r < rows; r++) {
+                Object value = block[c][r];
+                if (value == null) {
+                    continue;
+                }
+                switch (types[c]) {
+                    case INT -> out.writeInt((Integer) value);
+                    case LONG -> out.writeLong((Long) value);
+                    case DECIMAL -> {
+                        BigDecimal decimal = (BigDecimal) value;
+                        byte[] unscaled = decimal.unscaledValue().toByteArray();
+                        out.writeInt(decimal.scale());
+                        out.writeShort(unscaled.length);
+                        out.write(unscaled);
+                    }
+                    case BOOLEAN -> out.writeBoolean((Boolean) value);
+                    case DATE -> out.writeInt(Math.toIntExact(((LocalDate) value).toEpochDay()));
+                    case TIMESTAMP -> {
+                        LocalDateTime timestamp = (LocalDateTime) value;
+                        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+                        out.writeInt(timestamp.getNano());
+                    }
+                    case STRING -> {
+                        byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(utf8.length);
+                        out.write(utf8);
+                    }
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static Object[][] decodeBlock(ColumnType[] types, ByteBuffer in, int rows) {
+        Object[][] block = new Object[types.length][rows];
+        for (int c = 0; c < types.length; c++) {
+            byte[] nulls = new byte[(rows + 7) / 8];
+            in.get(nulls);
+            for (int r = 0; r < rows; r++) {
+                if ((nulls[r >> 3] & (1 << (r & 7))) != 0) {
+                    continue;
+                }
+                block[c][r] = switch (types[c]) {
+                    case INT -> in.getInt();
+                    case LONG -> in.getLong();
+                    case DECIMAL -> {
+                        int scale = in.getInt();
+                        byte[] unscaled = new byte[in.getShort()];
+                        in.get(unscaled);
+                        yield new BigDecimal(new BigInteger(unscaled), scale);
+                    }
+                    case BOOLEAN -> in.get() != 0;
+                    case DATE -> LocalDate.ofEpochDay(in.getInt());
+                    case TIMESTAMP -> LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+                    case STRING -> {
+                        byte[] utf8 = new byte[in.getInt()];
+                        in.get(utf8);
+                        yield new String(utf8, StandardCharsets.UTF_8);
+                    }
+                };
+            }
+        }
+        return block;
+    }
+
+    // ------------------------------------------------------------- restore
+
+    /**
+     * Самый новый снимок в каталоге {@link Config#directory()}
+     */
+    public Optional<Path> latestSnapshot() throws IOException {
+        if (!Files.isDirectory(config.directory())) {
+            return Optional.empty();
+        }
+        try (Stream<Path> files = Files.list(config.directory())) {
+            return files.filter(f -> {
+                String name = f.getFileName().toString();
+                return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+            }).max(Path::compareTo);
+        }
+    }
+
+    /**
+     * Заменить содержимое таблиц основной БД данными снимка. Выполняется одной транзакцией:
+     * при повреждённом файле или ошибке вставки основная БД остаётся как была.
+     *
+     * @return число восстановленных строк по таблицам
+     */
+    public Map<String, Long> restore(Path snapshot) throws SQLException, IOException {
+        long started = System.nanoTime();
+        Map<String, Long> restored = new LinkedHashMap<>();
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ);
+             Connection conn = databaseConnection.openPrimaryConnection()) {
+            MappedReader in = new MappedReader(channel);
+            byte[] magic = new byte[MAGIC.length];
+            in.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Файл " + snapshot + " не является снимком БД");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Версия снимка " + version + " не поддерживается");
+            }
+            in.getLong();
+            int tableCount = in.getInt();
+
+            conn.setAutoCommit(false);
+            try {
+                clearTables(conn);
+                Inflater inflater = new Inflater();
+                try {
+                    for (int t = 0; t < tableCount; t++) {
+                        String name = in.getString();
+                        restored.put(name, restoreTable(conn, name, in, inflater));
+                    }
+                } finally {
+                    inflater.end();
+                }
+                conn.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackException) {
+                    e.addSuppressed(rollbackException);
+                }
+                throw e;
+            } finally {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException ignored) {
+                    // ignore
+                }
+            }
+        }
+        logger.info("Снимок {} восстановлен: {}, {} мс", snapshot, restored,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return restored;
+    }
+
+    private static void clearTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (int i = TABLES.size() - 1; i >= 0; i--) {
+                stmt.executeUpdate("DELETE FROM " + TABLES.get(i).name());
+            }
+        }
+    }
+
+    private static long restoreTable(Connection conn, String name, MappedReader in, Inflater inflater)
+            throws SQLException, IOException {
+        BackupTable table = TABLES.stream().filter(t -> t.name().equals(name)).findFirst()
+                .orElseThrow(() -> new IOException("Неизвестная таблица в снимке: " + name));
+        int columnCount = in.getInt();
+        List<String> columns = new ArrayList<>(columnCount);
+        ColumnType[] types = new ColumnType[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns.add(in.getString());
+            int ordinal = in.get();
+            if (ordinal < 0 || ordinal >= ColumnType.values().length) {
+                throw new IOException("Неизвестный тип столбца " + columns.get(i) + " в снимке: " + ordinal);
+            }
+            types[i] = ColumnType.values()[ordinal];
+        }
+        if (!table.columns().containsAll(columns)) {
+            throw new IOException("Столбцы таблицы " + name + " в снимке не совпадают со схемой: " + columns);
+        }
+        String sql = "INSERT INTO " + name + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columnCount, "?")) + ")";
+
+        long rows = 0;
+        try (PreparedStatement insert = conn.prepareStatement(sql)) {
+            while (true) {
+                int blockRows = in.getInt();
+                if (blockRows == 0) {
+                    break;
+                }
+                int rawLength = in.getInt();
+                int compressedLength = in.getInt();
+                int expectedCrc = in.getInt();
+                if (blockRows < 0 || rawLength < 0 || compressedLength < 0 || compressedLength > in.remaining()) {
+                    throw new IOException("Заголовок блока таблицы " + name + " повреждён");
+                }
+                byte[] compressed = new byte[compressedLength];
+                in.get(compressed);
+                ByteBuffer raw = inflate(inflater, compressed, rawLength, name);
+                CRC32C crc = new CRC32C();
+                crc.update(raw.duplicate());
+                if ((int) crc.getValue() != expectedCrc) {
+                    throw new IOException("Контрольная сумма блока таблицы " + name + " не совпадает — снимок повреждён");
+                }
+                Object[][] block;
+                try {
+                    block = decodeBlock(types, raw, blockRows);
+                } catch (BufferUnderflowException e) {
+                    throw new IOException("Блок таблицы " + name + " повреждён", e);
+                }
+                for (int r = 0; r < blockRows; r++) {
+                    for (int c = 0; c < columnCount; c++) {
+                        Object value = block[c][r];
+                        if (value == null) {
+                            insert.setNull(c + 1, types[c].sqlType);
+                        } else {
+                            insert.setObject(c + 1, value);
+                        }
+                    }
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                rows += blockRows;
+            }
+        }
+        logger.debug("Таблица {}: восстановлено {} строк", name, rows);
+        return rows;
+    }
+
+    private static ByteBuffer inflate(Inflater inflater, byte[] compressed, int rawLength, String table) throws IOException {
+        byte[] raw = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, n, rawLength - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += read;
+            }
+            if (n != rawLength || !inflater.finished()) {
+                throw new IOException("Блок таблицы " + table + " повреждён: распаковано " + n + " из " + rawLength + " байт");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Блок таблицы " + table + " повреждён", e);
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    // ------------------------------------------------------------------ io
+
+    /**
+     * Буферизованная запись в канал через direct-буфер
+     */
+    private static final class ChannelWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        private ChannelWriter(FileChannel channel, int bufferSize) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        void put(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putString(String value) throws IOException {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            ensure(Short.BYTES);
+            buffer.putShort((short) utf8.length);
+            put(utf8);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+                return;
+            }
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Последовательное чтение файла через окна, отображённые в память (файл может быть больше 2 ГБ)
+     */
+    private static final class MappedReader {
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        private MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0, 0);
+        }
+
+        private long position() {
+            return windowStart + window.position();
+        }
+
+        long remaining() {
+            return size - position();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() >= bytes) {
+                return;
+            }
+            long position = position();
+            if (position + bytes > size) {
+                throw new EOFException("Снимок обрезан: нужно " + bytes + " байт с позиции " + position);
+            }
+            map(position, bytes);
+        }
+
+        private void map(long position, int atLeast) throws IOException {
+            long length = Math.min(Math.max(MAP_WINDOW_BYTES, atLeast), size - position);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            windowStart = position;
+        }
+
+        byte get() throws IOException {
+            ensure(1);
+            return window.get();
+        }
+
+        int getInt() throws IOException {
+            ensure(Integer.BYTES);
+            return window.getInt();
+        }
+
+        long getLong() throws IOException {
+            ensure(Long.BYTES);
+            return window.getLong();
+        }
+
+        String getString() throws IOException {
+            ensure(Short.BYTES);
+            byte[] utf8 = new byte[Short.toUnsignedInt(window.getShort())];
+            get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        void get(byte[] bytes) throws IOException {
+            ensure(bytes.length);
+            window.get(bytes);
+        }
+    }
+}
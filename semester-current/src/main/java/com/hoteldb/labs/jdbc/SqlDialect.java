@@ -0,0 +1,84 @@
+package com.hoteldb.labs.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Особенности СУБД, которые нужно учитывать в JDBC-слое.
+ * Определяется по соединению, т.к. после переключения основная и резервная БД могут быть разными СУБД.
+ */
+public enum SqlDialect {
+    MYSQL,
+    POSTGRESQL,
+    H2,
+    GENERIC;
+
+    public static SqlDialect of(Connection conn) throws SQLException {
+        return fromProductName(conn.getMetaData().getDatabaseProductName());
+    }
+
+    static SqlDialect fromProductName(String productName) {
+        String name = productName == null ? "" : productName.toLowerCase(Locale.ROOT);
+        if (name.contains("mysql") || name.contains("mariadb")) {
+            return MYSQL;
+        }
+        if (name.contains("postgres")) {
+            return POSTGRESQL;
+        }
+        if (name.equals("h2")) {
+            return H2;
+        }
+        return GENERIC;
+    }
+
+    /**
+     * Настроить запрос на потоковое чтение без загрузки всего результата в память.
+     * <ul>
+     *     <li>MySQL Connector/J стримит строки только при fetchSize = {@link Integer#MIN_VALUE};</li>
+     *     <li>PostgreSQL использует курсор только при выключенном autocommit.</li>
+     * </ul>
+     *
+     * @return true, если autocommit был выключен и его нужно вернуть после чтения
+     */
+    boolean prepareForStreaming(Connection conn, Statement stmt, int fetchSize) throws SQLException {
+        switch (this) {
+            case MYSQL -> stmt.setFetchSize(Integer.MIN_VALUE);
+            case POSTGRESQL -> {
+                boolean autoCommit = conn.getAutoCommit();
+                if (autoCommit) {
+                    conn.setAutoCommit(false);
+                }
+                stmt.setFetchSize(fetchSize);
+                return autoCommit;
+            }
+            default -> stmt.setFetchSize(fetchSize);
+        }
+        return false;
+    }
+
+    /**
+     * Вставка или обновление строки по первичному ключу одним запросом;
+     * параметры — значения {@code columns} по порядку.
+     *
+     * @return null, если СУБД не поддерживает upsert (тогда выполняются UPDATE и INSERT)
+     */
+    String upsertSql(String table, String keyColumn, List<String> columns) {
+        String columnList = String.join(", ", columns);
+        String placeholders = columns.stream().map(c -> "?").collect(Collectors.joining(", "));
+        List<String> updated = columns.stream().filter(c -> !c.equals(keyColumn)).toList();
+        return switch (this) {
+            case MYSQL -> "INSERT INTO " + table + " (" + columnList + ") VALUES (" + placeholders + ")"
+                    + " ON DUPLICATE KEY UPDATE "
+                    + updated.stream().map(c -> c + " = VALUES(" + c + ")").collect(Collectors.joining(", "));
+            case POSTGRESQL -> "INSERT INTO " + table + " (" + columnList + ") VALUES (" + placeholders + ")"
+                    + " ON CONFLICT (" + keyColumn + ") DO UPDATE SET "
+                    + updated.stream().map(c -> c + " = EXCLUDED." + c).collect(Collectors.joining(", "));
+            case H2 -> "MERGE INTO " + table + " (" + columnList + ") KEY (" + keyColumn + ") VALUES (" + placeholders + ")";
+            case GENERIC -> null;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.hoteldb.labs.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Установка параметров подготовленного запроса
+ */
+@FunctionalInterface
+interface StatementBinder {
+    StatementBinder NONE = stmt -> { };
+
+    void bind(PreparedStatement stmt) throws SQLException;
+}
@@ -0,0 +1,222 @@
+package com.hoteldb.labs.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU-кэш подготовленных запросов одного физического соединения.
+ * <p>
+ * Ключ — текст SQL и флаг возврата сгенерированных ключей. Вызывающий получает обёртку:
+ * {@code close()} не закрывает запрос, а очищает параметры и возвращает его в кэш.
+ * В кэше хранятся только свободные запросы, их число ограничено {@code maxSize};
+ * вытесняемый запрос закрывается. Запрос, у которого меняли настройки
+ * (fetchSize, maxRows, queryTimeout и т.п.), в кэш не возвращается.
+ */
+final class StatementCache {
+    private static final Logger logger = LoggerFactory.getLogger(StatementCache.class);
+
+    private static final Set<String> STATE_CHANGING_METHODS = Set.of(
+            "setFetchSize", "setFetchDirection", "setMaxRows", "setLargeMaxRows", "setMaxFieldSize",
+            "setQueryTimeout", "setCursorName", "setEscapeProcessing", "setPoolable", "closeOnCompletion");
+
+    private record Key(String sql, int autoGeneratedKeys) { }
+
+    /**
+     * Общие для пула счётчики
+     */
+    static final class Counters {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+    }
+
+    private final Connection physical;
+    private final int maxSize;
+    private final Counters counters;
+    private final LinkedHashMap<Key, PreparedStatement> idle;
+    private final Set<CachedStatementHandler> inUse = new HashSet<>();
+
+    StatementCache(Connection physical, int maxSize, Counters counters) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.counters = counters;
+        this.idle = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                counters.evictions.incrementAndGet();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Взять запрос из кэша или подготовить новый
+     *
+     * @param owner логическое соединение, которое вернёт {@code getConnection()} у запроса
+     */
+    synchronized PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        PreparedStatement stmt = idle.remove(key);
+        if (stmt != null && !stmt.isClosed()) {
+            counters.hits.incrementAndGet();
+        } else {
+            counters.misses.incrementAndGet();
+            stmt = physical.prepareStatement(sql, autoGeneratedKeys);
+        }
+        CachedStatementHandler handler = new CachedStatementHandler(key, stmt, owner);
+        inUse.add(handler);
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                handler);
+    }
+
+    private synchronized void giveBack(CachedStatementHandler handler) {
+        inUse.remove(handler);
+        PreparedStatement stmt = handler.physicalStatement;
+        try {
+            if (handler.dirty || stmt.isClosed() || idle.containsKey(handler.key)) {
+                closeQuietly(stmt);
+                return;
+            }
+            stmt.clearParameters();
+            stmt.clearBatch();
+            stmt.clearWarnings();
+            idle.put(handler.key, stmt);
+        } catch (SQLException e) {
+            logger.debug("Запрос не возвращён в кэш: {}", e.getMessage());
+            closeQuietly(stmt);
+        }
+    }
+
+    /**
+     * Соединение возвращается в пул: незакрытые вызывающим запросы закрываются логически
+     */
+    void releaseAll() {
+        List<CachedStatementHandler> open;
+        synchronized (this) {
+            open = new ArrayList<>(inUse);
+        }
+        for (CachedStatementHandler handler : open) {
+            handler.logicalClose();
+        }
+    }
+
+    /**
+     * Физическое соединение закрывается: закрыть все запросы
+     */
+    synchronized void closeAll() {
+        for (Iterator<PreparedStatement> it = idle.values().iterator(); it.hasNext(); ) {
+            closeQuietly(it.next());
+            it.remove();
+        }
+        for (CachedStatementHandler handler : inUse) {
+            closeQuietly(handler.physicalStatement);
+        }
+        inUse.clear();
+    }
+
+    synchronized int size() {
+        return idle.size();
+    }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            logger.debug("Ошибка при закрытии запроса: {}", e.getMessage());
+        }
+    }
+
+    private final class CachedStatementHandler implements InvocationHandler {
+        private final Key key;
+        private final PreparedStatement physicalStatement;
+        private final Connection owner;
+        private final List<ResultSet> openResults = new ArrayList<>(1);
+        private boolean closed;
+        private boolean dirty;
+
+        CachedStatementHandler(Key key, PreparedStatement physicalStatement, Connection owner) {
+            this.key = key;
+            this.physicalStatement = physicalStatement;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    logicalClose();
+                    return null;
+                case "isClosed":
+                    return closed || physicalStatement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "unwrap":
+                    return ConnectionPool.unwrapProxy(proxy, physicalStatement, args);
+                case "isWrapperFor":
+                    return ConnectionPool.isWrapperFor(proxy, physicalStatement, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + key.sql() + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Запрос уже закрыт");
+            }
+            if (STATE_CHANGING_METHODS.contains(name)) {
+                dirty = true;
+            }
+            Object result;
+            try {
+                result = method.invoke(physicalStatement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet rs) {
+                openResults.add(rs);
+            }
+            return result;
+        }
+
+        void logicalClose() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            for (ResultSet rs : openResults) {
+                closeQuietly(rs);
+            }
+            openResults.clear();
+            giveBack(this);
+        }
+    }
+}
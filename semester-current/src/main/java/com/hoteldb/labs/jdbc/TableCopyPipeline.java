@@ -0,0 +1,263 @@
+package com.hoteldb.labs.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Конвейерное копирование одной таблицы.
+ * <p>
+ * Поток чтения стримит строки из основной БД (fetch size, см. {@link SqlDialect#prepareForStreaming})
+ * и складывает их пачками в ограниченную очередь; вызывающий поток в это время пишет предыдущие пачки
+ * в резервную БД через {@code addBatch}/{@code executeBatch}. Очередь ограничивает память:
+ * если запись отстаёт, чтение ждёт.
+ */
+final class TableCopyPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(TableCopyPipeline.class);
+
+    private static final long OFFER_TIMEOUT_MS = 100;
+
+    /**
+     * Итог копирования таблицы. Время чтения и записи измеряется в своих потоках, поэтому в сумме
+     * может превышать общее время — это и есть выигрыш от конвейера.
+     */
+    record Result(long rows, long bytes, long readMillis, long writeMillis, long lastId) { }
+
+    private record Chunk(int[] types, List<Object[]> rows, long bytes) { }
+
+    private static final Chunk END = new Chunk(new int[0], List.of(), 0);
+
+    private final DatabaseBackupService.Config config;
+    private final int fetchSize;
+    private final ExecutorService readers;
+
+    TableCopyPipeline(DatabaseBackupService.Config config, int fetchSize, ExecutorService readers) {
+        this.config = config;
+        this.fetchSize = fetchSize;
+        this.readers = readers;
+    }
+
+    /**
+     * Скопировать строки запроса {@code selectSql} (столбцы {@code target} по порядку, первый — id)
+     * из {@code primary} в таблицу {@code target} резервной БД. Транзакцию фиксирует вызывающий.
+     *
+     * @return итог; {@link Result#lastId()} — id последней прочитанной строки ({@link Long#MIN_VALUE}, если строк нет)
+     */
+    Result copy(Connection primary, String selectSql, StatementBinder binder,
+                Connection backup, BackupTable target) throws SQLException {
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(config.queueCapacity());
+        AtomicReference<Throwable> readFailure = new AtomicReference<>();
+        CountDownLatch readerDone = new CountDownLatch(1);
+        Reader reader = new Reader(primary, selectSql, binder, target, queue, readFailure, readerDone);
+        readers.execute(reader);
+
+        long rows = 0;
+        long bytes = 0;
+        long writeNanos = 0;
+        try (PreparedStatement insert = backup.prepareStatement(target.insertSql())) {
+            while (true) {
+                Chunk chunk = queue.take();
+                if (chunk == END) {
+                    break;
+                }
+                long started = System.nanoTime();
+                for (Object[] row : chunk.rows()) {
+                    bindValues(insert, row, chunk.types());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                rows += chunk.rows().size();
+                bytes += chunk.bytes();
+                writeNanos += System.nanoTime() - started;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Копирование таблицы " + target.name() + " прервано", e);
+        } finally {
+            reader.cancelled = true;
+            awaitQuietly(readerDone);
+        }
+
+        Throwable failure = readFailure.get();
+        if (failure instanceof SQLException e) {
+            throw e;
+        }
+        if (failure != null) {
+            throw new SQLException("Ошибка чтения для таблицы " + target.name() + ": " + failure.getMessage(), failure);
+        }
+        Result result = new Result(rows, bytes, TimeUnit.NANOSECONDS.toMillis(reader.readNanos),
+                TimeUnit.NANOSECONDS.toMillis(writeNanos), reader.lastId);
+        logger.debug("Таблица {}: {}", target.name(), result);
+        return result;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Reader implements Runnable {
+        private final Connection primary;
+        private final String selectSql;
+        private final StatementBinder binder;
+        private final BackupTable table;
+        private final BlockingQueue<Chunk> queue;
+        private final AtomicReference<Throwable> failure;
+        private final CountDownLatch done;
+        private volatile boolean cancelled;
+        private volatile long readNanos;
+        private volatile long lastId = Long.MIN_VALUE;
+
+        private Reader(Connection primary, String selectSql, StatementBinder binder, BackupTable table,
+                       BlockingQueue<Chunk> queue, AtomicReference<Throwable> failure, CountDownLatch done) {
+            this.primary = primary;
+            this.selectSql = selectSql;
+            this.binder = binder;
+            this.table = table;
+            this.queue = queue;
+            this.failure = failure;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            boolean restoreAutoCommit = false;
+            try (PreparedStatement stmt = primary.prepareStatement(selectSql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                restoreAutoCommit = SqlDialect.of(primary).prepareForStreaming(primary, stmt, fetchSize);
+                binder.bind(stmt);
+                long started = System.nanoTime();
+                try (ResultSet rs = stmt.executeQuery()) {
+                    int[] types = columnTypes(rs);
+                    List<Object[]> rows = new ArrayList<>(config.batchSize());
+                    long bytes = 0;
+                    while (!cancelled && rs.next()) {
+                        Object[] row = readRow(rs, types.length);
+                        lastId = ((Number) row[0]).longValue();
+                        bytes += estimateBytes(row);
+                        rows.add(row);
+                        if (rows.size() == config.batchSize()) {
+                            readNanos += System.nanoTime() - started;
+                            put(new Chunk(types, rows, bytes));
+                            started = System.nanoTime();
+                            rows = new ArrayList<>(config.batchSize());
+                            bytes = 0;
+                        }
+                    }
+                    readNanos += System.nanoTime() - started;
+                    if (!rows.isEmpty()) {
+                        put(new Chunk(types, rows, bytes));
+                    }
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            } finally {
+                if (restoreAutoCommit) {
+                    try {
+                        primary.rollback();
+                        primary.setAutoCommit(true);
+                    } catch (SQLException e) {
+                        logger.warn("Не удалось восстановить autocommit после чтения {}: {}", table.name(), e.getMessage());
+                    }
+                }
+                try {
+                    put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        }
+
+        /**
+         * Положить пачку в очередь; если запись остановилась из-за ошибки, не ждать её вечно
+         */
+        private void put(Chunk chunk) throws InterruptedException {
+            while (!cancelled) {
+                if (queue.offer(chunk, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // -------------------------------------------------------------- rows
+
+    static int[] columnTypes(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int[] types = new int[metaData.getColumnCount()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = metaData.getColumnType(i + 1);
+        }
+        return types;
+    }
+
+    static Object[] readRow(ResultSet rs, int columnCount) throws SQLException {
+        Object[] row = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            row[i] = rs.getObject(i + 1);
+        }
+        return row;
+    }
+
+    static void bindValues(PreparedStatement stmt, Object[] values, int[] types) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                stmt.setNull(i + 1, types[i]);
+            } else {
+                stmt.setObject(i + 1, values[i]);
+            }
+        }
+    }
+
+    /**
+     * Примерный объём строки в байтах (для метрик пропускной способности, не точный размер на диске)
+     */
+    static long estimateBytes(Object[] row) {
+        long bytes = 0;
+        for (Object value : row) {
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof String s) {
+                bytes += s.getBytes(StandardCharsets.UTF_8).length;
+            } else if (value instanceof byte[] b) {
+                bytes += b.length;
+            } else if (value instanceof BigDecimal d) {
+                bytes += d.unscaledValue().bitLength() / 8 + 2;
+            } else if (value instanceof Boolean) {
+                bytes += 1;
+            } else if (value instanceof Integer || value instanceof java.sql.Date) {
+                bytes += 4;
+            } else {
+                bytes += 8;
+            }
+        }
+        return bytes;
+    }
+}
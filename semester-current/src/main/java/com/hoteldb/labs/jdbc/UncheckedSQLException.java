@@ -0,0 +1,19 @@
+package com.hoteldb.labs.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * {@link SQLException}, возникшее при чтении из {@link java.util.stream.Stream}, где
+ * проверяемые исключения недоступны.
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
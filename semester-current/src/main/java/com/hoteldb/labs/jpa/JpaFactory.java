@@ -1,19 +1,238 @@
 package com.hoteldb.labs.jpa;
 
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.Persistence;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.SelectionQuery;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Фабрики {@link EntityManagerFactory} по имени persistence unit.
+ * <p>
+ * Создание фабрики — разбор метаданных Hibernate и подключение к БД, это сотни миллисекунд.
+ * Поэтому фабрика одна на unit и живёт до {@link #close(String)}/{@link #closeAll()} (в веб-приложении —
+ * до остановки контекста), а сервисы берут короткоживущий {@link EntityManager} на каждую операцию.
+ */
 public final class JpaFactory {
+    private static final Logger logger = LoggerFactory.getLogger(JpaFactory.class);
+
     private static final String DEFAULT_PROPERTIES_FILE = "database.properties";
 
+    /**
+     * Переопределение генерации id сущностей на пулы из таблицы id_generators (pooled-lo)
+     */
+    public static final String POOLED_IDS_MAPPING = "META-INF/orm-pooled-ids.xml";
+
+    private static final String BATCH_SIZE_PROPERTY = "hibernate.jdbc.batch_size";
+    private static final int DEFAULT_FLUSH_INTERVAL = 50;
+    private static final String FETCH_SIZE_PROPERTY = "hibernate.jdbc.fetch_size";
+    private static final int DEFAULT_FETCH_SIZE = 500;
+
+    private static final ConcurrentMap<String, EntityManagerFactory> FACTORIES = new ConcurrentHashMap<>();
+
     private JpaFactory() {
     }
 
+    /**
+     * Общая фабрика persistence unit; создаётся при первом обращении (или заново, если прежнюю закрыли)
+     */
+    public static EntityManagerFactory getEntityManagerFactory(String persistenceUnitName) {
+        if (persistenceUnitName == null || persistenceUnitName.isBlank()) {
+            throw new IllegalArgumentException("persistenceUnitName is required");
+        }
+        EntityManagerFactory emf = FACTORIES.get(persistenceUnitName);
+        if (emf != null && emf.isOpen()) {
+            return emf;
+        }
+        return FACTORIES.compute(persistenceUnitName, (name, existing) -> {
+            if (existing != null && existing.isOpen()) {
+                return existing;
+            }
+            long started = System.nanoTime();
+            EntityManagerFactory created = createEntityManagerFactory(name);
+            logger.info("EntityManagerFactory {} создана за {} мс", name, (System.nanoTime() - started) / 1_000_000);
+            return created;
+        });
+    }
+
+    /**
+     * Закрыть общую фабрику persistence unit
+     */
+    public static void close(String persistenceUnitName) {
+        if (persistenceUnitName == null) {
+            return;
+        }
+        EntityManagerFactory emf = FACTORIES.remove(persistenceUnitName);
+        if (emf != null && emf.isOpen()) {
+            emf.close();
+        }
+    }
+
+    /**
+     * Закрыть все общие фабрики (остановка приложения)
+     */
+    public static void closeAll() {
+        FACTORIES.keySet().forEach(JpaFactory::close);
+    }
+
+    /**
+     * Статистика Hibernate общей фабрики: попадания/промахи кэша второго уровня по регионам,
+     * query cache и natural id cache ({@code hibernate.generate_statistics})
+     */
+    public static Statistics statistics(String persistenceUnitName) {
+        return getEntityManagerFactory(persistenceUnitName).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Выполнить работу с отдельным {@link EntityManager} без транзакции (чтение)
+     */
+    public static <T> T withEntityManager(EntityManagerFactory emf, Function<EntityManager, T> work) {
+        try (EntityManager em = emf.createEntityManager()) {
+            return work.apply(em);
+        }
+    }
+
+    /**
+     * Выполнить работу в транзакции с отдельным {@link EntityManager}; при ошибке — откат
+     */
+    public static <T> T inTransaction(EntityManagerFactory emf, Function<EntityManager, T> work) {
+        try (EntityManager em = emf.createEntityManager()) {
+            EntityTransaction tx = em.getTransaction();
+            tx.begin();
+            try {
+                T result = work.apply(em);
+                tx.commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (tx.isActive()) {
+                    tx.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Прочитать результат запроса потоком: {@link StatelessSession} (без persistence context и снимков
+     * для dirty checking) и forward-only {@link ScrollableResults} в read-only транзакции — PostgreSQL
+     * отдаёт строки курсором только внутри неё. Каждая строка передаётся в {@code action} и дальше не хранится;
+     * исключение из {@code action} откатывает транзакцию и выходит из метода.
+     *
+     * @return сколько строк прочитано
+     */
+    public static <T> long scroll(EntityManagerFactory emf, Function<StatelessSession, SelectionQuery<T>> query,
+                                  Consumer<? super T> action) {
+        long rows = 0;
+        try (StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                try (ScrollableResults<T> results = query.apply(session)
+                        .setReadOnly(true)
+                        .setFetchSize(streamingFetchSize(emf))
+                        .scroll(ScrollMode.FORWARD_ONLY)) {
+                    while (results.next()) {
+                        action.accept(results.get());
+                        rows++;
+                    }
+                }
+                tx.commit();
+            } catch (RuntimeException e) {
+                if (tx.isActive()) {
+                    tx.rollback();
+                }
+                throw e;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Размер выборки курсора ({@code hibernate.jdbc.fetch_size}); MySQL Connector/J стримит построчно
+     * только с {@link Integer#MIN_VALUE}
+     */
+    static int streamingFetchSize(EntityManagerFactory emf) {
+        if (emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect() instanceof MySQLDialect) {
+            return Integer.MIN_VALUE;
+        }
+        Object value = emf.getProperties().get(FETCH_SIZE_PROPERTY);
+        try {
+            int fetchSize = value == null ? DEFAULT_FETCH_SIZE : Integer.parseInt(value.toString().trim());
+            return fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE;
+        } catch (NumberFormatException e) {
+            return DEFAULT_FETCH_SIZE;
+        }
+    }
+
+    /**
+     * Сохранить сущности одной транзакцией. Каждые {@code hibernate.jdbc.batch_size} сущностей контекст
+     * сбрасывается в БД и очищается: вставки уходят пачками, а память не растёт с размером списка.
+     * При ошибке откатывается весь список.
+     *
+     * @return те же сущности с проставленными id (после очистки контекста — отсоединённые)
+     */
+    public static <T> List<T> persistAll(EntityManagerFactory emf, List<T> entities) {
+        if (entities == null) {
+            throw new IllegalArgumentException("entities cannot be null");
+        }
+        if (entities.isEmpty()) {
+            return List.of();
+        }
+        int flushInterval = flushInterval(emf);
+        return inTransaction(emf, em -> {
+            List<T> persisted = new ArrayList<>(entities.size());
+            for (T entity : entities) {
+                em.persist(entity);
+                persisted.add(entity);
+                if (persisted.size() % flushInterval == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            return persisted;
+        });
+    }
+
+    /**
+     * Сколько сущностей держать в контексте между flush/clear: размер JDBC-пачки unit
+     */
+    static int flushInterval(EntityManagerFactory emf) {
+        Object value = emf.getProperties().get(BATCH_SIZE_PROPERTY);
+        if (value == null) {
+            return DEFAULT_FLUSH_INTERVAL;
+        }
+        try {
+            int batchSize = Integer.parseInt(value.toString().trim());
+            return batchSize > 0 ? batchSize : DEFAULT_FLUSH_INTERVAL;
+        } catch (NumberFormatException e) {
+            return DEFAULT_FLUSH_INTERVAL;
+        }
+    }
+
+    /**
+     * Новая фабрика, не разделяемая с другими; закрывает вызывающий.
+     * Для сервисов используйте {@link #getEntityManagerFactory(String)}.
+     */
     public static EntityManagerFactory createEntityManagerFactory(String persistenceUnitName) {
         if (persistenceUnitName == null || persistenceUnitName.isBlank()) {
             throw new IllegalArgumentException("persistenceUnitName is required");
@@ -23,11 +242,11 @@ public final class JpaFactory {
             return Persistence.createEntityManagerFactory(persistenceUnitName);
         }
 
-        Map<String, Object> overrides = loadJdbcOverridesFromDatabaseProperties();
+        Map<String, Object> overrides = loadOverridesFromDatabaseProperties();
         return Persistence.createEntityManagerFactory(persistenceUnitName, overrides);
     }
 
-    private static Map<String, Object> loadJdbcOverridesFromDatabaseProperties() {
+    private static Map<String, Object> loadOverridesFromDatabaseProperties() {
         Properties props = new Properties();
         try (InputStream in = JpaFactory.class.getClassLoader().getResourceAsStream(DEFAULT_PROPERTIES_FILE)) {
             if (in != null) {
@@ -48,6 +267,14 @@ public final class JpaFactory {
         if (username != null) map.put("jakarta.persistence.jdbc.user", username);
         if (password != null) map.put("jakarta.persistence.jdbc.password", password);
 
+        String batchSize = trimToNull(props.getProperty("db.jpa.batchSize"));
+        if (batchSize != null) map.put(BATCH_SIZE_PROPERTY, batchSize);
+        String fetchSize = trimToNull(props.getProperty("db.jpa.fetchSize"));
+        if (fetchSize != null) map.put(FETCH_SIZE_PROPERTY, fetchSize);
+        if (Boolean.parseBoolean(trimToNull(props.getProperty("db.jpa.pooledIds")))) {
+            map.put("hibernate.orm_xml_files", List.of(POOLED_IDS_MAPPING));
+        }
+
         return map;
     }
 
@@ -4,9 +4,7 @@ import com.hoteldb.labs.jpa.service.ClientService;
 import com.hoteldb.labs.jpa.service.RoomService;
 import com.hoteldb.labs.jpa.service.UniversalRelationService;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.List;
 
 /**
  * Лабораторная работа №2
@@ -24,48 +22,43 @@ public class Lab2Main {
             roomService.close();
             clientService.close();
             relationService.close();
+            JpaFactory.closeAll();
         }
     }
 
     /**
-     * Вывод универсального отношения (LEFT JOIN таблиц rooms и clients)
+     * Вывод универсального отношения (LEFT JOIN таблиц rooms и clients) построчно, без загрузки в память
      */
     private static void outputUniversalRelation(UniversalRelationService relationService) {
-        List<Object[]> results = relationService.getUniversalRelation();
-        
         System.out.println("Room ID | Room Number | Room Type | Price    | Available | " +
                 "Client ID | First Name | Last Name  | Email                      | Phone           | Check-In   | Check-Out");
         System.out.println("------------------------------------------------------------------------------------------------------------------------------------------------------------------------");
 
-        for (Object[] row : results) {
-            Integer roomId = (Integer) row[0];
-            String roomNumber = (String) row[1];
-            String roomType = (String) row[2];
-            BigDecimal price = (BigDecimal) row[3];
-            Boolean isAvailable = (Boolean) row[4];
-            Integer clientId = (Integer) row[5];
-            String firstName = (String) row[6];
-            String lastName = (String) row[7];
-            String email = (String) row[8];
-            String phone = (String) row[9];
-            LocalDate checkIn = (LocalDate) row[10];
-            LocalDate checkOut = (LocalDate) row[11];
+        relationService.forEachRow(row -> System.out.printf(
+                "%-7d | %-11s | %-9s | %-8.2f | %-9s | %-9s | %-10s | %-10s | %-27s | %-15s | %-10s | %-10s%n",
+                row.roomId(),
+                row.roomNumber(),
+                row.roomType(),
+                row.pricePerNight(),
+                row.isAvailable() ? "Yes" : "No",
+                orNull(row.clientId()),
+                orNull(row.firstName()),
+                orNull(row.lastName()),
+                orNull(row.email()),
+                orNull(row.phone()),
+                orNull(row.checkInDate()),
+                orNull(row.checkOutDate())
+        ));
 
-            System.out.printf("%-7d | %-11s | %-9s | %-8.2f | %-9s | %-9s | %-10s | %-10s | %-27s | %-15s | %-10s | %-10s%n",
-                    roomId,
-                    roomNumber,
-                    roomType,
-                    price,
-                    isAvailable ? "Yes" : "No",
-                    clientId != null ? clientId : "NULL",
-                    firstName != null ? firstName : "NULL",
-                    lastName != null ? lastName : "NULL",
-                    email != null ? email : "NULL",
-                    phone != null ? phone : "NULL",
-                    checkIn != null ? checkIn : "NULL",
-                    checkOut != null ? checkOut : "NULL"
-            );
-        }
+        UniversalRelationService.RelationSummary summary = relationService.summarize(LocalDate.now());
+        System.out.printf("%nЗанято номеров на %s: %d из %d (%.0f%%), гостей: %d, выручка за ночь: %.2f%n",
+                summary.date(), summary.occupied(), summary.rooms(), summary.occupancyRate() * 100,
+                summary.guests(), summary.revenuePerNight());
+        summary.byType().forEach((type, occupancy) -> System.out.printf("  %-12s %d/%d, %.2f%n",
+                type, occupancy.occupied(), occupancy.rooms(), occupancy.revenuePerNight()));
     }
-}
 
+    private static Object orNull(Object value) {
+        return value != null ? value : "NULL";
+    }
+}
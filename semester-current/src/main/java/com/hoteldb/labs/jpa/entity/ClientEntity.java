@@ -40,6 +40,14 @@ public class ClientEntity {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    /**
+     * Версия для оптимистической блокировки: обновление устаревшей копии клиента отклоняется.
+     * Значение по умолчанию — для INSERT из {@code ClientDAO}, где столбец не указан
+     */
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -128,6 +136,14 @@ public class ClientEntity {
         this.createdAt = createdAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -152,6 +168,7 @@ public class ClientEntity {
                 ", roomId=" + roomId +
                 ", checkInDate=" + checkInDate +
                 ", checkOutDate=" + checkOutDate +
+                ", version=" + version +
                 ", createdAt=" + createdAt +
                 '}';
     }
@@ -1,17 +1,24 @@
 package com.hoteldb.labs.jpa.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
 /**
- * JPA сущность для номера гостиницы
+ * JPA сущность для номера гостиницы.
+ * Номера меняются редко, поэтому хранятся в кэше второго уровня (регион {@value #CACHE_REGION}).
  */
 @Entity
 @Table(name = "rooms")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = RoomEntity.CACHE_REGION)
 public class RoomEntity {
+    public static final String CACHE_REGION = "rooms";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
@@ -31,6 +38,15 @@ public class RoomEntity {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    /**
+     * Версия для оптимистической блокировки; бронирование увеличивает её принудительно
+     * (см. {@code BookingService}), поэтому две брони одного номера не зафиксируются одновременно.
+     * DEFAULT 0 нужен, чтобы hbm2ddl=update на существующей БД не ломал JDBC INSERT без version
+     */
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -94,6 +110,14 @@ public class RoomEntity {
         this.createdAt = createdAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -115,6 +139,7 @@ public class RoomEntity {
                 ", roomType='" + roomType + '\'' +
                 ", pricePerNight=" + pricePerNight +
                 ", isAvailable=" + isAvailable +
+                ", version=" + version +
                 ", createdAt=" + createdAt +
                 '}';
     }
@@ -0,0 +1,257 @@
+package com.hoteldb.labs.jpa.service;
+
+import com.hoteldb.labs.jpa.JpaFactory;
+import com.hoteldb.labs.jpa.entity.ClientEntity;
+import com.hoteldb.labs.jpa.entity.RoomEntity;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Бронирование номеров без двойной продажи.
+ * <p>
+ * Пересечение с чужими проживаниями проверяется запросом внутри транзакции, а брони одного номера
+ * сериализует его версия: бронь увеличивает её принудительно ({@link LockModeType#OPTIMISTIC_FORCE_INCREMENT}).
+ * Из двух транзакций, одновременно проверивших один номер, зафиксируется первая, вторая получит
+ * {@link OptimisticLockException} и будет повторена по {@link RetryPolicy} — уже видя первую бронь.
+ * Версия клиента не даёт двум терминалам одновременно переписать одного клиента.
+ * <p>
+ * Внутри процесса брони одного номера идут под замком его полосы (lock striping по id номера): конкуренты
+ * из этого приложения ждут на замке, а не в откатах и повторах. Оптимистическая проверка остаётся для
+ * записей из других процессов и через JDBC: {@code ClientDAO.update} увеличивает версию номера проживания,
+ * и параллельная бронь этого номера повторяется. Пересечения проживаний проверяет только этот сервис,
+ * поэтому заселение и смена дат должны идти через него, а не через {@code ClientDAO.update}.
+ */
+public class BookingService {
+    private static final Logger logger = LoggerFactory.getLogger(BookingService.class);
+
+    /**
+     * Под замками одновременно идёт не больше транзакций, чем полос, — меньше встроенного пула
+     * соединений Hibernate (20), который не ждёт свободного соединения, а сразу отказывает
+     */
+    static final int DEFAULT_LOCK_STRIPES = 16;
+
+    /**
+     * Номер читается из БД, а не из кэша второго уровня: версия в кэше может отставать от записей в обход Hibernate
+     */
+    private static final Map<String, Object> FRESH_READ = Map.of(
+            "jakarta.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS,
+            "jakarta.persistence.cache.storeMode", CacheStoreMode.REFRESH);
+
+    private static final String OVERLAPPING_STAYS = "SELECT c.id FROM ClientEntity c " +
+            "WHERE c.roomId = :roomId AND c.id <> :clientId AND c.checkInDate < :checkOut " +
+            "AND (c.checkOutDate IS NULL OR c.checkOutDate > :checkIn) ORDER BY c.id";
+
+    /**
+     * Повторы при конфликте параллельных транзакций
+     *
+     * @param maxAttempts          попыток всего, включая первую
+     * @param initialBackoffMillis верхняя граница паузы перед первым повтором; 0 — без пауз
+     * @param maxBackoffMillis     предел роста паузы
+     */
+    public record RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis) {
+        public static final RetryPolicy DEFAULT = new RetryPolicy(10, 2, 100);
+
+        public RetryPolicy {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be positive");
+            }
+            if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis) {
+                throw new IllegalArgumentException("backoff must satisfy 0 <= initial <= max");
+            }
+        }
+
+        /**
+         * Пауза после неудачной попытки {@code attempt}: граница растёт вдвое, значение случайно в [0, граница],
+         * чтобы повторы конкурентов не совпадали снова
+         */
+        long backoffMillis(int attempt) {
+            if (initialBackoffMillis == 0) {
+                return 0;
+            }
+            long bound = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+            return ThreadLocalRandom.current().nextLong(bound + 1);
+        }
+    }
+
+    /**
+     * Счётчики с момента создания сервиса
+     *
+     * @param booked   успешных броней
+     * @param rejected отказов: номер занят
+     * @param retries  повторов после конфликта транзакций
+     * @param failed   броней, не прошедших за {@link RetryPolicy#maxAttempts()} попыток
+     */
+    public record Stats(long booked, long rejected, long retries, long failed) {
+    }
+
+    private final EntityManagerFactory emf;
+    private final RetryPolicy retryPolicy;
+    private final ReentrantLock[] roomLocks;
+    private final LongAdder booked = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public BookingService() {
+        this("hotelPU");
+    }
+
+    public BookingService(String persistenceUnitName) {
+        this(persistenceUnitName, RetryPolicy.DEFAULT, DEFAULT_LOCK_STRIPES);
+    }
+
+    /**
+     * @param lockStripes число замков для номеров (округляется вверх до степени двойки);
+     *                    0 — без замков в процессе, только оптимистическая блокировка: тогда число
+     *                    одновременных броней ограничивает вызывающий код или пул соединений
+     */
+    public BookingService(String persistenceUnitName, RetryPolicy retryPolicy, int lockStripes) {
+        if (retryPolicy == null) {
+            throw new IllegalArgumentException("retryPolicy cannot be null");
+        }
+        if (lockStripes < 0) {
+            throw new IllegalArgumentException("lockStripes cannot be negative");
+        }
+        this.emf = JpaFactory.getEntityManagerFactory(persistenceUnitName);
+        this.retryPolicy = retryPolicy;
+        this.roomLocks = new ReentrantLock[lockStripes <= 1 ? lockStripes : Integer.highestOneBit(lockStripes - 1) << 1];
+        for (int i = 0; i < roomLocks.length; i++) {
+            roomLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Поселить клиента в номер на [checkIn, checkOut): день выезда свободен для следующей брони.
+     * Прежняя бронь клиента заменяется.
+     *
+     * @throws RoomUnavailableException номер занят на эти даты
+     * @throws IllegalArgumentException нет такого клиента или номера
+     * @throws jakarta.persistence.PersistenceException конфликт не разрешился за {@link RetryPolicy#maxAttempts()} попыток
+     */
+    public ClientEntity book(int clientId, int roomId, LocalDate checkIn, LocalDate checkOut) {
+        if (checkIn == null || checkOut == null) {
+            throw new IllegalArgumentException("checkIn and checkOut are required");
+        }
+        if (!checkOut.isAfter(checkIn)) {
+            throw new IllegalArgumentException("checkOut must be after checkIn");
+        }
+        ReentrantLock lock = lockFor(roomId);
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            ClientEntity client = withRetries(clientId, roomId, checkIn, checkOut);
+            booked.increment();
+            ClientService.published(List.of(client));
+            return client;
+        } catch (RoomUnavailableException e) {
+            rejected.increment();
+            throw e;
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(booked.sum(), rejected.sum(), retries.sum(), failed.sum());
+    }
+
+    private ClientEntity withRetries(int clientId, int roomId, LocalDate checkIn, LocalDate checkOut) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return bookOnce(clientId, roomId, checkIn, checkOut);
+            } catch (RuntimeException e) {
+                if (!isConcurrencyConflict(e)) {
+                    throw e;
+                }
+                if (attempt >= retryPolicy.maxAttempts()) {
+                    failed.increment();
+                    logger.warn("Бронь номера {} для клиента {} не прошла за {} попыток: {}",
+                            roomId, clientId, attempt, e.getMessage());
+                    throw e;
+                }
+                retries.increment();
+                logger.debug("Конфликт при брони номера {} (попытка {}), повтор", roomId, attempt);
+                pause(retryPolicy.backoffMillis(attempt), e);
+            }
+        }
+    }
+
+    private ClientEntity bookOnce(int clientId, int roomId, LocalDate checkIn, LocalDate checkOut) {
+        return JpaFactory.inTransaction(emf, em -> {
+            RoomEntity room = em.find(RoomEntity.class, roomId, LockModeType.OPTIMISTIC_FORCE_INCREMENT, FRESH_READ);
+            if (room == null) {
+                throw new IllegalArgumentException("Unknown room: " + roomId);
+            }
+            ClientEntity client = em.find(ClientEntity.class, clientId);
+            if (client == null) {
+                throw new IllegalArgumentException("Unknown client: " + clientId);
+            }
+            List<Integer> conflicts = em.createQuery(OVERLAPPING_STAYS, Integer.class)
+                    .setParameter("roomId", roomId)
+                    .setParameter("clientId", clientId)
+                    .setParameter("checkIn", checkIn)
+                    .setParameter("checkOut", checkOut)
+                    .getResultList();
+            if (!conflicts.isEmpty()) {
+                throw new RoomUnavailableException(roomId, checkIn, checkOut, conflicts);
+            }
+            client.setRoomId(roomId);
+            client.setCheckInDate(checkIn);
+            client.setCheckOutDate(checkOut);
+            return client;
+        });
+    }
+
+    private ReentrantLock lockFor(int roomId) {
+        if (roomLocks.length == 0) {
+            return null;
+        }
+        int h = Integer.hashCode(roomId);
+        return roomLocks[(h ^ (h >>> 16)) & (roomLocks.length - 1)];
+    }
+
+    /**
+     * Конфликт параллельных транзакций: устаревшая версия или не дождались блокировки строки
+     */
+    static boolean isConcurrencyConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException || cause instanceof StaleStateException
+                    || cause instanceof PessimisticLockException || cause instanceof LockTimeoutException
+                    || cause instanceof LockAcquisitionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void pause(long millis, RuntimeException conflict) {
+        if (millis == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.hoteldb.labs.jpa.service;
+
+import com.hoteldb.labs.jpa.JpaFactory;
+import com.hoteldb.labs.jpa.entity.ClientEntity;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.SelectionQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.function.Function;
+
+/**
+ * Выгрузка всех клиентов в CSV или JSON Lines.
+ * <p>
+ * Чтение идёт через {@link JpaFactory#scroll} ({@link StatelessSession}, forward-only курсор): у сессии нет
+ * persistence context, поэтому сущности не копятся и для них не хранятся снимки для dirty checking.
+ * Строки пишутся в {@link Writer} по одной, память не зависит от числа клиентов. Вариант
+ * {@link #exportProjection} вообще не создаёт сущностей — Hibernate заполняет {@link ClientRow}
+ * конструкторным выражением.
+ */
+public class ClientExportService {
+    private static final Logger logger = LoggerFactory.getLogger(ClientExportService.class);
+
+    static final String CSV_HEADER = "id,first_name,last_name,email,phone,room_id,check_in_date,check_out_date";
+
+    public enum Format {
+        CSV,
+        JSON_LINES
+    }
+
+    /**
+     * Строка выгрузки (проекция {@link ClientEntity} без служебных полей)
+     */
+    public record ClientRow(Integer id, String firstName, String lastName, String email, String phone,
+                            Integer roomId, LocalDate checkInDate, LocalDate checkOutDate) {
+
+        static ClientRow of(ClientEntity client) {
+            return new ClientRow(client.getId(), client.getFirstName(), client.getLastName(), client.getEmail(),
+                    client.getPhone(), client.getRoomId(), client.getCheckInDate(), client.getCheckOutDate());
+        }
+    }
+
+    private final EntityManagerFactory emf;
+
+    public ClientExportService() {
+        this("hotelPU");
+    }
+
+    public ClientExportService(String persistenceUnitName) {
+        emf = JpaFactory.getEntityManagerFactory(persistenceUnitName);
+    }
+
+    /**
+     * Выгрузить клиентов, читая сущности через StatelessSession
+     *
+     * @return сколько строк записано (без заголовка CSV)
+     */
+    public long exportEntities(Writer out, Format format) {
+        return export(out, format, session -> session
+                .createSelectionQuery("FROM ClientEntity c ORDER BY c.id", ClientEntity.class), ClientRow::of);
+    }
+
+    /**
+     * Выгрузить клиентов DTO-проекцией: в память попадают только {@link ClientRow}
+     *
+     * @return сколько строк записано (без заголовка CSV)
+     */
+    public long exportProjection(Writer out, Format format) {
+        return export(out, format, session -> session.createSelectionQuery(
+                "SELECT new " + ClientRow.class.getName() + "(c.id, c.firstName, c.lastName, c.email, c.phone, " +
+                        "c.roomId, c.checkInDate, c.checkOutDate) FROM ClientEntity c ORDER BY c.id",
+                ClientRow.class), row -> row);
+    }
+
+    private <T> long export(Writer out, Format format, Function<StatelessSession, SelectionQuery<T>> query,
+                            Function<T, ClientRow> toRow) {
+        if (out == null || format == null) {
+            throw new IllegalArgumentException("out and format are required");
+        }
+        long started = System.nanoTime();
+        long rows;
+        try {
+            if (format == Format.CSV) {
+                out.write(CSV_HEADER);
+                out.write('\n');
+            }
+            rows = JpaFactory.scroll(emf, query, item -> {
+                ClientRow row = toRow.apply(item);
+                try {
+                    out.write(format == Format.CSV ? csvLine(row) : jsonLine(row));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Client export failed", e);
+        }
+        logger.info("Выгружено клиентов: {} ({}) за {} мс", rows, format, (System.nanoTime() - started) / 1_000_000);
+        return rows;
+    }
+
+    static String csvLine(ClientRow row) {
+        return String.join(",",
+                csv(row.id()), csv(row.firstName()), csv(row.lastName()), csv(row.email()), csv(row.phone()),
+                csv(row.roomId()), csv(row.checkInDate()), csv(row.checkOutDate()));
+    }
+
+    static String jsonLine(ClientRow row) {
+        return "{\"id\":" + row.id() +
+                ",\"firstName\":" + json(row.firstName()) +
+                ",\"lastName\":" + json(row.lastName()) +
+                ",\"email\":" + json(row.email()) +
+                ",\"phone\":" + json(row.phone()) +
+                ",\"roomId\":" + row.roomId() +
+                ",\"checkInDate\":" + json(row.checkInDate()) +
+                ",\"checkOutDate\":" + json(row.checkOutDate()) + "}";
+    }
+
+    /**
+     * Значение CSV (RFC 4180): null — пустое поле, кавычки — если есть разделитель, кавычка или перевод строки
+     */
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String s = value.toString();
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return s;
+        }
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String json(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        String s = value.toString();
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
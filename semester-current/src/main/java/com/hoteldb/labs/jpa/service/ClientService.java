@@ -2,103 +2,107 @@ package com.hoteldb.labs.jpa.service;
 
 import com.hoteldb.labs.jpa.entity.ClientEntity;
 import com.hoteldb.labs.jpa.JpaFactory;
-import jakarta.persistence.EntityManager;
+import com.hoteldb.labs.occupancy.OccupancyView;
 import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
 
 import java.util.List;
 
 /**
- * Сервис для работы с клиентами через JPA
+ * Сервис для работы с клиентами через JPA.
+ * Фабрика общая ({@link JpaFactory#getEntityManagerFactory}), на каждую операцию — свой EntityManager.
  */
 public class ClientService {
     private final EntityManagerFactory emf;
-    private final EntityManager em;
 
     public ClientService() {
         this("hotelPU");
     }
 
     public ClientService(String persistenceUnitName) {
-        emf = JpaFactory.createEntityManagerFactory(persistenceUnitName);
-        em = emf.createEntityManager();
+        emf = JpaFactory.getEntityManagerFactory(persistenceUnitName);
     }
 
     /**
      * Добавить нового клиента
      */
     public ClientEntity create(ClientEntity client) {
-        em.getTransaction().begin();
-        try {
+        ClientEntity created = JpaFactory.inTransaction(emf, em -> {
             em.persist(client);
-            em.getTransaction().commit();
             return client;
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-            throw e;
-        }
+        });
+        published(List.of(created));
+        return created;
+    }
+
+    /**
+     * Добавить клиентов одной транзакцией. Вставки уходят JDBC-пачками, если id берутся из пула
+     * (db.jpa.pooledIds=true); с IDENTITY — по одной, но всё равно без транзакции на каждую строку.
+     */
+    public List<ClientEntity> createAll(List<ClientEntity> clients) {
+        List<ClientEntity> created = JpaFactory.persistAll(emf, clients);
+        published(created);
+        return created;
     }
 
     /**
      * Найти клиента по ID
      */
     public ClientEntity findById(Integer id) {
-        return em.find(ClientEntity.class, id);
+        return JpaFactory.withEntityManager(emf, em -> em.find(ClientEntity.class, id));
     }
 
     /**
-     * Получить всех клиентов
+     * Получить всех клиентов (только чтение: Hibernate не хранит снимки для dirty checking).
+     * Для выгрузки всех клиентов — {@link ClientExportService}.
      */
     public List<ClientEntity> findAll() {
-        TypedQuery<ClientEntity> query = em.createQuery("SELECT c FROM ClientEntity c", ClientEntity.class);
-        return query.getResultList();
+        return JpaFactory.withEntityManager(emf, em ->
+                em.createQuery("SELECT c FROM ClientEntity c", ClientEntity.class)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true)
+                        .getResultList());
     }
 
     /**
      * Обновить информацию о клиенте
      */
     public ClientEntity update(ClientEntity client) {
-        em.getTransaction().begin();
-        try {
-            ClientEntity updated = em.merge(client);
-            em.getTransaction().commit();
-            return updated;
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-            throw e;
-        }
+        ClientEntity updated = JpaFactory.inTransaction(emf, em -> em.merge(client));
+        published(List.of(updated));
+        return updated;
     }
 
     /**
      * Удалить клиента по ID
      */
     public boolean delete(Integer id) {
-        em.getTransaction().begin();
-        try {
+        boolean deleted = JpaFactory.inTransaction(emf, em -> {
             ClientEntity client = em.find(ClientEntity.class, id);
-            if (client != null) {
-                em.remove(client);
-                em.getTransaction().commit();
-                return true;
+            if (client == null) {
+                return false;
             }
-            em.getTransaction().rollback();
-            return false;
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-            throw e;
+            em.remove(client);
+            return true;
+        });
+        if (deleted) {
+            OccupancyView.ifInstalled(view -> view.clientDeleted(id));
         }
+        return deleted;
     }
 
     /**
-     * Закрыть соединения
+     * Передать зафиксированное состояние клиентов представлению занятости одним изменением
+     */
+    static void published(List<ClientEntity> clients) {
+        OccupancyView.ifInstalled(view -> view.apply(changes -> clients.forEach(client -> changes.clientSaved(
+                client.getId(), client.getVersion(), client.getRoomId(), client.getFirstName(), client.getLastName(),
+                client.getCheckInDate(), client.getCheckOutDate()))));
+    }
+
+    /**
+     * Общая фабрика не закрывается — она живёт до {@link JpaFactory#closeAll()}
      */
     public void close() {
-        if (em != null && em.isOpen()) {
-            em.close();
-        }
-        if (emf != null && emf.isOpen()) {
-            emf.close();
-        }
+        // сервис не держит собственных ресурсов
     }
 }
-
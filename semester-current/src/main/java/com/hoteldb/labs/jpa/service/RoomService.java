@@ -2,103 +2,113 @@ package com.hoteldb.labs.jpa.service;
 
 import com.hoteldb.labs.jpa.entity.RoomEntity;
 import com.hoteldb.labs.jpa.JpaFactory;
-import jakarta.persistence.EntityManager;
+import com.hoteldb.labs.occupancy.OccupancyView;
 import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
 
 import java.util.List;
 
 /**
- * Сервис для работы с номерами через JPA
+ * Сервис для работы с номерами через JPA.
+ * Фабрика общая ({@link JpaFactory#getEntityManagerFactory}), на каждую операцию — свой EntityManager.
  */
 public class RoomService {
+    /**
+     * Регион query cache для списка номеров
+     */
+    public static final String ROOMS_QUERY_REGION = "rooms-list";
+
     private final EntityManagerFactory emf;
-    private final EntityManager em;
 
     public RoomService() {
         this("hotelPU");
     }
 
     public RoomService(String persistenceUnitName) {
-        emf = JpaFactory.createEntityManagerFactory(persistenceUnitName);
-        em = emf.createEntityManager();
+        emf = JpaFactory.getEntityManagerFactory(persistenceUnitName);
     }
 
     /**
      * Добавить новый номер
      */
     public RoomEntity create(RoomEntity room) {
-        em.getTransaction().begin();
-        try {
+        RoomEntity created = JpaFactory.inTransaction(emf, em -> {
             em.persist(room);
-            em.getTransaction().commit();
             return room;
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-            throw e;
-        }
+        });
+        published(List.of(created));
+        return created;
+    }
+
+    /**
+     * Добавить номера одной транзакцией. Вставки уходят JDBC-пачками, если id берутся из пула
+     * (db.jpa.pooledIds=true); с IDENTITY — по одной, но всё равно без транзакции на каждую строку.
+     */
+    public List<RoomEntity> createAll(List<RoomEntity> rooms) {
+        List<RoomEntity> created = JpaFactory.persistAll(emf, rooms);
+        published(created);
+        return created;
     }
 
     /**
      * Найти номер по ID
      */
     public RoomEntity findById(Integer id) {
-        return em.find(RoomEntity.class, id);
+        return JpaFactory.withEntityManager(emf, em -> em.find(RoomEntity.class, id));
     }
 
     /**
-     * Получить все номера
+     * Получить все номера. Список id берётся из query cache, сами номера — из кэша сущностей;
+     * любое изменение rooms через Hibernate (create/update/delete) делает закэшированный список устаревшим.
      */
     public List<RoomEntity> findAll() {
-        TypedQuery<RoomEntity> query = em.createQuery("SELECT r FROM RoomEntity r", RoomEntity.class);
-        return query.getResultList();
+        return JpaFactory.withEntityManager(emf, em ->
+                em.createQuery("SELECT r FROM RoomEntity r ORDER BY r.id", RoomEntity.class)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true)
+                        .setHint(HibernateHints.HINT_CACHEABLE, true)
+                        .setHint(HibernateHints.HINT_CACHE_REGION, ROOMS_QUERY_REGION)
+                        .getResultList());
     }
 
     /**
      * Обновить информацию о номере
      */
     public RoomEntity update(RoomEntity room) {
-        em.getTransaction().begin();
-        try {
-            RoomEntity updated = em.merge(room);
-            em.getTransaction().commit();
-            return updated;
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-            throw e;
-        }
+        RoomEntity updated = JpaFactory.inTransaction(emf, em -> em.merge(room));
+        published(List.of(updated));
+        return updated;
     }
 
     /**
      * Удалить номер по ID
      */
     public boolean delete(Integer id) {
-        em.getTransaction().begin();
-        try {
+        boolean deleted = JpaFactory.inTransaction(emf, em -> {
             RoomEntity room = em.find(RoomEntity.class, id);
-            if (room != null) {
-                em.remove(room);
-                em.getTransaction().commit();
-                return true;
+            if (room == null) {
+                return false;
             }
-            em.getTransaction().rollback();
-            return false;
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-            throw e;
+            em.remove(room);
+            return true;
+        });
+        if (deleted) {
+            OccupancyView.ifInstalled(view -> view.roomDeleted(id));
         }
+        return deleted;
+    }
+
+    /**
+     * Передать зафиксированное состояние номеров представлению занятости одним изменением
+     */
+    private static void published(List<RoomEntity> rooms) {
+        OccupancyView.ifInstalled(view -> view.apply(changes -> rooms.forEach(room -> changes.roomSaved(room.getId(),
+                room.getVersion(), room.getRoomNumber(), room.getRoomType(), room.getPricePerNight(), room.getIsAvailable()))));
     }
 
     /**
-     * Закрыть соединения
+     * Общая фабрика не закрывается — она живёт до {@link JpaFactory#closeAll()}
      */
     public void close() {
-        if (em != null && em.isOpen()) {
-            em.close();
-        }
-        if (emf != null && emf.isOpen()) {
-            emf.close();
-        }
+        // сервис не держит собственных ресурсов
     }
 }
-
@@ -0,0 +1,28 @@
+package com.hoteldb.labs.jpa.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Номер на запрошенные даты уже занят другими проживаниями ({@link BookingService#book}).
+ * Не повторяется: это ответ, а не конфликт параллельных транзакций.
+ */
+public class RoomUnavailableException extends RuntimeException {
+    private final int roomId;
+    private final List<Integer> conflictingClientIds;
+
+    public RoomUnavailableException(int roomId, LocalDate checkIn, LocalDate checkOut, List<Integer> conflictingClientIds) {
+        super("Room " + roomId + " is not available from " + checkIn + " to " + checkOut +
+                ", conflicting clients: " + conflictingClientIds);
+        this.roomId = roomId;
+        this.conflictingClientIds = List.copyOf(conflictingClientIds);
+    }
+
+    public int getRoomId() {
+        return roomId;
+    }
+
+    public List<Integer> getConflictingClientIds() {
+        return conflictingClientIds;
+    }
+}
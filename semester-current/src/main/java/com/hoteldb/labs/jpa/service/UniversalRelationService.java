@@ -1,31 +1,110 @@
 package com.hoteldb.labs.jpa.service;
 
 import com.hoteldb.labs.jpa.JpaFactory;
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.Query;
+import org.hibernate.jpa.HibernateHints;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 /**
- * Сервис для получения универсального отношения (LEFT JOIN таблиц rooms и clients)
+ * Сервис для получения универсального отношения (LEFT JOIN таблиц rooms и clients).
+ * <p>
+ * {@link #forEachRow}, {@link #forEachRoom} и {@link #summarize} читают соединение потоком
+ * ({@link JpaFactory#scroll}) в порядке (номер, клиент): в памяти держится одна строка или один номер
+ * с его гостями, а не весь результат.
  */
 public class UniversalRelationService {
+    private static final String SELECT_ROWS = "SELECT new " + RelationRow.class.getName() + "(" +
+            "r.id, r.roomNumber, r.roomType, r.pricePerNight, r.isAvailable, " +
+            "c.id, c.firstName, c.lastName, c.email, c.phone, c.checkInDate, c.checkOutDate, r.version, c.version) " +
+            "FROM RoomEntity r LEFT JOIN ClientEntity c WITH r.id = c.roomId " +
+            "ORDER BY r.id, c.id";
+
+    /**
+     * Строка соединения; поля клиента — null, если в номере никого нет
+     */
+    public record RelationRow(Integer roomId, String roomNumber, String roomType, BigDecimal pricePerNight,
+                              Boolean isAvailable, Integer clientId, String firstName, String lastName,
+                              String email, String phone, LocalDate checkInDate, LocalDate checkOutDate,
+                              Long roomVersion, Long clientVersion) {
+
+        public boolean hasClient() {
+            return clientId != null;
+        }
+
+        /**
+         * Клиент живёт в номере в ночь с {@code date} на следующий день: заехал не позже и ещё не выехал
+         */
+        public boolean staysOn(LocalDate date) {
+            return hasClient() && checkInDate != null && !checkInDate.isAfter(date)
+                    && (checkOutDate == null || checkOutDate.isAfter(date));
+        }
+    }
+
+    /**
+     * Номер и гости, проживающие в нём на дату
+     */
+    public record RoomGuests(Integer roomId, String roomNumber, String roomType, BigDecimal pricePerNight,
+                             Boolean isAvailable, List<RelationRow> guests) {
+
+        public boolean occupied() {
+            return !guests.isEmpty();
+        }
+    }
+
+    /**
+     * Загрузка номеров одного типа на дату
+     *
+     * @param revenuePerNight сумма цен занятых номеров за ночь
+     */
+    public record TypeOccupancy(long rooms, long occupied, BigDecimal revenuePerNight) {
+        static final TypeOccupancy EMPTY = new TypeOccupancy(0, 0, BigDecimal.ZERO);
+
+        public double occupancyRate() {
+            return rooms == 0 ? 0 : (double) occupied / rooms;
+        }
+
+        TypeOccupancy add(RoomGuests room) {
+            return room.occupied()
+                    ? new TypeOccupancy(rooms + 1, occupied + 1, revenuePerNight.add(room.pricePerNight()))
+                    : new TypeOccupancy(rooms + 1, occupied, revenuePerNight);
+        }
+    }
+
+    /**
+     * Итоги по соединению на дату
+     *
+     * @param rowsRead строк соединения прочитано
+     * @param byType   загрузка по типам номеров (по алфавиту)
+     */
+    public record RelationSummary(LocalDate date, long rowsRead, long rooms, long occupied, long guests,
+                                  BigDecimal revenuePerNight, Map<String, TypeOccupancy> byType) {
+
+        public double occupancyRate() {
+            return rooms == 0 ? 0 : (double) occupied / rooms;
+        }
+    }
+
     private final EntityManagerFactory emf;
-    private final EntityManager em;
 
     public UniversalRelationService() {
         this("hotelPU");
     }
 
     public UniversalRelationService(String persistenceUnitName) {
-        // Создаем фабрику и менеджер сущностей
-        emf = JpaFactory.createEntityManagerFactory(persistenceUnitName);
-        em = emf.createEntityManager();
+        emf = JpaFactory.getEntityManagerFactory(persistenceUnitName);
     }
 
     /**
-     * Получить универсальное отношение (LEFT JOIN таблиц rooms и clients)
+     * Получить универсальное отношение (LEFT JOIN таблиц rooms и clients) целиком.
+     * Для больших таблиц — {@link #forEachRow}.
      */
     @SuppressWarnings("unchecked")
     public List<Object[]> getUniversalRelation() {
@@ -33,20 +112,103 @@ public class UniversalRelationService {
                 "c.id, c.firstName, c.lastName, c.email, c.phone, c.checkInDate, c.checkOutDate " +
                 "FROM RoomEntity r LEFT JOIN ClientEntity c WITH r.id = c.roomId " +
                 "ORDER BY r.id, c.id";
-        Query query = em.createQuery(jpql);
-        return query.getResultList();
+        return JpaFactory.withEntityManager(emf, em -> em.createQuery(jpql)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList());
     }
 
     /**
-     * Закрыть соединения
+     * Пройти по строкам соединения, не загружая его целиком
+     *
+     * @return сколько строк прочитано
      */
-    public void close() {
-        if (em != null && em.isOpen()) {
-            em.close();
+    public long forEachRow(Consumer<? super RelationRow> action) {
+        if (action == null) {
+            throw new IllegalArgumentException("action cannot be null");
         }
-        if (emf != null && emf.isOpen()) {
-            emf.close();
+        return JpaFactory.scroll(emf, session -> session.createSelectionQuery(SELECT_ROWS, RelationRow.class), action);
+    }
+
+    /**
+     * Пройти по номерам с гостями, проживающими на {@code date}. Строки приходят отсортированными
+     * по номеру, поэтому группа закрывается при смене номера и в памяти держится только она.
+     *
+     * @return сколько строк соединения прочитано
+     */
+    public long forEachRoom(LocalDate date, Consumer<? super RoomGuests> action) {
+        if (date == null || action == null) {
+            throw new IllegalArgumentException("date and action are required");
+        }
+        RoomGrouper grouper = new RoomGrouper(date, action);
+        long rows = forEachRow(grouper);
+        grouper.finish();
+        return rows;
+    }
+
+    /**
+     * Загрузка и выручка за ночь на {@code date} — за один проход по соединению
+     */
+    public RelationSummary summarize(LocalDate date) {
+        Map<String, TypeOccupancy> byType = new TreeMap<>();
+        long[] guests = {0};
+        long rows = forEachRoom(date, room -> {
+            guests[0] += room.guests().size();
+            byType.compute(room.roomType(), (type, current) -> (current == null ? TypeOccupancy.EMPTY : current).add(room));
+        });
+
+        long rooms = 0;
+        long occupied = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (TypeOccupancy type : byType.values()) {
+            rooms += type.rooms();
+            occupied += type.occupied();
+            revenue = revenue.add(type.revenuePerNight());
+        }
+        return new RelationSummary(date, rows, rooms, occupied, guests[0], revenue, Collections.unmodifiableMap(byType));
+    }
+
+    /**
+     * Собирает строки одного номера в {@link RoomGuests}
+     */
+    private static final class RoomGrouper implements Consumer<RelationRow> {
+        private final LocalDate date;
+        private final Consumer<? super RoomGuests> action;
+        private RelationRow room;
+        private List<RelationRow> guests = new ArrayList<>();
+
+        RoomGrouper(LocalDate date, Consumer<? super RoomGuests> action) {
+            this.date = date;
+            this.action = action;
+        }
+
+        @Override
+        public void accept(RelationRow row) {
+            if (room != null && !room.roomId().equals(row.roomId())) {
+                finish();
+            }
+            if (room == null) {
+                room = row;
+            }
+            if (row.staysOn(date)) {
+                guests.add(row);
+            }
+        }
+
+        void finish() {
+            if (room == null) {
+                return;
+            }
+            action.accept(new RoomGuests(room.roomId(), room.roomNumber(), room.roomType(), room.pricePerNight(),
+                    room.isAvailable(), List.copyOf(guests)));
+            room = null;
+            guests = new ArrayList<>();
         }
     }
-}
 
+    /**
+     * Общая фабрика не закрывается — она живёт до {@link JpaFactory#closeAll()}
+     */
+    public void close() {
+        // сервис не держит собственных ресурсов
+    }
+}
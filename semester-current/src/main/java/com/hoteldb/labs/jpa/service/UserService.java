@@ -3,24 +3,29 @@ package com.hoteldb.labs.jpa.service;
 import com.hoteldb.labs.jpa.entity.UserEntity;
 import com.hoteldb.labs.jpa.entity.UserRole;
 import com.hoteldb.labs.jpa.JpaFactory;
-import jakarta.persistence.EntityManager;
+import jakarta.persistence.CacheRetrieveMode;
 import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
 
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Пользователи веб-приложения. Фабрика общая ({@link JpaFactory#getEntityManagerFactory}),
+ * поэтому создавать сервис на каждый запрос дёшево. Поиск по username идёт через natural id:
+ * при повторных запросах пользователь берётся из кэша второго уровня без обращения к БД.
+ * Проверка пароля кэш не использует: таблицу users меняет и spring-app, и устаревший пароль
+ * или роль иначе действовали бы до истечения записи в кэше (10 минут).
+ */
 public class UserService {
     private final EntityManagerFactory emf;
-    private final EntityManager em;
 
     public UserService() {
         this("hotelPU");
     }
 
     public UserService(String persistenceUnitName) {
-        emf = JpaFactory.createEntityManagerFactory(persistenceUnitName);
-        em = emf.createEntityManager();
+        emf = JpaFactory.getEntityManagerFactory(persistenceUnitName);
     }
 
     public UserEntity register(String username, String password, UserRole role) {
@@ -33,15 +38,10 @@ public class UserService {
 
         UserEntity user = new UserEntity(username.trim(), password, role == null ? UserRole.USER : role);
 
-        em.getTransaction().begin();
-        try {
+        return JpaFactory.inTransaction(emf, em -> {
             em.persist(user);
-            em.getTransaction().commit();
             return user;
-        } catch (Exception e) {
-            em.getTransaction().rollback();
-            throw e;
-        }
+        });
     }
 
     public Optional<UserEntity> findByUsernameAndPassword(String username, String password) {
@@ -53,15 +53,15 @@ public class UserService {
             return Optional.empty();
         }
 
-        TypedQuery<UserEntity> q = em.createQuery(
-                "SELECT u FROM UserEntity u WHERE u.username = :username AND u.password = :password",
-                UserEntity.class
-        );
-        q.setParameter("username", u);
-        q.setParameter("password", password);
-
-        List<UserEntity> users = q.setMaxResults(1).getResultList();
-        return users.isEmpty() ? Optional.empty() : Optional.of(users.get(0));
+        // строка читается мимо кэша; запись в кэше сбрасывается, чтобы и findByUsername увидел свежие значения
+        Optional<UserEntity> user = JpaFactory.withEntityManager(emf, em -> em
+                .createQuery("SELECT u FROM UserEntity u WHERE u.username = :username", UserEntity.class)
+                .setParameter("username", u)
+                .setHint("jakarta.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS)
+                .getResultStream()
+                .findFirst());
+        user.ifPresent(found -> emf.getCache().evict(UserEntity.class, found.getId()));
+        return user.filter(found -> password.equals(found.getPassword()));
     }
 
     public Optional<UserEntity> findByUsername(String username) {
@@ -73,23 +73,20 @@ public class UserService {
             return Optional.empty();
         }
 
-        TypedQuery<UserEntity> q = em.createQuery(
-                "SELECT u FROM UserEntity u WHERE u.username = :username",
-                UserEntity.class
-        );
-        q.setParameter("username", u);
+        return loadByUsername(u);
+    }
 
-        List<UserEntity> users = q.setMaxResults(1).getResultList();
-        return users.isEmpty() ? Optional.empty() : Optional.of(users.get(0));
+    private Optional<UserEntity> loadByUsername(String username) {
+        return JpaFactory.withEntityManager(emf, em -> em.unwrap(Session.class)
+                .bySimpleNaturalId(UserEntity.class)
+                .loadOptional(username));
     }
 
+    /**
+     * Общая фабрика не закрывается — она живёт до {@link JpaFactory#closeAll()}
+     */
     public void close() {
-        if (em != null && em.isOpen()) {
-            em.close();
-        }
-        if (emf != null && emf.isOpen()) {
-            emf.close();
-        }
+        // сервис не держит собственных ресурсов
     }
 }
 
@@ -17,6 +17,11 @@ public class Client {
     private LocalDate checkInDate;
     private LocalDate checkOutDate;
     private LocalDateTime createdAt;
+    /**
+     * Версия строки после последнего чтения или записи через DAO; {@code null} — объект не читался из БД,
+     * и обновление выполняется без проверки версии
+     */
+    private Long version;
 
     public Client() {
     }
@@ -104,6 +109,14 @@ public class Client {
         this.createdAt = createdAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -128,6 +141,7 @@ public class Client {
                 ", roomId=" + roomId +
                 ", checkInDate=" + checkInDate +
                 ", checkOutDate=" + checkOutDate +
+                ", version=" + version +
                 ", createdAt=" + createdAt +
                 '}';
     }
@@ -14,6 +14,10 @@ public class Room {
     private BigDecimal pricePerNight;
     private Boolean isAvailable;
     private LocalDateTime createdAt;
+    /**
+     * Версия строки после последнего чтения или записи через DAO
+     */
+    private Long version;
 
     public Room() {
     }
@@ -76,6 +80,14 @@ public class Room {
         this.createdAt = createdAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -97,6 +109,7 @@ public class Room {
                 ", roomType='" + roomType + '\'' +
                 ", pricePerNight=" + pricePerNight +
                 ", isAvailable=" + isAvailable +
+                ", version=" + version +
                 ", createdAt=" + createdAt +
                 '}';
     }
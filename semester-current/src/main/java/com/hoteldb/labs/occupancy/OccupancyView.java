@@ -0,0 +1,475 @@
+package com.hoteldb.labs.occupancy;
+
+import com.hoteldb.labs.jpa.service.UniversalRelationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Материализованное представление занятости номеров в памяти процесса.
+ * <p>
+ * Строится один раз из соединения rooms/clients ({@link UniversalRelationService#forEachRow}), дальше
+ * обновляется по событиям записи из JPA-сервисов и JDBC DAO ({@link #ifInstalled}). События несут
+ * новое состояние строки, а не разницу, поэтому повтор события ничего не портит.
+ * <p>
+ * Читатели берут неизменяемый {@link Snapshot} без блокировок; писатели под монитором копируют
+ * затронутые части и публикуют новый снимок (copy-on-write). Пачка изменений ({@link #apply}) копирует
+ * каждую часть не больше одного раза и публикуется одним снимком. Номер — O(1), гости номера — O(k),
+ * счётчики типа — O(1). Записи в обход приложения (триггеры, восстановление из копии, другой процесс)
+ * представление не видит — после них нужен {@link #reload()}.
+ * <p>
+ * События приходят после коммита из разных потоков в произвольном порядке, поэтому несут версию строки
+ * (столбец version): событие с версией меньше уже применённой отбрасывается, удалённые номера и клиенты
+ * не возвращаются запоздавшим событием сохранения.
+ */
+public final class OccupancyView {
+    private static final Logger logger = LoggerFactory.getLogger(OccupancyView.class);
+
+    private static final AtomicReference<OccupancyView> INSTALLED = new AtomicReference<>();
+
+    private static final Comparator<Stay> BY_CHECK_IN = Comparator
+            .comparing(Stay::checkIn, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(Stay::clientId);
+
+    public record RoomInfo(int id, String roomNumber, String roomType, BigDecimal pricePerNight, boolean available) { }
+
+    /**
+     * Проживание клиента в номере; {@code checkOut == null} — дата выезда не известна
+     */
+    public record Stay(int clientId, int roomId, String guestName, LocalDate checkIn, LocalDate checkOut) {
+
+        /**
+         * Гость живёт в номере в ночь с {@code date} на следующий день
+         */
+        public boolean activeOn(LocalDate date) {
+            return checkIn != null && !checkIn.isAfter(date) && !endedBy(date);
+        }
+
+        /**
+         * Гость выехал не позже {@code date}
+         */
+        public boolean endedBy(LocalDate date) {
+            return checkOut != null && !checkOut.isAfter(date);
+        }
+    }
+
+    /**
+     * Счётчики по типу номеров
+     *
+     * @param rooms     номеров
+     * @param available номеров с флагом is_available
+     * @param stays     клиентов, заселённых в номера этого типа
+     */
+    public record TypeCounters(int rooms, int available, int stays) {
+        static final TypeCounters EMPTY = new TypeCounters(0, 0, 0);
+
+        TypeCounters plus(int rooms, int available, int stays) {
+            return new TypeCounters(this.rooms + rooms, this.available + available, this.stays + stays);
+        }
+    }
+
+    /**
+     * Согласованное состояние представления; коллекции неизменяемы
+     *
+     * @param version номер снимка, растёт с каждым изменением
+     */
+    public record Snapshot(long version, Map<Integer, RoomInfo> rooms, Map<Integer, List<Stay>> staysByRoom,
+                           Map<Integer, Stay> staysByClient, Map<String, TypeCounters> byType) {
+
+        static final Snapshot EMPTY = new Snapshot(0, Map.of(), Map.of(), Map.of(), Map.of());
+
+        public RoomInfo room(int roomId) {
+            return rooms.get(roomId);
+        }
+
+        public List<Stay> stays(int roomId) {
+            return staysByRoom.getOrDefault(roomId, List.of());
+        }
+
+        public TypeCounters counters(String roomType) {
+            return byType.getOrDefault(roomType, TypeCounters.EMPTY);
+        }
+    }
+
+    /**
+     * Версия удалённой строки: старше любой настоящей
+     */
+    private static final long DELETED = Long.MAX_VALUE;
+
+    private final UniversalRelationService source;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    /**
+     * Последние применённые версии строк; только для писателей, под монитором. Переживают {@link #reload()}:
+     * версии только растут, а запоздавшее событие может прийти и после перестроения
+     */
+    private final Map<Integer, Long> roomVersions = new HashMap<>();
+    private final Map<Integer, Long> clientVersions = new HashMap<>();
+
+    public OccupancyView(UniversalRelationService source) {
+        if (source == null) {
+            throw new IllegalArgumentException("source cannot be null");
+        }
+        this.source = source;
+    }
+
+    /**
+     * Подключить представление к событиям записи сервисов и DAO
+     */
+    public static void install(OccupancyView view) {
+        INSTALLED.set(view);
+    }
+
+    public static void uninstall() {
+        INSTALLED.set(null);
+    }
+
+    /**
+     * Подключённое представление или {@code null}
+     */
+    public static OccupancyView installed() {
+        return INSTALLED.get();
+    }
+
+    /**
+     * Передать событие записи подключённому представлению, если оно есть. Ошибка обновления
+     * представления не отменяет уже зафиксированную запись: представление перестраивается целиком.
+     */
+    public static void ifInstalled(Consumer<OccupancyView> event) {
+        OccupancyView view = INSTALLED.get();
+        if (view == null) {
+            return;
+        }
+        try {
+            event.accept(view);
+        } catch (RuntimeException e) {
+            logger.error("Ошибка обновления представления занятости, перестроение: {}", e.getMessage(), e);
+            try {
+                view.reload();
+            } catch (RuntimeException reloadError) {
+                logger.error("Не удалось перестроить представление занятости: {}", reloadError.getMessage(), reloadError);
+            }
+        }
+    }
+
+    /**
+     * Перестроить представление по БД
+     */
+    public synchronized void reload() {
+        long started = System.nanoTime();
+        Map<Integer, RoomInfo> rooms = new HashMap<>();
+        Map<Integer, List<Stay>> staysByRoom = new HashMap<>();
+        Map<Integer, Stay> staysByClient = new HashMap<>();
+        Map<String, TypeCounters> byType = new HashMap<>();
+        long rows = source.forEachRow(row -> {
+            RoomInfo room = rooms.get(row.roomId());
+            if (room == null) {
+                room = new RoomInfo(row.roomId(), row.roomNumber(), row.roomType(), row.pricePerNight(),
+                        Boolean.TRUE.equals(row.isAvailable()));
+                rooms.put(room.id(), room);
+                byType.merge(room.roomType(), TypeCounters.EMPTY.plus(1, room.available() ? 1 : 0, 0), OccupancyView::sum);
+                seen(roomVersions, room.id(), row.roomVersion());
+            }
+            if (row.hasClient()) {
+                Stay stay = new Stay(row.clientId(), row.roomId(), guestName(row.firstName(), row.lastName()),
+                        row.checkInDate(), row.checkOutDate());
+                staysByRoom.computeIfAbsent(stay.roomId(), id -> new ArrayList<>()).add(stay);
+                staysByClient.put(stay.clientId(), stay);
+                byType.merge(room.roomType(), TypeCounters.EMPTY.plus(0, 0, 1), OccupancyView::sum);
+                seen(clientVersions, stay.clientId(), row.clientVersion());
+            }
+        });
+        staysByRoom.replaceAll((roomId, stays) -> sorted(stays));
+        publish(new Snapshot(snapshot.version() + 1, Collections.unmodifiableMap(rooms),
+                Collections.unmodifiableMap(staysByRoom), Collections.unmodifiableMap(staysByClient),
+                Collections.unmodifiableMap(byType)));
+        logger.info("Представление занятости построено: номеров {}, проживаний {}, строк {} за {} мс",
+                rooms.size(), staysByClient.size(), rows, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    public RoomInfo room(int roomId) {
+        return snapshot.room(roomId);
+    }
+
+    /**
+     * Текущие и будущие проживания в номере на {@code date} (ещё не закончившиеся), по дате заезда
+     */
+    public List<Stay> staysFrom(int roomId, LocalDate date) {
+        return snapshot.stays(roomId).stream().filter(stay -> !stay.endedBy(date)).toList();
+    }
+
+    /**
+     * Гости, живущие в номере в ночь с {@code date}
+     */
+    public List<Stay> guestsOn(int roomId, LocalDate date) {
+        return snapshot.stays(roomId).stream().filter(stay -> stay.activeOn(date)).toList();
+    }
+
+    public TypeCounters counters(String roomType) {
+        return snapshot.counters(roomType);
+    }
+
+    /**
+     * Применить несколько изменений и опубликовать один снимок
+     */
+    public synchronized void apply(Consumer<Changes> changes) {
+        Changes draft = new Changes(snapshot);
+        changes.accept(draft);
+        draft.publish();
+    }
+
+    /**
+     * Номер добавлен или изменён
+     */
+    public void roomSaved(Integer id, Long version, String roomNumber, String roomType, BigDecimal pricePerNight,
+                          Boolean available) {
+        apply(changes -> changes.roomSaved(id, version, roomNumber, roomType, pricePerNight, available));
+    }
+
+    /**
+     * Номер удалён; его клиенты остаются без номера (ON DELETE SET NULL)
+     */
+    public void roomDeleted(Integer id) {
+        apply(changes -> changes.roomDeleted(id));
+    }
+
+    /**
+     * Клиент добавлен или изменён (в том числе переселён или выселен: {@code roomId == null})
+     */
+    public void clientSaved(Integer id, Long version, Integer roomId, String firstName, String lastName,
+                            LocalDate checkIn, LocalDate checkOut) {
+        apply(changes -> changes.clientSaved(id, version, roomId, firstName, lastName, checkIn, checkOut));
+    }
+
+    /**
+     * Клиент удалён
+     */
+    public void clientDeleted(Integer id) {
+        apply(changes -> changes.clientDeleted(id));
+    }
+
+    /**
+     * Изменения поверх снимка: каждая часть копируется при первой записи, версии строк
+     * переносятся в представление только вместе с публикацией снимка.
+     * {@code version == null} — версия не известна, событие применяется, если строка не удалена.
+     */
+    public final class Changes {
+        private final Snapshot base;
+        private final Map<Integer, Long> roomsSeen = new HashMap<>();
+        private final Map<Integer, Long> clientsSeen = new HashMap<>();
+        private Map<Integer, RoomInfo> rooms;
+        private Map<Integer, List<Stay>> staysByRoom;
+        private Map<Integer, Stay> staysByClient;
+        private Map<String, TypeCounters> byType;
+
+        private Changes(Snapshot base) {
+            this.base = base;
+        }
+
+        public void roomSaved(Integer id, Long version, String roomNumber, String roomType, BigDecimal pricePerNight,
+                              Boolean available) {
+            if (id == null || !accepted(roomVersions, roomsSeen, id, version)) {
+                return;
+            }
+            RoomInfo room = new RoomInfo(id, roomNumber, roomType, pricePerNight, Boolean.TRUE.equals(available));
+            RoomInfo previous = rooms().put(id, room);
+            int stays = staysOf(id).size();
+            if (previous != null) {
+                byType().merge(previous.roomType(), TypeCounters.EMPTY.plus(-1, previous.available() ? -1 : 0, -stays),
+                        OccupancyView::sum);
+            }
+            byType().merge(roomType, TypeCounters.EMPTY.plus(1, room.available() ? 1 : 0, stays), OccupancyView::sum);
+        }
+
+        public void roomDeleted(Integer id) {
+            if (id == null) {
+                return;
+            }
+            roomsSeen.put(id, DELETED);
+            List<Stay> stays = staysOf(id);
+            if (!readRooms().containsKey(id) && stays.isEmpty()) {
+                return;
+            }
+            RoomInfo previous = rooms().remove(id);
+            staysByRoom().remove(id);
+            stays.forEach(stay -> staysByClient().remove(stay.clientId()));
+            if (previous != null) {
+                byType().merge(previous.roomType(), TypeCounters.EMPTY.plus(-1, previous.available() ? -1 : 0, -stays.size()),
+                        OccupancyView::sum);
+            }
+        }
+
+        public void clientSaved(Integer id, Long version, Integer roomId, String firstName, String lastName,
+                                LocalDate checkIn, LocalDate checkOut) {
+            if (id == null || !accepted(clientVersions, clientsSeen, id, version)) {
+                return;
+            }
+            // номер уже удалён — в БД клиент остался без номера
+            boolean roomGone = roomId != null && Long.valueOf(DELETED).equals(lastSeen(roomVersions, roomsSeen, roomId));
+            Stay stay = roomId == null || roomGone ? null
+                    : new Stay(id, roomId, guestName(firstName, lastName), checkIn, checkOut);
+            Stay previous = readStaysByClient().get(id);
+            if (stay == null && previous == null) {
+                return;
+            }
+            if (previous != null) {
+                removeStay(previous);
+            }
+            if (stay != null) {
+                List<Stay> roomStays = new ArrayList<>(staysOf(roomId));
+                roomStays.add(stay);
+                staysByRoom().put(roomId, sorted(roomStays));
+                staysByClient().put(id, stay);
+                RoomInfo room = readRooms().get(roomId);
+                if (room != null) {
+                    byType().merge(room.roomType(), TypeCounters.EMPTY.plus(0, 0, 1), OccupancyView::sum);
+                }
+            }
+        }
+
+        public void clientDeleted(Integer id) {
+            if (id == null) {
+                return;
+            }
+            clientsSeen.put(id, DELETED);
+            Stay previous = readStaysByClient().get(id);
+            if (previous != null) {
+                removeStay(previous);
+            }
+        }
+
+        private void removeStay(Stay stay) {
+            List<Stay> roomStays = staysOf(stay.roomId()).stream()
+                    .filter(s -> s.clientId() != stay.clientId())
+                    .toList();
+            if (roomStays.isEmpty()) {
+                staysByRoom().remove(stay.roomId());
+            } else {
+                staysByRoom().put(stay.roomId(), roomStays);
+            }
+            staysByClient().remove(stay.clientId());
+            RoomInfo room = readRooms().get(stay.roomId());
+            if (room != null) {
+                byType().merge(room.roomType(), TypeCounters.EMPTY.plus(0, 0, -1), OccupancyView::sum);
+            }
+        }
+
+        private void publish() {
+            roomsSeen.forEach((id, version) -> seen(roomVersions, id, version));
+            clientsSeen.forEach((id, version) -> seen(clientVersions, id, version));
+            if (rooms == null && staysByRoom == null && staysByClient == null && byType == null) {
+                return;
+            }
+            if (byType != null) {
+                byType.values().removeIf(TypeCounters.EMPTY::equals);
+            }
+            OccupancyView.this.publish(new Snapshot(base.version() + 1, frozen(rooms, base.rooms()),
+                    frozen(staysByRoom, base.staysByRoom()), frozen(staysByClient, base.staysByClient()),
+                    frozen(byType, base.byType())));
+        }
+
+        private Map<Integer, RoomInfo> readRooms() {
+            return rooms != null ? rooms : base.rooms();
+        }
+
+        private Map<Integer, Stay> readStaysByClient() {
+            return staysByClient != null ? staysByClient : base.staysByClient();
+        }
+
+        private List<Stay> staysOf(int roomId) {
+            return (staysByRoom != null ? staysByRoom : base.staysByRoom()).getOrDefault(roomId, List.of());
+        }
+
+        private Map<Integer, RoomInfo> rooms() {
+            if (rooms == null) {
+                rooms = new HashMap<>(base.rooms());
+            }
+            return rooms;
+        }
+
+        private Map<Integer, List<Stay>> staysByRoom() {
+            if (staysByRoom == null) {
+                staysByRoom = new HashMap<>(base.staysByRoom());
+            }
+            return staysByRoom;
+        }
+
+        private Map<Integer, Stay> staysByClient() {
+            if (staysByClient == null) {
+                staysByClient = new HashMap<>(base.staysByClient());
+            }
+            return staysByClient;
+        }
+
+        private Map<String, TypeCounters> byType() {
+            if (byType == null) {
+                byType = new HashMap<>(base.byType());
+            }
+            return byType;
+        }
+    }
+
+    /**
+     * Событие не старше применённого: запоминает его версию до публикации
+     */
+    private static boolean accepted(Map<Integer, Long> committed, Map<Integer, Long> pending, int id, Long version) {
+        Long last = lastSeen(committed, pending, id);
+        if (last != null && (last == DELETED || (version != null && version < last))) {
+            logger.debug("Устаревшее событие для строки {}: версия {}, применена {}", id, version, last);
+            return false;
+        }
+        if (version != null) {
+            pending.put(id, version);
+        }
+        return true;
+    }
+
+    private static Long lastSeen(Map<Integer, Long> committed, Map<Integer, Long> pending, int id) {
+        Long pendingVersion = pending.get(id);
+        return pendingVersion != null ? pendingVersion : committed.get(id);
+    }
+
+    private static void seen(Map<Integer, Long> versions, int id, Long version) {
+        if (version != null) {
+            versions.merge(id, version, Math::max);
+        }
+    }
+
+    private void publish(Snapshot next) {
+        snapshot = next;
+    }
+
+    private static <K, V> Map<K, V> frozen(Map<K, V> changed, Map<K, V> unchanged) {
+        return changed != null ? Collections.unmodifiableMap(changed) : unchanged;
+    }
+
+    private static TypeCounters sum(TypeCounters a, TypeCounters b) {
+        return a.plus(b.rooms(), b.available(), b.stays());
+    }
+
+    private static List<Stay> sorted(List<Stay> stays) {
+        List<Stay> copy = new ArrayList<>(stays);
+        copy.sort(BY_CHECK_IN);
+        return List.copyOf(copy);
+    }
+
+    private static String guestName(String firstName, String lastName) {
+        if (firstName == null) {
+            return lastName;
+        }
+        return lastName == null ? firstName : firstName + " " + lastName;
+    }
+}
@@ -0,0 +1,522 @@
+package com.hoteldb.labs.occupancy;
+
+import com.hoteldb.labs.jdbc.ClientDAO;
+import com.hoteldb.labs.jdbc.RoomDAO;
+import com.hoteldb.labs.model.Client;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Свободные номера на период и проверка пересечений бронирований без обхода всех клиентов.
+ * <p>
+ * Проживание — полуинтервал дней [заезд, выезд): в день выезда номер уже свободен, как и в
+ * {@link ClientDAO#findClientsByStayOverlapping}. Без даты выезда проживание бессрочное, без даты заезда
+ * это не бронь и в индекс не попадает.
+ * <p>
+ * По каждому номеру хранятся отсортированные по заезду массивы дней эпохи и префиксный максимум выездов.
+ * Пересечение с [from, to) — бинарный поиск последнего заезда раньше {@code to} и сравнение максимума выездов
+ * до него с {@code from}, то есть O(log n) на номер. Номера одного типа отсортированы по цене, поэтому фильтр
+ * по цене — тоже бинарный поиск.
+ * <p>
+ * Чтения не берут блокировок: массивы номера неизменяемы и заменяются целиком (copy-on-write),
+ * записи в один номер идут под его монитором, справочник номеров пересобирается под монитором движка.
+ */
+public class RoomAvailabilityEngine {
+    private static final Logger logger = LoggerFactory.getLogger(RoomAvailabilityEngine.class);
+
+    /**
+     * День выезда бессрочного проживания
+     */
+    private static final int OPEN_END = Integer.MAX_VALUE;
+
+    private static final Comparator<RoomSlot> BY_PRICE = Comparator
+            .comparing((RoomSlot slot) -> slot.spec.pricePerNight())
+            .thenComparingInt(slot -> slot.spec.id());
+
+    /**
+     * Номер в индексе
+     */
+    public record RoomSpec(int id, String roomType, BigDecimal pricePerNight) {
+        public RoomSpec {
+            if (roomType == null || pricePerNight == null) {
+                throw new IllegalArgumentException("roomType and pricePerNight are required");
+            }
+        }
+    }
+
+    /**
+     * Проживание клиента; {@code checkOut == null} — дата выезда неизвестна
+     */
+    public record Stay(int clientId, int roomId, LocalDate checkIn, LocalDate checkOut) {
+        public Stay {
+            if (checkIn == null) {
+                throw new IllegalArgumentException("checkIn is required");
+            }
+            if (checkOut != null && !checkOut.isAfter(checkIn)) {
+                throw new IllegalArgumentException("checkOut must be after checkIn");
+            }
+        }
+    }
+
+    private volatile Catalog catalog;
+
+    private RoomAvailabilityEngine(Catalog catalog) {
+        this.catalog = catalog;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Построить индекс по текущему содержимому БД. Таблицы читаются курсором ({@code forEach}),
+     * клиенты без номера или даты заезда и с выездом не позже заезда пропускаются.
+     */
+    public static RoomAvailabilityEngine load(RoomDAO roomDAO, ClientDAO clientDAO) throws SQLException {
+        if (roomDAO == null || clientDAO == null) {
+            throw new IllegalArgumentException("roomDAO and clientDAO are required");
+        }
+        long started = System.nanoTime();
+        Builder builder = builder();
+        roomDAO.forEach(room -> builder.addRoom(new RoomSpec(room.getId(), room.getRoomType(), room.getPricePerNight())));
+        long[] skipped = {0};
+        clientDAO.forEach(client -> {
+            if (isBooking(client)) {
+                builder.addStay(new Stay(client.getId(), client.getRoomId(), client.getCheckInDate(), client.getCheckOutDate()));
+            } else {
+                skipped[0]++;
+            }
+        });
+        RoomAvailabilityEngine engine = builder.build();
+        logger.info("Индекс занятости построен: номеров {}, проживаний {}, пропущено клиентов {} за {} мс",
+                engine.roomCount(), engine.stayCount(), skipped[0], (System.nanoTime() - started) / 1_000_000);
+        return engine;
+    }
+
+    private static boolean isBooking(Client client) {
+        return client.getRoomId() != null && client.getCheckInDate() != null
+                && (client.getCheckOutDate() == null || client.getCheckOutDate().isAfter(client.getCheckInDate()));
+    }
+
+    public int roomCount() {
+        return catalog.rooms.size();
+    }
+
+    public long stayCount() {
+        long count = 0;
+        for (RoomSlot slot : catalog.byPrice) {
+            count += slot.intervals.size();
+        }
+        return count;
+    }
+
+    public RoomSpec room(int roomId) {
+        RoomSlot slot = catalog.rooms.get(roomId);
+        return slot == null ? null : slot.spec;
+    }
+
+    /**
+     * Номер свободен на всём периоде [from, to)
+     */
+    public boolean isFree(int roomId, LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return !slot(roomId).intervals.overlaps(day(from), day(to));
+    }
+
+    /**
+     * Проживания, пересекающиеся с периодом [from, to), по дате заезда
+     */
+    public List<Stay> conflicts(int roomId, LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return slot(roomId).intervals.overlapping(roomId, day(from), day(to));
+    }
+
+    /**
+     * Номера, свободные на всём периоде [from, to), по возрастанию цены
+     *
+     * @param roomType тип номера или null — любой
+     * @param maxPrice верхняя граница цены за ночь включительно или null — без ограничения
+     */
+    public List<RoomSpec> freeRooms(LocalDate from, LocalDate to, String roomType, BigDecimal maxPrice) {
+        checkRange(from, to);
+        Catalog current = catalog;
+        RoomSlot[] candidates = roomType == null ? current.byPrice : current.byType.get(roomType);
+        if (candidates == null) {
+            return List.of();
+        }
+        int limit = maxPrice == null ? candidates.length : countNotAbove(candidates, maxPrice);
+        int fromDay = day(from);
+        int toDay = day(to);
+        List<RoomSpec> free = new ArrayList<>();
+        for (int i = 0; i < limit; i++) {
+            RoomSlot slot = candidates[i];
+            if (!slot.intervals.overlaps(fromDay, toDay)) {
+                free.add(slot.spec);
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Добавить проживание, если номер на эти даты свободен. Проверка и вставка атомарны
+     * относительно других записей в тот же номер.
+     *
+     * @return false — номер занят, индекс не изменился
+     */
+    public boolean tryAddStay(Stay stay) {
+        if (stay == null) {
+            throw new IllegalArgumentException("stay cannot be null");
+        }
+        int start = day(stay.checkIn());
+        int end = endDay(stay.checkOut());
+        while (true) {
+            RoomSlot slot = slot(stay.roomId());
+            synchronized (slot) {
+                if (slot.retired) {
+                    continue;
+                }
+                if (slot.intervals.overlaps(start, end)) {
+                    return false;
+                }
+                slot.intervals = slot.intervals.with(stay.clientId(), start, end);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Убрать проживание клиента из номера
+     *
+     * @return false — такого проживания в индексе нет
+     */
+    public boolean removeStay(int roomId, int clientId) {
+        while (true) {
+            RoomSlot slot = slot(roomId);
+            synchronized (slot) {
+                if (slot.retired) {
+                    continue;
+                }
+                Intervals current = slot.intervals;
+                slot.intervals = current.without(clientId);
+                return slot.intervals != current;
+            }
+        }
+    }
+
+    /**
+     * Добавить номер или заменить тип и цену существующего; проживания номера сохраняются
+     */
+    public synchronized void putRoom(RoomSpec room) {
+        if (room == null) {
+            throw new IllegalArgumentException("room cannot be null");
+        }
+        Map<Integer, RoomSlot> rooms = new HashMap<>(catalog.rooms);
+        RoomSlot previous = rooms.get(room.id());
+        RoomSlot slot = previous == null ? new RoomSlot(room, Intervals.EMPTY) : previous.moveTo(room);
+        rooms.put(room.id(), slot);
+        catalog = Catalog.of(rooms);
+    }
+
+    /**
+     * Удалить номер вместе с его проживаниями
+     *
+     * @return false — номера не было
+     */
+    public synchronized boolean removeRoom(int roomId) {
+        if (!catalog.rooms.containsKey(roomId)) {
+            return false;
+        }
+        Map<Integer, RoomSlot> rooms = new HashMap<>(catalog.rooms);
+        rooms.remove(roomId).retire();
+        catalog = Catalog.of(rooms);
+        return true;
+    }
+
+    private RoomSlot slot(int roomId) {
+        RoomSlot slot = catalog.rooms.get(roomId);
+        if (slot == null) {
+            throw new IllegalArgumentException("Unknown room: " + roomId);
+        }
+        return slot;
+    }
+
+    /**
+     * Сколько первых номеров стоят не дороже {@code maxPrice}
+     */
+    private static int countNotAbove(RoomSlot[] byPrice, BigDecimal maxPrice) {
+        int lo = 0;
+        int hi = byPrice.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (byPrice[mid].spec.pricePerNight().compareTo(maxPrice) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("from and to are required");
+        }
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("to must be after from");
+        }
+    }
+
+    private static int day(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    private static int endDay(LocalDate checkOut) {
+        return checkOut == null ? OPEN_END : day(checkOut);
+    }
+
+    private static LocalDate date(int endDay) {
+        return endDay == OPEN_END ? null : LocalDate.ofEpochDay(endDay);
+    }
+
+    /**
+     * Неизменяемый справочник номеров: по id, по цене и по типу с ценой
+     */
+    private record Catalog(Map<Integer, RoomSlot> rooms, RoomSlot[] byPrice, Map<String, RoomSlot[]> byType) {
+
+        static Catalog of(Map<Integer, RoomSlot> rooms) {
+            RoomSlot[] byPrice = rooms.values().toArray(new RoomSlot[0]);
+            Arrays.sort(byPrice, BY_PRICE);
+            Map<String, List<RoomSlot>> grouped = new HashMap<>();
+            for (RoomSlot slot : byPrice) {
+                grouped.computeIfAbsent(slot.spec.roomType(), type -> new ArrayList<>()).add(slot);
+            }
+            Map<String, RoomSlot[]> byType = new HashMap<>();
+            grouped.forEach((type, slots) -> byType.put(type, slots.toArray(new RoomSlot[0])));
+            return new Catalog(Collections.unmodifiableMap(rooms), byPrice, byType);
+        }
+    }
+
+    /**
+     * Номер и его проживания. Массивы заменяются под монитором слота, читаются без блокировок.
+     * Выведенный из справочника слот больше не пишется: запись, успевшая взять его из старого справочника,
+     * увидит {@code retired} и перечитает справочник.
+     */
+    private static final class RoomSlot {
+        final RoomSpec spec;
+        volatile Intervals intervals;
+        boolean retired;
+
+        RoomSlot(RoomSpec spec, Intervals intervals) {
+            this.spec = spec;
+            this.intervals = intervals;
+        }
+
+        /**
+         * Перенести проживания в слот с новым описанием номера
+         */
+        synchronized RoomSlot moveTo(RoomSpec spec) {
+            retired = true;
+            return new RoomSlot(spec, intervals);
+        }
+
+        synchronized void retire() {
+            retired = true;
+        }
+    }
+
+    /**
+     * Проживания одного номера, отсортированные по дню заезда.
+     * {@code maxEnds[i]} — наибольший день выезда среди первых {@code i + 1} проживаний.
+     */
+    static final class Intervals {
+        static final Intervals EMPTY = new Intervals(new int[0], new int[0], new int[0]);
+
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] clients;
+        private final int[] maxEnds;
+
+        Intervals(int[] starts, int[] ends, int[] clients) {
+            this.starts = starts;
+            this.ends = ends;
+            this.clients = clients;
+            this.maxEnds = new int[starts.length];
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < ends.length; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnds[i] = max;
+            }
+        }
+
+        int size() {
+            return starts.length;
+        }
+
+        /**
+         * Сколько проживаний начинается раньше {@code day}
+         */
+        private int startingBefore(int day) {
+            int lo = 0;
+            int hi = starts.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid] < day) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        boolean overlaps(int from, int to) {
+            int n = startingBefore(to);
+            return n > 0 && maxEnds[n - 1] > from;
+        }
+
+        List<Stay> overlapping(int roomId, int from, int to) {
+            List<Stay> found = new ArrayList<>();
+            for (int i = startingBefore(to) - 1; i >= 0 && maxEnds[i] > from; i--) {
+                if (ends[i] > from) {
+                    found.add(new Stay(clients[i], roomId, LocalDate.ofEpochDay(starts[i]), date(ends[i])));
+                }
+            }
+            Collections.reverse(found);
+            return found;
+        }
+
+        Intervals with(int clientId, int start, int end) {
+            int at = startingBefore(start + 1);
+            return new Intervals(insert(starts, at, start), insert(ends, at, end), insert(clients, at, clientId));
+        }
+
+        Intervals without(int clientId) {
+            for (int i = 0; i < clients.length; i++) {
+                if (clients[i] == clientId) {
+                    return new Intervals(remove(starts, i), remove(ends, i), remove(clients, i));
+                }
+            }
+            return this;
+        }
+
+        private static int[] insert(int[] values, int at, int value) {
+            int[] copy = new int[values.length + 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            copy[at] = value;
+            System.arraycopy(values, at, copy, at + 1, values.length - at);
+            return copy;
+        }
+
+        private static int[] remove(int[] values, int at) {
+            int[] copy = new int[values.length - 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            System.arraycopy(values, at + 1, copy, at, values.length - at - 1);
+            return copy;
+        }
+    }
+
+    /**
+     * Пакетная загрузка: проживания копятся в массивах и сортируются один раз на номер в {@link #build()}.
+     * Пересечения между загружаемыми проживаниями не проверяются — в индекс попадают данные как есть.
+     */
+    public static final class Builder {
+        private final Map<Integer, RoomSpec> rooms = new LinkedHashMap<>();
+        private final Map<Integer, StayBuffer> stays = new HashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder addRoom(RoomSpec room) {
+            if (room == null) {
+                throw new IllegalArgumentException("room cannot be null");
+            }
+            rooms.put(room.id(), room);
+            return this;
+        }
+
+        public Builder addStay(Stay stay) {
+            if (stay == null) {
+                throw new IllegalArgumentException("stay cannot be null");
+            }
+            stays.computeIfAbsent(stay.roomId(), id -> new StayBuffer())
+                    .add(day(stay.checkIn()), endDay(stay.checkOut()), stay.clientId());
+            return this;
+        }
+
+        /**
+         * Проживания в номерах, которых нет среди {@link #addRoom}, отбрасываются
+         */
+        public RoomAvailabilityEngine build() {
+            Map<Integer, RoomSlot> slots = new HashMap<>(rooms.size() * 2);
+            for (RoomSpec room : rooms.values()) {
+                StayBuffer buffer = stays.get(room.id());
+                slots.put(room.id(), new RoomSlot(room, buffer == null ? Intervals.EMPTY : buffer.sorted()));
+            }
+            List<Integer> unknown = unknownRooms(slots.keySet());
+            if (!unknown.isEmpty()) {
+                logger.warn("Проживания в неизвестных номерах отброшены: {}", unknown);
+            }
+            return new RoomAvailabilityEngine(Catalog.of(slots));
+        }
+
+        private List<Integer> unknownRooms(Collection<Integer> known) {
+            return stays.keySet().stream().filter(id -> !known.contains(id)).sorted().toList();
+        }
+    }
+
+    /**
+     * Растущие массивы проживаний одного номера
+     */
+    private static final class StayBuffer {
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private int[] clients = new int[8];
+        private int size;
+
+        void add(int start, int end, int clientId) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                clients = Arrays.copyOf(clients, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            clients[size] = clientId;
+            size++;
+        }
+
+        /**
+         * Сортировка по заезду: старшие 32 бита ключа — день со знаком, младшие — позиция в буфере
+         */
+        Intervals sorted() {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) starts[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] sortedStarts = new int[size];
+            int[] sortedEnds = new int[size];
+            int[] sortedClients = new int[size];
+            for (int i = 0; i < size; i++) {
+                int from = (int) keys[i];
+                sortedStarts[i] = starts[from];
+                sortedEnds[i] = ends[from];
+                sortedClients[i] = clients[from];
+            }
+            return new Intervals(sortedStarts, sortedEnds, sortedClients);
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.hoteldb.labs.web;
 
+import com.hoteldb.labs.jpa.JpaFactory;
 import com.hoteldb.labs.jpa.entity.UserRole;
+import com.hoteldb.labs.jpa.service.UniversalRelationService;
 import com.hoteldb.labs.jpa.service.UserService;
+import com.hoteldb.labs.occupancy.OccupancyView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,7 +18,28 @@ public class AppBootstrapListener implements ServletContextListener {
 
     @Override
     public void contextInitialized(ServletContextEvent sce) {
+        // заодно создаёт общую EntityManagerFactory — первый вход пользователя её уже не ждёт
         ensureAdminUserExists();
+        installOccupancyView();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        OccupancyView.uninstall();
+        JpaFactory.closeAll();
+    }
+
+    /**
+     * Построить представление занятости один раз; дальше его обновляют записи сервисов и DAO
+     */
+    private void installOccupancyView() {
+        try {
+            OccupancyView view = new OccupancyView(new UniversalRelationService());
+            view.reload();
+            OccupancyView.install(view);
+        } catch (Exception e) {
+            logger.error("Failed to build occupancy view: {}", e.getMessage(), e);
+        }
     }
 
     private void ensureAdminUserExists() {
@@ -3,6 +3,7 @@ package com.hoteldb.labs.web;
 import com.hoteldb.labs.jpa.entity.UserEntity;
 import com.hoteldb.labs.jpa.service.RoomService;
 import com.hoteldb.labs.jpa.service.UserService;
+import com.hoteldb.labs.occupancy.OccupancyView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,6 +14,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.Optional;
 
 @WebServlet(name = "WelcomeServlet", urlPatterns = "/welcome")
@@ -44,6 +46,12 @@ public class WelcomeServlet extends HttpServlet {
             } finally {
                 roomService.close();
             }
+            // занятость — из представления в памяти, без соединения rooms/clients на каждый запрос
+            OccupancyView occupancy = OccupancyView.installed();
+            if (occupancy != null) {
+                request.setAttribute("occupancy", occupancy.snapshot());
+                request.setAttribute("today", LocalDate.now());
+            }
         } else {
             // Lab requirement: user sees a different table. We show only the current user's row from `users`.
             UserService userService = new UserService();
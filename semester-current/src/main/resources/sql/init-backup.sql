@@ -19,6 +19,7 @@ CREATE TABLE IF NOT EXISTS rooms (
     room_type VARCHAR(50) NOT NULL,
     price_per_night DECIMAL(10, 2) NOT NULL,
     is_available BOOLEAN DEFAULT TRUE,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
@@ -32,11 +33,19 @@ CREATE TABLE IF NOT EXISTS clients (
     room_id INT,
     check_in_date DATE,
     check_out_date DATE,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     CONSTRAINT fk_clients_room
         FOREIGN KEY (room_id) REFERENCES rooms(id) ON DELETE SET NULL
 );
 
+-- Indexes for keyset pagination and filtered queries (same as init.sql)
+CREATE INDEX IF NOT EXISTS idx_rooms_type_available_id ON rooms (room_type, is_available, id);
+CREATE INDEX IF NOT EXISTS idx_rooms_available_id ON rooms (is_available, id);
+CREATE INDEX IF NOT EXISTS idx_rooms_price ON rooms (price_per_night);
+CREATE INDEX IF NOT EXISTS idx_clients_room_id ON clients (room_id, id);
+CREATE INDEX IF NOT EXISTS idx_clients_stay ON clients (check_in_date, check_out_date);
+
 -- Create users table (for Lab3/Lab4 auth)
 CREATE TABLE IF NOT EXISTS users (
     id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
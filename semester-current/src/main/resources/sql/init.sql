@@ -9,7 +9,16 @@ CREATE TABLE IF NOT EXISTS rooms (
     room_type VARCHAR(50) NOT NULL,
     price_per_night DECIMAL(10, 2) NOT NULL,
     is_available BOOLEAN DEFAULT TRUE,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- оптимистическая блокировка (RoomEntity/ClientEntity @Version); RoomDAO/ClientDAO.update тоже увеличивают
+    version BIGINT NOT NULL DEFAULT 0,
+    -- отметка изменений для инкрементальной резервной копии (DatabaseBackupService, режим INCREMENTAL)
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_rooms_updated_at (updated_at),
+    -- keyset-пагинация с фильтрами RoomDAO.findRooms: равенства впереди, id последним
+    INDEX idx_rooms_type_available_id (room_type, is_available, id),
+    INDEX idx_rooms_available_id (is_available, id),
+    INDEX idx_rooms_price (price_per_night)
 );
 
 -- Create clients table
@@ -23,6 +32,12 @@ CREATE TABLE IF NOT EXISTS clients (
     check_in_date DATE,
     check_out_date DATE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_clients_updated_at (updated_at),
+    -- ClientDAO.findClientsByRoomId / findClientsByStayOverlapping
+    INDEX idx_clients_room_id (room_id, id),
+    INDEX idx_clients_stay (check_in_date, check_out_date),
     FOREIGN KEY (room_id) REFERENCES rooms(id) ON DELETE SET NULL
 );
 
@@ -35,6 +50,44 @@ CREATE TABLE IF NOT EXISTS users (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Журнал изменений для репликации в резервную БД (ChangeReplicator): триггеры пишут id изменённой строки,
+-- репликатор переносит её текущее состояние и удаляет применённые записи
+CREATE TABLE IF NOT EXISTS change_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    table_name VARCHAR(64) NOT NULL,
+    row_id INT NOT NULL,
+    op CHAR(1) NOT NULL,
+    changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+);
+
+DROP TRIGGER IF EXISTS trg_rooms_change_insert;
+DROP TRIGGER IF EXISTS trg_rooms_change_update;
+DROP TRIGGER IF EXISTS trg_rooms_change_delete;
+DROP TRIGGER IF EXISTS trg_clients_change_insert;
+DROP TRIGGER IF EXISTS trg_clients_change_update;
+DROP TRIGGER IF EXISTS trg_clients_change_delete;
+
+CREATE TRIGGER trg_rooms_change_insert AFTER INSERT ON rooms FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id, op) VALUES ('rooms', NEW.id, 'I');
+CREATE TRIGGER trg_rooms_change_update AFTER UPDATE ON rooms FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id, op) VALUES ('rooms', NEW.id, 'U');
+CREATE TRIGGER trg_rooms_change_delete AFTER DELETE ON rooms FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id, op) VALUES ('rooms', OLD.id, 'D');
+CREATE TRIGGER trg_clients_change_insert AFTER INSERT ON clients FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id, op) VALUES ('clients', NEW.id, 'I');
+CREATE TRIGGER trg_clients_change_update AFTER UPDATE ON clients FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id, op) VALUES ('clients', NEW.id, 'U');
+CREATE TRIGGER trg_clients_change_delete AFTER DELETE ON clients FOR EACH ROW
+    INSERT INTO change_log (table_name, row_id, op) VALUES ('clients', OLD.id, 'D');
+
+-- Счётчики id для JPA с db.jpa.pooledIds=true (META-INF/orm-pooled-ids.xml, pooled-lo): блок выдаёт id
+-- next_val+1 .. next_val+50. Пока JDBC DAO вставляют через AUTO_INCREMENT, id могут совпасть —
+-- включайте пулы, только когда rooms/clients пишет один JPA, и засевайте счётчик заново после чужих вставок.
+CREATE TABLE IF NOT EXISTS id_generators (
+    sequence_name VARCHAR(255) NOT NULL PRIMARY KEY,
+    next_val BIGINT
+);
+
 -- Insert sample data
 INSERT INTO rooms (room_number, room_type, price_per_night, is_available) VALUES
 ('101', 'Standard', 50.00, TRUE),
@@ -66,3 +119,10 @@ INSERT INTO users (username, password, role) VALUES
 ('admin', 'admin', 'ADMIN'),
 ('user', 'user', 'USER');
 
+-- счётчики начинаются после уже существующих строк
+INSERT INTO id_generators (sequence_name, next_val)
+SELECT 'rooms', COALESCE(MAX(id), 0) FROM rooms
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
+INSERT INTO id_generators (sequence_name, next_val)
+SELECT 'clients', COALESCE(MAX(id), 0) FROM clients
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
@@ -0,0 +1,12 @@
+-- Миграция основной БД (MySQL), созданной до появления updated_at в init.sql.
+-- Без этого столбца инкрементальная копия (DatabaseBackupService, режим INCREMENTAL) видит только
+-- новые id: изменения существующих строк не переносятся. Выполняется один раз.
+USE hotel_db;
+
+ALTER TABLE rooms
+    ADD COLUMN updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    ADD INDEX idx_rooms_updated_at (updated_at);
+
+ALTER TABLE clients
+    ADD COLUMN updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    ADD INDEX idx_clients_updated_at (updated_at);
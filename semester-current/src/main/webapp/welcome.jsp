@@ -1,5 +1,8 @@
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <%@ page import="java.util.List" %>
+<%@ page import="java.util.Map" %>
+<%@ page import="java.time.LocalDate" %>
+<%@ page import="com.hoteldb.labs.occupancy.OccupancyView" %>
 <%@ page import="com.hoteldb.labs.jpa.entity.RoomEntity" %>
 <%@ page import="com.hoteldb.labs.jpa.entity.UserEntity" %>
 <%
@@ -40,6 +43,8 @@
         <%
             List<RoomEntity> rooms = (List<RoomEntity>) request.getAttribute("rooms");
             if (rooms == null) rooms = List.of();
+            OccupancyView.Snapshot occupancy = (OccupancyView.Snapshot) request.getAttribute("occupancy");
+            LocalDate today = (LocalDate) request.getAttribute("today");
         %>
         <div class="table-responsive">
             <table class="table table-striped table-bordered align-middle">
@@ -50,6 +55,7 @@
                     <th>Type</th>
                     <th>Price</th>
                     <th>Available</th>
+                    <% if (occupancy != null) { %><th>Guests today</th><% } %>
                 </tr>
                 </thead>
                 <tbody>
@@ -60,11 +66,40 @@
                         <td><%= r.getRoomType() %></td>
                         <td><%= r.getPricePerNight() %></td>
                         <td><%= Boolean.TRUE.equals(r.getIsAvailable()) ? "Yes" : "No" %></td>
+                        <% if (occupancy != null) { %>
+                        <td><%= occupancy.stays(r.getId()).stream().filter(s -> s.activeOn(today)).count() %></td>
+                        <% } %>
                     </tr>
                 <% } %>
                 </tbody>
             </table>
         </div>
+
+        <% if (occupancy != null) { %>
+        <h2 class="h5 mt-4">Occupancy by room type</h2>
+        <div class="table-responsive">
+            <table class="table table-striped table-bordered align-middle">
+                <thead class="table-light">
+                <tr>
+                    <th>Type</th>
+                    <th>Rooms</th>
+                    <th>Available</th>
+                    <th>Stays</th>
+                </tr>
+                </thead>
+                <tbody>
+                <% for (Map.Entry<String, OccupancyView.TypeCounters> e : occupancy.byType().entrySet()) { %>
+                    <tr>
+                        <td><%= e.getKey() %></td>
+                        <td><%= e.getValue().rooms() %></td>
+                        <td><%= e.getValue().available() %></td>
+                        <td><%= e.getValue().stays() %></td>
+                    </tr>
+                <% } %>
+                </tbody>
+            </table>
+        </div>
+        <% } %>
     <% } else { %>
         <h2 class="h5 mt-4">Your account (user view)</h2>
         <%
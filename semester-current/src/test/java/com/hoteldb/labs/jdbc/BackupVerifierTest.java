@@ -0,0 +1,118 @@
+package com.hoteldb.labs.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackupVerifierTest {
+
+    private static DatabaseConnection connection(String name) {
+        Properties props = new Properties();
+        props.setProperty("db.driver", "org.h2.Driver");
+        props.setProperty("db.url", "jdbc:h2:mem:primary_verify_" + name + ";DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.username", "sa");
+        props.setProperty("db.password", "");
+
+        props.setProperty("db.backup.driver", "org.h2.Driver");
+        props.setProperty("db.backup.url", "jdbc:h2:mem:backup_verify_" + name + ";DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.backup.username", "sa");
+        props.setProperty("db.backup.password", "");
+        props.setProperty("db.backup.checksumRangeSize", "10");
+        return new DatabaseConnection(props);
+    }
+
+    private static void fillPrimary(DatabaseConnection db) throws Exception {
+        try (Connection primary = db.openPrimaryConnection(); Statement stmt = primary.createStatement()) {
+            for (BackupTable table : BackupTable.ALL) {
+                stmt.execute(table.backupDdl());
+            }
+            for (int id = 1; id <= 50; id++) {
+                stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night, is_available) VALUES (" +
+                        id + ", 'R" + id + "', 'Standard', 50.00, TRUE)");
+            }
+            stmt.execute("INSERT INTO clients (id, first_name, last_name, room_id, check_in_date) VALUES " +
+                    "(1, 'John', 'Doe', 1, DATE '2025-01-01')");
+        }
+    }
+
+    @Test
+    void testConstructorNullThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new BackupVerifier(null));
+    }
+
+    @Test
+    void testVerifyMatchesAfterFullBackup() throws Exception {
+        DatabaseConnection db = connection("match");
+        fillPrimary(db);
+        new DatabaseBackupService(db).backupPrimaryToBackup();
+
+        BackupVerifier.VerificationReport report = new BackupVerifier(db).verify();
+
+        assertTrue(report.matches());
+        assertEquals(6, report.table("rooms").rangesChecked());
+        assertEquals(0, report.table("rooms").rangesMismatched());
+        // без расхождений каждая сторона читается ровно один раз
+        assertEquals(2 * 51, report.rowsRead());
+    }
+
+    @Test
+    void testVerifyReportsDifferingIdsInMismatchedRangesOnly() throws Exception {
+        DatabaseConnection db = connection("diff");
+        fillPrimary(db);
+        new DatabaseBackupService(db).backupPrimaryToBackup();
+
+        try (Connection backup = db.openBackupConnection(); Statement stmt = backup.createStatement()) {
+            stmt.execute("DELETE FROM rooms WHERE id = 12");
+            stmt.execute("UPDATE rooms SET price_per_night = 55.00 WHERE id = 14");
+            stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night) VALUES (77, 'X', 'Ghost', 1.00)");
+            stmt.execute("UPDATE clients SET last_name = 'Smith' WHERE id = 1");
+        }
+
+        BackupVerifier.VerificationReport report = new BackupVerifier(db).verify();
+
+        assertFalse(report.matches());
+        BackupVerifier.TableDiff rooms = report.table("rooms");
+        assertEquals(List.of(12L), rooms.missingInBackup());
+        assertEquals(List.of(77L), rooms.extraInBackup());
+        assertEquals(List.of(14L), rooms.changed());
+        assertEquals(7, rooms.rangesChecked());
+        assertEquals(2, rooms.rangesMismatched());
+        assertEquals(List.of(1L), report.table("clients").changed());
+    }
+
+    @Test
+    void testVerifyWithoutBackupConfigThrows() {
+        Properties props = new Properties();
+        props.setProperty("db.driver", "org.h2.Driver");
+        props.setProperty("db.url", "jdbc:h2:mem:primary_verify_nobackup;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.username", "sa");
+        props.setProperty("db.password", "");
+
+        BackupVerifier verifier = new BackupVerifier(new DatabaseConnection(props));
+        assertThrows(IllegalStateException.class, verifier::verify);
+    }
+
+    @Test
+    void testRowHashIgnoresDriverRepresentation() {
+        LocalDateTime time = LocalDateTime.of(2025, 1, 1, 10, 0);
+        long hash = BackupVerifier.rowHash(new Object[]{1, new BigDecimal("50.00"), true, Timestamp.valueOf(time),
+                Date.valueOf(LocalDate.of(2025, 1, 1)), null});
+        long sameValues = BackupVerifier.rowHash(new Object[]{1L, new BigDecimal("50.0"), 1, time,
+                LocalDate.of(2025, 1, 1), null});
+
+        assertEquals(hash, sameValues);
+        assertNotEquals(hash, BackupVerifier.rowHash(new Object[]{1, new BigDecimal("50.01"), true,
+                Timestamp.valueOf(time), Date.valueOf(LocalDate.of(2025, 1, 1)), null}));
+        assertNotEquals(BackupVerifier.rowHash(new Object[]{null, "a"}), BackupVerifier.rowHash(new Object[]{"a", null}));
+    }
+}
@@ -0,0 +1,244 @@
+package com.hoteldb.labs.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeReplicatorTest {
+
+    private static DatabaseConnection connection(String name) {
+        Properties props = new Properties();
+        props.setProperty("db.driver", "org.h2.Driver");
+        props.setProperty("db.url", "jdbc:h2:mem:primary_cdc_" + name + ";DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.username", "sa");
+        props.setProperty("db.password", "");
+
+        props.setProperty("db.backup.driver", "org.h2.Driver");
+        props.setProperty("db.backup.url", "jdbc:h2:mem:backup_cdc_" + name + ";DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.backup.username", "sa");
+        props.setProperty("db.backup.password", "");
+        return new DatabaseConnection(props);
+    }
+
+    /**
+     * Схема основной БД; в H2 триггеры пишутся на Java, поэтому журнал заполняется в тестах вручную
+     */
+    private static void createPrimary(DatabaseConnection db) throws Exception {
+        try (Connection primary = db.openPrimaryConnection(); Statement stmt = primary.createStatement()) {
+            for (BackupTable table : BackupTable.ALL) {
+                stmt.execute(table.backupDdl());
+            }
+            stmt.execute("CREATE TABLE change_log (id BIGINT AUTO_INCREMENT PRIMARY KEY, table_name VARCHAR(64) NOT NULL, " +
+                    "row_id INT NOT NULL, op CHAR(1) NOT NULL, changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3))");
+            stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night, is_available) VALUES " +
+                    "(1, '101', 'Standard', 50.00, TRUE), (2, '102', 'Deluxe', 90.00, TRUE)");
+            stmt.execute("INSERT INTO clients (id, first_name, last_name, room_id) VALUES (10, 'John', 'Doe', 1)");
+        }
+    }
+
+    private static void logChange(Statement stmt, String table, int rowId, String op) throws Exception {
+        stmt.execute("INSERT INTO change_log (table_name, row_id, op) VALUES ('" + table + "', " + rowId + ", '" + op + "')");
+    }
+
+    private static long count(Connection conn, String sql) throws Exception {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    void testConstructorNullThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new ChangeReplicator(null));
+    }
+
+    @Test
+    void testInvalidConfigRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ChangeReplicator.Config(0, 1000, 0, 600_000, true));
+        assertThrows(IllegalArgumentException.class, () -> new ChangeReplicator.Config(10, 0, 0, 600_000, true));
+        assertThrows(IllegalArgumentException.class, () -> new ChangeReplicator.Config(10, 1000, -1, 600_000, true));
+        assertThrows(IllegalArgumentException.class, () -> new ChangeReplicator.Config(10, 1000, 0, -1, true));
+    }
+
+    @Test
+    void testReplicatesInsertUpdateDeleteAndPurgesLog() throws Exception {
+        DatabaseConnection db = connection("apply");
+        createPrimary(db);
+        new DatabaseBackupService(db).backupPrimaryToBackup();
+
+        try (Connection primary = db.openPrimaryConnection(); Statement stmt = primary.createStatement()) {
+            stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night) VALUES (3, '103', 'Suite', 200.00)");
+            logChange(stmt, "rooms", 3, "I");
+            stmt.execute("UPDATE rooms SET price_per_night = 95.00 WHERE id = 2");
+            logChange(stmt, "rooms", 2, "U");
+            stmt.execute("INSERT INTO clients (id, first_name, last_name, room_id) VALUES (11, 'Jane', 'Roe', 3)");
+            logChange(stmt, "clients", 11, "I");
+            stmt.execute("DELETE FROM clients WHERE id = 10");
+            logChange(stmt, "clients", 10, "D");
+            stmt.execute("DELETE FROM rooms WHERE id = 1");
+            logChange(stmt, "rooms", 1, "D");
+        }
+
+        ChangeReplicator replicator = new ChangeReplicator(db, new ChangeReplicator.Config(100, 1000, 0, 600_000, true));
+        assertEquals(5, replicator.replicateOnce());
+        assertEquals(0, replicator.replicateOnce());
+
+        try (Connection backup = db.openBackupConnection()) {
+            assertEquals(2, count(backup, "SELECT COUNT(*) FROM rooms"));
+            assertEquals(0, count(backup, "SELECT COUNT(*) FROM rooms WHERE id = 1"));
+            assertEquals(95, count(backup, "SELECT price_per_night FROM rooms WHERE id = 2"));
+            assertEquals(11, count(backup, "SELECT id FROM clients"));
+        }
+        try (Connection primary = db.openPrimaryConnection()) {
+            assertEquals(0, count(primary, "SELECT COUNT(*) FROM change_log"));
+        }
+
+        ChangeReplicator.ReplicationStatus status = replicator.status();
+        assertEquals(5, status.lastAppliedId());
+        assertEquals(0, status.pendingChanges());
+        assertEquals(0, status.lagMillis());
+        assertEquals(5, status.appliedTotal());
+        assertTrue(new BackupVerifier(db).verify().matches());
+    }
+
+    @Test
+    void testRoomDeletionDetachesClientsWithoutTheirLogEntries() throws Exception {
+        DatabaseConnection db = connection("cascade");
+        createPrimary(db);
+        new DatabaseBackupService(db).backupPrimaryToBackup();
+        try (Connection primary = db.openPrimaryConnection(); Statement stmt = primary.createStatement()) {
+            // так выглядит ON DELETE SET NULL в MySQL: каскад триггеры не вызывает, в журнале только rooms
+            stmt.execute("UPDATE clients SET room_id = NULL WHERE room_id = 1");
+            stmt.execute("DELETE FROM rooms WHERE id = 1");
+            logChange(stmt, "rooms", 1, "D");
+        }
+
+        ChangeReplicator replicator = new ChangeReplicator(db, new ChangeReplicator.Config(100, 1000, 0, 600_000, true));
+        assertEquals(1, replicator.replicateOnce());
+
+        try (Connection backup = db.openBackupConnection()) {
+            assertEquals(0, count(backup, "SELECT COUNT(*) FROM rooms WHERE id = 1"));
+            assertEquals(1, count(backup, "SELECT COUNT(*) FROM clients WHERE id = 10 AND room_id IS NULL"));
+        }
+        assertTrue(new BackupVerifier(db).verify().matches());
+    }
+
+    @Test
+    void testReapplyingSameChangesIsIdempotent() throws Exception {
+        DatabaseConnection db = connection("idempotent");
+        createPrimary(db);
+        new DatabaseBackupService(db).backupPrimaryToBackup();
+        try (Connection primary = db.openPrimaryConnection(); Statement stmt = primary.createStatement()) {
+            stmt.execute("UPDATE rooms SET room_type = 'Suite' WHERE id = 1");
+            logChange(stmt, "rooms", 1, "U");
+            logChange(stmt, "rooms", 1, "U");
+            logChange(stmt, "rooms", 42, "D");
+        }
+
+        ChangeReplicator replicator = new ChangeReplicator(db, new ChangeReplicator.Config(100, 1000, 0, 600_000, false));
+        assertEquals(3, replicator.replicateOnce());
+        // позиция потеряна — те же записи применяются ещё раз
+        try (Connection backup = db.openBackupConnection(); Statement stmt = backup.createStatement()) {
+            stmt.execute("DELETE FROM backup_metadata WHERE table_name = 'change_log'");
+        }
+        assertEquals(3, replicator.replicateOnce());
+
+        assertTrue(new BackupVerifier(db).verify().matches());
+        assertEquals(3, replicator.status().lastAppliedId());
+    }
+
+    @Test
+    void testStopsBeforeFreshGapInLog() throws Exception {
+        DatabaseConnection db = connection("gap");
+        createPrimary(db);
+        new DatabaseBackupService(db).backupPrimaryToBackup();
+        try (Connection primary = db.openPrimaryConnection(); Statement stmt = primary.createStatement()) {
+            stmt.execute("UPDATE rooms SET room_type = 'A' WHERE id = 1");
+            logChange(stmt, "rooms", 1, "U");
+            stmt.execute("UPDATE rooms SET room_type = 'B' WHERE id = 2");
+            // запись 2 ещё не зафиксирована конкурирующей транзакцией
+            stmt.execute("INSERT INTO change_log (id, table_name, row_id, op) VALUES (3, 'rooms', 2, 'U')");
+        }
+
+        ChangeReplicator waiting = new ChangeReplicator(db, new ChangeReplicator.Config(100, 1000, 60_000, 600_000, false));
+        assertEquals(1, waiting.replicateOnce());
+        assertEquals(0, waiting.replicateOnce());
+        ChangeReplicator.ReplicationStatus status = waiting.status();
+        assertEquals(1, status.lastAppliedId());
+        assertEquals(1, status.pendingChanges());
+
+        // позиция видна и новому репликатору, ещё не сделавшему ни одного прохода
+        assertEquals(1, new ChangeReplicator(db).status().lastAppliedId());
+
+        ChangeReplicator impatient = new ChangeReplicator(db, new ChangeReplicator.Config(100, 1000, 0, 600_000, true));
+        assertEquals(1, impatient.replicateOnce());
+        try (Connection backup = db.openBackupConnection()) {
+            assertEquals(1, count(backup, "SELECT COUNT(*) FROM rooms WHERE id = 2 AND room_type = 'B'"));
+        }
+        assertEquals(3, impatient.status().lastAppliedId());
+        assertEquals(1, impatient.status().openGaps());
+
+        // транзакция, дольше gapWaitMs державшая запись 2, наконец зафиксирована
+        try (Connection primary = db.openPrimaryConnection(); Statement stmt = primary.createStatement()) {
+            stmt.execute("UPDATE rooms SET room_type = 'C' WHERE id = 1");
+            stmt.execute("INSERT INTO change_log (id, table_name, row_id, op) VALUES (2, 'rooms', 1, 'U')");
+        }
+        assertEquals(1, impatient.replicateOnce());
+        assertEquals(0, impatient.replicateOnce());
+        try (Connection backup = db.openBackupConnection()) {
+            assertEquals(1, count(backup, "SELECT COUNT(*) FROM rooms WHERE id = 1 AND room_type = 'C'"));
+        }
+        try (Connection primary = db.openPrimaryConnection()) {
+            assertEquals(0, count(primary, "SELECT COUNT(*) FROM change_log"));
+        }
+        assertEquals(0, impatient.status().openGaps());
+        assertTrue(new BackupVerifier(db).verify().matches());
+    }
+
+    @Test
+    void testUnfilledGapExpiresWithWarning() throws Exception {
+        DatabaseConnection db = connection("gap_expired");
+        createPrimary(db);
+        new DatabaseBackupService(db).backupPrimaryToBackup();
+        try (Connection primary = db.openPrimaryConnection(); Statement stmt = primary.createStatement()) {
+            logChange(stmt, "rooms", 1, "U");
+            // запись 2 откатилась вместе со своей транзакцией
+            stmt.execute("INSERT INTO change_log (id, table_name, row_id, op) VALUES (3, 'rooms', 2, 'U')");
+        }
+
+        ChangeReplicator replicator = new ChangeReplicator(db, new ChangeReplicator.Config(100, 1000, 0, 0, false));
+        assertEquals(2, replicator.replicateOnce());
+        assertEquals(1, replicator.status().openGaps());
+
+        assertEquals(0, replicator.replicateOnce());
+        ChangeReplicator.ReplicationStatus status = replicator.status();
+        assertEquals(0, status.openGaps());
+        assertEquals(1, status.expiredGaps());
+    }
+
+    @Test
+    void testDrainAppliesAllBatches() throws Exception {
+        DatabaseConnection db = connection("drain");
+        createPrimary(db);
+        new DatabaseBackupService(db).backupPrimaryToBackup();
+        try (Connection primary = db.openPrimaryConnection(); Statement stmt = primary.createStatement()) {
+            for (int id = 100; id < 125; id++) {
+                stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night) VALUES (" +
+                        id + ", 'R" + id + "', 'Standard', 50.00)");
+                logChange(stmt, "rooms", id, "I");
+            }
+        }
+
+        ChangeReplicator replicator = new ChangeReplicator(db, new ChangeReplicator.Config(10, 1000, 0, 600_000, true));
+        assertEquals(25, replicator.drain());
+
+        try (Connection backup = db.openBackupConnection()) {
+            assertEquals(27, count(backup, "SELECT COUNT(*) FROM rooms"));
+        }
+    }
+}
@@ -1,16 +1,28 @@
 package com.hoteldb.labs.jdbc;
 
+import com.hoteldb.labs.jpa.JpaFactory;
+import com.hoteldb.labs.jpa.service.UniversalRelationService;
 import com.hoteldb.labs.model.Client;
 import com.hoteldb.labs.model.Room;
+import com.hoteldb.labs.occupancy.OccupancyView;
+import com.hoteldb.labs.occupancy.RoomAvailabilityEngine;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,6 +52,7 @@ class ClientDAOTest {
                     "room_type VARCHAR(50) NOT NULL, " +
                     "price_per_night DECIMAL(10, 2) NOT NULL, " +
                     "is_available BOOLEAN DEFAULT TRUE, " +
+                    "version BIGINT NOT NULL DEFAULT 0, " +
                     "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
             stmt.execute("CREATE TABLE clients (" +
                     "id INT AUTO_INCREMENT PRIMARY KEY, " +
@@ -50,6 +63,7 @@ class ClientDAOTest {
                     "room_id INT, " +
                     "check_in_date DATE, " +
                     "check_out_date DATE, " +
+                    "version BIGINT NOT NULL DEFAULT 0, " +
                     "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
         }
     }
@@ -61,6 +75,59 @@ class ClientDAOTest {
         }
     }
 
+    @Test
+    void testWritesUpdateInstalledOccupancyView() throws SQLException {
+        OccupancyView view = new OccupancyView(new UniversalRelationService("testPU"));
+        OccupancyView.install(view);
+        try {
+            LocalDate today = LocalDate.of(2025, 12, 10);
+            Room room = roomDAO.create(new Room("OV-1", "Standard", new BigDecimal("50.00"), true));
+            Client guest = new Client("Ivan", "Petrov", "ov@example.com", null, room.getId());
+            guest.setCheckInDate(today);
+            clientDAO.create(guest);
+            clientDAO.createAll(List.of(new Client("A", "B", "ov2@example.com", null, room.getId())));
+
+            assertEquals(List.of("Ivan Petrov"), view.guestsOn(room.getId(), today).stream()
+                    .map(OccupancyView.Stay::guestName).toList());
+            assertEquals(new OccupancyView.TypeCounters(1, 1, 2), view.counters("Standard"));
+
+            room.setIsAvailable(false);
+            roomDAO.update(room);
+            assertFalse(view.room(room.getId()).available());
+
+            clientDAO.delete(guest.getId());
+            assertEquals(1, view.staysFrom(room.getId(), today).size());
+            roomDAO.delete(room.getId());
+            assertNull(view.room(room.getId()));
+            assertTrue(view.snapshot().staysByClient().isEmpty());
+        } finally {
+            OccupancyView.uninstall();
+            JpaFactory.close("testPU");
+        }
+    }
+
+    @Test
+    void testLoadsRoomAvailabilityEngine() throws SQLException {
+        LocalDate today = LocalDate.of(2025, 12, 10);
+        Room standard = roomDAO.create(new Room("RA-1", "Standard", new BigDecimal("50.00"), true));
+        Room suite = roomDAO.create(new Room("RA-2", "Suite", new BigDecimal("200.00"), true));
+        Client booked = new Client("Ivan", "Petrov", "ra@example.com", null, standard.getId());
+        booked.setCheckInDate(today);
+        booked.setCheckOutDate(today.plusDays(2));
+        clientDAO.create(booked);
+        // без даты заезда — не бронь
+        clientDAO.create(new Client("Anna", "Smirnova", "ra2@example.com", null, suite.getId()));
+
+        RoomAvailabilityEngine engine = RoomAvailabilityEngine.load(roomDAO, clientDAO);
+
+        assertEquals(2, engine.roomCount());
+        assertEquals(1, engine.stayCount());
+        assertEquals(List.of(suite.getId()), engine.freeRooms(today, today.plusDays(1), null, null).stream()
+                .map(RoomAvailabilityEngine.RoomSpec::id).toList());
+        assertEquals(booked.getId(), engine.conflicts(standard.getId(), today, today.plusDays(1)).get(0).clientId());
+        assertThrows(IllegalArgumentException.class, () -> RoomAvailabilityEngine.load(null, clientDAO));
+    }
+
     @Test
     void testCreate() throws SQLException {
         Client client = new Client("John", "Doe", "john.doe@example.com", "+1234567890", null);
@@ -131,6 +198,51 @@ class ClientDAOTest {
         assertEquals("+4444444444", updated.getPhone());
     }
 
+    @Test
+    void testUpdateIncrementsVersion() throws SQLException {
+        Client client = clientDAO.create(new Client("Vera", "Lee", "vera.lee@example.com", null, null));
+        clientDAO.update(client);
+        clientDAO.update(client);
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM clients WHERE id = " + client.getId())) {
+            assertTrue(rs.next());
+            assertEquals(2, rs.getLong(1));
+        }
+    }
+
+    @Test
+    void testUpdateRejectsStaleCopy() throws SQLException {
+        Client client = clientDAO.create(new Client("Ivan", "Orlov", "ivan.orlov@example.com", null, null));
+        Client first = clientDAO.findById(client.getId());
+        Client second = clientDAO.findById(client.getId());
+
+        first.setPhone("+1010101010");
+        clientDAO.update(first);
+        second.setPhone("+2020202020");
+
+        SQLException e = assertThrows(SQLException.class, () -> clientDAO.update(second));
+        assertTrue(e.getMessage().contains("изменён другой транзакцией"));
+        assertEquals("+1010101010", clientDAO.findById(client.getId()).getPhone());
+    }
+
+    @Test
+    void testUpdateIncrementsRoomVersionInSameTransaction() throws SQLException {
+        Room room = roomDAO.create(new Room("808", "Standard", new BigDecimal("60.00"), true));
+        Client client = clientDAO.create(new Client("Nina", "Gray", "nina.gray@example.com", null, null));
+        client.setRoomId(room.getId());
+        client.setCheckInDate(LocalDate.of(2026, 1, 10));
+        clientDAO.update(client);
+
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM rooms WHERE id = " + room.getId())) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getLong(1));
+        }
+    }
+
     @Test
     void testDelete() throws SQLException {
         Client client = new Client("Charlie", "Davis", "charlie.davis@example.com", "+5555555555", null);
@@ -217,5 +329,175 @@ class ClientDAOTest {
 
         assertThrows(SQLException.class, () -> clientDAO.findAll());
     }
-}
 
+    @Test
+    void testCreateAllWithRoomsAndDates() throws SQLException {
+        Room room = roomDAO.create(new Room("201", "Standard", new java.math.BigDecimal("50.00"), true));
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Client client = new Client("Batch" + i, "Guest", "batch" + i + "@example.com", "+100" + i,
+                    i % 2 == 0 ? room.getId() : null);
+            client.setCheckInDate(LocalDate.of(2025, 1, 1).plusDays(i));
+            clients.add(client);
+        }
+        clientDAO.createAll(clients, 2);
+
+        for (Client client : clients) {
+            Client found = clientDAO.findById(client.getId());
+            assertEquals(client.getEmail(), found.getEmail());
+            assertEquals(client.getRoomId(), found.getRoomId());
+            assertEquals(client.getCheckInDate(), found.getCheckInDate());
+            assertNull(found.getCheckOutDate());
+        }
+    }
+
+    @Test
+    void testCreateAllNullThrows() {
+        assertThrows(IllegalArgumentException.class, () -> clientDAO.createAll(null));
+        assertThrows(IllegalArgumentException.class, () -> clientDAO.createAll(Collections.singletonList(null)));
+    }
+
+    @Test
+    void testCreateAllMultiRowInsert() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("db.driver", "org.h2.Driver");
+        props.setProperty("db.url", "jdbc:h2:mem:primarydb;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.username", "sa");
+        props.setProperty("db.password", "");
+        props.setProperty("db.batch.multiRowInsert", "true");
+        DatabaseConnection multiRowDb = new DatabaseConnection(props);
+        try {
+            ClientDAO multiRowDao = new ClientDAO(multiRowDb);
+            List<Client> clients = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                clients.add(new Client("Multi" + i, "Guest", "multi" + i + "@example.com", "+200" + i, null));
+            }
+            multiRowDao.createAll(clients, 4);
+
+            for (Client client : clients) {
+                Client found = clientDAO.findById(client.getId());
+                assertEquals(client.getEmail(), found.getEmail());
+                assertEquals(client.getFirstName(), found.getFirstName());
+            }
+        } finally {
+            multiRowDb.closeConnection();
+        }
+    }
+
+    /**
+     * Сравнение пропускной способности: построчная вставка, JDBC batch и многострочный INSERT (H2).
+     * Время только логируется — в H2 разница меньше, чем в MySQL, где каждый запрос идёт по сети.
+     * Запуск: {@code mvn test -Pperf}
+     */
+    @Test
+    @Tag("perf")
+    void testCreateAllThroughputComparison() throws SQLException {
+        int rows = 3000;
+        long rowByRow = timeInsert(rows, "single", clients -> {
+            for (Client client : clients) {
+                clientDAO.create(client);
+            }
+        });
+        long batched = timeInsert(rows, "batch", clients -> clientDAO.createAll(clients, 500));
+
+        Properties props = new Properties();
+        props.setProperty("db.driver", "org.h2.Driver");
+        props.setProperty("db.url", "jdbc:h2:mem:primarydb;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.username", "sa");
+        props.setProperty("db.password", "");
+        props.setProperty("db.batch.multiRowInsert", "true");
+        DatabaseConnection multiRowDb = new DatabaseConnection(props);
+        long multiRow;
+        try {
+            ClientDAO multiRowDao = new ClientDAO(multiRowDb);
+            multiRow = timeInsert(rows, "multi", clients -> multiRowDao.createAll(clients, 500));
+        } finally {
+            multiRowDb.closeConnection();
+        }
+
+        assertEquals(3 * rows, clientDAO.findAll().size());
+        LoggerFactory.getLogger(ClientDAOTest.class).info(
+                "Вставка {} клиентов: построчно {} мс, batch {} мс, multi-row {} мс",
+                rows, rowByRow / 1_000_000, batched / 1_000_000, multiRow / 1_000_000);
+    }
+
+    @FunctionalInterface
+    private interface InsertAction {
+        void insert(List<Client> clients) throws SQLException;
+    }
+
+    private long timeInsert(int rows, String prefix, InsertAction action) throws SQLException {
+        List<Client> clients = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            clients.add(new Client("First" + i, "Last" + i, prefix + i + "@example.com", "+7" + i, null));
+        }
+        long start = System.nanoTime();
+        action.insert(clients);
+        long elapsed = System.nanoTime() - start;
+        assertTrue(clients.stream().allMatch(c -> c.getId() != null));
+        return elapsed;
+    }
+
+    @Test
+    void testStreamKeepsInsertionOrder() throws SQLException {
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            clients.add(new Client("Stream" + i, "Guest", "stream" + i + "@example.com", null, null));
+        }
+        clientDAO.createAll(clients);
+
+        try (Stream<Client> stream = clientDAO.stream()) {
+            assertEquals(clients.stream().map(Client::getId).toList(), stream.map(Client::getId).toList());
+        }
+        long[] count = {0};
+        clientDAO.forEach(c -> count[0]++);
+        assertEquals(50, count[0]);
+    }
+
+    @Test
+    void testFindPageAndByRoomId() throws SQLException {
+        Room room = roomDAO.create(new Room("501", "Standard", new java.math.BigDecimal("50.00"), true));
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            clients.add(new Client("Page" + i, "Guest", "page" + i + "@example.com", null, i < 2 ? room.getId() : null));
+        }
+        clientDAO.createAll(clients);
+
+        List<Client> first = clientDAO.findPage(null, 3);
+        assertEquals(3, first.size());
+        List<Client> second = clientDAO.findPage(first.get(2).getId(), 3);
+        assertEquals(List.of(clients.get(3).getId(), clients.get(4).getId()), second.stream().map(Client::getId).toList());
+
+        List<Client> inRoom = clientDAO.findClientsByRoomId(room.getId());
+        assertEquals(List.of("Page0", "Page1"), inRoom.stream().map(Client::getFirstName).toList());
+        assertThrows(IllegalArgumentException.class, () -> clientDAO.findClientsByRoomId(null));
+        assertThrows(IllegalArgumentException.class, () -> clientDAO.findPage(null, 0));
+    }
+
+    @Test
+    void testFindClientsByStayOverlapping() throws SQLException {
+        Client early = new Client("Early", "Guest", "early@example.com", null, null);
+        early.setCheckInDate(LocalDate.of(2025, 12, 1));
+        early.setCheckOutDate(LocalDate.of(2025, 12, 5));
+        Client late = new Client("Late", "Guest", "late@example.com", null, null);
+        late.setCheckInDate(LocalDate.of(2025, 12, 10));
+        late.setCheckOutDate(LocalDate.of(2025, 12, 12));
+        Client noStay = new Client("None", "Guest", "none@example.com", null, null);
+        clientDAO.createAll(List.of(early, late, noStay));
+
+        assertEquals(List.of("Early"), names(clientDAO.findClientsByStayOverlapping(
+                LocalDate.of(2025, 12, 4), LocalDate.of(2025, 12, 10))));
+        assertTrue(clientDAO.findClientsByStayOverlapping(
+                LocalDate.of(2025, 12, 5), LocalDate.of(2025, 12, 10)).isEmpty(), "Check-out day is free");
+        assertEquals(List.of("Early", "Late"), names(clientDAO.findClientsByStayOverlapping(
+                LocalDate.of(2025, 11, 1), LocalDate.of(2026, 1, 1))));
+
+        assertThrows(IllegalArgumentException.class, () -> clientDAO.findClientsByStayOverlapping(null, LocalDate.now()));
+        assertThrows(IllegalArgumentException.class,
+                () -> clientDAO.findClientsByStayOverlapping(LocalDate.now(), LocalDate.now()));
+    }
+
+    private static List<String> names(List<Client> clients) {
+        return clients.stream().map(Client::getFirstName).toList();
+    }
+}
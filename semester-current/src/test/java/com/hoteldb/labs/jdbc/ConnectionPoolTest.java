@@ -0,0 +1,244 @@
+package com.hoteldb.labs.jdbc;
+
+import org.h2.engine.CastDataProvider;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.jdbc.JdbcStatement;
+import org.h2.jdbc.JdbcStatementBackwardsCompat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    private static final String URL = "jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1;MODE=MySQL";
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private final List<Connection> physical = new ArrayList<>();
+    private ConnectionPool pool;
+
+    private ConnectionPool.ConnectionFactory countingFactory() {
+        return () -> {
+            opened.incrementAndGet();
+            Connection c = DriverManager.getConnection(URL, "sa", "");
+            synchronized (physical) {
+                physical.add(c);
+            }
+            return c;
+        };
+    }
+
+    private ConnectionPool newPool(int min, int max, long borrowTimeoutMs, long idleTimeoutMs, long maxLifetimeMs) {
+        pool = new ConnectionPool("test", new ConnectionPool.Config(
+                min, max, borrowTimeoutMs, idleTimeoutMs, maxLifetimeMs, 1, 0), countingFactory());
+        return pool;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void testCloseReturnsConnectionToPool() throws SQLException {
+        newPool(0, 2, 1000, 0, 0);
+        try (Connection c = pool.borrow()) {
+            assertFalse(c.isClosed());
+        }
+        assertEquals(new ConnectionPool.Stats(1, 1, 0, 0), pool.getStats());
+
+        try (Connection c = pool.borrow()) {
+            assertNotNull(c);
+        }
+        assertEquals(1, opened.get(), "Second borrow should reuse the idle physical connection");
+    }
+
+    @Test
+    void testLogicallyClosedConnectionRejectsCalls() throws SQLException {
+        newPool(0, 1, 1000, 0, 0);
+        Connection c = pool.borrow();
+        c.close();
+        assertTrue(c.isClosed());
+        assertThrows(SQLException.class, c::createStatement);
+        assertDoesNotThrow(c::close, "Double close must be a no-op");
+        assertEquals(1, pool.getStats().idle());
+    }
+
+    @Test
+    void testPhysicalConnectionIsNotExposed() throws SQLException {
+        newPool(0, 1, 1000, 0, 0);
+        try (Connection c = pool.borrow()) {
+            assertSame(c, c.unwrap(Connection.class));
+            assertTrue(c.isWrapperFor(Connection.class));
+            assertFalse(c.isWrapperFor(JdbcConnection.class));
+            assertThrows(SQLException.class, () -> c.unwrap(JdbcConnection.class));
+            // интерфейсы драйвера по-прежнему раскрываются
+            assertTrue(c.isWrapperFor(CastDataProvider.class));
+            assertNotNull(c.unwrap(CastDataProvider.class));
+
+            try (Statement stmt = c.createStatement();
+                 PreparedStatement prepared = c.prepareStatement("SELECT ?", ResultSet.TYPE_FORWARD_ONLY,
+                         ResultSet.CONCUR_READ_ONLY)) {
+                assertSame(c, stmt.getConnection());
+                assertSame(c, prepared.getConnection());
+                assertSame(c, c.getMetaData().getConnection());
+                assertThrows(SQLException.class, () -> stmt.unwrap(JdbcStatement.class));
+                assertNotNull(stmt.unwrap(JdbcStatementBackwardsCompat.class));
+                try (ResultSet rs = stmt.executeQuery("SELECT 1")) {
+                    assertTrue(rs.next());
+                }
+                // close() через запрос возвращает соединение в пул, а не закрывает физическое
+                stmt.getConnection().close();
+            }
+        }
+        assertFalse(physical.get(0).isClosed());
+        assertEquals(new ConnectionPool.Stats(1, 1, 0, 0), pool.getStats());
+    }
+
+    @Test
+    void testBorrowTimesOutWhenExhausted() throws SQLException {
+        newPool(0, 1, 50, 0, 0);
+        try (Connection ignored = pool.borrow()) {
+            SQLException ex = assertThrows(SQLException.class, pool::borrow);
+            assertTrue(ex.getMessage().contains("за 50 мс"));
+        }
+    }
+
+    @Test
+    void testWaitingBorrowerGetsReleasedConnection() throws Exception {
+        newPool(0, 1, 5000, 0, 0);
+        Connection first = pool.borrow();
+        CompletableFuture<Connection> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        assertFalse(waiter.isDone());
+        first.close();
+        try (Connection second = waiter.get(5, TimeUnit.SECONDS)) {
+            assertFalse(second.isClosed());
+        }
+        assertEquals(1, opened.get());
+    }
+
+    @Test
+    void testInvalidConnectionIsReplacedOnBorrow() throws SQLException {
+        newPool(0, 1, 1000, 0, 0);
+        pool.borrow().close();
+        physical.get(0).close();
+
+        try (Connection c = pool.borrow()) {
+            assertFalse(c.isClosed());
+        }
+        assertEquals(2, opened.get());
+    }
+
+    @Test
+    void testMaxLifetimeRetiresConnection() throws Exception {
+        newPool(0, 1, 1000, 0, 20);
+        pool.borrow().close();
+        Thread.sleep(40);
+        pool.borrow().close();
+        assertEquals(2, opened.get());
+    }
+
+    @Test
+    void testReturnResetsTransactionState() throws SQLException {
+        newPool(0, 1, 1000, 0, 0);
+        try (Connection c = pool.borrow()) {
+            c.setAutoCommit(false);
+            try (Statement stmt = c.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS pool_tx (id INT)");
+            }
+        }
+        try (Connection c = pool.borrow()) {
+            assertTrue(c.getAutoCommit());
+        }
+    }
+
+    @Test
+    void testHousekeepingEvictsIdleAndRefillsMinimum() throws Exception {
+        newPool(1, 3, 1000, 10, 0);
+        Connection a = pool.borrow();
+        Connection b = pool.borrow();
+        a.close();
+        b.close();
+        assertEquals(2, pool.getStats().idle());
+
+        Thread.sleep(30);
+        pool.runHousekeeping();
+        assertEquals(1, pool.getStats().total(), "Idle connections above minSize should be evicted");
+
+        pool.close();
+        newPool(2, 3, 1000, 0, 0);
+        pool.runHousekeeping();
+        assertEquals(2, pool.getStats().idle(), "Pool should be filled up to minSize");
+    }
+
+    @Test
+    void testCloseClosesBorrowedConnections() throws SQLException {
+        newPool(0, 2, 1000, 0, 0);
+        Connection c = pool.borrow();
+        pool.close();
+        assertTrue(c.isClosed());
+        assertTrue(pool.isClosed());
+        assertThrows(SQLException.class, pool::borrow);
+    }
+
+    @Test
+    void testConfigValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool.Config(-1, 1, 1, 0, 0, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool.Config(3, 2, 1, 0, 0, 1, 0));
+    }
+
+    @Test
+    void testDatabaseConnectionPoolModeHandsOutDistinctConnections() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("db.driver", "org.h2.Driver");
+        props.setProperty("db.url", "jdbc:h2:mem:poolmode;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.username", "sa");
+        props.setProperty("db.password", "");
+        props.setProperty("db.pool.enabled", "true");
+        props.setProperty("db.pool.maxSize", "4");
+
+        DatabaseConnection db = new DatabaseConnection(props);
+        assertTrue(db.isPoolEnabled());
+        assertNull(db.getPoolStats());
+        try (Connection c1 = db.getConnection(); Connection c2 = db.getConnection()) {
+            assertNotSame(c1, c2);
+            assertEquals(2, db.getPoolStats().active());
+        }
+        assertEquals(2, db.getPoolStats().idle());
+        assertTrue(db.testConnection());
+
+        db.closeConnection();
+        assertNull(db.getPoolStats());
+    }
+
+    @Test
+    void testInvalidPoolPropertyThrows() {
+        Properties props = new Properties();
+        props.setProperty("db.pool.maxSize", "ten");
+        props.setProperty("db.pool.borrowTimeoutMs", "soon");
+        DatabaseConnection db = new DatabaseConnection(props);
+        assertThrows(IllegalArgumentException.class, () -> db.getIntProperty("db.pool.maxSize", 1));
+        assertThrows(IllegalArgumentException.class, () -> db.getLongProperty("db.pool.borrowTimeoutMs", 1));
+    }
+}
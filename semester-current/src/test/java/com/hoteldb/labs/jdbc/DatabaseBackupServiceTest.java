@@ -2,10 +2,14 @@ package com.hoteldb.labs.jdbc;
 
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Properties;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -41,6 +45,7 @@ class DatabaseBackupServiceTest {
                     "room_type VARCHAR(50) NOT NULL, " +
                     "price_per_night DECIMAL(10, 2) NOT NULL, " +
                     "is_available BOOLEAN, " +
+                    "version BIGINT NOT NULL DEFAULT 0, " +
                     "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
                     ")");
             stmt.execute("CREATE TABLE clients (" +
@@ -52,6 +57,7 @@ class DatabaseBackupServiceTest {
                     "room_id INT, " +
                     "check_in_date DATE, " +
                     "check_out_date DATE, " +
+                    "version BIGINT NOT NULL DEFAULT 0, " +
                     "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
                     ")");
             stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night, is_available) VALUES (1, '101', 'Standard', 50.00, TRUE)");
@@ -109,5 +115,321 @@ class DatabaseBackupServiceTest {
         DatabaseBackupService backupService = new DatabaseBackupService(db);
         assertThrows(SQLException.class, backupService::backupPrimaryToBackup);
     }
-}
 
+    @Test
+    void testIncrementalBackupCopiesOnlyChanges() throws Exception {
+        DatabaseConnection db = new DatabaseConnection(backupProperties("incremental"));
+        try (Connection primary = db.openPrimaryConnection();
+             Statement stmt = primary.createStatement()) {
+            createTablesWithUpdatedAt(stmt);
+            stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night, is_available, updated_at) VALUES " +
+                    "(1, '101', 'Standard', 50.00, TRUE, TIMESTAMP '2025-01-01 10:00:00'), " +
+                    "(2, '102', 'Deluxe', 90.00, TRUE, TIMESTAMP '2025-01-01 11:00:00')");
+            stmt.execute("INSERT INTO clients (id, first_name, last_name, room_id, updated_at) VALUES " +
+                    "(10, 'John', 'Doe', 1, TIMESTAMP '2025-01-01 10:00:00')");
+        }
+
+        DatabaseBackupService backupService = new DatabaseBackupService(db);
+        DatabaseBackupService.BackupReport first = backupService.backupPrimaryToBackup(DatabaseBackupService.BackupMode.INCREMENTAL);
+        assertEquals(new DatabaseBackupService.TableChanges(2, 0, 0), first.rooms());
+        assertEquals(new DatabaseBackupService.TableChanges(1, 0, 0), first.clients());
+
+        try (Connection primary = db.openPrimaryConnection();
+             Statement stmt = primary.createStatement()) {
+            stmt.execute("UPDATE rooms SET price_per_night = 120.00, updated_at = TIMESTAMP '2025-01-02 09:00:00' WHERE id = 2");
+            stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night, is_available, updated_at) VALUES " +
+                    "(3, '103', 'Suite', 200.00, NULL, TIMESTAMP '2025-01-02 09:00:00')");
+            stmt.execute("DELETE FROM clients WHERE id = 10");
+            stmt.execute("DELETE FROM rooms WHERE id = 1");
+        }
+
+        DatabaseBackupService.BackupReport second = backupService.backupPrimaryToBackup(DatabaseBackupService.BackupMode.INCREMENTAL);
+        assertEquals(DatabaseBackupService.BackupMode.INCREMENTAL, second.mode());
+        assertEquals(new DatabaseBackupService.TableChanges(1, 1, 1), second.rooms());
+        assertEquals(new DatabaseBackupService.TableChanges(0, 0, 1), second.clients());
+        assertEquals(2, second.roomsCopied());
+
+        try (Connection backup = db.openBackupConnection();
+             Statement stmt = backup.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT id, price_per_night, is_available FROM rooms ORDER BY id");
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+            assertEquals(0, new BigDecimal("120.00").compareTo(rs.getBigDecimal(2)));
+            assertTrue(rs.next());
+            assertEquals(3, rs.getInt(1));
+            assertNull(rs.getObject(3));
+            assertFalse(rs.next());
+
+            rs = stmt.executeQuery("SELECT COUNT(*) FROM clients");
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+
+            rs = stmt.executeQuery("SELECT last_id, last_updated_at FROM backup_metadata WHERE table_name = 'rooms'");
+            assertTrue(rs.next());
+            assertEquals(3, rs.getLong(1));
+            assertEquals(Timestamp.valueOf("2025-01-02 09:00:00"), rs.getTimestamp(2));
+        }
+    }
+
+    @Test
+    void testIncrementalWithoutUpdatedAtReconcilesRanges() throws Exception {
+        Properties props = backupProperties("reconcile");
+        props.setProperty("db.backup.checksumRangeSize", "10");
+        DatabaseConnection db = new DatabaseConnection(props);
+        try (Connection primary = db.openPrimaryConnection();
+             Statement stmt = primary.createStatement()) {
+            stmt.execute("CREATE TABLE rooms (id INT PRIMARY KEY, room_number VARCHAR(10) NOT NULL, " +
+                    "room_type VARCHAR(50) NOT NULL, price_per_night DECIMAL(10, 2) NOT NULL, " +
+                    "is_available BOOLEAN, version BIGINT NOT NULL DEFAULT 0, created_at TIMESTAMP)");
+            stmt.execute("CREATE TABLE clients (id INT PRIMARY KEY, first_name VARCHAR(100) NOT NULL, " +
+                    "last_name VARCHAR(100) NOT NULL, email VARCHAR(255), phone VARCHAR(20), room_id INT, " +
+                    "check_in_date DATE, check_out_date DATE, version BIGINT NOT NULL DEFAULT 0, created_at TIMESTAMP)");
+            for (int id = 1; id <= 30; id++) {
+                stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night) VALUES (" +
+                        id + ", 'R" + id + "', 'Standard', 50.00)");
+            }
+        }
+
+        DatabaseBackupService backupService = new DatabaseBackupService(db);
+        DatabaseBackupService.BackupReport full = backupService.backupPrimaryToBackup();
+        assertEquals(DatabaseBackupService.BackupMode.FULL, full.mode());
+        assertEquals(30, full.roomsCopied());
+
+        try (Connection primary = db.openPrimaryConnection();
+             Statement stmt = primary.createStatement()) {
+            stmt.execute("DELETE FROM rooms WHERE id IN (5, 25)");
+        }
+        // строка, пропавшая из резервной БД, восстанавливается сверкой диапазонов
+        try (Connection backup = db.openBackupConnection();
+             Statement stmt = backup.createStatement()) {
+            stmt.execute("DELETE FROM rooms WHERE id = 12");
+        }
+
+        DatabaseBackupService.BackupReport report = backupService.backupPrimaryToBackup(DatabaseBackupService.BackupMode.INCREMENTAL);
+        assertEquals(new DatabaseBackupService.TableChanges(1, 0, 2), report.rooms());
+        assertEquals(DatabaseBackupService.TableChanges.NONE, report.clients());
+
+        try (Connection backup = db.openBackupConnection();
+             Statement stmt = backup.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT COUNT(*), SUM(id) FROM rooms");
+            assertTrue(rs.next());
+            assertEquals(28, rs.getInt(1));
+            assertEquals(465 - 5 - 25, rs.getInt(2));
+        }
+    }
+
+    @Test
+    void testNullModeThrows() {
+        DatabaseBackupService backupService = new DatabaseBackupService(new DatabaseConnection(backupProperties("nullmode")));
+        assertThrows(IllegalArgumentException.class, () -> backupService.backupPrimaryToBackup(null));
+    }
+
+    @Test
+    void testFullBackupPipelinesTablesAndReportsMetrics() throws Exception {
+        Properties props = backupProperties("pipeline");
+        props.setProperty("db.backup.batchSize", "7");
+        props.setProperty("db.backup.chunkSize", "20");
+        props.setProperty("db.backup.queueCapacity", "1");
+        DatabaseConnection db = new DatabaseConnection(props);
+        try (Connection primary = db.openPrimaryConnection();
+             Statement stmt = primary.createStatement()) {
+            createTablesWithUpdatedAt(stmt);
+            for (int id = 1; id <= 50; id++) {
+                stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night) VALUES (" +
+                        id + ", 'R" + id + "', 'Standard', 50.00)");
+                stmt.execute("INSERT INTO clients (id, first_name, last_name, room_id) VALUES (" +
+                        (100 + id) + ", 'First" + id + "', 'Last" + id + "', " + id + ")");
+            }
+        }
+        // резервная схема с внешним ключом: clients должны копироваться после rooms
+        try (Connection backup = db.openBackupConnection();
+             Statement stmt = backup.createStatement()) {
+            stmt.execute(BackupTable.ROOMS.backupDdl());
+            stmt.execute(BackupTable.CLIENTS.backupDdl());
+            stmt.execute("ALTER TABLE clients ADD CONSTRAINT fk_backup_clients_room " +
+                    "FOREIGN KEY (room_id) REFERENCES rooms(id) ON DELETE SET NULL");
+            stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night) VALUES (999, 'OLD', 'Old', 1.00)");
+            stmt.execute("INSERT INTO clients (id, first_name, last_name, room_id) VALUES (999, 'Old', 'Client', 999)");
+        }
+
+        DatabaseBackupService backupService = new DatabaseBackupService(db);
+        try (Connection backup = db.openBackupConnection()) {
+            List<List<BackupTable>> levels = backupService.dependencyLevels(backup);
+            assertEquals(List.of(List.of(BackupTable.ROOMS), List.of(BackupTable.CLIENTS)), levels);
+        }
+
+        DatabaseBackupService.BackupReport report = backupService.backupPrimaryToBackup();
+        assertEquals(50, report.roomsCopied());
+        assertEquals(50, report.clientsCopied());
+        DatabaseBackupService.Metrics metrics = report.metrics();
+        assertEquals(100, metrics.rows());
+        assertTrue(metrics.estimatedBytes() > 0);
+        assertTrue(metrics.phaseMillis().keySet().containsAll(
+                List.of("schema", "rooms", "rooms.read", "rooms.write", "rooms.reconcile",
+                        "clients", "clients.read", "clients.write", "swap")));
+
+        try (Connection backup = db.openBackupConnection();
+             Statement stmt = backup.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT COUNT(*), COUNT(room_id) FROM clients");
+            assertTrue(rs.next());
+            assertEquals(50, rs.getInt(1));
+            assertEquals(50, rs.getInt(2));
+            rs = stmt.executeQuery("SELECT COUNT(*) FROM rooms WHERE id = 999");
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testFailedFullBackupResumesFromCheckpoint() throws Exception {
+        Properties props = backupProperties("resume");
+        props.setProperty("db.backup.batchSize", "5");
+        props.setProperty("db.backup.chunkSize", "10");
+        props.setProperty("db.backup.checksumRangeSize", "10");
+        DatabaseConnection db = new DatabaseConnection(props);
+        try (Connection primary = db.openPrimaryConnection();
+             Statement stmt = primary.createStatement()) {
+            createTablesWithUpdatedAt(stmt);
+            stmt.execute("ALTER TABLE rooms ALTER COLUMN room_number VARCHAR(20)");
+            for (int id = 1; id <= 25; id++) {
+                // у комнаты 15 номер длиннее, чем допускает резервная схема — копия упадёт на второй части
+                String number = id == 15 ? "TOO-LONG-NUMBER" : "R" + id;
+                stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night) VALUES (" +
+                        id + ", '" + number + "', 'Standard', 50.00)");
+            }
+        }
+        try (Connection backup = db.openBackupConnection();
+             Statement stmt = backup.createStatement()) {
+            stmt.execute(BackupTable.ROOMS.backupDdl());
+            stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night) VALUES (999, 'OLD', 'Old', 1.00)");
+        }
+
+        DatabaseBackupService backupService = new DatabaseBackupService(db);
+        assertThrows(SQLException.class, backupService::backupPrimaryToBackup);
+
+        try (Connection backup = db.openBackupConnection();
+             Statement stmt = backup.createStatement()) {
+            DatabaseBackupService.Checkpoint checkpoint = backupService.readCheckpoint(backup, BackupTable.ROOMS);
+            assertEquals(10, checkpoint.lastId());
+            assertEquals(10, checkpoint.rowsCopied());
+            assertFalse(checkpoint.done());
+            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM rooms_staging");
+            assertTrue(rs.next());
+            assertEquals(10, rs.getInt(1));
+            rs = stmt.executeQuery("SELECT id FROM rooms");
+            assertTrue(rs.next());
+            assertEquals(999, rs.getInt(1), "Readers must still see the previous backup");
+            assertFalse(rs.next());
+        }
+
+        try (Connection primary = db.openPrimaryConnection();
+             Statement stmt = primary.createStatement()) {
+            stmt.execute("UPDATE rooms SET room_number = 'R15' WHERE id = 15");
+            // удаление в уже скопированной части находит сверка
+            stmt.execute("DELETE FROM rooms WHERE id = 5");
+        }
+
+        DatabaseBackupService.BackupReport report = backupService.backupPrimaryToBackup(true);
+        assertEquals(24, report.roomsCopied());
+        assertEquals(15, report.metrics().rows(), "Only the remaining chunks should be copied");
+
+        try (Connection backup = db.openBackupConnection();
+             Statement stmt = backup.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT COUNT(*), SUM(id) FROM rooms");
+            assertTrue(rs.next());
+            assertEquals(24, rs.getInt(1));
+            assertEquals(325 - 5, rs.getInt(2));
+            rs = stmt.executeQuery("SELECT COUNT(*) FROM rooms_staging");
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+            rs = stmt.executeQuery("SELECT COUNT(*) FROM " + DatabaseBackupService.CHECKPOINT_TABLE);
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+            assertEquals(25, backupService.readWatermark(backup, BackupTable.ROOMS).lastId());
+        }
+    }
+
+    @Test
+    void testIndependentTablesShareLevel() throws Exception {
+        DatabaseConnection db = new DatabaseConnection(backupProperties("levels"));
+        try (Connection backup = db.openBackupConnection();
+             Statement stmt = backup.createStatement()) {
+            stmt.execute(BackupTable.ROOMS.backupDdl());
+            stmt.execute(BackupTable.CLIENTS.backupDdl());
+            assertEquals(List.of(BackupTable.ALL), new DatabaseBackupService(db).dependencyLevels(backup));
+        }
+    }
+
+    @Test
+    void testEnsureSchemaAddsVersionToOlderBackupTables() throws Exception {
+        DatabaseConnection db = new DatabaseConnection(backupProperties("legacy_version"));
+        try (Connection backup = db.openBackupConnection();
+             Statement stmt = backup.createStatement()) {
+            stmt.execute("CREATE TABLE rooms (id INT PRIMARY KEY, room_number VARCHAR(10) NOT NULL, " +
+                    "room_type VARCHAR(50) NOT NULL, price_per_night DECIMAL(10, 2) NOT NULL, " +
+                    "is_available BOOLEAN, created_at TIMESTAMP)");
+            stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night) VALUES (1, '101', 'Standard', 50.00)");
+
+            DatabaseBackupService backupService = new DatabaseBackupService(db);
+            backupService.ensureSchemaExists(backup);
+            // повторный вызов ничего не меняет
+            backupService.ensureSchemaExists(backup);
+
+            try (ResultSet rs = stmt.executeQuery("SELECT version FROM rooms WHERE id = 1")) {
+                assertTrue(rs.next());
+                assertEquals(0, rs.getLong(1));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT version FROM clients_staging")) {
+                assertFalse(rs.next());
+            }
+        }
+    }
+
+    @Test
+    void testInvalidBackupConfigThrows() {
+        Properties props = backupProperties("badconfig");
+        props.setProperty("db.backup.parallelTables", "0");
+        DatabaseBackupService backupService = new DatabaseBackupService(new DatabaseConnection(props));
+        assertThrows(IllegalArgumentException.class, backupService::backupPrimaryToBackup);
+    }
+
+    private static Properties backupProperties(String name) {
+        Properties props = new Properties();
+        props.setProperty("db.driver", "org.h2.Driver");
+        props.setProperty("db.url", "jdbc:h2:mem:primary_" + name + ";DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.username", "sa");
+        props.setProperty("db.password", "");
+
+        props.setProperty("db.backup.driver", "org.h2.Driver");
+        props.setProperty("db.backup.url", "jdbc:h2:mem:backup_" + name + ";DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.backup.username", "sa");
+        props.setProperty("db.backup.password", "");
+        return props;
+    }
+
+    private static void createTablesWithUpdatedAt(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE rooms (" +
+                "id INT PRIMARY KEY, " +
+                "room_number VARCHAR(10) NOT NULL, " +
+                "room_type VARCHAR(50) NOT NULL, " +
+                "price_per_night DECIMAL(10, 2) NOT NULL, " +
+                "is_available BOOLEAN, " +
+                "version BIGINT NOT NULL DEFAULT 0, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+                ")");
+        stmt.execute("CREATE TABLE clients (" +
+                "id INT PRIMARY KEY, " +
+                "first_name VARCHAR(100) NOT NULL, " +
+                "last_name VARCHAR(100) NOT NULL, " +
+                "email VARCHAR(255), " +
+                "phone VARCHAR(20), " +
+                "room_id INT, " +
+                "check_in_date DATE, " +
+                "check_out_date DATE, " +
+                "version BIGINT NOT NULL DEFAULT 0, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+                ")");
+    }
+}
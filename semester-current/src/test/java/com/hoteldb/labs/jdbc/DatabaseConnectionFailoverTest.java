@@ -104,6 +104,7 @@ class DatabaseConnectionFailoverTest {
         DatabaseConnection db = new DatabaseConnection(props);
         SQLException ex = assertThrows(SQLException.class, db::getConnection);
         assertTrue(ex.getMessage().toLowerCase().contains("резерв"));
+        assertTrue(ex.getMessage().contains("к основной БД"));
     }
 
     @Test
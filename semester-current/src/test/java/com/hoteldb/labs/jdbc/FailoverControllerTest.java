@@ -0,0 +1,220 @@
+package com.hoteldb.labs.jdbc;
+
+import com.hoteldb.labs.jdbc.DatabaseConnection.DatabaseRole;
+import com.hoteldb.labs.jdbc.FailoverController.BreakerState;
+import com.hoteldb.labs.model.Client;
+import com.hoteldb.labs.model.Room;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailoverControllerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    private FailoverController newController(int failureThreshold, long openDurationMs, int halfOpenSuccesses) {
+        return new FailoverController(
+                new FailoverController.Config(0, failureThreshold, openDurationMs, halfOpenSuccesses),
+                role -> true, now::get);
+    }
+
+    @Test
+    void testTripsAfterFailureThreshold() {
+        FailoverController controller = newController(2, 1000, 1);
+        controller.applyProbeResult(false, true);
+        assertEquals(DatabaseRole.PRIMARY, controller.getActiveRole());
+        assertEquals(BreakerState.CLOSED, controller.getBreakerState());
+
+        controller.applyProbeResult(false, true);
+        assertEquals(DatabaseRole.BACKUP, controller.getActiveRole());
+        assertEquals(BreakerState.OPEN, controller.getBreakerState());
+    }
+
+    @Test
+    void testSuccessResetsFailureCounter() {
+        FailoverController controller = newController(2, 1000, 1);
+        controller.applyProbeResult(false, true);
+        controller.applyProbeResult(true, true);
+        controller.applyProbeResult(false, true);
+        assertEquals(DatabaseRole.PRIMARY, controller.getActiveRole());
+    }
+
+    @Test
+    void testReportFailureSwitchesImmediately() {
+        FailoverController controller = newController(5, 1000, 1);
+        controller.reportFailure(DatabaseRole.PRIMARY);
+        assertEquals(DatabaseRole.BACKUP, controller.getActiveRole());
+        assertEquals(BreakerState.OPEN, controller.getBreakerState());
+    }
+
+    @Test
+    void testStaysOnPrimaryWhenBackupDown() {
+        FailoverController controller = newController(1, 1000, 1);
+        controller.applyProbeResult(true, false);
+        controller.reportFailure(DatabaseRole.PRIMARY);
+        assertEquals(DatabaseRole.PRIMARY, controller.getActiveRole());
+        assertEquals(BreakerState.OPEN, controller.getBreakerState());
+
+        // резервная поднялась позже — маршрут переключается на неё
+        controller.applyProbeResult(false, true);
+        assertEquals(DatabaseRole.BACKUP, controller.getActiveRole());
+    }
+
+    @Test
+    void testFailbackRequiresOpenDurationAndHalfOpenSuccesses() {
+        FailoverController controller = newController(1, 1000, 2);
+        controller.applyProbeResult(false, true);
+        assertEquals(BreakerState.OPEN, controller.getBreakerState());
+
+        now.addAndGet(500);
+        controller.applyProbeResult(true, true);
+        assertEquals(BreakerState.OPEN, controller.getBreakerState(), "Breaker must stay open until openDurationMs elapses");
+
+        now.addAndGet(500);
+        controller.applyProbeResult(true, true);
+        assertEquals(BreakerState.HALF_OPEN, controller.getBreakerState());
+        assertEquals(DatabaseRole.BACKUP, controller.getActiveRole());
+
+        controller.applyProbeResult(true, true);
+        assertEquals(BreakerState.CLOSED, controller.getBreakerState());
+        assertEquals(DatabaseRole.PRIMARY, controller.getActiveRole());
+    }
+
+    @Test
+    void testHalfOpenFailureReopens() {
+        FailoverController controller = newController(1, 100, 3);
+        controller.applyProbeResult(false, true);
+        now.addAndGet(100);
+        controller.applyProbeResult(true, true);
+        assertEquals(BreakerState.HALF_OPEN, controller.getBreakerState());
+
+        controller.applyProbeResult(false, true);
+        assertEquals(BreakerState.OPEN, controller.getBreakerState());
+        assertEquals(DatabaseRole.BACKUP, controller.getActiveRole());
+
+        now.addAndGet(50);
+        controller.applyProbeResult(true, true);
+        assertEquals(BreakerState.OPEN, controller.getBreakerState(), "Open duration restarts after reopening");
+    }
+
+    @Test
+    void testStatsTrackSwitchesAndTimePerRole() {
+        FailoverController controller = newController(1, 0, 1);
+        now.addAndGet(100);
+        controller.reportFailure(DatabaseRole.PRIMARY);
+        now.addAndGet(40);
+        controller.applyProbeResult(true, true);
+        controller.applyProbeResult(true, true);
+        now.addAndGet(10);
+
+        FailoverController.Stats stats = controller.getStats();
+        assertEquals(DatabaseRole.PRIMARY, stats.activeRole());
+        assertEquals(1, stats.switchesToBackup());
+        assertEquals(1, stats.switchesToPrimary());
+        assertEquals(110, stats.timeInPrimaryMs());
+        assertEquals(40, stats.timeInBackupMs());
+        assertTrue(stats.primaryHealthy());
+    }
+
+    @Test
+    void testRunProbeUsesHealthProbe() {
+        FailoverController controller = new FailoverController(
+                new FailoverController.Config(0, 1, 1000, 1),
+                role -> role == DatabaseRole.BACKUP, now::get);
+        controller.runProbe();
+        assertEquals(DatabaseRole.BACKUP, controller.getActiveRole());
+        assertFalse(controller.getStats().primaryHealthy());
+    }
+
+    @Test
+    void testConfigValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new FailoverController.Config(0, 0, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new FailoverController.Config(0, 1, 0, 0));
+    }
+
+    @Test
+    void testDatabaseConnectionRoutesPoolToBackupAfterPrimaryFailure() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("db.driver", "com.missing.Driver");
+        props.setProperty("db.url", "jdbc:h2:mem:fo_primary;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.username", "sa");
+        props.setProperty("db.password", "");
+        props.setProperty("db.backup.driver", "org.h2.Driver");
+        props.setProperty("db.backup.url", "jdbc:h2:mem:fo_backup;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.pool.enabled", "true");
+        props.setProperty("db.failover.probeIntervalMs", "60000");
+
+        DatabaseConnection db = new DatabaseConnection(props);
+        try {
+            assertTrue(db.isFailoverProbingEnabled());
+            try (Connection c = db.getConnection()) {
+                assertNotNull(c);
+            }
+            assertEquals(DatabaseRole.BACKUP, db.getActiveRole());
+            assertEquals(1, db.getFailoverStats().switchesToBackup());
+
+            // следующий запрос идёт сразу в пул резервной БД
+            try (Connection c = db.getConnection()) {
+                assertNotNull(c);
+            }
+            assertEquals(0, db.getPoolStats(DatabaseRole.PRIMARY).total());
+            assertEquals(1, db.getPoolStats(DatabaseRole.BACKUP).total());
+            assertTrue(db.probe(DatabaseRole.BACKUP));
+            assertFalse(db.probe(DatabaseRole.PRIMARY));
+        } finally {
+            db.closeConnection();
+        }
+        assertNull(db.getFailoverStats());
+    }
+
+    @Test
+    void testDaoUpdatesRunAgainstBackupAfterFailover() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("db.driver", "com.missing.Driver");
+        props.setProperty("db.url", "jdbc:h2:mem:fo_dao_primary;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.username", "sa");
+        props.setProperty("db.password", "");
+        props.setProperty("db.backup.driver", "org.h2.Driver");
+        props.setProperty("db.backup.url", "jdbc:h2:mem:fo_dao_backup;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.failover.probeIntervalMs", "60000");
+
+        DatabaseConnection db = new DatabaseConnection(props);
+        try {
+            // резервная схема — та же, что создаёт резервное копирование
+            try (Connection backup = db.openBackupConnection(); Statement stmt = backup.createStatement()) {
+                new DatabaseBackupService(db).ensureSchemaExists(backup);
+                stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night, is_available) " +
+                        "VALUES (1, '101', 'Standard', 50.00, TRUE)");
+                stmt.execute("INSERT INTO clients (id, first_name, last_name, room_id) VALUES (10, 'John', 'Doe', 1)");
+            }
+
+            Room room = new Room("101", "Deluxe", new BigDecimal("80.00"), true);
+            room.setId(1);
+            new RoomDAO(db).update(room);
+            Client client = new Client("John", "Smith", null, null, 1);
+            client.setId(10);
+            new ClientDAO(db).update(client);
+            assertEquals(DatabaseRole.BACKUP, db.getActiveRole());
+
+            try (Connection backup = db.openBackupConnection(); Statement stmt = backup.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT r.room_type, r.version, c.last_name, c.version " +
+                         "FROM rooms r JOIN clients c ON c.room_id = r.id")) {
+                assertTrue(rs.next());
+                assertEquals("Deluxe", rs.getString(1));
+                // обновление номера и заселение в него клиента
+                assertEquals(2, rs.getLong(2));
+                assertEquals("Smith", rs.getString(3));
+                assertEquals(1, rs.getLong(4));
+            }
+        } finally {
+            db.closeConnection();
+        }
+    }
+}
@@ -9,7 +9,11 @@ import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,6 +41,7 @@ class RoomDAOTest {
                     "room_type VARCHAR(50) NOT NULL, " +
                     "price_per_night DECIMAL(10, 2) NOT NULL, " +
                     "is_available BOOLEAN DEFAULT TRUE, " +
+                    "version BIGINT NOT NULL DEFAULT 0, " +
                     "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
         }
     }
@@ -184,5 +189,168 @@ class RoomDAOTest {
 
         assertThrows(SQLException.class, () -> roomDAO.findAll());
     }
-}
 
+    @Test
+    void testCreateAllBackfillsIdsInOrder() throws SQLException {
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            rooms.add(new Room("B" + i, "Standard", new BigDecimal("40.00"), true));
+        }
+        List<Room> created = roomDAO.createAll(rooms, 3);
+
+        assertEquals(7, created.size());
+        for (int i = 1; i < created.size(); i++) {
+            assertTrue(created.get(i).getId() > created.get(i - 1).getId(), "IDs must follow insertion order");
+        }
+        assertEquals("B4", roomDAO.findById(created.get(4).getId()).getRoomNumber());
+        assertEquals(7, roomDAO.findAll().size());
+    }
+
+    @Test
+    void testCreateAllMultiRowInsert() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("db.driver", "org.h2.Driver");
+        props.setProperty("db.url", "jdbc:h2:mem:primarydb;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.username", "sa");
+        props.setProperty("db.password", "");
+        props.setProperty("db.batch.multiRowInsert", "true");
+        props.setProperty("db.batch.size", "4");
+        DatabaseConnection multiRowDb = new DatabaseConnection(props);
+        try {
+            RoomDAO multiRowDao = new RoomDAO(multiRowDb);
+            List<Room> rooms = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                rooms.add(new Room("M" + i, "Suite", new BigDecimal("150.00"), i % 2 == 0));
+            }
+            multiRowDao.createAll(rooms);
+
+            for (Room room : rooms) {
+                Room found = roomDAO.findById(room.getId());
+                assertEquals(room.getRoomNumber(), found.getRoomNumber());
+                assertEquals(room.getIsAvailable(), found.getIsAvailable());
+            }
+        } finally {
+            multiRowDb.closeConnection();
+        }
+    }
+
+    @Test
+    void testCreateAllRollsBackOnlyFailedChunk() throws SQLException {
+        List<Room> rooms = List.of(
+                new Room("C1", "Standard", new BigDecimal("10.00"), true),
+                new Room("C2", "Standard", new BigDecimal("10.00"), true),
+                new Room("C3", "Standard", new BigDecimal("10.00"), true),
+                new Room("C1", "Standard", new BigDecimal("10.00"), true));
+
+        assertThrows(SQLException.class, () -> roomDAO.createAll(rooms, 2));
+        assertEquals(2, roomDAO.findAll().size(), "First chunk stays committed, failed chunk is rolled back");
+        assertNotNull(rooms.get(0).getId());
+        assertNull(rooms.get(2).getId());
+    }
+
+    @Test
+    void testCreateAllEmptyAndInvalidArguments() throws SQLException {
+        assertTrue(roomDAO.createAll(List.of()).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> roomDAO.createAll(null));
+        assertThrows(IllegalArgumentException.class, () -> roomDAO.createAll(Arrays.asList(
+                new Room("N1", "Standard", new BigDecimal("10.00"), true), null)));
+        assertThrows(IllegalArgumentException.class, () -> roomDAO.createAll(
+                List.of(new Room("N2", "Standard", new BigDecimal("10.00"), true)), 0));
+    }
+
+    @Test
+    void testStreamReadsAllRowsAndReleasesConnection() throws SQLException {
+        roomDAO.createAll(List.of(
+                new Room("S1", "Standard", new BigDecimal("10.00"), true),
+                new Room("S2", "Deluxe", new BigDecimal("20.00"), false),
+                new Room("S3", "Suite", new BigDecimal("30.00"), true)));
+
+        List<String> numbers;
+        try (Stream<Room> rooms = roomDAO.stream()) {
+            numbers = rooms.filter(Room::getIsAvailable).map(Room::getRoomNumber).toList();
+        }
+        assertEquals(List.of("S1", "S3"), numbers);
+        if (dbConnection.isPoolEnabled()) {
+            assertEquals(0, dbConnection.getPoolStats().active(), "Closing the stream must return the connection");
+        }
+    }
+
+    @Test
+    void testForEachVisitsEveryRow() throws SQLException {
+        roomDAO.createAll(List.of(
+                new Room("F1", "Standard", new BigDecimal("10.00"), true),
+                new Room("F2", "Standard", new BigDecimal("10.00"), true)));
+        List<Room> seen = new ArrayList<>();
+        roomDAO.forEach(seen::add);
+        assertEquals(2, seen.size());
+        assertThrows(IllegalArgumentException.class, () -> roomDAO.forEach(null));
+    }
+
+    @Test
+    void testStreamAndForEachReportSchemaMismatch() throws SQLException {
+        try (Connection conn = dbConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS rooms");
+            stmt.execute("CREATE TABLE rooms (id INT AUTO_INCREMENT PRIMARY KEY, room_type VARCHAR(50))");
+            stmt.execute("INSERT INTO rooms (room_type) VALUES ('Standard')");
+        }
+        assertThrows(SQLException.class, () -> roomDAO.forEach(room -> { }));
+        assertThrows(SQLException.class, roomDAO::stream, "Explicit projection fails before the cursor is opened");
+        if (dbConnection.isPoolEnabled()) {
+            assertEquals(0, dbConnection.getPoolStats().active(), "Failed stream must release its connection");
+        }
+    }
+
+    private List<Room> createSampleRooms() throws SQLException {
+        return roomDAO.createAll(List.of(
+                new Room("P101", "Standard", new BigDecimal("50.00"), true),
+                new Room("P102", "Standard", new BigDecimal("55.00"), false),
+                new Room("P201", "Deluxe", new BigDecimal("100.00"), true),
+                new Room("P202", "Deluxe", new BigDecimal("120.00"), true),
+                new Room("P301", "Suite", new BigDecimal("200.00"), true)));
+    }
+
+    @Test
+    void testFindPageWalksAllRowsByKeyset() throws SQLException {
+        List<Room> created = createSampleRooms();
+        List<Integer> seen = new ArrayList<>();
+        Integer afterId = null;
+        List<Room> page;
+        do {
+            page = roomDAO.findPage(afterId, 2);
+            assertTrue(page.size() <= 2);
+            page.forEach(r -> seen.add(r.getId()));
+            afterId = page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
+        } while (!page.isEmpty());
+
+        assertEquals(created.stream().map(Room::getId).toList(), seen);
+    }
+
+    @Test
+    void testFindRoomsAppliesFilterInDatabase() throws SQLException {
+        createSampleRooms();
+
+        List<Room> deluxe = roomDAO.findRooms(RoomFilter.any().withRoomType("Deluxe"), null, 10);
+        assertEquals(List.of("P201", "P202"), deluxe.stream().map(Room::getRoomNumber).toList());
+
+        RoomFilter cheapAvailable = RoomFilter.any()
+                .withAvailable(true)
+                .withPriceBetween(new BigDecimal("50.00"), new BigDecimal("110.00"));
+        assertEquals(List.of("P101", "P201"),
+                roomDAO.findRooms(cheapAvailable, null, 10).stream().map(Room::getRoomNumber).toList());
+
+        Integer firstId = deluxe.get(0).getId();
+        List<Room> afterFirst = roomDAO.findRooms(RoomFilter.any().withRoomType("Deluxe"), firstId, 10);
+        assertEquals(List.of("P202"), afterFirst.stream().map(Room::getRoomNumber).toList());
+
+        assertTrue(roomDAO.findRooms(new RoomFilter("Suite", null, new BigDecimal("100.00"), null), null, 10).isEmpty());
+    }
+
+    @Test
+    void testFindRoomsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> roomDAO.findRooms(null, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> roomDAO.findPage(null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> RoomFilter.any().withPriceBetween(new BigDecimal("10"), new BigDecimal("5")));
+    }
+}
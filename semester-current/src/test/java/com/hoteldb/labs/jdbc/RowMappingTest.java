@@ -0,0 +1,141 @@
+package com.hoteldb.labs.jdbc;
+
+import com.hoteldb.labs.model.Room;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowMappingTest {
+    private static final Logger logger = LoggerFactory.getLogger(RowMappingTest.class);
+    private static final int ROWS = 20_000;
+
+    private static Connection conn;
+
+    private final RowMapping<Room> mapping = new RowMapping<>("bench_rooms", (rs, c) -> {
+        Room room = new Room();
+        room.setId(rs.getInt(c[0]));
+        room.setRoomNumber(rs.getString(c[1]));
+        room.setRoomType(rs.getString(c[2]));
+        room.setPricePerNight(rs.getBigDecimal(c[3]));
+        room.setIsAvailable(rs.getBoolean(c[4]));
+        return room;
+    }, "id", "room_number", "room_type", "price_per_night", "is_available");
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:rowmapping;DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS bench_rooms");
+            stmt.execute("CREATE TABLE bench_rooms (id INT AUTO_INCREMENT PRIMARY KEY, room_number VARCHAR(10), "
+                    + "room_type VARCHAR(50), price_per_night DECIMAL(10, 2), is_available BOOLEAN, "
+                    + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            stmt.execute("INSERT INTO bench_rooms (room_number, room_type, price_per_night, is_available) "
+                    + "SELECT 'R' || X, 'Standard', 50 + MOD(X, 100), MOD(X, 2) = 0 FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+    }
+
+    @AfterAll
+    static void closeConnection() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void testPlanFollowsResultColumnsAndIsCachedPerSql() throws SQLException {
+        String sql = "SELECT is_available, price_per_night, room_type, room_number, id FROM bench_rooms WHERE id = 1";
+        for (int i = 0; i < 3; i++) {
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+                assertArrayEquals(new int[]{5, 4, 3, 2, 1}, mapping.plan(sql, rs));
+                List<Room> rooms = mapping.readAll(sql, rs);
+                assertEquals("R1", rooms.get(0).getRoomNumber());
+            }
+        }
+        assertEquals(1, mapping.cachedPlans());
+        assertEquals("SELECT id, room_number, room_type, price_per_night, is_available FROM bench_rooms", mapping.select());
+    }
+
+    @Test
+    void testColumnLabelsAreCaseInsensitive() throws SQLException {
+        String sql = "SELECT ID, ROOM_NUMBER AS \"Room_Number\", ROOM_TYPE, PRICE_PER_NIGHT, IS_AVAILABLE FROM bench_rooms";
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            assertArrayEquals(new int[]{1, 2, 3, 4, 5}, mapping.plan(sql, rs));
+        }
+    }
+
+    @Test
+    void testMissingColumnThrows() throws SQLException {
+        String sql = "SELECT id, room_number FROM bench_rooms";
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            SQLException ex = assertThrows(SQLException.class, () -> mapping.plan(sql, rs));
+            assertTrue(ex.getMessage().contains("room_type"));
+        }
+        assertEquals(0, mapping.cachedPlans());
+    }
+
+    /**
+     * Микробенчмарк: один и тот же SELECT в те же объекты, столбцы ищутся по имени на каждой строке
+     * против плана индексов. Результаты пишутся в лог; проверяется только совпадение данных.
+     * Запуск: {@code mvn test -Pperf}
+     */
+    @Test
+    @Tag("perf")
+    void testIndexPlanVersusByNameMappingBenchmark() throws SQLException {
+        for (int warmup = 0; warmup < 3; warmup++) {
+            mapByName();
+            mapByPlan();
+        }
+        long byName = Long.MAX_VALUE;
+        long byPlan = Long.MAX_VALUE;
+        List<Room> nameRooms = null;
+        List<Room> planRooms = null;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            nameRooms = mapByName();
+            byName = Math.min(byName, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            planRooms = mapByPlan();
+            byPlan = Math.min(byPlan, System.nanoTime() - start);
+        }
+
+        assertEquals(ROWS, planRooms.size());
+        assertEquals(nameRooms.stream().map(Room::toString).toList(), planRooms.stream().map(Room::toString).toList());
+        logger.info("Отображение {} строк: по имени {} мкс, по плану индексов {} мкс",
+                ROWS, byName / 1_000, byPlan / 1_000);
+    }
+
+    private List<Room> mapByName() throws SQLException {
+        List<Room> rooms = new ArrayList<>();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(mapping.select())) {
+            while (rs.next()) {
+                Room room = new Room();
+                room.setId(rs.getInt("id"));
+                room.setRoomNumber(rs.getString("room_number"));
+                room.setRoomType(rs.getString("room_type"));
+                room.setPricePerNight(rs.getBigDecimal("price_per_night"));
+                room.setIsAvailable(rs.getBoolean("is_available"));
+                rooms.add(room);
+            }
+        }
+        return rooms;
+    }
+
+    private List<Room> mapByPlan() throws SQLException {
+        String sql = mapping.select();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return mapping.readAll(sql, rs);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.hoteldb.labs.jdbc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotBackupTargetTest {
+
+    @TempDir
+    Path dir;
+
+    private static DatabaseConnection primary(String name) {
+        Properties props = new Properties();
+        props.setProperty("db.driver", "org.h2.Driver");
+        props.setProperty("db.url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;MODE=MySQL");
+        props.setProperty("db.username", "sa");
+        props.setProperty("db.password", "");
+        return new DatabaseConnection(props);
+    }
+
+    private static void createTables(Statement stmt) throws Exception {
+        for (BackupTable table : SnapshotBackupTarget.TABLES) {
+            stmt.execute(table.backupDdl());
+        }
+    }
+
+    private static void insertRows(Statement stmt, int rooms) throws Exception {
+        stmt.execute("INSERT INTO users (id, username, password, role, created_at) VALUES " +
+                "(1, 'admin', 'hash', 'ADMIN', TIMESTAMP '2025-03-01 10:15:30.123456')");
+        for (int i = 1; i <= rooms; i++) {
+            stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night, is_available) VALUES (" +
+                    i + ", '" + (100 + i) + "', 'Стандарт', " + (40 + i) + ".25, " + (i % 2 == 0) + ")");
+        }
+        stmt.execute("INSERT INTO clients (id, first_name, last_name, email, phone, room_id, check_in_date, check_out_date) VALUES " +
+                "(10, 'Иван', 'Петров', NULL, '+7', 1, DATE '2025-03-01', NULL)");
+    }
+
+    private static long count(Statement stmt, String table) throws Exception {
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    void testConstructorNullThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotBackupTarget(null));
+    }
+
+    @Test
+    void testInvalidConfigRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotBackupTarget.Config(dir, 0, 4096, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotBackupTarget.Config(dir, 10, 100, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotBackupTarget.Config(dir, 10, 4096, 10));
+    }
+
+    @Test
+    void testSnapshotAndRestoreRoundTrip() throws Exception {
+        DatabaseConnection db = primary("snapshot_round_trip");
+        try (Connection conn = db.openPrimaryConnection(); Statement stmt = conn.createStatement()) {
+            createTables(stmt);
+            insertRows(stmt, 25);
+        }
+        SnapshotBackupTarget target = new SnapshotBackupTarget(db, new SnapshotBackupTarget.Config(dir, 7, 4096, 6));
+
+        SnapshotBackupTarget.Snapshot snapshot = target.snapshot();
+        assertEquals(Map.of("users", 1L, "rooms", 25L, "clients", 1L), snapshot.rows());
+        assertTrue(Files.exists(snapshot.file()));
+        assertEquals(Files.size(snapshot.file()), snapshot.fileBytes());
+        assertEquals(snapshot.file(), target.latestSnapshot().orElseThrow());
+
+        try (Connection conn = db.openPrimaryConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM clients");
+            stmt.execute("UPDATE rooms SET room_type = 'changed'");
+            stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night) VALUES (99, '999', 'Люкс', 1)");
+        }
+
+        Map<String, Long> restored = target.restore(snapshot.file());
+        assertEquals(snapshot.rows(), restored);
+
+        try (Connection conn = db.openPrimaryConnection(); Statement stmt = conn.createStatement()) {
+            assertEquals(25, count(stmt, "rooms"));
+            try (ResultSet rs = stmt.executeQuery("SELECT room_type, price_per_night, is_available FROM rooms WHERE id = 3")) {
+                assertTrue(rs.next());
+                assertEquals("Стандарт", rs.getString(1));
+                assertEquals(new BigDecimal("43.25"), rs.getBigDecimal(2));
+                assertFalse(rs.getBoolean(3));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT first_name, email, check_in_date, check_out_date FROM clients WHERE id = 10")) {
+                assertTrue(rs.next());
+                assertEquals("Иван", rs.getString(1));
+                assertNull(rs.getString(2));
+                assertEquals(LocalDate.of(2025, 3, 1), rs.getDate(3).toLocalDate());
+                assertNull(rs.getDate(4));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT created_at FROM users WHERE id = 1")) {
+                assertTrue(rs.next());
+                assertEquals("2025-03-01T10:15:30.123456", rs.getTimestamp(1).toLocalDateTime().toString());
+            }
+        }
+    }
+
+    @Test
+    void testBackupReturnsRowCounts() throws Exception {
+        DatabaseConnection db = primary("snapshot_backup_target");
+        try (Connection conn = db.openPrimaryConnection(); Statement stmt = conn.createStatement()) {
+            createTables(stmt);
+            insertRows(stmt, 3);
+        }
+        BackupTarget target = new SnapshotBackupTarget(db, new SnapshotBackupTarget.Config(dir, 1000, 4096, 1));
+
+        assertEquals(Map.of("users", 1L, "rooms", 3L, "clients", 1L), target.backup());
+    }
+
+    @Test
+    void testCorruptedSnapshotIsRejectedAndPrimaryUnchanged() throws Exception {
+        DatabaseConnection db = primary("snapshot_corrupted");
+        try (Connection conn = db.openPrimaryConnection(); Statement stmt = conn.createStatement()) {
+            createTables(stmt);
+            insertRows(stmt, 10);
+        }
+        SnapshotBackupTarget target = new SnapshotBackupTarget(db, new SnapshotBackupTarget.Config(dir, 4, 4096, 0));
+        Path file = target.snapshot().file();
+
+        // портим байт в конце файла — он попадает в данные последнего блока clients
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 8] ^= 0x5A;
+        Files.write(file, bytes);
+
+        try (Connection conn = db.openPrimaryConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM rooms WHERE id > 5");
+        }
+
+        assertThrows(IOException.class, () -> target.restore(file));
+
+        try (Connection conn = db.openPrimaryConnection(); Statement stmt = conn.createStatement()) {
+            assertEquals(5, count(stmt, "rooms"));
+            assertEquals(1, count(stmt, "clients"));
+            assertEquals(1, count(stmt, "users"));
+        }
+    }
+
+    @Test
+    void testRestoreRejectsForeignFile() throws Exception {
+        SnapshotBackupTarget target = new SnapshotBackupTarget(primary("snapshot_foreign"),
+                new SnapshotBackupTarget.Config(dir, 10, 4096, 1));
+        Path file = dir.resolve("not-a-snapshot.snap");
+        Files.writeString(file, "hello, world");
+
+        assertThrows(IOException.class, () -> target.restore(file));
+    }
+
+    @Test
+    void testLatestSnapshotEmptyDirectory() throws Exception {
+        SnapshotBackupTarget target = new SnapshotBackupTarget(primary("snapshot_latest"),
+                new SnapshotBackupTarget.Config(dir.resolve("missing"), 10, 4096, 1));
+
+        assertTrue(target.latestSnapshot().isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package com.hoteldb.labs.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SqlDialectTest {
+
+    @Test
+    void testFromProductName() {
+        assertEquals(SqlDialect.MYSQL, SqlDialect.fromProductName("MySQL"));
+        assertEquals(SqlDialect.MYSQL, SqlDialect.fromProductName("MariaDB"));
+        assertEquals(SqlDialect.POSTGRESQL, SqlDialect.fromProductName("PostgreSQL"));
+        assertEquals(SqlDialect.H2, SqlDialect.fromProductName("H2"));
+        assertEquals(SqlDialect.GENERIC, SqlDialect.fromProductName("Oracle"));
+        assertEquals(SqlDialect.GENERIC, SqlDialect.fromProductName(null));
+    }
+
+    @Test
+    void testOfConnection() throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:dialect", "sa", "")) {
+            assertEquals(SqlDialect.H2, SqlDialect.of(conn));
+        }
+    }
+
+    @Test
+    void testMySqlStreamsRowByRow() throws SQLException {
+        Connection conn = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        assertFalse(SqlDialect.MYSQL.prepareForStreaming(conn, stmt, 500));
+        verify(stmt).setFetchSize(Integer.MIN_VALUE);
+        verify(conn, never()).setAutoCommit(anyBoolean());
+    }
+
+    @Test
+    void testPostgresDisablesAutoCommitForCursor() throws SQLException {
+        Connection conn = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        when(conn.getAutoCommit()).thenReturn(true);
+        assertTrue(SqlDialect.POSTGRESQL.prepareForStreaming(conn, stmt, 500));
+        verify(conn).setAutoCommit(false);
+        verify(stmt).setFetchSize(500);
+
+        Connection inTx = mock(Connection.class);
+        when(inTx.getAutoCommit()).thenReturn(false);
+        assertFalse(SqlDialect.POSTGRESQL.prepareForStreaming(inTx, stmt, 500));
+        verify(inTx, never()).setAutoCommit(anyBoolean());
+    }
+
+    @Test
+    void testGenericUsesConfiguredFetchSize() throws SQLException {
+        Statement stmt = mock(Statement.class);
+        assertFalse(SqlDialect.H2.prepareForStreaming(mock(Connection.class), stmt, 200));
+        verify(stmt).setFetchSize(200);
+    }
+
+    @Test
+    void testUpsertSql() {
+        List<String> columns = List.of("id", "name", "price");
+        assertEquals("INSERT INTO t (id, name, price) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE "
+                        + "name = VALUES(name), price = VALUES(price)",
+                SqlDialect.MYSQL.upsertSql("t", "id", columns));
+        assertEquals("INSERT INTO t (id, name, price) VALUES (?, ?, ?) ON CONFLICT (id) DO UPDATE SET "
+                        + "name = EXCLUDED.name, price = EXCLUDED.price",
+                SqlDialect.POSTGRESQL.upsertSql("t", "id", columns));
+        assertEquals("MERGE INTO t (id, name, price) KEY (id) VALUES (?, ?, ?)",
+                SqlDialect.H2.upsertSql("t", "id", columns));
+        assertNull(SqlDialect.GENERIC.upsertSql("t", "id", columns));
+    }
+}
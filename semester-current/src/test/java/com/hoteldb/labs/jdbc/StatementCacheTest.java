@@ -0,0 +1,201 @@
+package com.hoteldb.labs.jdbc;
+
+import org.h2.jdbc.JdbcPreparedStatement;
+import org.h2.jdbc.JdbcStatementBackwardsCompat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCacheTest {
+    private static final String URL = "jdbc:h2:mem:stmtcache;DB_CLOSE_DELAY=-1;MODE=MySQL";
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS items");
+            stmt.execute("CREATE TABLE items (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(20))");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private ConnectionPool newPool(int cacheSize) {
+        pool = new ConnectionPool("cache", new ConnectionPool.Config(0, 1, 1000, 0, 0, 1, 0, cacheSize),
+                () -> DriverManager.getConnection(URL, "sa", ""));
+        return pool;
+    }
+
+    private void insert(Connection conn, String name) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO items (name) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, name);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                assertTrue(keys.next());
+            }
+        }
+    }
+
+    @Test
+    void testSameSqlIsReusedAcrossBorrows() throws SQLException {
+        newPool(8);
+        for (int i = 0; i < 3; i++) {
+            try (Connection conn = pool.borrow()) {
+                insert(conn, "item" + i);
+            }
+        }
+        assertEquals(new ConnectionPool.StatementCacheStats(2, 1, 0), pool.getStatementCacheStats());
+    }
+
+    @Test
+    void testKeyIncludesGeneratedKeysFlag() throws SQLException {
+        newPool(8);
+        try (Connection conn = pool.borrow()) {
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 1", Statement.RETURN_GENERATED_KEYS).close();
+            conn.prepareStatement("SELECT 1").close();
+        }
+        assertEquals(new ConnectionPool.StatementCacheStats(1, 2, 0), pool.getStatementCacheStats());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() throws SQLException {
+        newPool(2);
+        try (Connection conn = pool.borrow()) {
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 2").close();
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 3").close();
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 2").close();
+        }
+        ConnectionPool.StatementCacheStats stats = pool.getStatementCacheStats();
+        assertEquals(2, stats.hits());
+        assertEquals(4, stats.misses());
+        assertEquals(2, stats.evictions());
+    }
+
+    @Test
+    void testClosedStatementRejectsCallsAndClosesResultSet() throws SQLException {
+        newPool(8);
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement stmt = conn.prepareStatement("SELECT id FROM items");
+            ResultSet rs = stmt.executeQuery();
+            assertSame(conn, stmt.getConnection());
+            stmt.close();
+            assertTrue(stmt.isClosed());
+            assertTrue(rs.isClosed());
+            assertThrows(SQLException.class, stmt::executeQuery);
+            assertDoesNotThrow(stmt::close);
+
+            try (PreparedStatement again = conn.prepareStatement("SELECT id FROM items")) {
+                assertFalse(again.isClosed());
+                assertNotSame(stmt, again);
+            }
+        }
+        assertEquals(1, pool.getStatementCacheStats().hits());
+    }
+
+    @Test
+    void testCachedStatementDoesNotExposePhysicalStatement() throws SQLException {
+        newPool(4);
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement("SELECT name FROM items")) {
+            assertSame(conn, stmt.getConnection());
+            assertSame(stmt, stmt.unwrap(PreparedStatement.class));
+            assertFalse(stmt.isWrapperFor(JdbcPreparedStatement.class));
+            assertThrows(SQLException.class, () -> stmt.unwrap(JdbcPreparedStatement.class));
+            assertTrue(stmt.isWrapperFor(JdbcStatementBackwardsCompat.class));
+            assertNotNull(stmt.unwrap(JdbcStatementBackwardsCompat.class));
+        }
+    }
+
+    @Test
+    void testParametersAreClearedOnReturn() throws SQLException {
+        newPool(8);
+        try (Connection conn = pool.borrow()) {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT ? FROM DUAL")) {
+                stmt.setInt(1, 42);
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT ? FROM DUAL")) {
+                assertThrows(SQLException.class, stmt::executeQuery, "Parameters from the previous use must not leak");
+            }
+        }
+    }
+
+    @Test
+    void testStatementWithChangedSettingsIsNotCached() throws SQLException {
+        newPool(8);
+        try (Connection conn = pool.borrow()) {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT 1")) {
+                stmt.setMaxRows(1);
+            }
+            conn.prepareStatement("SELECT 1").close();
+        }
+        assertEquals(0, pool.getStatementCacheStats().hits());
+    }
+
+    @Test
+    void testUnclosedStatementIsReturnedWithConnection() throws SQLException {
+        newPool(8);
+        PreparedStatement leaked;
+        try (Connection conn = pool.borrow()) {
+            leaked = conn.prepareStatement("SELECT 1");
+        }
+        assertTrue(leaked.isClosed());
+        try (Connection conn = pool.borrow()) {
+            conn.prepareStatement("SELECT 1").close();
+        }
+        assertEquals(1, pool.getStatementCacheStats().hits());
+    }
+
+    @Test
+    void testCacheDisabledWhenSizeIsZero() throws SQLException {
+        newPool(0);
+        try (Connection conn = pool.borrow()) {
+            insert(conn, "a");
+            insert(conn, "b");
+        }
+        assertEquals(new ConnectionPool.StatementCacheStats(0, 0, 0), pool.getStatementCacheStats());
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool.Config(0, 1, 1, 0, 0, 1, 0, -1));
+    }
+
+    @Test
+    void testDaoCallsHitCacheThroughDatabaseConnection() throws SQLException {
+        DatabaseConnection.resetForTests();
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        try {
+            try (Connection conn = db.getConnection(); Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE IF EXISTS clients");
+                stmt.execute("DROP TABLE IF EXISTS rooms");
+                stmt.execute("CREATE TABLE rooms (id INT AUTO_INCREMENT PRIMARY KEY, room_number VARCHAR(10) NOT NULL UNIQUE, "
+                        + "room_type VARCHAR(50) NOT NULL, price_per_night DECIMAL(10, 2) NOT NULL, "
+                        + "is_available BOOLEAN DEFAULT TRUE, version BIGINT NOT NULL DEFAULT 0, created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            }
+            RoomDAO dao = new RoomDAO(db);
+            for (int i = 0; i < 5; i++) {
+                dao.findById(i);
+            }
+            assertTrue(db.getStatementCacheStats().hits() >= 4);
+        } finally {
+            db.closeConnection();
+        }
+    }
+}
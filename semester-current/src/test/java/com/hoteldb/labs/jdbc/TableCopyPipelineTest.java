@@ -0,0 +1,128 @@
+package com.hoteldb.labs.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableCopyPipelineTest {
+    private static final String PRIMARY_URL = "jdbc:h2:mem:pipeline_primary;DB_CLOSE_DELAY=-1;MODE=MySQL";
+    private static final String BACKUP_URL = "jdbc:h2:mem:pipeline_backup;DB_CLOSE_DELAY=-1;MODE=MySQL";
+
+    private ExecutorService readers;
+    private Connection primary;
+    private Connection backup;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        readers = Executors.newCachedThreadPool();
+        primary = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+        backup = DriverManager.getConnection(BACKUP_URL, "sa", "");
+        try (Statement stmt = primary.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS rooms");
+            stmt.execute("CREATE TABLE rooms (id INT PRIMARY KEY, room_number VARCHAR(10) NOT NULL, " +
+                    "room_type VARCHAR(50) NOT NULL, price_per_night DECIMAL(10, 2) NOT NULL, " +
+                    "is_available BOOLEAN, version BIGINT NOT NULL DEFAULT 0, created_at TIMESTAMP)");
+            for (int id = 1; id <= 10; id++) {
+                stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night, is_available) VALUES (" +
+                        id + ", 'R" + id + "', 'Standard', " + (40 + id) + ".50, " + (id % 2 == 0 ? "TRUE" : "NULL") + ")");
+            }
+        }
+        try (Statement stmt = backup.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS rooms");
+            stmt.execute(BackupTable.ROOMS.backupDdl());
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        readers.shutdownNow();
+        primary.close();
+        backup.close();
+    }
+
+    private TableCopyPipeline pipeline(int batchSize, int queueCapacity) {
+        return new TableCopyPipeline(new DatabaseBackupService.Config(batchSize, 1000, queueCapacity, 1, 1000), 2, readers);
+    }
+
+    private TableCopyPipeline.Result copyAll(TableCopyPipeline pipeline) throws SQLException {
+        return pipeline.copy(primary, BackupTable.ROOMS.select(), StatementBinder.NONE, backup, BackupTable.ROOMS);
+    }
+
+    @Test
+    void testCopiesAllRowsInBatches() throws SQLException {
+        backup.setAutoCommit(false);
+        TableCopyPipeline.Result result = copyAll(pipeline(3, 1));
+        backup.commit();
+
+        assertEquals(10, result.rows());
+        assertEquals(10, result.lastId());
+        assertTrue(result.bytes() > 0);
+        try (Statement stmt = backup.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*), SUM(id), COUNT(is_available), SUM(price_per_night) FROM rooms")) {
+            assertTrue(rs.next());
+            assertEquals(10, rs.getInt(1));
+            assertEquals(55, rs.getInt(2));
+            assertEquals(5, rs.getInt(3), "NULL values must be copied as NULL");
+            assertEquals(0, new BigDecimal("460.00").compareTo(rs.getBigDecimal(4)));
+        }
+    }
+
+    @Test
+    void testCopiesKeyRangeChunk() throws SQLException {
+        TableCopyPipeline.Result result = pipeline(2, 1).copy(primary,
+                BackupTable.ROOMS.select() + " WHERE id > ? ORDER BY id", stmt -> {
+                    stmt.setLong(1, 3);
+                    stmt.setMaxRows(4);
+                }, backup, BackupTable.ROOMS);
+
+        assertEquals(4, result.rows());
+        assertEquals(7, result.lastId());
+        try (Statement stmt = backup.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(id), MAX(id) FROM rooms")) {
+            assertTrue(rs.next());
+            assertEquals(4, rs.getInt(1));
+            assertEquals(7, rs.getInt(2));
+        }
+
+        TableCopyPipeline.Result empty = pipeline(2, 1).copy(primary,
+                BackupTable.ROOMS.select() + " WHERE id > ?", stmt -> stmt.setLong(1, 10), backup, BackupTable.ROOMS);
+        assertEquals(0, empty.rows());
+        assertEquals(Long.MIN_VALUE, empty.lastId());
+    }
+
+    @Test
+    void testReadFailureIsPropagated() throws SQLException {
+        try (Statement stmt = primary.createStatement()) {
+            stmt.execute("DROP TABLE rooms");
+        }
+        assertThrows(SQLException.class, () -> copyAll(pipeline(3, 1)));
+    }
+
+    @Test
+    void testWriteFailureStopsReader() throws SQLException {
+        try (Statement stmt = backup.createStatement()) {
+            stmt.execute("INSERT INTO rooms (id, room_number, room_type, price_per_night) VALUES (4, 'X', 'X', 1.00)");
+        }
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                assertThrows(SQLException.class, () -> copyAll(pipeline(1, 1))));
+    }
+
+    @Test
+    void testEstimateBytes() {
+        assertEquals(0, TableCopyPipeline.estimateBytes(new Object[]{null}));
+        assertEquals(4 + 3 + 1, TableCopyPipeline.estimateBytes(new Object[]{1, "abc", true}));
+        assertEquals(4, TableCopyPipeline.estimateBytes(new Object[]{"жж"}));
+    }
+}
@@ -0,0 +1,102 @@
+package com.hoteldb.labs.jpa;
+
+import com.hoteldb.labs.jpa.entity.RoomEntity;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JpaFactoryTest {
+
+    @AfterEach
+    void tearDown() {
+        JpaFactory.closeAll();
+    }
+
+    @Test
+    void testFactoryIsSharedPerPersistenceUnit() {
+        EntityManagerFactory first = JpaFactory.getEntityManagerFactory("testPU");
+        EntityManagerFactory second = JpaFactory.getEntityManagerFactory("testPU");
+
+        assertSame(first, second);
+        assertTrue(first.isOpen());
+    }
+
+    @Test
+    void testClosedFactoryIsRecreated() {
+        EntityManagerFactory first = JpaFactory.getEntityManagerFactory("testPU");
+        JpaFactory.close("testPU");
+
+        assertFalse(first.isOpen());
+        EntityManagerFactory second = JpaFactory.getEntityManagerFactory("testPU");
+        assertNotSame(first, second);
+        assertTrue(second.isOpen());
+    }
+
+    @Test
+    void testBlankPersistenceUnitRejected() {
+        assertThrows(IllegalArgumentException.class, () -> JpaFactory.getEntityManagerFactory(" "));
+        assertThrows(IllegalArgumentException.class, () -> JpaFactory.getEntityManagerFactory(null));
+    }
+
+    @Test
+    void testInTransactionRollsBackOnFailure() {
+        EntityManagerFactory emf = JpaFactory.getEntityManagerFactory("testPU");
+
+        assertThrows(IllegalStateException.class, () -> JpaFactory.inTransaction(emf, em -> {
+            em.persist(new RoomEntity("TX-1", "Standard", new BigDecimal("10.00"), true));
+            em.flush();
+            throw new IllegalStateException("boom");
+        }));
+
+        Long count = JpaFactory.withEntityManager(emf, em -> em.createQuery(
+                "SELECT COUNT(r) FROM RoomEntity r WHERE r.roomNumber = 'TX-1'", Long.class).getSingleResult());
+        assertEquals(0L, count);
+    }
+
+    @Test
+    void testScrollRethrowsActionFailure() {
+        EntityManagerFactory emf = JpaFactory.getEntityManagerFactory("testPU");
+        JpaFactory.persistAll(emf, List.of(new RoomEntity("SC-1", "Standard", new BigDecimal("10.00"), true)));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> JpaFactory.scroll(emf,
+                session -> session.createSelectionQuery("FROM RoomEntity", RoomEntity.class),
+                room -> {
+                    throw new IllegalStateException("boom");
+                }));
+        assertEquals("boom", e.getMessage());
+
+        assertEquals(1, JpaFactory.scroll(emf,
+                session -> session.createSelectionQuery("FROM RoomEntity", RoomEntity.class), room -> { }));
+    }
+
+    @Test
+    void testPersistAllUsesBatchSizeAsFlushInterval() {
+        EntityManagerFactory emf = JpaFactory.getEntityManagerFactory("testPU");
+
+        assertEquals(50, JpaFactory.flushInterval(emf));
+        assertThrows(IllegalArgumentException.class, () -> JpaFactory.persistAll(emf, null));
+    }
+
+    @Test
+    void testPooledIdsMappingOverridesIdentity() {
+        EntityManagerFactory emf = JpaFactory.getEntityManagerFactory("testBatchPU");
+        // счётчик засеян, как в init.sql: MAX(id) существующих строк
+        JpaFactory.inTransaction(emf, em -> em.createNativeQuery(
+                "UPDATE id_generators SET next_val = 100 WHERE sequence_name = 'rooms'").executeUpdate());
+
+        List<RoomEntity> rooms = JpaFactory.persistAll(emf, List.of(
+                new RoomEntity("ID-1", "Standard", new BigDecimal("10.00"), true),
+                new RoomEntity("ID-2", "Standard", new BigDecimal("10.00"), true)));
+
+        assertEquals(List.of(101, 102), rooms.stream().map(RoomEntity::getId).toList());
+        // pooled-lo: на обе сущности выделен один блок из 50 id
+        Number nextVal = JpaFactory.withEntityManager(emf, em -> (Number) em.createNativeQuery(
+                "SELECT next_val FROM id_generators WHERE sequence_name = 'rooms'").getSingleResult());
+        assertEquals(150, nextVal.intValue());
+    }
+}
@@ -0,0 +1,217 @@
+package com.hoteldb.labs.jpa.service;
+
+import com.hoteldb.labs.jpa.JpaFactory;
+import com.hoteldb.labs.jpa.entity.ClientEntity;
+import com.hoteldb.labs.jpa.entity.RoomEntity;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.RollbackException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingServiceTest {
+    private static final Logger logger = LoggerFactory.getLogger(BookingServiceTest.class);
+    private static final LocalDate DAY = LocalDate.of(2025, 12, 10);
+
+    private RoomService roomService;
+    private ClientService clientService;
+    private BookingService bookingService;
+
+    @BeforeEach
+    void setUp() {
+        roomService = new RoomService("testPU");
+        clientService = new ClientService("testPU");
+        bookingService = new BookingService("testPU");
+    }
+
+    @AfterEach
+    void tearDown() {
+        // общая фабрика testPU (create-drop): следующий тест начинает с пустой схемы
+        JpaFactory.close("testPU");
+    }
+
+    private RoomEntity room(String number) {
+        return roomService.create(new RoomEntity(number, "Standard", new BigDecimal("50.00"), true));
+    }
+
+    private ClientEntity client(String name) {
+        return clientService.create(new ClientEntity(name, "Guest", null, null, null));
+    }
+
+    @Test
+    void testInvalidArgumentsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BookingService.RetryPolicy(0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BookingService.RetryPolicy(3, 10, 5));
+        assertThrows(IllegalArgumentException.class, () -> new BookingService("testPU", null, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BookingService("testPU", BookingService.RetryPolicy.DEFAULT, -1));
+        assertThrows(IllegalArgumentException.class, () -> bookingService.book(1, 1, DAY, DAY));
+        assertThrows(IllegalArgumentException.class, () -> bookingService.book(1, 1, DAY, null));
+
+        ClientEntity guest = client("Ann");
+        assertThrows(IllegalArgumentException.class, () -> bookingService.book(guest.getId(), 999, DAY, DAY.plusDays(1)));
+        RoomEntity room = room("B-0");
+        assertThrows(IllegalArgumentException.class, () -> bookingService.book(999, room.getId(), DAY, DAY.plusDays(1)));
+    }
+
+    @Test
+    void testBookIncrementsRoomAndClientVersions() {
+        RoomEntity room = room("B-1");
+        ClientEntity guest = client("Ann");
+
+        ClientEntity booked = bookingService.book(guest.getId(), room.getId(), DAY, DAY.plusDays(2));
+
+        assertEquals(room.getId(), booked.getRoomId());
+        assertEquals(DAY, booked.getCheckInDate());
+        assertEquals(DAY.plusDays(2), booked.getCheckOutDate());
+        assertEquals(guest.getVersion() + 1, clientService.findById(guest.getId()).getVersion());
+        assertEquals(room.getVersion() + 1, roomService.findById(room.getId()).getVersion());
+        assertEquals(new BookingService.Stats(1, 0, 0, 0), bookingService.stats());
+    }
+
+    @Test
+    void testOverlappingBookingRejected() {
+        RoomEntity room = room("B-2");
+        ClientEntity first = client("Ann");
+        ClientEntity second = client("Bob");
+        bookingService.book(first.getId(), room.getId(), DAY, DAY.plusDays(3));
+
+        RoomUnavailableException e = assertThrows(RoomUnavailableException.class,
+                () -> bookingService.book(second.getId(), room.getId(), DAY.plusDays(2), DAY.plusDays(4)));
+        assertEquals(room.getId(), e.getRoomId());
+        assertEquals(List.of(first.getId()), e.getConflictingClientIds());
+        assertNull(clientService.findById(second.getId()).getRoomId());
+
+        // день выезда свободен; своя прежняя бронь конфликтом не считается
+        bookingService.book(second.getId(), room.getId(), DAY.plusDays(3), DAY.plusDays(4));
+        bookingService.book(first.getId(), room.getId(), DAY.minusDays(1), DAY.plusDays(3));
+        assertEquals(new BookingService.Stats(3, 1, 0, 0), bookingService.stats());
+    }
+
+    @Test
+    void testStaleClientCopyIsNotWritten() {
+        RoomEntity room = room("B-3");
+        ClientEntity stale = client("Ann");
+        bookingService.book(stale.getId(), room.getId(), DAY, DAY.plusDays(1));
+
+        stale.setPhone("+100");
+        RuntimeException e = assertThrows(RuntimeException.class, () -> clientService.update(stale));
+        assertTrue(BookingService.isConcurrencyConflict(e));
+        assertEquals(room.getId(), clientService.findById(stale.getId()).getRoomId());
+    }
+
+    @Test
+    void testConflictDetection() {
+        assertTrue(BookingService.isConcurrencyConflict(new RollbackException(new OptimisticLockException())));
+        assertFalse(BookingService.isConcurrencyConflict(new IllegalStateException()));
+        assertFalse(BookingService.isConcurrencyConflict(new RoomUnavailableException(1, DAY, DAY, List.of())));
+    }
+
+    /**
+     * Параллельные брони нескольких номеров: ни в одном номере проживания не пересекаются
+     * ни с полосами замков, ни с одной оптимистической блокировкой
+     */
+    @Test
+    void testConcurrentBookersNeverDoubleBook() throws Exception {
+        BookingService.RetryPolicy patient = new BookingService.RetryPolicy(100, 1, 20);
+        BookingService.Stats striped = contention(new BookingService("testPU", patient, 16), "striped", 16);
+        BookingService.Stats optimistic = contention(new BookingService("testPU", patient, 0), "optimistic", 16);
+
+        assertEquals(0, striped.retries());
+        assertEquals(0, striped.failed());
+        assertEquals(0, optimistic.failed());
+    }
+
+    /**
+     * Замер: 200 бронирующих потоков, полосы замков против одной оптимистической блокировки;
+     * время и повторы — в лог. Запуск: {@code mvn test -Pperf}
+     */
+    @Test
+    @Tag("perf")
+    void testContentionStripedVersusOptimistic() throws Exception {
+        BookingService.RetryPolicy patient = new BookingService.RetryPolicy(100, 1, 20);
+        BookingService.Stats striped = contention(new BookingService("testPU", patient, 16), "striped", 200);
+        BookingService.Stats optimistic = contention(new BookingService("testPU", patient, 0), "optimistic", 200);
+
+        assertEquals(0, striped.failed());
+        assertEquals(0, optimistic.failed());
+    }
+
+    private BookingService.Stats contention(BookingService service, String label, int bookers) throws Exception {
+        List<RoomEntity> rooms = new ArrayList<>();
+        List<ClientEntity> clients = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            rooms.add(new RoomEntity(label.charAt(0) + "-" + i, "Standard", new BigDecimal("50.00"), true));
+        }
+        for (int i = 0; i < bookers; i++) {
+            clients.add(new ClientEntity(label + i, "Guest", null, null, null));
+        }
+        List<Integer> roomIds = roomService.createAll(rooms).stream().map(RoomEntity::getId).toList();
+        List<Integer> clientIds = clientService.createAll(clients).stream().map(ClientEntity::getId).toList();
+
+        Random random = new Random(21);
+        ExecutorService pool = Executors.newFixedThreadPool(bookers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int clientId : clientIds) {
+            int roomId = roomIds.get(random.nextInt(roomIds.size()));
+            LocalDate checkIn = DAY.plusDays(random.nextInt(60));
+            LocalDate checkOut = checkIn.plusDays(1 + random.nextInt(3));
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    service.book(clientId, roomId, checkIn, checkOut);
+                } catch (RoomUnavailableException e) {
+                    // занято — нормальный ответ
+                }
+                return null;
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(2, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - started;
+        pool.shutdown();
+
+        BookingService.Stats stats = service.stats();
+        assertEquals(bookers, stats.booked() + stats.rejected() + stats.failed());
+        assertNoOverlaps(roomIds);
+        logger.info("Бронирование ({}): {} потоков за {} мс, забронировано {}, отказов {}, повторов {}, сбоев {}",
+                label, bookers, elapsed / 1_000_000, stats.booked(), stats.rejected(), stats.retries(), stats.failed());
+        return stats;
+    }
+
+    private void assertNoOverlaps(List<Integer> roomIds) {
+        Map<Integer, List<ClientEntity>> byRoom = clientService.findAll().stream()
+                .filter(c -> c.getRoomId() != null && roomIds.contains(c.getRoomId()))
+                .collect(Collectors.groupingBy(ClientEntity::getRoomId));
+        for (List<ClientEntity> stays : byRoom.values()) {
+            stays.sort(Comparator.comparing(ClientEntity::getCheckInDate));
+            for (int i = 1; i < stays.size(); i++) {
+                assertFalse(stays.get(i).getCheckInDate().isBefore(stays.get(i - 1).getCheckOutDate()),
+                        "double booking: " + stays.get(i - 1) + " / " + stays.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.hoteldb.labs.jpa.service;
+
+import com.hoteldb.labs.jpa.JpaFactory;
+import com.hoteldb.labs.jpa.entity.ClientEntity;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientExportServiceTest {
+    private ClientService clientService;
+    private ClientExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        clientService = new ClientService("testPU");
+        exportService = new ClientExportService("testPU");
+    }
+
+    @AfterEach
+    void tearDown() {
+        clientService.close();
+        JpaFactory.close("testPU");
+    }
+
+    @Test
+    void testExportCsvEscapesValues() {
+        ClientEntity client = new ClientEntity("Anna, Maria", "O\"Neil", "anna@example.com", null, 7);
+        client.setCheckInDate(LocalDate.of(2025, 12, 1));
+        client = clientService.create(client);
+
+        StringWriter out = new StringWriter();
+        assertEquals(1, exportService.exportEntities(out, ClientExportService.Format.CSV));
+
+        assertEquals(ClientExportService.CSV_HEADER + "\n" +
+                client.getId() + ",\"Anna, Maria\",\"O\"\"Neil\",anna@example.com,,7,2025-12-01,\n", out.toString());
+    }
+
+    @Test
+    void testExportJsonLines() {
+        ClientEntity client = clientService.create(new ClientEntity("Line\nBreak", "Back\\slash", null, "+7", null));
+
+        StringWriter out = new StringWriter();
+        assertEquals(1, exportService.exportProjection(out, ClientExportService.Format.JSON_LINES));
+
+        assertEquals("{\"id\":" + client.getId() + ",\"firstName\":\"Line\\nBreak\",\"lastName\":\"Back\\\\slash\"," +
+                "\"email\":null,\"phone\":\"+7\",\"roomId\":null,\"checkInDate\":null,\"checkOutDate\":null}\n", out.toString());
+    }
+
+    @Test
+    void testProjectionMatchesEntityExport() {
+        List<ClientEntity> clients = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            clients.add(new ClientEntity("First" + i, "Last" + i, "c" + i + "@example.com", null, i % 10));
+        }
+        clientService.createAll(clients);
+        Statistics stats = JpaFactory.statistics("testPU");
+        stats.clear();
+
+        StringWriter entities = new StringWriter();
+        StringWriter projection = new StringWriter();
+        assertEquals(1200, exportService.exportEntities(entities, ClientExportService.Format.CSV));
+        assertEquals(1200, exportService.exportProjection(projection, ClientExportService.Format.CSV));
+
+        assertEquals(entities.toString(), projection.toString());
+        assertEquals(1201, entities.toString().lines().count());
+        // сущности загружает только exportEntities, проекция — ни одной
+        assertEquals(1200, stats.getEntityLoadCount());
+    }
+
+    @Test
+    void testExportEmptyTableWritesHeaderOnly() {
+        StringWriter out = new StringWriter();
+
+        assertEquals(0, exportService.exportProjection(out, ClientExportService.Format.CSV));
+        assertEquals(ClientExportService.CSV_HEADER + "\n", out.toString());
+        assertThrows(IllegalArgumentException.class, () -> exportService.exportEntities(null, ClientExportService.Format.CSV));
+    }
+}
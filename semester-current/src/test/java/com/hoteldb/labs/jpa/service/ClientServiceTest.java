@@ -1,12 +1,15 @@
 package com.hoteldb.labs.jpa.service;
 
+import com.hoteldb.labs.jpa.JpaFactory;
 import com.hoteldb.labs.jpa.entity.ClientEntity;
 import com.hoteldb.labs.jpa.entity.RoomEntity;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -32,6 +35,23 @@ class ClientServiceTest {
         if (roomService != null) {
             roomService.close();
         }
+        // общая фабрика testPU (create-drop): следующий тест начинает с пустой схемы
+        JpaFactory.close("testPU");
+    }
+
+    @Test
+    void testCreateAll() {
+        RoomEntity room = roomService.create(new RoomEntity("CA-1", "Standard", new BigDecimal("50.00"), true));
+        List<ClientEntity> clients = new ArrayList<>();
+        for (int i = 0; i < 75; i++) {
+            clients.add(new ClientEntity("First" + i, "Last" + i, "bulk" + i + "@example.com", null, room.getId()));
+        }
+
+        List<ClientEntity> created = clientService.createAll(clients);
+
+        assertEquals(75, created.size());
+        assertTrue(created.stream().allMatch(c -> c.getId() != null));
+        assertEquals(75, clientService.findAll().size());
     }
 
     @Test
@@ -1,11 +1,17 @@
 package com.hoteldb.labs.jpa.service;
 
+import com.hoteldb.labs.jpa.JpaFactory;
 import com.hoteldb.labs.jpa.entity.RoomEntity;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -14,6 +20,8 @@ import static org.junit.jupiter.api.Assertions.*;
  * Unit tests for RoomService (Lab 3)
  */
 class RoomServiceTest {
+    private static final Logger logger = LoggerFactory.getLogger(RoomServiceTest.class);
+
     private RoomService roomService;
 
     @BeforeEach
@@ -26,6 +34,8 @@ class RoomServiceTest {
         if (roomService != null) {
             roomService.close();
         }
+        // общая фабрика testPU (create-drop): следующий тест начинает с пустой схемы
+        JpaFactory.close("testPU");
     }
 
     @Test
@@ -66,6 +76,123 @@ class RoomServiceTest {
         assertTrue(rooms.size() >= 2);
     }
 
+    @Test
+    void testFindAllServedFromQueryCache() {
+        roomService.create(new RoomEntity("C-1", "Standard", new BigDecimal("50.00"), true));
+        Statistics stats = JpaFactory.statistics("testPU");
+        stats.clear();
+
+        assertEquals(1, roomService.findAll().size());
+        assertEquals(1, roomService.findAll().size());
+
+        assertEquals(1, stats.getQueryCacheMissCount());
+        assertEquals(1, stats.getQueryCacheHitCount());
+        assertEquals(1, stats.getQueryExecutionCount(), "second findAll must not hit the database");
+    }
+
+    @Test
+    void testFindAllCacheInvalidatedOnWrites() {
+        RoomEntity room = roomService.create(new RoomEntity("C-2", "Standard", new BigDecimal("50.00"), true));
+        roomService.findAll();
+
+        room.setRoomType("Suite");
+        roomService.update(room);
+        assertEquals("Suite", roomService.findAll().get(0).getRoomType());
+
+        roomService.create(new RoomEntity("C-3", "Deluxe", new BigDecimal("90.00"), true));
+        assertEquals(2, roomService.findAll().size());
+
+        roomService.delete(room.getId());
+        List<RoomEntity> rooms = roomService.findAll();
+        assertEquals(1, rooms.size());
+        assertEquals("C-3", rooms.get(0).getRoomNumber());
+    }
+
+    @Test
+    void testFindByIdServedFromEntityCache() {
+        RoomEntity room = roomService.create(new RoomEntity("C-4", "Standard", new BigDecimal("50.00"), true));
+        roomService.findById(room.getId());
+        Statistics stats = JpaFactory.statistics("testPU");
+        stats.clear();
+
+        roomService.findById(room.getId());
+        roomService.findById(room.getId());
+
+        assertEquals(2, stats.getDomainDataRegionStatistics(RoomEntity.CACHE_REGION).getHitCount());
+        assertEquals(0, stats.getEntityLoadCount());
+    }
+
+    @Test
+    void testCreateAll() {
+        List<RoomEntity> created = roomService.createAll(rooms("B", 120));
+
+        assertEquals(120, created.size());
+        assertTrue(created.stream().allMatch(r -> r.getId() != null));
+        assertEquals(120, roomService.findAll().size());
+        assertEquals(List.of(), roomService.createAll(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> roomService.createAll(null));
+    }
+
+    @Test
+    void testCreateAllRollsBackWholeList() {
+        List<RoomEntity> rooms = rooms("RB", 60);
+        rooms.add(new RoomEntity("RB-0", "Standard", new BigDecimal("10.00"), true));
+
+        assertThrows(Exception.class, () -> roomService.createAll(rooms));
+        assertTrue(roomService.findAll().isEmpty());
+    }
+
+    /**
+     * Замер: поштучные вставки с IDENTITY против createAll с пулами id; время — в лог.
+     * Запуск: {@code mvn test -Pperf}
+     */
+    @Test
+    @Tag("perf")
+    void testCreateAllWithPooledIdsBatchesInsertsBenchmark() {
+        int count = 2_000;
+        // поштучно: IDENTITY и своя транзакция на каждую строку
+        Statistics perRowStats = JpaFactory.statistics("testPU");
+        perRowStats.clear();
+        long started = System.nanoTime();
+        for (RoomEntity room : rooms("P", count)) {
+            roomService.create(room);
+        }
+        long perRow = System.nanoTime() - started;
+        long perRowStatements = perRowStats.getPrepareStatementCount();
+        JpaFactory.close("testPU");
+
+        try {
+            RoomService batchService = new RoomService("testBatchPU");
+            Statistics batchStats = JpaFactory.statistics("testBatchPU");
+            batchStats.clear();
+            started = System.nanoTime();
+            List<RoomEntity> created = batchService.createAll(rooms("P", count));
+            long batched = System.nanoTime() - started;
+
+            assertEquals(count, created.size());
+            assertEquals(count, created.stream().map(RoomEntity::getId).distinct().count());
+            assertEquals(count, batchStats.getEntityInsertCount());
+            assertEquals(count, batchService.findAll().size());
+            // 2000 строк — 40 пачек INSERT по 50 плюс запросы счётчика id, а не 2000 отдельных INSERT
+            assertTrue(batchStats.getPrepareStatementCount() < count / 10,
+                    "inserts must be batched, statements: " + batchStats.getPrepareStatementCount());
+            assertTrue(perRowStatements >= count);
+
+            logger.info("Вставка {} номеров через JPA: поштучно {} мс ({} запросов), createAll с пулом id {} мс ({} запросов)",
+                    count, perRow / 1_000_000, perRowStatements, batched / 1_000_000, batchStats.getPrepareStatementCount());
+        } finally {
+            JpaFactory.close("testBatchPU");
+        }
+    }
+
+    private static List<RoomEntity> rooms(String prefix, int count) {
+        List<RoomEntity> rooms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rooms.add(new RoomEntity(prefix + "-" + i, "Standard", new BigDecimal("50.00"), true));
+        }
+        return rooms;
+    }
+
     @Test
     void testUpdate() {
         RoomEntity room = new RoomEntity("301", "Standard", new BigDecimal("50.00"), true);
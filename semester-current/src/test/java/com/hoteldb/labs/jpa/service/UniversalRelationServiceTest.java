@@ -1,5 +1,6 @@
 package com.hoteldb.labs.jpa.service;
 
+import com.hoteldb.labs.jpa.JpaFactory;
 import com.hoteldb.labs.jpa.entity.ClientEntity;
 import com.hoteldb.labs.jpa.entity.RoomEntity;
 import org.junit.jupiter.api.AfterEach;
@@ -8,6 +9,7 @@ import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -29,6 +31,8 @@ class UniversalRelationServiceTest {
         relationService.close();
         roomService.close();
         clientService.close();
+        // общая фабрика testPU (create-drop): следующий тест начинает с пустой схемы
+        JpaFactory.close("testPU");
     }
 
     @Test
@@ -44,6 +48,85 @@ class UniversalRelationServiceTest {
         assertNotNull(rows.get(0));
     }
 
+    @Test
+    void testForEachRowMatchesMaterializedRelation() {
+        RoomEntity room = roomService.create(new RoomEntity("UR-2", "Standard", new BigDecimal("10.00"), true));
+        roomService.create(new RoomEntity("UR-3", "Suite", new BigDecimal("30.00"), true));
+        clientService.create(new ClientEntity("A", "A", "a@example.com", null, room.getId()));
+        clientService.create(new ClientEntity("B", "B", "b@example.com", null, room.getId()));
+
+        List<UniversalRelationService.RelationRow> rows = new ArrayList<>();
+        assertEquals(3, relationService.forEachRow(rows::add));
+
+        List<Object[]> expected = relationService.getUniversalRelation();
+        assertEquals(expected.size(), rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(expected.get(i)[0], rows.get(i).roomId());
+            assertEquals(expected.get(i)[5], rows.get(i).clientId());
+        }
+        assertFalse(rows.get(2).hasClient());
+    }
+
+    @Test
+    void testForEachRoomGroupsCurrentGuests() {
+        LocalDate today = LocalDate.of(2025, 12, 10);
+        RoomEntity busy = roomService.create(new RoomEntity("G-1", "Standard", new BigDecimal("50.00"), false));
+        RoomEntity free = roomService.create(new RoomEntity("G-2", "Standard", new BigDecimal("50.00"), true));
+        clientService.create(stay("cur1", busy, today.minusDays(2), today.plusDays(1)));
+        clientService.create(stay("cur2", busy, today, null));
+        clientService.create(stay("left", busy, today.minusDays(5), today));
+        clientService.create(stay("future", free, today.plusDays(3), today.plusDays(5)));
+
+        List<UniversalRelationService.RoomGuests> rooms = new ArrayList<>();
+        assertEquals(4, relationService.forEachRoom(today, rooms::add));
+
+        assertEquals(2, rooms.size());
+        assertEquals(List.of("cur1", "cur2"), rooms.get(0).guests().stream()
+                .map(UniversalRelationService.RelationRow::firstName).toList());
+        assertFalse(rooms.get(1).occupied());
+    }
+
+    @Test
+    void testSummarizeComputesOccupancyAndRevenueByType() {
+        LocalDate today = LocalDate.of(2025, 12, 10);
+        RoomEntity s1 = roomService.create(new RoomEntity("S-1", "Standard", new BigDecimal("50.00"), false));
+        roomService.create(new RoomEntity("S-2", "Standard", new BigDecimal("55.00"), true));
+        RoomEntity suite = roomService.create(new RoomEntity("S-3", "Suite", new BigDecimal("200.00"), false));
+        clientService.create(stay("x", s1, today, today.plusDays(2)));
+        clientService.create(stay("y", suite, today.minusDays(1), today.plusDays(1)));
+        clientService.create(stay("z", suite, today.minusDays(1), today.plusDays(1)));
+
+        UniversalRelationService.RelationSummary summary = relationService.summarize(today);
+
+        assertEquals(4, summary.rowsRead());
+        assertEquals(3, summary.rooms());
+        assertEquals(2, summary.occupied());
+        assertEquals(3, summary.guests());
+        assertEquals(0, new BigDecimal("250.00").compareTo(summary.revenuePerNight()));
+        UniversalRelationService.TypeOccupancy standard = summary.byType().get("Standard");
+        assertEquals(2, standard.rooms());
+        assertEquals(1, standard.occupied());
+        assertEquals(0.5, standard.occupancyRate());
+        assertEquals(0, new BigDecimal("200.00").compareTo(summary.byType().get("Suite").revenuePerNight()));
+        assertEquals(List.of("Standard", "Suite"), List.copyOf(summary.byType().keySet()));
+    }
+
+    @Test
+    void testSummarizeEmptyRelation() {
+        UniversalRelationService.RelationSummary summary = relationService.summarize(LocalDate.of(2025, 1, 1));
+
+        assertEquals(0, summary.rooms());
+        assertEquals(0, summary.occupancyRate());
+        assertTrue(summary.byType().isEmpty());
+    }
+
+    private static ClientEntity stay(String name, RoomEntity room, LocalDate checkIn, LocalDate checkOut) {
+        ClientEntity client = new ClientEntity(name, "Guest", name + "@example.com", null, room.getId());
+        client.setCheckInDate(checkIn);
+        client.setCheckOutDate(checkOut);
+        return client;
+    }
+
     @Test
     void testCloseIsIdempotent() {
         relationService.close();
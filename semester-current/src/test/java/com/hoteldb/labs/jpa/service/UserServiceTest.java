@@ -0,0 +1,96 @@
+package com.hoteldb.labs.jpa.service;
+
+import com.hoteldb.labs.jpa.JpaFactory;
+import com.hoteldb.labs.jpa.entity.UserEntity;
+import com.hoteldb.labs.jpa.entity.UserRole;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Statement;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserServiceTest {
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userService = new UserService("testPU");
+    }
+
+    @AfterEach
+    void tearDown() {
+        userService.close();
+        JpaFactory.close("testPU");
+    }
+
+    @Test
+    void testRegisterAndFindByUsername() {
+        UserEntity user = userService.register("  alice ", "secret", null);
+
+        assertNotNull(user.getId());
+        Optional<UserEntity> found = userService.findByUsername("alice");
+        assertTrue(found.isPresent());
+        assertEquals(user.getId(), found.get().getId());
+        assertEquals(UserRole.USER, found.get().getRole());
+    }
+
+    @Test
+    void testFindByUsernameUsesNaturalIdCache() {
+        userService.register("bob", "secret", UserRole.ADMIN);
+        // первое чтение после вставки может уйти в БД: запись в кэше моложе транзакции чтения
+        userService.findByUsername("bob");
+        Statistics stats = JpaFactory.statistics("testPU");
+        stats.clear();
+
+        assertTrue(userService.findByUsername("bob").isPresent());
+        assertTrue(userService.findByUsername("bob").isPresent());
+
+        assertEquals(0, stats.getNaturalIdQueryExecutionCount(), "username must be resolved from the cache");
+        assertEquals(0, stats.getEntityLoadCount());
+        assertTrue(stats.getNaturalIdCacheHitCount() >= 2);
+    }
+
+    @Test
+    void testFindByUsernameAndPassword() {
+        userService.register("carol", "secret", null);
+
+        assertTrue(userService.findByUsernameAndPassword("carol", "secret").isPresent());
+        assertTrue(userService.findByUsernameAndPassword("carol", "wrong").isEmpty());
+        assertTrue(userService.findByUsernameAndPassword("nobody", "secret").isEmpty());
+        assertTrue(userService.findByUsernameAndPassword("carol", " ").isEmpty());
+        assertTrue(userService.findByUsernameAndPassword(null, "secret").isEmpty());
+    }
+
+    @Test
+    void testPasswordCheckSeesChangesMadeOutsideHibernate() {
+        userService.register("erin", "old", UserRole.ADMIN);
+        assertEquals("old", userService.findByUsername("erin").orElseThrow().getPassword());
+
+        // так пишет spring-app: в обход Hibernate, кэш второго уровня об изменении не знает
+        JpaFactory.withEntityManager(JpaFactory.getEntityManagerFactory("testPU"), em -> {
+            em.unwrap(Session.class).doWork(connection -> {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.executeUpdate("UPDATE users SET password = 'new', role = 'USER' WHERE username = 'erin'");
+                }
+            });
+            return null;
+        });
+
+        assertTrue(userService.findByUsernameAndPassword("erin", "old").isEmpty());
+        UserEntity user = userService.findByUsernameAndPassword("erin", "new").orElseThrow();
+        assertEquals(UserRole.USER, user.getRole());
+        // проверка пароля обновила и запись в кэше
+        assertEquals("new", userService.findByUsername("erin").orElseThrow().getPassword());
+    }
+
+    @Test
+    void testRegisterRequiresCredentials() {
+        assertThrows(IllegalArgumentException.class, () -> userService.register(" ", "secret", null));
+        assertThrows(IllegalArgumentException.class, () -> userService.register("dave", null, null));
+    }
+}
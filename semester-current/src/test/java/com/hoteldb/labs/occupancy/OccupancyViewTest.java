@@ -0,0 +1,203 @@
+package com.hoteldb.labs.occupancy;
+
+import com.hoteldb.labs.jpa.JpaFactory;
+import com.hoteldb.labs.jpa.entity.ClientEntity;
+import com.hoteldb.labs.jpa.entity.RoomEntity;
+import com.hoteldb.labs.jpa.service.ClientService;
+import com.hoteldb.labs.jpa.service.RoomService;
+import com.hoteldb.labs.jpa.service.UniversalRelationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyViewTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 12, 10);
+
+    private RoomService roomService;
+    private ClientService clientService;
+    private OccupancyView view;
+
+    @BeforeEach
+    void setUp() {
+        roomService = new RoomService("testPU");
+        clientService = new ClientService("testPU");
+        view = new OccupancyView(new UniversalRelationService("testPU"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        OccupancyView.uninstall();
+        JpaFactory.close("testPU");
+    }
+
+    @Test
+    void testConstructorNullThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new OccupancyView(null));
+    }
+
+    @Test
+    void testReloadBuildsFromDatabase() {
+        RoomEntity room = roomService.create(new RoomEntity("V-1", "Standard", new BigDecimal("50.00"), false));
+        roomService.create(new RoomEntity("V-2", "Standard", new BigDecimal("50.00"), true));
+        clientService.create(stay("Ann", room.getId(), TODAY.minusDays(1), TODAY.plusDays(2)));
+        clientService.create(stay("Bob", room.getId(), TODAY.plusDays(5), null));
+        clientService.create(stay("Old", room.getId(), TODAY.minusDays(9), TODAY.minusDays(3)));
+
+        view.reload();
+
+        assertEquals("V-1", view.room(room.getId()).roomNumber());
+        assertEquals(List.of("Ann Guest"), names(view.guestsOn(room.getId(), TODAY)));
+        assertEquals(List.of("Ann Guest", "Bob Guest"), names(view.staysFrom(room.getId(), TODAY)));
+        assertEquals(new OccupancyView.TypeCounters(2, 1, 3), view.counters("Standard"));
+    }
+
+    @Test
+    void testServiceWritesUpdateInstalledView() {
+        view.reload();
+        OccupancyView.install(view);
+
+        RoomEntity standard = roomService.create(new RoomEntity("W-1", "Standard", new BigDecimal("50.00"), true));
+        RoomEntity suite = roomService.create(new RoomEntity("W-2", "Suite", new BigDecimal("200.00"), true));
+        ClientEntity guest = clientService.create(stay("Eve", standard.getId(), TODAY, TODAY.plusDays(1)));
+        assertEquals(List.of("Eve Guest"), names(view.guestsOn(standard.getId(), TODAY)));
+        assertEquals(1, view.counters("Standard").stays());
+
+        // переселение в другой номер
+        guest.setRoomId(suite.getId());
+        clientService.update(guest);
+        assertTrue(view.guestsOn(standard.getId(), TODAY).isEmpty());
+        assertEquals(List.of("Eve Guest"), names(view.guestsOn(suite.getId(), TODAY)));
+        assertEquals(0, view.counters("Standard").stays());
+        assertEquals(1, view.counters("Suite").stays());
+
+        // смена типа номера переносит его счётчики
+        suite.setRoomType("Deluxe");
+        suite.setIsAvailable(false);
+        roomService.update(suite);
+        assertEquals(OccupancyView.TypeCounters.EMPTY, view.counters("Suite"));
+        assertEquals(new OccupancyView.TypeCounters(1, 0, 1), view.counters("Deluxe"));
+
+        clientService.delete(guest.getId());
+        assertTrue(view.staysFrom(suite.getId(), TODAY).isEmpty());
+        roomService.delete(standard.getId());
+        assertNull(view.room(standard.getId()));
+        assertFalse(view.snapshot().byType().containsKey("Standard"));
+
+        // представление совпадает с перестроенным по БД
+        OccupancyView.Snapshot incremental = view.snapshot();
+        view.reload();
+        assertEquals(incremental.rooms(), view.snapshot().rooms());
+        assertEquals(incremental.staysByClient(), view.snapshot().staysByClient());
+        assertEquals(incremental.byType(), view.snapshot().byType());
+    }
+
+    @Test
+    void testRoomDeletionDropsItsStays() {
+        view.roomSaved(1, 0L, "101", "Standard", new BigDecimal("50.00"), true);
+        view.clientSaved(10, 0L, 1, "A", "B", TODAY, null);
+        view.clientSaved(11, 0L, 1, "C", "D", TODAY, null);
+
+        view.roomDeleted(1);
+
+        assertTrue(view.snapshot().staysByClient().isEmpty());
+        assertTrue(view.snapshot().byType().isEmpty());
+        // клиент без номера больше не учитывается
+        view.clientSaved(10, 1L, null, "A", "B", TODAY, null);
+        assertTrue(view.snapshot().staysByClient().isEmpty());
+    }
+
+    @Test
+    void testSnapshotIsStableForReaders() {
+        view.roomSaved(1, 0L, "101", "Standard", new BigDecimal("50.00"), true);
+        OccupancyView.Snapshot before = view.snapshot();
+
+        view.clientSaved(10, 0L, 1, "A", "B", TODAY, null);
+        view.clientSaved(10, 0L, 1, "A", "B", TODAY, null);
+
+        assertTrue(before.stays(1).isEmpty());
+        assertEquals(1, view.snapshot().stays(1).size());
+        assertEquals(1, view.counters("Standard").stays());
+        assertTrue(view.snapshot().version() > before.version());
+        assertThrows(UnsupportedOperationException.class, () -> view.snapshot().rooms().clear());
+    }
+
+    @Test
+    void testCreateAllPublishesOneSnapshot() {
+        view.reload();
+        OccupancyView.install(view);
+        long before = view.snapshot().version();
+
+        List<RoomEntity> rooms = roomService.createAll(List.of(
+                new RoomEntity("B-1", "Standard", new BigDecimal("50.00"), true),
+                new RoomEntity("B-2", "Standard", new BigDecimal("50.00"), true),
+                new RoomEntity("B-3", "Suite", new BigDecimal("200.00"), false)));
+
+        assertEquals(before + 1, view.snapshot().version());
+        assertEquals(3, view.snapshot().rooms().size());
+        assertEquals(new OccupancyView.TypeCounters(2, 2, 0), view.counters("Standard"));
+        assertEquals("B-3", view.room(rooms.get(2).getId()).roomNumber());
+    }
+
+    @Test
+    void testLateEventDoesNotOverwriteNewerState() {
+        view.roomSaved(1, 0L, "101", "Standard", new BigDecimal("50.00"), true);
+        view.clientSaved(10, 2L, 1, "A", "B", TODAY, null);
+        long version = view.snapshot().version();
+
+        // событие первой записи клиента дошло после второй
+        view.clientSaved(10, 1L, null, "A", "B", null, null);
+        view.roomSaved(1, 0L, "101", "Standard", new BigDecimal("50.00"), true);
+        view.roomSaved(1, 3L, "101", "Suite", new BigDecimal("90.00"), true);
+        view.roomSaved(1, 2L, "101", "Standard", new BigDecimal("50.00"), true);
+
+        assertEquals(1, view.snapshot().stays(1).size());
+        assertEquals("Suite", view.room(1).roomType());
+        assertEquals(new OccupancyView.TypeCounters(1, 1, 1), view.counters("Suite"));
+        assertEquals(version + 2, view.snapshot().version());
+    }
+
+    @Test
+    void testDeletedRowsAreNotRestoredByLateEvents() {
+        view.roomSaved(1, 0L, "101", "Standard", new BigDecimal("50.00"), true);
+        view.clientSaved(10, 0L, 1, "A", "B", TODAY, null);
+        view.clientDeleted(10);
+        view.roomDeleted(2);
+
+        view.clientSaved(10, 5L, 1, "A", "B", TODAY, null);
+        view.roomSaved(2, 5L, "102", "Standard", new BigDecimal("50.00"), true);
+        view.clientSaved(11, 0L, 2, "C", "D", TODAY, null);
+
+        assertTrue(view.snapshot().staysByClient().isEmpty());
+        assertNull(view.room(2));
+        assertEquals(new OccupancyView.TypeCounters(1, 1, 0), view.counters("Standard"));
+    }
+
+    @Test
+    void testFailedEventTriggersReload() {
+        RoomEntity room = roomService.create(new RoomEntity("F-1", "Standard", new BigDecimal("50.00"), true));
+        OccupancyView.install(view);
+
+        OccupancyView.ifInstalled(v -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertNotNull(view.room(room.getId()));
+    }
+
+    private static ClientEntity stay(String name, Integer roomId, LocalDate checkIn, LocalDate checkOut) {
+        ClientEntity client = new ClientEntity(name, "Guest", name.toLowerCase() + "@example.com", null, roomId);
+        client.setCheckInDate(checkIn);
+        client.setCheckOutDate(checkOut);
+        return client;
+    }
+
+    private static List<String> names(List<OccupancyView.Stay> stays) {
+        return stays.stream().map(OccupancyView.Stay::guestName).toList();
+    }
+}
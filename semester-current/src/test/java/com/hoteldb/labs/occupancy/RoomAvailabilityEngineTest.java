@@ -0,0 +1,228 @@
+package com.hoteldb.labs.occupancy;
+
+import com.hoteldb.labs.occupancy.RoomAvailabilityEngine.RoomSpec;
+import com.hoteldb.labs.occupancy.RoomAvailabilityEngine.Stay;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomAvailabilityEngineTest {
+    private static final Logger logger = LoggerFactory.getLogger(RoomAvailabilityEngineTest.class);
+    private static final LocalDate DAY = LocalDate.of(2025, 12, 10);
+    private static final LocalDate GENERATED_START = LocalDate.of(2020, 1, 1);
+
+    private static RoomAvailabilityEngine.Builder hotel() {
+        return RoomAvailabilityEngine.builder()
+                .addRoom(new RoomSpec(1, "Standard", new BigDecimal("50.00")))
+                .addRoom(new RoomSpec(2, "Standard", new BigDecimal("70.00")))
+                .addRoom(new RoomSpec(3, "Suite", new BigDecimal("200.00")));
+    }
+
+    private static List<Integer> ids(List<RoomSpec> rooms) {
+        return rooms.stream().map(RoomSpec::id).toList();
+    }
+
+    @Test
+    void testInvalidArgumentsRejected() {
+        RoomAvailabilityEngine engine = hotel().build();
+
+        assertThrows(IllegalArgumentException.class, () -> engine.freeRooms(DAY, DAY, null, null));
+        assertThrows(IllegalArgumentException.class, () -> engine.isFree(1, DAY, null));
+        assertThrows(IllegalArgumentException.class, () -> engine.isFree(99, DAY, DAY.plusDays(1)));
+        assertThrows(IllegalArgumentException.class, () -> new Stay(1, 1, DAY, DAY));
+        assertThrows(IllegalArgumentException.class, () -> new RoomSpec(1, null, BigDecimal.ONE));
+    }
+
+    @Test
+    void testStaysAreHalfOpenAndOpenEnded() {
+        RoomAvailabilityEngine engine = hotel()
+                .addStay(new Stay(10, 1, DAY, DAY.plusDays(3)))
+                .addStay(new Stay(11, 2, DAY.plusDays(5), null))
+                .build();
+
+        // день выезда уже свободен, день заезда — нет
+        assertTrue(engine.isFree(1, DAY.plusDays(3), DAY.plusDays(4)));
+        assertTrue(engine.isFree(1, DAY.minusDays(2), DAY));
+        assertFalse(engine.isFree(1, DAY.plusDays(2), DAY.plusDays(3)));
+        // бессрочное проживание занимает номер навсегда
+        assertTrue(engine.isFree(2, DAY, DAY.plusDays(5)));
+        assertFalse(engine.isFree(2, DAY.plusYears(5), DAY.plusYears(5).plusDays(1)));
+
+        assertEquals(List.of(new Stay(10, 1, DAY, DAY.plusDays(3))), engine.conflicts(1, DAY.minusDays(1), DAY.plusDays(1)));
+        assertEquals(List.of(new Stay(11, 2, DAY.plusDays(5), null)), engine.conflicts(2, DAY, DAY.plusDays(6)));
+        assertEquals(2, engine.stayCount());
+    }
+
+    @Test
+    void testFreeRoomsFilteredByTypeAndPrice() {
+        RoomAvailabilityEngine engine = hotel()
+                .addStay(new Stay(10, 1, DAY, DAY.plusDays(2)))
+                .build();
+
+        assertEquals(List.of(2, 3), ids(engine.freeRooms(DAY, DAY.plusDays(1), null, null)));
+        assertEquals(List.of(1, 2, 3), ids(engine.freeRooms(DAY.plusDays(2), DAY.plusDays(4), null, null)));
+        assertEquals(List.of(1, 2), ids(engine.freeRooms(DAY.plusDays(2), DAY.plusDays(4), "Standard", null)));
+        assertEquals(List.of(1), ids(engine.freeRooms(DAY.plusDays(2), DAY.plusDays(4), "Standard", new BigDecimal("50"))));
+        assertEquals(List.of(), ids(engine.freeRooms(DAY, DAY.plusDays(1), "Standard", new BigDecimal("60"))));
+        assertEquals(List.of(), ids(engine.freeRooms(DAY, DAY.plusDays(1), "Penthouse", null)));
+    }
+
+    @Test
+    void testTryAddStayDetectsConflictsAndRemoveStayFreesRoom() {
+        RoomAvailabilityEngine engine = hotel().build();
+
+        assertTrue(engine.tryAddStay(new Stay(10, 1, DAY, DAY.plusDays(3))));
+        assertFalse(engine.tryAddStay(new Stay(11, 1, DAY.plusDays(2), DAY.plusDays(4))));
+        assertTrue(engine.tryAddStay(new Stay(11, 1, DAY.plusDays(3), DAY.plusDays(4))));
+        assertTrue(engine.tryAddStay(new Stay(12, 1, DAY.minusDays(2), DAY)));
+        assertEquals(List.of(12, 10, 11), engine.conflicts(1, DAY.minusDays(9), DAY.plusDays(9)).stream()
+                .map(Stay::clientId).toList());
+
+        assertTrue(engine.removeStay(1, 10));
+        assertFalse(engine.removeStay(1, 10));
+        assertTrue(engine.isFree(1, DAY, DAY.plusDays(3)));
+    }
+
+    @Test
+    void testRoomChangesKeepStays() {
+        RoomAvailabilityEngine engine = hotel()
+                .addStay(new Stay(10, 1, DAY, DAY.plusDays(2)))
+                .build();
+
+        engine.putRoom(new RoomSpec(1, "Suite", new BigDecimal("250.00")));
+        engine.putRoom(new RoomSpec(4, "Suite", new BigDecimal("150.00")));
+
+        assertEquals(List.of(4, 3), ids(engine.freeRooms(DAY, DAY.plusDays(1), "Suite", null)));
+        assertEquals(List.of(2), ids(engine.freeRooms(DAY, DAY.plusDays(1), "Standard", null)));
+        assertFalse(engine.tryAddStay(new Stay(11, 1, DAY, DAY.plusDays(1))));
+
+        assertTrue(engine.removeRoom(1));
+        assertFalse(engine.removeRoom(1));
+        assertNull(engine.room(1));
+        assertEquals(3, engine.roomCount());
+        assertEquals(0, engine.stayCount());
+    }
+
+    @Test
+    void testMatchesFullScanOnRandomStays() {
+        Random random = new Random(20);
+        RoomAvailabilityEngine.Builder builder = RoomAvailabilityEngine.builder();
+        List<Stay> stays = new ArrayList<>();
+        for (int room = 1; room <= 20; room++) {
+            builder.addRoom(new RoomSpec(room, room % 2 == 0 ? "Standard" : "Suite", BigDecimal.valueOf(room * 10L)));
+        }
+        for (int client = 1; client <= 400; client++) {
+            LocalDate checkIn = DAY.plusDays(random.nextInt(200));
+            LocalDate checkOut = random.nextInt(20) == 0 ? null : checkIn.plusDays(1 + random.nextInt(10));
+            Stay stay = new Stay(client, 1 + random.nextInt(20), checkIn, checkOut);
+            stays.add(stay);
+            builder.addStay(stay);
+        }
+        RoomAvailabilityEngine engine = builder.build();
+
+        for (int query = 0; query < 300; query++) {
+            LocalDate from = DAY.plusDays(random.nextInt(220) - 10);
+            LocalDate to = from.plusDays(1 + random.nextInt(14));
+            List<Integer> expected = new ArrayList<>();
+            for (int room = 1; room <= 20; room++) {
+                if (scanFree(stays, room, from, to)) {
+                    expected.add(room);
+                }
+            }
+            assertEquals(expected, ids(engine.freeRooms(from, to, null, null)), "period " + from + " - " + to);
+        }
+    }
+
+    private static boolean scanFree(List<Stay> stays, int roomId, LocalDate from, LocalDate to) {
+        for (Stay stay : stays) {
+            if (stay.roomId() == roomId && stay.checkIn().isBefore(to)
+                    && (stay.checkOut() == null || stay.checkOut().isAfter(from))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    void testTypeAndPriceQueryMatchesPerRoomCheck() {
+        RoomAvailabilityEngine engine = generatedHotel(200, 20).build();
+        assertEquals(200 * 20, engine.stayCount());
+
+        LocalDate from = GENERATED_START.plusDays(100);
+        LocalDate to = from.plusDays(3);
+        List<RoomSpec> free = engine.freeRooms(from, to, "Deluxe", new BigDecimal("150"));
+        long expected = expectedFreeDeluxe(engine, from, to);
+        assertTrue(expected > 0);
+        assertEquals(expected, free.size());
+    }
+
+    /**
+     * 10 000 номеров и 1 000 000 проживаний; время пишется в лог, а проверяется совпадение с проверкой
+     * каждого номера. Запуск: {@code mvn test -Pperf}
+     */
+    @Test
+    @Tag("perf")
+    void testQueriesOnMillionStays() {
+        RoomAvailabilityEngine.Builder builder = generatedHotel(10_000, 100);
+        long started = System.nanoTime();
+        RoomAvailabilityEngine engine = builder.build();
+        long buildMillis = (System.nanoTime() - started) / 1_000_000;
+        assertEquals(1_000_000L, engine.stayCount());
+
+        LocalDate from = GENERATED_START.plusDays(700);
+        LocalDate to = from.plusDays(3);
+        long best = Long.MAX_VALUE;
+        List<RoomSpec> free = null;
+        for (int i = 0; i < 50; i++) {
+            long queryStart = System.nanoTime();
+            free = engine.freeRooms(from, to, "Deluxe", new BigDecimal("150"));
+            best = Math.min(best, System.nanoTime() - queryStart);
+        }
+        assertEquals(expectedFreeDeluxe(engine, from, to), free.size());
+        logger.info("Индекс {} проживаний построен за {} мс; свободные номера по типу и цене: {} шт. за {} мкс",
+                engine.stayCount(), buildMillis, free.size(), best / 1_000);
+    }
+
+    /**
+     * Номера четырёх типов, у каждого {@code staysPerRoom} проживаний подряд со случайными промежутками
+     */
+    private static RoomAvailabilityEngine.Builder generatedHotel(int rooms, int staysPerRoom) {
+        Random random = new Random(1);
+        String[] types = {"Standard", "Deluxe", "Suite", "Family"};
+        RoomAvailabilityEngine.Builder builder = RoomAvailabilityEngine.builder();
+        for (int room = 1; room <= rooms; room++) {
+            builder.addRoom(new RoomSpec(room, types[room % types.length], BigDecimal.valueOf(50 + room % 200)));
+        }
+        for (int room = 1; room <= rooms; room++) {
+            LocalDate checkIn = GENERATED_START;
+            for (int i = 0; i < staysPerRoom; i++) {
+                checkIn = checkIn.plusDays(random.nextInt(20));
+                LocalDate checkOut = checkIn.plusDays(1 + random.nextInt(7));
+                builder.addStay(new Stay(room * staysPerRoom + i, room, checkIn, checkOut));
+                checkIn = checkOut;
+            }
+        }
+        return builder;
+    }
+
+    private static long expectedFreeDeluxe(RoomAvailabilityEngine engine, LocalDate from, LocalDate to) {
+        long expected = 0;
+        for (int room = 1; room <= engine.roomCount(); room++) {
+            RoomSpec spec = engine.room(room);
+            if (spec.roomType().equals("Deluxe") && spec.pricePerNight().compareTo(new BigDecimal("150")) <= 0
+                    && engine.conflicts(room, from, to).isEmpty()) {
+                expected++;
+            }
+        }
+        return expected;
+    }
+}
@@ -5,7 +5,8 @@ CREATE TABLE IF NOT EXISTS rooms (
     room_type VARCHAR(50) NOT NULL,
     price_per_night DECIMAL(10, 2) NOT NULL,
     is_available BOOLEAN DEFAULT TRUE,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0
 );
 
 CREATE TABLE IF NOT EXISTS clients (
@@ -17,6 +18,13 @@ CREATE TABLE IF NOT EXISTS clients (
     room_id INT,
     check_in_date DATE,
     check_out_date DATE,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0
 );
 
+
+CREATE INDEX IF NOT EXISTS idx_rooms_type_available_id ON rooms (room_type, is_available, id);
+CREATE INDEX IF NOT EXISTS idx_rooms_available_id ON rooms (is_available, id);
+CREATE INDEX IF NOT EXISTS idx_rooms_price ON rooms (price_per_night);
+CREATE INDEX IF NOT EXISTS idx_clients_room_id ON clients (room_id, id);
+CREATE INDEX IF NOT EXISTS idx_clients_stay ON clients (check_in_date, check_out_date);
@@ -1,12 +1,29 @@
 package com.hoteldb.spring.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hoteldb.spring.api.dto.RoomPageResponse;
 import com.hoteldb.spring.api.dto.RoomResponse;
+import com.hoteldb.spring.repository.RoomFilter;
 import com.hoteldb.spring.service.RoomQueryService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
@@ -14,14 +31,87 @@ import java.util.List;
 public class RoomRestController {
 
     private final RoomQueryService roomQueryService;
+    private final ObjectMapper objectMapper;
 
-    public RoomRestController(RoomQueryService roomQueryService) {
+    public RoomRestController(RoomQueryService roomQueryService, ObjectMapper objectMapper) {
         this.roomQueryService = roomQueryService;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Список номеров с фильтрами: {@code page/size/sort} — обычные страницы, {@code afterId} — keyset по id.
+     * ETag считается до чтения данных: если таблица изменится между ними, клиент просто перечитает её
+     * при следующем опросе. Совпавший If-None-Match даёт 304 без запроса страницы.
+     */
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public List<RoomResponse> listAll() {
-        return roomQueryService.findAll().stream().map(RoomResponse::from).toList();
+    public ResponseEntity<RoomPageResponse> list(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean available,
+            @RequestParam(required = false) Integer afterId,
+            @PageableDefault(size = 20, sort = "id") Pageable pageable,
+            WebRequest request) {
+        String etag = roomQueryService.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        RoomFilter filter = new RoomFilter(type, minPrice, maxPrice, available);
+        RoomPageResponse body = afterId == null ? offsetPage(filter, pageable) : keysetPage(filter, afterId, pageable);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(body);
+    }
+
+    /**
+     * Все номера JSON-массивом без промежуточного списка: строки из курсора сразу пишутся
+     * потоковым генератором Jackson в ответ (в потоке асинхронной обработки запроса).
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> stream(WebRequest request) {
+        String etag = roomQueryService.etag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                // поток ответа закрывает Spring, генератор только сбрасывает буфер
+                json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                json.writeStartArray();
+                roomQueryService.forEachRoom(room -> {
+                    try {
+                        json.writeObject(room);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(body);
+    }
+
+    private RoomPageResponse offsetPage(RoomFilter filter, Pageable pageable) {
+        Page<RoomResponse> page = roomQueryService.findPage(filter, pageable);
+        return new RoomPageResponse(page.getContent(), page.getSize(), page.getNumber(),
+                page.getTotalElements(), page.getTotalPages(), null);
+    }
+
+    private RoomPageResponse keysetPage(RoomFilter filter, Integer afterId, Pageable pageable) {
+        if (!Sort.by("id").equals(pageable.getSort())) {
+            throw new IllegalArgumentException("afterId paging is ordered by id only");
+        }
+        int size = pageable.getPageSize();
+        List<RoomResponse> rooms = roomQueryService.findAfter(filter, afterId, size);
+        boolean hasNext = rooms.size() > size;
+        List<RoomResponse> items = hasNext ? rooms.subList(0, size) : rooms;
+        Integer next = hasNext ? items.get(items.size() - 1).id() : null;
+        return new RoomPageResponse(items, size, null, null, null, next);
     }
 }
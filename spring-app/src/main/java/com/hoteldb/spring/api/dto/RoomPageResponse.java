@@ -0,0 +1,16 @@
+package com.hoteldb.spring.api.dto;
+
+import java.util.List;
+
+/**
+ * Страница номеров. При offset-пагинации заполнены page/totalElements/totalPages,
+ * при keyset — nextAfterId (null на последней странице).
+ */
+public record RoomPageResponse(
+        List<RoomResponse> items,
+        int size,
+        Integer page,
+        Long totalElements,
+        Integer totalPages,
+        Integer nextAfterId) {
+}
@@ -2,9 +2,12 @@ package com.hoteldb.spring.config;
 
 import com.hoteldb.spring.security.DatabaseUserDetailsService;
 import com.hoteldb.spring.security.LabPasswordEncoder;
+import com.hoteldb.spring.security.UserDetailsCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -25,9 +28,16 @@ public class SecurityConfig {
 
     @Bean
     @Order(1)
-    public SecurityFilterChain apiSecurityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain apiSecurityFilterChain(HttpSecurity http, DatabaseUserDetailsService userDetailsService,
+                                                      UserDetailsCache userDetailsCache) throws Exception {
+        // stateless Basic проверяет пользователя на каждом запросе — читаем его через кэш;
+        // при неверном пароле на закэшированной записи провайдер перечитает её из БД
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(passwordEncoder());
+        provider.setUserDetailsService(userDetailsService);
+        provider.setUserCache(userDetailsCache);
         return http
                 .securityMatcher("/api/**")
+                .authenticationManager(new ProviderManager(provider))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/v1/register").permitAll()
                         .anyRequest().authenticated())
@@ -44,6 +54,7 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/", "/login", "/register", "/css/**", "/error").permitAll()
                         .requestMatchers("/welcome").authenticated()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .userDetailsService(userDetailsService)
                 .formLogin(form -> form
@@ -0,0 +1,28 @@
+package com.hoteldb.spring.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Проверка профиля {@code virtual} ({@code spring.threads.virtual.enabled}): проект собирается под Java 17,
+ * а виртуальные потоки есть только в среде выполнения Java 21+ — на более старой Spring Boot свойство
+ * игнорирует, и об этом пишется предупреждение.
+ */
+@Configuration
+public class TaskConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskConfig.class);
+
+    public TaskConfig(Environment environment) {
+        int java = Runtime.version().feature();
+        if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            if (java < 21) {
+                log.warn("Задано spring.threads.virtual.enabled, но в Java {} нет виртуальных потоков: используются обычные потоки", java);
+            } else {
+                log.info("Запросы Tomcat выполняются на виртуальных потоках");
+            }
+        }
+    }
+}
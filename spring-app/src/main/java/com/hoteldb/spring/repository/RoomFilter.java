@@ -0,0 +1,53 @@
+package com.hoteldb.spring.repository;
+
+import com.hoteldb.spring.domain.RoomEntity;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Фильтры списка номеров; null — без ограничения. В запрос попадают только заданные условия,
+ * поэтому MySQL может использовать индексы (room_type, is_available, id) и price_per_night.
+ */
+public record RoomFilter(String roomType, BigDecimal minPrice, BigDecimal maxPrice, Boolean available) {
+
+    public static final RoomFilter NONE = new RoomFilter(null, null, null, null);
+
+    public RoomFilter {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("minPrice must not exceed maxPrice");
+        }
+    }
+
+    public Specification<RoomEntity> toSpecification() {
+        return toSpecification(null);
+    }
+
+    /**
+     * @param afterId keyset-курсор: только номера с id больше заданного; null — с начала
+     */
+    public Specification<RoomEntity> toSpecification(Integer afterId) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (roomType != null) {
+                predicates.add(cb.equal(root.get("roomType"), roomType));
+            }
+            if (available != null) {
+                predicates.add(cb.equal(root.get("isAvailable"), available));
+            }
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("pricePerNight"), minPrice));
+            }
+            if (maxPrice != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("pricePerNight"), maxPrice));
+            }
+            if (afterId != null) {
+                predicates.add(cb.greaterThan(root.get("id"), afterId));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -1,7 +1,44 @@
 package com.hoteldb.spring.repository;
 
+import com.hoteldb.spring.api.dto.RoomResponse;
 import com.hoteldb.spring.domain.RoomEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface RoomRepository extends JpaRepository<RoomEntity, Integer> {
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface RoomRepository extends JpaRepository<RoomEntity, Integer>, JpaSpecificationExecutor<RoomEntity>,
+        RoomResponseQueries {
+
+    String SELECT_RESPONSE = "SELECT new com.hoteldb.spring.api.dto.RoomResponse(r.id, r.roomNumber, r.roomType, " +
+            "r.pricePerNight, r.isAvailable, r.createdAt) FROM RoomEntity r";
+
+    /**
+     * Отпечаток таблицы для ETag: вставка и удаление меняют count/max id, обновление — сумму версий.
+     * Возвращает только агрегаты, сущности не загружаются.
+     */
+    @Query("SELECT new com.hoteldb.spring.repository.RoomTableStamp(COUNT(r), COALESCE(MAX(r.id), 0), " +
+            "COALESCE(SUM(r.version), 0)) FROM RoomEntity r")
+    RoomTableStamp stamp();
+
+    /**
+     * Все номера сразу в DTO: без управляемых сущностей и их снимков для dirty checking
+     */
+    @Query(SELECT_RESPONSE + " ORDER BY r.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<RoomResponse> findAllResponses();
+
+    /**
+     * То же потоком; читать внутри транзакции и закрыть. На MySQL строки идут курсором при useCursorFetch=true.
+     */
+    @Query(SELECT_RESPONSE + " ORDER BY r.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500")})
+    Stream<RoomResponse> streamAllResponses();
 }
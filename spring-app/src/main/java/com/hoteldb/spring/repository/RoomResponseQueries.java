@@ -0,0 +1,20 @@
+package com.hoteldb.spring.repository;
+
+import com.hoteldb.spring.api.dto.RoomResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Фильтруемые запросы списка номеров с проекцией прямо в {@link RoomResponse}
+ */
+public interface RoomResponseQueries {
+
+    Page<RoomResponse> findResponses(RoomFilter filter, Pageable pageable);
+
+    /**
+     * Keyset: номера с id больше {@code afterId} по возрастанию id, не больше {@code limit}
+     */
+    List<RoomResponse> findResponsesAfter(RoomFilter filter, Integer afterId, int limit);
+}
@@ -0,0 +1,65 @@
+package com.hoteldb.spring.repository;
+
+import com.hoteldb.spring.api.dto.RoomResponse;
+import com.hoteldb.spring.domain.RoomEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+
+/**
+ * Criteria-запросы с {@code cb.construct(RoomResponse, ...)}: фильтры те же, что у {@link RoomFilter},
+ * но Hibernate заполняет DTO из строк результата, не создавая сущностей.
+ */
+class RoomResponseQueriesImpl implements RoomResponseQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<RoomResponse> findResponses(RoomFilter filter, Pageable pageable) {
+        TypedQuery<RoomResponse> query = select(filter.toSpecification(), pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+        // COUNT не выполняется, если размер следует из самой страницы (первая неполная или последняя)
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> count(filter.toSpecification()));
+    }
+
+    @Override
+    public List<RoomResponse> findResponsesAfter(RoomFilter filter, Integer afterId, int limit) {
+        return select(filter.toSpecification(afterId), Sort.by("id"))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private TypedQuery<RoomResponse> select(Specification<RoomEntity> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<RoomResponse> query = cb.createQuery(RoomResponse.class);
+        Root<RoomEntity> room = query.from(RoomEntity.class);
+        query.select(cb.construct(RoomResponse.class, room.get("id"), room.get("roomNumber"), room.get("roomType"),
+                room.get("pricePerNight"), room.get("isAvailable"), room.get("createdAt")));
+        query.where(spec.toPredicate(room, query, cb));
+        query.orderBy(QueryUtils.toOrders(sort, room, cb));
+        return entityManager.createQuery(query).setHint(HibernateHints.HINT_READ_ONLY, true);
+    }
+
+    private long count(Specification<RoomEntity> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<RoomEntity> room = query.from(RoomEntity.class);
+        query.select(cb.count(room)).where(spec.toPredicate(room, query, cb));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,11 @@
+package com.hoteldb.spring.repository;
+
+public record RoomTableStamp(long rows, long maxId, long versionSum) {
+
+    /**
+     * Слабый ETag: одинаков для любого представления таблицы с тем же содержимым
+     */
+    public String etag() {
+        return "W/\"rooms-" + rows + "-" + maxId + "-" + versionSum + "\"";
+    }
+}
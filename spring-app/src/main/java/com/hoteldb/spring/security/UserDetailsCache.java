@@ -0,0 +1,90 @@
+package com.hoteldb.spring.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Кэш пользователей для HTTP Basic на /api/**: без него каждый запрос читает users.
+ * <p>
+ * Хранятся неизменяемые снимки, а наружу отдаётся новый {@link User}: после аутентификации
+ * Spring Security стирает пароль у principal, и общий объект в кэше испортился бы.
+ * Записи живут не дольше TTL — так ограничена устарелость при изменениях в обход
+ * {@link com.hoteldb.spring.service.UserAccountService} (та же БД у servlet-лаб).
+ * Метрики Micrometer: {@code cache.gets{cache=userDetails,result=hit|miss}}, {@code cache.size}, {@code cache.evictions}.
+ */
+@Component
+public class UserDetailsCache implements UserCache {
+
+    public static final String NAME = "userDetails";
+
+    private record Snapshot(String username, String password, List<GrantedAuthority> authorities) {
+    }
+
+    private final Cache<String, Snapshot> cache;
+
+    public UserDetailsCache(@Value("${app.security.user-cache.ttl:PT1M}") Duration ttl,
+                            @Value("${app.security.user-cache.max-size:10000}") long maxSize,
+                            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        Snapshot s = cache.getIfPresent(username);
+        if (s == null) {
+            return null;
+        }
+        return User.withUsername(s.username())
+                .password(s.password())
+                .authorities(s.authorities())
+                .build();
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        cache.put(user.getUsername(), new Snapshot(user.getUsername(), user.getPassword(), List.copyOf(user.getAuthorities())));
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        cache.invalidate(username);
+    }
+
+    /**
+     * Сбросить запись сейчас и ещё раз после коммита: иначе параллельный запрос успеет
+     * положить в кэш строку, прочитанную до коммита
+     */
+    public void evictAfterCommit(String username) {
+        removeUserFromCache(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeUserFromCache(username);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
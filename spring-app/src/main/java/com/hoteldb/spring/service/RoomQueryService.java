@@ -1,15 +1,26 @@
 package com.hoteldb.spring.service;
 
-import com.hoteldb.spring.domain.RoomEntity;
+import com.hoteldb.spring.api.dto.RoomResponse;
+import com.hoteldb.spring.repository.RoomFilter;
 import com.hoteldb.spring.repository.RoomRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class RoomQueryService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Set<String> SORTABLE = Set.of("id", "roomNumber", "roomType", "pricePerNight", "createdAt");
+
     private final RoomRepository roomRepository;
 
     public RoomQueryService(RoomRepository roomRepository) {
@@ -17,7 +28,57 @@ public class RoomQueryService {
     }
 
     @Transactional(readOnly = true)
-    public List<RoomEntity> findAll() {
-        return roomRepository.findAll();
+    public List<RoomResponse> findAll() {
+        return roomRepository.findAllResponses();
+    }
+
+    /**
+     * Передать все номера по одному, не собирая список: поток закрывается вместе с транзакцией
+     *
+     * @return сколько номеров передано
+     */
+    @Transactional(readOnly = true)
+    public long forEachRoom(Consumer<? super RoomResponse> action) {
+        long count = 0;
+        try (Stream<RoomResponse> rooms = roomRepository.streamAllResponses()) {
+            for (RoomResponse room : (Iterable<RoomResponse>) rooms::iterator) {
+                action.accept(room);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Текущий слабый ETag таблицы rooms — один агрегатный запрос без загрузки сущностей
+     */
+    @Transactional(readOnly = true)
+    public String etag() {
+        return roomRepository.stamp().etag();
+    }
+
+    /**
+     * Страница по номеру (offset); сортировка — только по полям из {@link #SORTABLE}
+     */
+    @Transactional(readOnly = true)
+    public Page<RoomResponse> findPage(RoomFilter filter, Pageable pageable) {
+        for (Sort.Order order : pageable.getSort()) {
+            if (!SORTABLE.contains(order.getProperty())) {
+                throw new IllegalArgumentException("Unsupported sort property: " + order.getProperty());
+            }
+        }
+        return roomRepository.findResponses(filter, pageable);
+    }
+
+    /**
+     * Keyset-страница по id: без OFFSET и без запроса COUNT, стоимость не растёт с номером страницы.
+     * Читается на одну строку больше, чтобы узнать, есть ли следующая страница.
+     */
+    @Transactional(readOnly = true)
+    public List<RoomResponse> findAfter(RoomFilter filter, Integer afterId, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return roomRepository.findResponsesAfter(filter, afterId, size + 1);
     }
 }
@@ -3,6 +3,7 @@ package com.hoteldb.spring.service;
 import com.hoteldb.spring.domain.UserEntity;
 import com.hoteldb.spring.domain.UserRole;
 import com.hoteldb.spring.repository.UserRepository;
+import com.hoteldb.spring.security.UserDetailsCache;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -10,9 +11,11 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserAccountService {
 
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
-    public UserAccountService(UserRepository userRepository) {
+    public UserAccountService(UserRepository userRepository, UserDetailsCache userDetailsCache) {
         this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Transactional
@@ -31,7 +34,31 @@ public class UserAccountService {
         entity.setUsername(u);
         entity.setPassword(password);
         entity.setRole(UserRole.USER);
-        return userRepository.save(entity);
+        UserEntity saved = userRepository.save(entity);
+        userDetailsCache.evictAfterCommit(u);
+        return saved;
+    }
+
+    @Transactional
+    public UserEntity changePassword(String username, String newPassword) {
+        if (newPassword == null || newPassword.isBlank()) {
+            throw new IllegalArgumentException("password required");
+        }
+        UserEntity user = requireByUsername(username);
+        user.setPassword(newPassword);
+        userDetailsCache.evictAfterCommit(user.getUsername());
+        return user;
+    }
+
+    @Transactional
+    public UserEntity changeRole(String username, UserRole role) {
+        if (role == null) {
+            throw new IllegalArgumentException("role required");
+        }
+        UserEntity user = requireByUsername(username);
+        user.setRole(role);
+        userDetailsCache.evictAfterCommit(user.getUsername());
+        return user;
     }
 
     @Transactional(readOnly = true)
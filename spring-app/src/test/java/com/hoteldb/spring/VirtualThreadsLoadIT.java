@@ -0,0 +1,123 @@
+package com.hoteldb.spring;
+
+import com.hoteldb.spring.domain.RoomEntity;
+import com.hoteldb.spring.repository.RoomRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Всплеск запросов к /api/v1/rooms (на каждый — несколько JDBC-запросов к H2) на платформенных
+ * и на виртуальных потоках. Пул Tomcat сужен, чтобы очередь к нему была видна; p99 и пропускная
+ * способность пишутся в лог, проверяется только, что все ответы успешны.
+ * <p>
+ * Сравнение требует среды выполнения Java 21+: проект компилируется под Java 17, и на JRE 17 проверяются
+ * только обычные потоки.
+ */
+class VirtualThreadsLoadIT {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadsLoadIT.class);
+
+    private static final int CLIENTS = 200;
+    private static final int REQUESTS = 2000;
+    private static final int TOMCAT_THREADS = 20;
+
+    private record Result(String mode, double p50Millis, double p99Millis, double requestsPerSecond) {
+    }
+
+    @Test
+    void comparesPlatformAndVirtualThreads() throws Exception {
+        Result platform = run(false);
+        log.info("{}", platform);
+        if (Runtime.version().feature() < 21) {
+            log.info("Java {}: виртуальных потоков нет, профиль virtual не проверяется", Runtime.version().feature());
+            return;
+        }
+        Result virtual = run(true);
+        log.info("{}", virtual);
+        log.info("p99: {} мс -> {} мс; пропускная способность: {} -> {} запр/с",
+                platform.p99Millis(), virtual.p99Millis(),
+                Math.round(platform.requestsPerSecond()), Math.round(virtual.requestsPerSecond()));
+    }
+
+    private Result run(boolean virtual) throws Exception {
+        String mode = virtual ? "virtual" : "platform";
+        SpringApplicationBuilder app = new SpringApplicationBuilder(SpringLabsApplication.class)
+                .profiles(virtual ? new String[]{"test", "virtual"} : new String[]{"test"})
+                .properties("server.port=0",
+                        "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "spring.jmx.enabled=false",
+                        "spring.datasource.url=jdbc:h2:mem:load-" + mode + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (ConfigurableApplicationContext context = app.run()) {
+            RoomRepository rooms = context.getBean(RoomRepository.class);
+            for (int i = 1; i <= 200; i++) {
+                RoomEntity room = new RoomEntity();
+                room.setRoomNumber(String.valueOf(1000 + i));
+                room.setRoomType(i % 3 == 0 ? "Suite" : "Standard");
+                room.setPricePerNight(BigDecimal.valueOf(40 + i));
+                room.setIsAvailable(i % 4 != 0);
+                rooms.save(room);
+            }
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            URI uri = URI.create("http://localhost:" + port + "/api/v1/rooms?type=Standard&size=20&sort=pricePerNight,desc");
+            // прогрев: JIT, пул соединений и кэш пользователей
+            burst(uri, CLIENTS, 400);
+
+            long started = System.nanoTime();
+            long[] latencies = burst(uri, CLIENTS, REQUESTS);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            Arrays.sort(latencies);
+            return new Result(mode, percentile(latencies, 0.50), percentile(latencies, 0.99), REQUESTS / seconds);
+        }
+    }
+
+    private static long[] burst(URI uri, int clients, int requests) throws Exception {
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", "Basic " + Base64.getEncoder()
+                        .encodeToString("admin:admin".getBytes(StandardCharsets.UTF_8)))
+                .GET().build();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Long>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                futures.add(pool.submit(() -> {
+                    long start = System.nanoTime();
+                    HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                    assertEquals(200, response.statusCode());
+                    return System.nanoTime() - start;
+                }));
+            }
+            long[] latencies = new long[requests];
+            for (int i = 0; i < requests; i++) {
+                latencies[i] = futures.get(i).get();
+            }
+            return latencies;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1);
+        return Math.round(sorted[index] / 10_000.0) / 100.0;
+    }
+}
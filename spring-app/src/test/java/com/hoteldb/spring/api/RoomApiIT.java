@@ -0,0 +1,135 @@
+package com.hoteldb.spring.api;
+
+import com.hoteldb.spring.domain.RoomEntity;
+import com.hoteldb.spring.repository.RoomRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(roles = "ADMIN")
+class RoomApiIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 5; i++) {
+            roomRepository.save(room("10" + i, i % 2 == 0 ? "Suite" : "Standard", 50 * i, i != 3));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomRepository.deleteAll();
+    }
+
+    private static RoomEntity room(String number, String type, int price, boolean available) {
+        RoomEntity room = new RoomEntity();
+        room.setRoomNumber(number);
+        room.setRoomType(type);
+        room.setPricePerNight(BigDecimal.valueOf(price));
+        room.setIsAvailable(available);
+        return room;
+    }
+
+    @Test
+    void filtersAndPagesInDatabase() throws Exception {
+        mockMvc.perform(get("/api/v1/rooms").param("type", "Standard").param("available", "true")
+                        .param("size", "1").param("sort", "pricePerNight,desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].roomNumber").value("105"))
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.totalPages").value(2));
+
+        mockMvc.perform(get("/api/v1/rooms").param("minPrice", "100").param("maxPrice", "200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(3));
+    }
+
+    @Test
+    void keysetPagingFollowsCursor() throws Exception {
+        String first = mockMvc.perform(get("/api/v1/rooms").param("afterId", "0").param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(3))
+                .andExpect(jsonPath("$.totalElements").value(nullValue()))
+                .andReturn().getResponse().getContentAsString();
+        String next = first.replaceAll(".*\"nextAfterId\":(\\d+).*", "$1");
+
+        mockMvc.perform(get("/api/v1/rooms").param("afterId", next).param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.nextAfterId").value(nullValue()));
+    }
+
+    @Test
+    void unchangedTableReturnsNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/rooms"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/v1/rooms").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        RoomEntity changed = roomRepository.findAll().get(0);
+        changed.setPricePerNight(new BigDecimal("999.00"));
+        roomRepository.save(changed);
+
+        mockMvc.perform(get("/api/v1/rooms").header("If-None-Match", etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void unsupportedSortIsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/rooms").param("sort", "version"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/rooms").param("afterId", "0").param("sort", "pricePerNight"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/rooms").param("minPrice", "10").param("maxPrice", "5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamWritesAllRoomsAsArray() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/v1/rooms/stream"))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().exists("ETag"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[2].roomNumber").value("103"))
+                .andExpect(jsonPath("$[2].available").value(false));
+
+        String etag = started.getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/v1/rooms/stream").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+}
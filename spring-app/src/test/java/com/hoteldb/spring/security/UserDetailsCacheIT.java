@@ -0,0 +1,90 @@
+package com.hoteldb.spring.security;
+
+import com.hoteldb.spring.domain.UserRole;
+import com.hoteldb.spring.repository.UserRepository;
+import com.hoteldb.spring.service.UserAccountService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class UserDetailsCacheIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserAccountService userAccountService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsCache.clear();
+        userAccountService.registerUser("guest", "secret");
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.findByUsername("guest").ifPresent(userRepository::delete);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", UserDetailsCache.NAME).tag("result", result)
+                .functionCounter().count();
+    }
+
+    @Test
+    void repeatedBasicAuthIsServedFromCache() throws Exception {
+        double hits = gets("hit");
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/v1/me").with(httpBasic("guest", "secret")))
+                    .andExpect(status().isOk());
+        }
+
+        assertEquals(hits + 2, gets("hit"));
+        // пароль у principal стёрт после входа, а снимок в кэше цел
+        assertNotNull(userDetailsCache.getUserFromCache("guest").getPassword());
+    }
+
+    @Test
+    void passwordAndRoleChangesEvictCachedUser() throws Exception {
+        mockMvc.perform(get("/api/v1/me").with(httpBasic("guest", "secret")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/rooms").with(httpBasic("guest", "secret")))
+                .andExpect(status().isForbidden());
+
+        userAccountService.changePassword("guest", "changed");
+        assertNull(userDetailsCache.getUserFromCache("guest"));
+        mockMvc.perform(get("/api/v1/me").with(httpBasic("guest", "secret")))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/v1/me").with(httpBasic("guest", "changed")))
+                .andExpect(status().isOk());
+
+        userAccountService.changeRole("guest", UserRole.ADMIN);
+        mockMvc.perform(get("/api/v1/rooms").with(httpBasic("guest", "changed")))
+                .andExpect(status().isOk());
+    }
+}